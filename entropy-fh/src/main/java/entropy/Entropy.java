@@ -271,10 +271,13 @@ public final class Entropy extends Thread implements EntropyMBean {
     public void run() {
         t = Thread.currentThread();
         LOGGER.info("Infinite loop started " + Thread.currentThread());
+        boolean iterate = true;
         while (!this.mustExit()) {
-            LOGGER.debug("Starting a new loop iteration");
-            synchronized (this.stopLock) {
-                this.controlLoop.runLoop();
+            if (iterate) {
+                LOGGER.debug("Starting a new loop iteration");
+                synchronized (this.stopLock) {
+                    this.controlLoop.runLoop();
+                }
             }
             if (mustExit()) {
                 this.controlLoop.destroy();
@@ -282,7 +285,7 @@ public final class Entropy extends Thread implements EntropyMBean {
             }
             LOGGER.debug("Waiting ...");
             try {
-                Thread.sleep(this.sleepDelay * SECONDS);
+                iterate = this.controlLoop.waitNextIteration(this.sleepDelay * SECONDS);
             } catch (InterruptedException e) {
                 LOGGER.error(e.getMessage(), e);
             }
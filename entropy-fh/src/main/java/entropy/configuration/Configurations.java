@@ -27,6 +27,7 @@ import java.util.List;
  * Common tools related to Configuration
  *
  * @author Fabien Hermenier
+ * @see LoadTracker to check the viability of a configuration that is modified incrementally
  */
 public final class Configurations {
 
@@ -0,0 +1,494 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.configuration;
+
+import gnu.trove.TObjectIntHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Track the resources used on each online node of a configuration.
+ * The CPU and memory consumption and demand of the running virtual machines
+ * are summed per node once, then maintained incrementally when the virtual machines
+ * are placed using the methods of the tracker. The viability of the configuration and the
+ * set of overloaded nodes are then available without browsing the virtual machines.
+ * <p/>
+ * The tracker records the resources of a virtual machine when it is placed. If the
+ * resources of a virtual machine or the capacity of a node are modified afterward,
+ * {@link #refresh(VirtualMachine)} or {@link #refresh(Node)} must be called to keep the sums accurate.
+ * The configuration must not be modified outside the tracker.
+ *
+ * @author Fabien Hermenier
+ * @see Configurations for the equivalent one-shot checks
+ */
+public class LoadTracker {
+
+    private static final int NO_NODE = -1;
+
+    /**
+     * The tracked configuration.
+     */
+    private Configuration cfg;
+
+    /**
+     * The index of each tracked node, shifted by one.
+     */
+    private TObjectIntHashMap<Node> nodeIdx;
+
+    private Node[] nodes;
+
+    private int nbNodes;
+
+    private int[] cpuCons;
+
+    private int[] memCons;
+
+    private int[] cpuDem;
+
+    private int[] memDem;
+
+    /**
+     * The number of running and sleeping virtual machines on each node.
+     */
+    private int[] nbHosted;
+
+    /**
+     * The slot of each tracked virtual machine, shifted by one.
+     */
+    private TObjectIntHashMap<VirtualMachine> vmIdx;
+
+    private int nbVMs;
+
+    /**
+     * The node hosting each virtual machine, {@link #NO_NODE} if waiting.
+     */
+    private int[] vmHost;
+
+    private boolean[] vmRunning;
+
+    private int[] vmCpuCons;
+
+    private int[] vmMemCons;
+
+    private int[] vmCpuDem;
+
+    private int[] vmMemDem;
+
+    private ManagedElementSet<Node> currentlyOverloaded;
+
+    private ManagedElementSet<Node> futureOverloaded;
+
+    /**
+     * Make a new tracker.
+     *
+     * @param c the configuration to track
+     */
+    public LoadTracker(Configuration c) {
+        this.cfg = c;
+        int nb = Math.max(c.getOnlines().size(), 1);
+        nodeIdx = new TObjectIntHashMap<Node>(nb);
+        nodes = new Node[nb];
+        cpuCons = new int[nb];
+        memCons = new int[nb];
+        cpuDem = new int[nb];
+        memDem = new int[nb];
+        nbHosted = new int[nb];
+
+        int nbV = Math.max(c.getAllVirtualMachines().size(), 1);
+        vmIdx = new TObjectIntHashMap<VirtualMachine>(nbV);
+        vmHost = new int[nbV];
+        vmRunning = new boolean[nbV];
+        vmCpuCons = new int[nbV];
+        vmMemCons = new int[nbV];
+        vmCpuDem = new int[nbV];
+        vmMemDem = new int[nbV];
+
+        currentlyOverloaded = new SimpleManagedElementSet<Node>();
+        futureOverloaded = new SimpleManagedElementSet<Node>();
+
+        for (Node n : c.getOnlines()) {
+            int ni = index(n);
+            for (VirtualMachine vm : c.getRunnings(n)) {
+                int s = slot(vm);
+                record(s, vm);
+                attach(s, ni, true);
+            }
+            for (VirtualMachine vm : c.getSleepings(n)) {
+                int s = slot(vm);
+                record(s, vm);
+                attach(s, ni, false);
+            }
+        }
+        for (VirtualMachine vm : c.getWaitings()) {
+            record(slot(vm), vm);
+        }
+        for (int i = 0; i < nbNodes; i++) {
+            check(i);
+        }
+    }
+
+    /**
+     * Get the tracked configuration.
+     *
+     * @return the configuration
+     */
+    public Configuration getConfiguration() {
+        return cfg;
+    }
+
+    private int index(Node n) {
+        if (nbNodes == nodes.length) {
+            int l = nbNodes * 2;
+            nodes = Arrays.copyOf(nodes, l);
+            cpuCons = Arrays.copyOf(cpuCons, l);
+            memCons = Arrays.copyOf(memCons, l);
+            cpuDem = Arrays.copyOf(cpuDem, l);
+            memDem = Arrays.copyOf(memDem, l);
+            nbHosted = Arrays.copyOf(nbHosted, l);
+        }
+        nodes[nbNodes] = n;
+        nodeIdx.put(n, nbNodes + 1);
+        return nbNodes++;
+    }
+
+    private int slot(VirtualMachine vm) {
+        int s = vmIdx.get(vm) - 1;
+        if (s >= 0) {
+            return s;
+        }
+        if (nbVMs == vmHost.length) {
+            int l = nbVMs * 2;
+            vmHost = Arrays.copyOf(vmHost, l);
+            vmRunning = Arrays.copyOf(vmRunning, l);
+            vmCpuCons = Arrays.copyOf(vmCpuCons, l);
+            vmMemCons = Arrays.copyOf(vmMemCons, l);
+            vmCpuDem = Arrays.copyOf(vmCpuDem, l);
+            vmMemDem = Arrays.copyOf(vmMemDem, l);
+        }
+        vmHost[nbVMs] = NO_NODE;
+        vmIdx.put(vm, nbVMs + 1);
+        return nbVMs++;
+    }
+
+    /**
+     * Add the resources of a virtual machine to its new host.
+     */
+    private void attach(int s, int ni, boolean running) {
+        vmHost[s] = ni;
+        vmRunning[s] = running;
+        nbHosted[ni]++;
+        if (running) {
+            cpuCons[ni] += vmCpuCons[s];
+            memCons[ni] += vmMemCons[s];
+            cpuDem[ni] += vmCpuDem[s];
+            memDem[ni] += vmMemDem[s];
+        }
+    }
+
+    /**
+     * Remove the resources of a virtual machine from its current host.
+     *
+     * @return the index of the previous host, {@link #NO_NODE} if there was none
+     */
+    private int detach(int s) {
+        int ni = vmHost[s];
+        if (ni != NO_NODE) {
+            nbHosted[ni]--;
+            if (vmRunning[s]) {
+                cpuCons[ni] -= vmCpuCons[s];
+                memCons[ni] -= vmMemCons[s];
+                cpuDem[ni] -= vmCpuDem[s];
+                memDem[ni] -= vmMemDem[s];
+            }
+            vmHost[s] = NO_NODE;
+        }
+        return ni;
+    }
+
+    private void record(int s, VirtualMachine vm) {
+        vmCpuCons[s] = vm.getCPUConsumption();
+        vmMemCons[s] = vm.getMemoryConsumption();
+        vmCpuDem[s] = vm.getCPUDemand();
+        vmMemDem[s] = vm.getMemoryDemand();
+    }
+
+    /**
+     * Update the membership of a node in the sets of overloaded nodes.
+     */
+    private void check(int ni) {
+        Node n = nodes[ni];
+        boolean cur = cpuCons[ni] > n.getCPUCapacity() || memCons[ni] > n.getMemoryCapacity();
+        boolean fut = cpuDem[ni] > n.getCPUCapacity() || memDem[ni] > n.getMemoryCapacity();
+        if (cur != currentlyOverloaded.contains(n)) {
+            if (cur) {
+                currentlyOverloaded.add(n);
+            } else {
+                currentlyOverloaded.remove(n);
+            }
+        }
+        if (fut != futureOverloaded.contains(n)) {
+            if (fut) {
+                futureOverloaded.add(n);
+            } else {
+                futureOverloaded.remove(n);
+            }
+        }
+    }
+
+    private int nodeIndex(Node n) {
+        int ni = nodeIdx.get(n) - 1;
+        if (ni < 0 && cfg.isOnline(n)) {
+            ni = index(n);
+        }
+        return ni;
+    }
+
+    private boolean place(VirtualMachine vm, Node n, boolean running) {
+        if (!(running ? cfg.setRunOn(vm, n) : cfg.setSleepOn(vm, n))) {
+            return false;
+        }
+        int ni = nodeIndex(n);
+        int s = slot(vm);
+        int old = detach(s);
+        record(s, vm);
+        attach(s, ni, running);
+        if (old != NO_NODE && old != ni) {
+            check(old);
+        }
+        check(ni);
+        return true;
+    }
+
+    /**
+     * Set a virtual machine running on a node.
+     *
+     * @param vm the virtual machine
+     * @param n  the hosting node
+     * @return {@code true} if the placement succeeded
+     * @see Configuration#setRunOn(VirtualMachine, Node)
+     */
+    public boolean setRunOn(VirtualMachine vm, Node n) {
+        return place(vm, n, true);
+    }
+
+    /**
+     * Set a virtual machine sleeping on a node.
+     *
+     * @param vm the virtual machine
+     * @param n  the hosting node
+     * @return {@code true} if the placement succeeded
+     * @see Configuration#setSleepOn(VirtualMachine, Node)
+     */
+    public boolean setSleepOn(VirtualMachine vm, Node n) {
+        return place(vm, n, false);
+    }
+
+    /**
+     * Set a virtual machine in the waiting state.
+     *
+     * @param vm the virtual machine
+     * @see Configuration#addWaiting(VirtualMachine)
+     */
+    public void addWaiting(VirtualMachine vm) {
+        cfg.addWaiting(vm);
+        int s = slot(vm);
+        int old = detach(s);
+        record(s, vm);
+        if (old != NO_NODE) {
+            check(old);
+        }
+    }
+
+    /**
+     * Remove a virtual machine from the configuration.
+     *
+     * @param vm the virtual machine
+     * @see Configuration#remove(VirtualMachine)
+     */
+    public void remove(VirtualMachine vm) {
+        cfg.remove(vm);
+        int s = vmIdx.remove(vm) - 1;
+        if (s >= 0) {
+            int old = detach(s);
+            if (old != NO_NODE) {
+                check(old);
+            }
+        }
+    }
+
+    /**
+     * Set a node online.
+     *
+     * @param n the node
+     * @see Configuration#addOnline(Node)
+     */
+    public void addOnline(Node n) {
+        cfg.addOnline(n);
+        check(nodeIndex(n));
+    }
+
+    /**
+     * Read again the resources of a virtual machine.
+     *
+     * @param vm the virtual machine that has been modified
+     */
+    public void refresh(VirtualMachine vm) {
+        int s = vmIdx.get(vm) - 1;
+        if (s >= 0) {
+            int ni = vmHost[s];
+            if (ni == NO_NODE) {
+                record(s, vm);
+            } else {
+                boolean running = vmRunning[s];
+                detach(s);
+                record(s, vm);
+                attach(s, ni, running);
+                check(ni);
+            }
+        }
+    }
+
+    /**
+     * Read again the capacity of a node.
+     *
+     * @param n the node that has been modified
+     */
+    public void refresh(Node n) {
+        int ni = nodeIdx.get(n) - 1;
+        if (ni >= 0) {
+            check(ni);
+        }
+    }
+
+    /**
+     * Get the CPU consumption of the virtual machines running on a node.
+     *
+     * @param n the node
+     * @return the consumption. {@code 0} if the node is not online
+     */
+    public int getCPUConsumption(Node n) {
+        int ni = nodeIdx.get(n) - 1;
+        return ni < 0 ? 0 : cpuCons[ni];
+    }
+
+    /**
+     * Get the memory consumption of the virtual machines running on a node.
+     *
+     * @param n the node
+     * @return the consumption. {@code 0} if the node is not online
+     */
+    public int getMemoryConsumption(Node n) {
+        int ni = nodeIdx.get(n) - 1;
+        return ni < 0 ? 0 : memCons[ni];
+    }
+
+    /**
+     * Get the CPU demand of the virtual machines running on a node.
+     *
+     * @param n the node
+     * @return the demand. {@code 0} if the node is not online
+     */
+    public int getCPUDemand(Node n) {
+        int ni = nodeIdx.get(n) - 1;
+        return ni < 0 ? 0 : cpuDem[ni];
+    }
+
+    /**
+     * Get the memory demand of the virtual machines running on a node.
+     *
+     * @param n the node
+     * @return the demand. {@code 0} if the node is not online
+     */
+    public int getMemoryDemand(Node n) {
+        int ni = nodeIdx.get(n) - 1;
+        return ni < 0 ? 0 : memDem[ni];
+    }
+
+    /**
+     * Indicates if a node hosts running or sleeping virtual machines.
+     *
+     * @param n the node
+     * @return {@code true} if the node is online and hosts at least one virtual machine
+     */
+    public boolean isUsed(Node n) {
+        int ni = nodeIdx.get(n) - 1;
+        return ni >= 0 && nbHosted[ni] > 0;
+    }
+
+    /**
+     * Indicates if a node is currently overloaded.
+     *
+     * @param n the node
+     * @return {@code true} if the node is overloaded
+     * @see Configurations#currentlyOverloaded(Configuration, Node)
+     */
+    public boolean isCurrentlyOverloaded(Node n) {
+        return currentlyOverloaded.contains(n);
+    }
+
+    /**
+     * Indicates if a node will be overloaded.
+     *
+     * @param n the node
+     * @return {@code true} if the node is saturated
+     * @see Configurations#futureOverloaded(Configuration, Node)
+     */
+    public boolean isFutureOverloaded(Node n) {
+        return futureOverloaded.contains(n);
+    }
+
+    /**
+     * Get the nodes that are currently overloaded.
+     * The set is maintained by the tracker and must not be modified.
+     *
+     * @return a set of nodes, may be empty
+     */
+    public ManagedElementSet<Node> getCurrentlyOverloadedNodes() {
+        return currentlyOverloaded;
+    }
+
+    /**
+     * Get the nodes that will be overloaded.
+     * The set is maintained by the tracker and must not be modified.
+     *
+     * @return a set of nodes, may be empty
+     */
+    public ManagedElementSet<Node> getFutureOverloadedNodes() {
+        return futureOverloaded;
+    }
+
+    /**
+     * Check whether the configuration is currently viable.
+     *
+     * @return {@code true} if no node is currently overloaded
+     */
+    public boolean isCurrentlyViable() {
+        return currentlyOverloaded.isEmpty();
+    }
+
+    /**
+     * Check whether the configuration will be viable.
+     *
+     * @return {@code true} if no node will be overloaded
+     */
+    public boolean isFutureViable() {
+        return futureOverloaded.isEmpty();
+    }
+}
@@ -90,6 +90,19 @@ public abstract class ControlLoop {
      */
     public abstract boolean runLoop();
 
+    /**
+     * Wait before the next iteration of the loop.
+     * By default, the loop is periodic so the method just sleeps.
+     *
+     * @param delay the maximum waiting time in milliseconds
+     * @return {@code true} if the next iteration must be performed, {@code false} to wait again
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public boolean waitNextIteration(long delay) throws InterruptedException {
+        Thread.sleep(delay);
+        return true;
+    }
+
 
     /**
      * Log a configuration into a file.
@@ -21,10 +21,20 @@ package entropy.controlLoop;
 import antlr.SemanticException;
 import entropy.PropertiesHelper;
 import entropy.PropertiesHelperException;
+import entropy.WrongPropertyTypeException;
+import entropy.execution.MigrationThrottle;
 import entropy.execution.TimedReconfigurationExecuter;
 import entropy.execution.driver.DriverFactory;
 import entropy.monitoring.Monitor;
+import entropy.monitoring.store.MetricsStore;
+import entropy.plan.ConsolidationPolicy;
+import entropy.plan.choco.constraint.pack.FastBinPacking;
+import entropy.plan.choco.constraint.pack.SatisfyDemandingSliceHeights;
+import entropy.plan.choco.constraint.pack.SatisfyDemandingSlicesHeightsFastBP;
+import entropy.plan.choco.constraint.pack.SatisfyDemandingSlicesHeightsFastMultiDimensionBP;
+import entropy.plan.durationEvaluator.CorrectedDurationEvaluator;
 import entropy.plan.durationEvaluator.DurationEvaluator;
+import entropy.plan.durationEvaluator.DurationStatistics;
 import entropy.plan.durationEvaluator.FastDurationEvaluatorFactory;
 import entropy.vjob.builder.VJobBuilderFactory;
 import entropy.vjob.builder.plasma.ConstraintsCalalogBuilderException;
@@ -108,11 +118,80 @@ public class ControlLoopFactory {
     private ControlLoop makeCustom(Monitor monitoring, VJobBuilderFactory fact) throws PropertiesHelperException, SemanticException, IOException, RecognitionException, InstantiationException, ConstraintsCalalogBuilderException {
         DurationEvaluator eval = FastDurationEvaluatorFactory.readFromProperties(properties);
         VJobsPool pool = new FCFSPersistentQueue(fact, new File(properties.getRequiredProperty(CONTROL_LOOP + "." + CUSTOM + ".vjobsPath")));
-        CustomizableControlLoop loop = new CustomizableControlLoop(monitoring, pool, fact, eval, new TimedReconfigurationExecuter(new DriverFactory(this.properties)));
+        TimedReconfigurationExecuter exec = new TimedReconfigurationExecuter(new DriverFactory(this.properties));
+        if (properties.getOptionalProperty(CONTROL_LOOP + "." + CUSTOM + ".adaptiveMigrations", false)) {
+            String prefix = CONTROL_LOOP + "." + CUSTOM + ".adaptiveMigrations.";
+            DurationStatistics stats = new DurationStatistics();
+            exec.setDurationStatistics(stats);
+            exec.setMigrationThrottle(new MigrationThrottle(
+                    properties.getOptionalProperty(prefix + "initialLimit", MigrationThrottle.DEFAULT_INITIAL_LIMIT),
+                    properties.getOptionalProperty(prefix + "maxLimit", MigrationThrottle.DEFAULT_MAX_LIMIT),
+                    properties.getOptionalProperty(prefix + "threshold", (int) (MigrationThrottle.DEFAULT_THRESHOLD * 100)) / 100.0));
+            eval = new CorrectedDurationEvaluator(eval, stats);
+        }
+        String history = properties.getOptionalProperty(CONTROL_LOOP + "." + CUSTOM + ".metricsStore", "").trim();
+        if (history.length() > 0) {
+            String prefix = CONTROL_LOOP + "." + CUSTOM + ".metricsStore.";
+            final MetricsStore store = new MetricsStore(new File(history),
+                    properties.getOptionalProperty(prefix + "blockSize", MetricsStore.DEFAULT_BLOCK_SIZE),
+                    properties.getOptionalProperty(prefix + "stagingSize", MetricsStore.DEFAULT_STAGING_SIZE));
+            monitoring.setMetricsStore(store);
+            //Write the staged samples if Entropy is stopped without destroying the loop
+            Runtime.getRuntime().addShutdownHook(new Thread("metricsStore-close") {
+                @Override
+                public void run() {
+                    try {
+                        store.close();
+                    } catch (IOException e) {
+                        System.err.println("Unable to close the metrics store: " + e.getMessage());
+                    }
+                }
+            });
+        }
+        CustomizableControlLoop loop = new CustomizableControlLoop(monitoring, pool, fact, eval, exec);
         loop.setAssignTimeout(properties.getRequiredPropertyAsInt(CONTROL_LOOP + "." + CUSTOM + ".assignTimeout"));
         loop.setPlanTimeout(properties.getRequiredPropertyAsInt(CONTROL_LOOP + "." + CUSTOM + ".planTimeout"));
         loop.setPredictionStep(properties.getRequiredPropertyAsInt(CONTROL_LOOP + "." + CUSTOM + ".prediction.step"));
         loop.allowReconfiguration(properties.getRequiredPropertyAsBoolean(CONTROL_LOOP + "." + CUSTOM + ".reconfigure"));
+        loop.setPipelined(properties.getOptionalProperty(CONTROL_LOOP + "." + CUSTOM + ".pipelined", false));
+        loop.setStallTimeout(properties.getOptionalProperty(CONTROL_LOOP + "." + CUSTOM + ".stallTimeout", 0));
+        if (properties.getOptionalProperty(CONTROL_LOOP + "." + CUSTOM + ".planningGate", false)) {
+            loop.setSkippingUnchanged(true);
+            String prefix = CONTROL_LOOP + "." + CUSTOM + ".planningGate.";
+            loop.getPlanningGate().setMemoryThreshold(properties.getOptionalProperty(prefix + "memoryStep", PlanningGate.DEFAULT_MEMORY_THRESHOLD));
+            loop.getPlanningGate().setMaxSkips(properties.getOptionalProperty(prefix + "maxSkips", PlanningGate.DEFAULT_MAX_SKIPS));
+        }
+        if (properties.getOptionalProperty(CONTROL_LOOP + "." + CUSTOM + ".eventDriven", false)) {
+            loop.setEventDriven(true);
+            String prefix = CONTROL_LOOP + "." + CUSTOM + ".eventDriven.";
+            loop.getPlanningTrigger().setDebounce(properties.getOptionalProperty(prefix + "debounce", (int) PlanningTrigger.DEFAULT_DEBOUNCE));
+            loop.getPlanningTrigger().setMinGap(properties.getOptionalProperty(prefix + "minGap", (int) PlanningTrigger.DEFAULT_MIN_GAP));
+        }
+        String packing = properties.getOptionalProperty(CONTROL_LOOP + "." + CUSTOM + ".packing", "fast");
+        if (packing.equals("fast")) {
+            loop.setPackingConstraint(new SatisfyDemandingSlicesHeightsFastBP());
+        } else if (packing.equals("knapsack")) {
+            loop.setPackingConstraint(new SatisfyDemandingSlicesHeightsFastBP(FastBinPacking.LoadReasoningPolicy.KNAPSACK));
+        } else if (packing.equals("vector")) {
+            loop.setPackingConstraint(new SatisfyDemandingSlicesHeightsFastMultiDimensionBP());
+        } else {
+            throw new WrongPropertyTypeException(CONTROL_LOOP + "." + CUSTOM + ".packing", SatisfyDemandingSliceHeights.class, packing);
+        }
+        if (properties.getOptionalProperty(CONTROL_LOOP + "." + CUSTOM + ".consolidation", false)) {
+            String prefix = CONTROL_LOOP + "." + CUSTOM + ".consolidation.";
+            ConsolidationPolicy policy = new ConsolidationPolicy(
+                    properties.getOptionalProperty(prefix + "weight", 100),
+                    properties.getOptionalProperty(prefix + "lowWatermark", 30),
+                    properties.getOptionalProperty(prefix + "minUptime", 600),
+                    properties.getOptionalProperty(prefix + "minDowntime", 600));
+            String weights = properties.getOptionalProperty(prefix + "weights", "");
+            try {
+                policy.setWeights(weights);
+            } catch (IllegalArgumentException e) {
+                throw new WrongPropertyTypeException(prefix + "weights", Integer.class, weights);
+            }
+            loop.setConsolidationPolicy(policy);
+        }
         return loop;
     }
 }
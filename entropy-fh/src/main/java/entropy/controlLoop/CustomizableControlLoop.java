@@ -21,19 +21,28 @@ package entropy.controlLoop;
 import entropy.configuration.*;
 import entropy.decision.AssignmentException;
 import entropy.decision.predictor.TendencyBasedDecisionModule;
+import entropy.execution.ExecutionHandle;
+import entropy.execution.ExecutionListener;
 import entropy.execution.TimedReconfigurationExecuter;
 import entropy.monitoring.Monitor;
 import entropy.monitoring.MonitoringException;
+import entropy.monitoring.store.MetricsStore;
+import entropy.plan.ConsolidationPolicy;
 import entropy.plan.CustomizablePlannerModule;
 import entropy.plan.PlanException;
 import entropy.plan.TimedReconfigurationPlan;
+import entropy.plan.action.Action;
+import entropy.plan.action.ActionComparator;
 import entropy.plan.choco.ChocoCustomRP;
+import entropy.plan.choco.constraint.pack.SatisfyDemandingSliceHeights;
+import entropy.plan.durationEvaluator.CorrectedDurationEvaluator;
 import entropy.plan.durationEvaluator.DurationEvaluator;
 import entropy.plan.parser.PlainTextTimedReconfigurationPlanSerializer;
 import entropy.vjob.VJob;
 import entropy.vjob.builder.VJobBuilderFactory;
 import entropy.vjob.queue.VJobsPool;
 
+import java.io.IOException;
 import java.util.*;
 
 
@@ -84,6 +93,11 @@ public class CustomizableControlLoop extends ControlLoop implements Runnable {
      */
     private TendencyBasedDecisionModule decision;
 
+    /**
+     * The evaluator used by the planner.
+     */
+    private DurationEvaluator eval;
+
     /**
      * Lock for state analyser.
      */
@@ -94,20 +108,36 @@ public class CustomizableControlLoop extends ControlLoop implements Runnable {
      */
     private Configuration currentExpected;
 
+    /**
+     * The tracker of the resources used in the expected configuration.
+     */
+    private LoadTracker currentLoad;
+
+    /**
+     * The actions of the current plan that were committed into the
+     * expected configuration but that may not be reflected by the monitoring yet.
+     */
+    private List<Action> committed = new ArrayList<Action>();
+
     /**
      * The hosting pool.
      */
     private List<VJob> currentVJob;
 
     /**
-     * Delay in seconds between two iterations of the loop.
+     * Delay in milliseconds between two refresh of the expected configuration.
      */
-    private int refreshDelay = 10;
+    private volatile long refreshPeriod = 10000;
 
     /**
      * Stop the loop ?
      */
-    private boolean stop = false;
+    private volatile boolean stop = false;
+
+    /**
+     * The thread that refreshes the expected configuration periodically.
+     */
+    private Thread refresher;
 
     /**
      * Indicates the loop is performing a reconfiguration.
@@ -119,6 +149,32 @@ public class CustomizableControlLoop extends ControlLoop implements Runnable {
      */
     private CustomizablePlannerModule planner;
 
+    /**
+     * Indicates the next plan is computed while the current one is executed.
+     */
+    private boolean pipelined = false;
+
+    /**
+     * The check to skip the planning when nothing changed. {@code null} to always plan.
+     */
+    private PlanningGate gate = null;
+
+    /**
+     * The trigger of the iterations in the event-driven mode. {@code null} for a periodic loop.
+     */
+    private PlanningTrigger trigger;
+
+    /**
+     * The detector of the issues that fire the trigger.
+     */
+    private OverloadDetector detector = new OverloadDetector();
+
+    /**
+     * The delay in seconds without any terminated action after which the
+     * non-started actions of a plan are dropped. {@code 0} to wait for the plan indefinitely.
+     */
+    private int stallTimeout = 0;
+
     /**
      * Make a new loop.
      *
@@ -135,10 +191,18 @@ public class CustomizableControlLoop extends ControlLoop implements Runnable {
         this.queue = pool;
 
         this.decision = new TendencyBasedDecisionModule();
+        this.eval = eval;
         this.planner = new ChocoCustomRP(eval);
         this.currentVJob = new LinkedList<VJob>();
         makeCurrents();
-        new Thread(this).start();
+        exec.addListener(new ExecutionListener() {
+            @Override
+            public void actionCommitted(Action a, boolean succeeded) {
+                commit(a, succeeded);
+            }
+        });
+        refresher = new Thread(this);
+        refresher.start();
     }
 
     /**
@@ -165,10 +229,12 @@ public class CustomizableControlLoop extends ControlLoop implements Runnable {
             builder.useConfiguration(expected);
 
             //System.err.println("Expected: \n" + expected);
-            getLogger().debug("Offlines: " + expected.getOfflines().size() + ", onlines: " + expected.getOnlines().size()
-                    + ", overloaded nodes: " + Configurations.futureOverloadedNodes(expected).size());
-            getLogger().debug("Runnings: " + expected.getRunnings().size() + ", waitings: " + expected.getWaitings().size()
-                    + ", sleeping: " + expected.getSleepings().size());
+            if (getLogger().isDebugEnabled()) {
+                getLogger().debug("Offlines: " + expected.getOfflines().size() + ", onlines: " + expected.getOnlines().size()
+                        + ", overloaded nodes: " + Configurations.futureOverloadedNodes(expected).size());
+                getLogger().debug("Runnings: " + expected.getRunnings().size() + ", waitings: " + expected.getWaitings().size()
+                        + ", sleeping: " + expected.getSleepings().size());
+            }
             StringBuilder b = new StringBuilder();
             for (Iterator<VJob> ite = vjobs.iterator(); ite.hasNext(); ) {
                 VJob v = ite.next();
@@ -185,26 +251,71 @@ public class CustomizableControlLoop extends ControlLoop implements Runnable {
                 getLogger().debug("No reconfiguration allowed.");
                 return false;
             }
-            plan = this.planner.compute(expected,
+            Configuration src = expected;
+            if (pipelined && exec.isExecuting()) {
+                src = projectExecution(expected);
+            } else if (!exec.getRunningActions().isEmpty()) {
+                //Actions of a stalled plan are still running
+                src = expected.clone();
+                apply(src, exec.getRunningActions());
+            }
+            if (src != expected) {
+                allRunnings = new SimpleManagedElementSet<VirtualMachine>();
+                allRunnings.addAll(src.getRunnings());
+                allRunnings.addAll(src.getWaitings());
+            }
+            //With a consolidation, a steady configuration may still be improved so the gate is bypassed
+            if (gate != null && getConsolidationPolicy() == null && !gate.mustPlan(src, vjobs)) {
+                getLogger().info("Planning skipped: " + gate.getReason()
+                        + " (" + gate.getNbSkips() + "/" + gate.getNbChecks() + " skipped)");
+                return false;
+            }
+            if (eval instanceof CorrectedDurationEvaluator) {
+                ((CorrectedDurationEvaluator) eval).useConfiguration(src);
+            }
+            plan = this.planner.compute(src,
                     allRunnings,
                     new SimpleManagedElementSet<VirtualMachine>(),
                     //expected.getWaitings(),
-                    expected.getSleepings(),
+                    src.getSleepings(),
                     new SimpleManagedElementSet<VirtualMachine>(),
-                    expected.getOnlines(),
-                    expected.getOfflines(),
+                    src.getOnlines(),
+                    src.getOfflines(),
                     vjobs);
+            if (gate != null) {
+                gate.planned(plan.size() > 0 ? plan.getDestination() : src, vjobs);
+            }
             if (plan.size() > 0) {
                 getLogger().debug(plan.size() + " actions to execute:\n" + plan);
-                isReconfiguring = true;
-                exec.start(plan);
-                isReconfiguring = false;
+                if (pipelined) {
+                    //The plan was computed against the end state of the current one.
+                    exec.waitForCompletion();
+                    if (src != expected && exec.getNbFailures() > 0) {
+                        getLogger().warn("The previous plan did not terminate properly. Discarding the next one");
+                        return false;
+                    }
+                    forgetCommitted();
+                    exec.launch(plan);
+                } else {
+                    isReconfiguring = true;
+                    forgetCommitted();
+                    waitForExecution(exec.launch(plan));
+                    isReconfiguring = false;
+                }
             } else {
                 getLogger().info("No reconfiguration is necessary");
             }
         } catch (PlanException e) {
             getLogger().error(e.getMessage(), e);
         } finally {
+            PlanningTrigger t = trigger;
+            if (t != null) {
+                t.done();
+                //Issues that survive the iteration will fire the trigger again, less and less often
+                synchronized (refreshLock) {
+                    detector.done();
+                }
+            }
             if (expected != null) {
                 if (getLogger().isDebugEnabled()) {
                     String file = logConfiguration(expected, timeStamp, "src");
@@ -219,6 +330,161 @@ public class CustomizableControlLoop extends ControlLoop implements Runnable {
         return false;
     }
 
+    /**
+     * Project the configuration that will be reached once the plan currently executed is terminated.
+     * If the projected configuration is still overloaded, the current plan is considered as
+     * obsolete: its actions that are not started yet are dropped and only the running ones are projected.
+     *
+     * @param cfg the configuration to start from
+     * @return the projected configuration
+     */
+    private Configuration projectExecution(Configuration cfg) {
+        List<Action> running = exec.getRunningActions();
+        List<Action> pending = exec.getPendingActions();
+        Collections.sort(pending, new ActionComparator(ActionComparator.Type.start));
+
+        Configuration projected = cfg.clone();
+        apply(projected, running);
+        apply(projected, pending);
+        ManagedElementSet<Node> overloaded = Configurations.futureOverloadedNodes(projected);
+        if (!overloaded.isEmpty() && !pending.isEmpty()) {
+            List<Action> dropped = exec.cancel();
+            getLogger().info("Overloaded nodes not handled by the current plan: " + overloaded
+                    + ". Preempting " + dropped.size() + " non-started action(s)");
+            projected = cfg.clone();
+            apply(projected, running);
+        }
+        return projected;
+    }
+
+    /**
+     * Wait for the execution of a plan.
+     * If no action terminates during {@link #getStallTimeout()} seconds, the plan is
+     * considered as stalled: its actions that are not started yet are dropped and the method returns
+     * so the next iteration can plan from the current state.
+     *
+     * @param h the handle on the execution
+     */
+    private void waitForExecution(ExecutionHandle h) {
+        if (stallTimeout <= 0) {
+            exec.waitForCompletion();
+            return;
+        }
+        long limit = stallTimeout * 1000L;
+        try {
+            while (true) {
+                long wait = h.getLastProgress() + limit - System.currentTimeMillis();
+                if (wait <= 0) {
+                    List<Action> dropped = h.cancel();
+                    getLogger().warn("No action terminated in the last " + stallTimeout + " second(s). Dropping "
+                            + dropped.size() + " non-started action(s). Still running: " + exec.getRunningActions());
+                    return;
+                }
+                if (h.waitForCompletion(wait)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            getLogger().warn(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Commit a terminated action into the expected configuration, so
+     * the next iteration does not have to wait for the monitoring to see its effect.
+     *
+     * @param a  the terminated action
+     * @param ok {@code true} if the action succeeded
+     */
+    private void commit(Action a, boolean ok) {
+        if (ok) {
+            synchronized (refreshLock) {
+                committed.add(a);
+                if (currentExpected != null && a.isCompatibleWith(currentExpected)) {
+                    a.apply(currentExpected);
+                    currentLoad = new LoadTracker(currentExpected);
+                }
+            }
+        } else {
+            PlanningTrigger t = trigger;
+            if (t != null) {
+                t.fire("'" + a + "' failed");
+            }
+        }
+    }
+
+    /**
+     * Apply actions on a configuration.
+     * Actions that are not compatible with the configuration are ignored.
+     *
+     * @param cfg     the configuration to modify
+     * @param actions the actions to apply
+     */
+    private static void apply(Configuration cfg, List<Action> actions) {
+        for (Action a : actions) {
+            if (a.isCompatibleWith(cfg)) {
+                a.apply(cfg);
+            }
+        }
+    }
+
+    /**
+     * Indicates whether the loop computes the next plan while the current one is executed.
+     *
+     * @return {@code true} if the loop is pipelined
+     */
+    public boolean isPipelined() {
+        return pipelined;
+    }
+
+    /**
+     * Set whether the loop computes the next plan while the current one is executed.
+     * In that case, the next plan is computed against the configuration projected
+     * at the end of the current plan, and executed once the current plan is terminated.
+     * When the current plan does not fix all the overloaded nodes, its non-started actions are preempted.
+     *
+     * @param b {@code true} to pipeline the loop
+     */
+    public void setPipelined(boolean b) {
+        this.pipelined = b;
+    }
+
+    /**
+     * Set the policy to consolidate the VMs and switch off the underused nodes.
+     *
+     * @param p the policy. {@code null} to disable the consolidation
+     */
+    public void setConsolidationPolicy(ConsolidationPolicy p) {
+        ((ChocoCustomRP) this.planner).setConsolidationPolicy(p);
+    }
+
+    /**
+     * Get the policy to consolidate the VMs.
+     *
+     * @return the policy. {@code null} if the consolidation is disabled
+     */
+    public ConsolidationPolicy getConsolidationPolicy() {
+        return ((ChocoCustomRP) this.planner).getConsolidationPolicy();
+    }
+
+    /**
+     * Set the constraint that packs the demanding slices on the nodes.
+     *
+     * @param c the packing constraint
+     */
+    public void setPackingConstraint(SatisfyDemandingSliceHeights c) {
+        ((ChocoCustomRP) this.planner).setPackingConstraintClass(c);
+    }
+
+    /**
+     * Get the constraint that packs the demanding slices on the nodes.
+     *
+     * @return the packing constraint
+     */
+    public SatisfyDemandingSliceHeights getPackingConstraint() {
+        return ((ChocoCustomRP) this.planner).getPackingConstraintClass();
+    }
+
     /**
      * Set the timeout of the decision module.
      *
@@ -255,16 +521,200 @@ public class CustomizableControlLoop extends ControlLoop implements Runnable {
         return this.planner.getTimeLimit();
     }
 
+    /**
+     * Set the delay between two refresh of the expected configuration.
+     *
+     * @param seconds the delay in seconds
+     */
+    public void setRefreshDelay(int seconds) {
+        this.refreshPeriod = seconds * 1000L;
+    }
+
+    /**
+     * Get the delay between two refresh of the expected configuration.
+     *
+     * @return a delay in seconds
+     */
+    public int getRefreshDelay() {
+        return (int) (this.refreshPeriod / 1000);
+    }
+
+    /**
+     * Set the delay between two refresh of the expected configuration
+     * with a millisecond precision.
+     *
+     * @param ms the delay in milliseconds. Must be strictly positive
+     */
+    public void setRefreshPeriod(long ms) {
+        if (ms <= 0) {
+            throw new IllegalArgumentException("The refresh period must be strictly positive: " + ms);
+        }
+        this.refreshPeriod = ms;
+        //The current delay is restarted with the new period
+        refresher.interrupt();
+    }
+
+    /**
+     * Get the delay between two refresh of the expected configuration.
+     *
+     * @return a delay in milliseconds
+     */
+    public long getRefreshPeriod() {
+        return this.refreshPeriod;
+    }
+
     public void setPredictionStep(int st) {
         this.decision.setStep(st);
+        if (gate != null) {
+            gate.setCPUThreshold(st);
+        }
+    }
+
+    /**
+     * Indicates whether the planning is skipped when nothing changed since the last planned configuration.
+     *
+     * @return {@code true} if the planning may be skipped
+     * @see PlanningGate
+     */
+    public boolean isSkippingUnchanged() {
+        return gate != null;
+    }
+
+    /**
+     * Set whether the planning is skipped when nothing changed since the last planned configuration.
+     * A CPU demand change is significant if it is at least equals to the prediction step.
+     * The gate is bypassed when a consolidation policy is set.
+     *
+     * @param b {@code true} to skip the unnecessary plannings
+     */
+    public void setSkippingUnchanged(boolean b) {
+        gate = b ? new PlanningGate(decision.getStep(), PlanningGate.DEFAULT_MEMORY_THRESHOLD) : null;
+    }
+
+    /**
+     * Get the check that decides whether the planning is necessary.
+     *
+     * @return the gate. {@code null} if the planning is never skipped
+     */
+    public PlanningGate getPlanningGate() {
+        return gate;
+    }
+
+    /**
+     * Indicates whether the loop is event-driven.
+     *
+     * @return {@code true} if the iterations are triggered by the detected issues
+     */
+    public boolean isEventDriven() {
+        return trigger != null;
+    }
+
+    /**
+     * Set the loop event-driven or periodic.
+     * In the event-driven mode, an iteration is only performed when the refreshed configuration
+     * exhibits new overloaded nodes, violated constraints or waiting VMs.
+     *
+     * @param b {@code true} for an event-driven loop
+     * @see PlanningTrigger
+     */
+    public void setEventDriven(boolean b) {
+        if (b && trigger == null) {
+            trigger = new PlanningTrigger();
+        } else if (!b) {
+            trigger = null;
+        }
+    }
+
+    /**
+     * Get the trigger of the iterations.
+     *
+     * @return the trigger. {@code null} if the loop is periodic
+     */
+    public PlanningTrigger getPlanningTrigger() {
+        return trigger;
+    }
+
+    @Override
+    public boolean waitNextIteration(long delay) throws InterruptedException {
+        PlanningTrigger t = trigger;
+        if (t == null) {
+            return super.waitNextIteration(delay);
+        }
+        String reasons = t.await(delay);
+        if (reasons != null) {
+            getLogger().info("Iteration triggered: " + reasons);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Set the delay without any terminated action after which a plan is considered as stalled.
+     * The actions of a stalled plan that are not started yet are dropped.
+     *
+     * @param seconds the delay in seconds. {@code 0} to wait for the plans indefinitely
+     */
+    public void setStallTimeout(int seconds) {
+        this.stallTimeout = seconds;
+    }
+
+    /**
+     * Get the delay without any terminated action after which a plan is considered as stalled.
+     *
+     * @return a delay in seconds. {@code 0} if the plans are waited indefinitely
+     */
+    public int getStallTimeout() {
+        return stallTimeout;
     }
 
     public int getPredictionStep() {
         return decision.getStep();
     }
 
+    /**
+     * Stop the loop and close the history of the metrics, if any.
+     */
     public void destroy() {
         this.stop = true;
+        refresher.interrupt();
+        MetricsStore store = monitoring.getMetricsStore();
+        if (store != null) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                getLogger().error("Unable to close the metrics store: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Forget the actions committed for the previous plan.
+     * Its destination was the source of the plan about to be launched.
+     */
+    private void forgetCommitted() {
+        synchronized (refreshLock) {
+            committed.clear();
+        }
+    }
+
+    /**
+     * Get the configuration expected by the decision module.
+     *
+     * @return a copy of the expected configuration, {@code null} if it was never refreshed
+     */
+    public Configuration getExpectedConfiguration() {
+        synchronized (refreshLock) {
+            return currentExpected == null ? null : currentExpected.clone();
+        }
+    }
+
+    /**
+     * Refresh the expected configuration and the vjobs immediately.
+     * This is typically used to drive the loop from an external clock
+     * with a refresh period long enough to disable the periodic refreshes.
+     */
+    public void refresh() {
+        makeCurrents();
     }
 
     private void makeCurrents() {
@@ -273,7 +723,6 @@ public class CustomizableControlLoop extends ControlLoop implements Runnable {
                 //Get the configuration
                 Configuration cur = monitoring.getConfiguration();
                 currentExpected = decision.compute(cur);
-                lightConfiguration(currentExpected);
 
                 List<VJob> vjobs = queue.getRunningPriorities();
 
@@ -287,8 +736,22 @@ public class CustomizableControlLoop extends ControlLoop implements Runnable {
                     }
                 }
 
+                //Replay the committed actions the monitoring does not reflect yet.
+                //The others are no longer compatible and are forgotten
+                for (Iterator<Action> ite = committed.iterator(); ite.hasNext();) {
+                    Action a = ite.next();
+                    if (a.isCompatibleWith(currentExpected)) {
+                        a.apply(currentExpected);
+                    } else {
+                        ite.remove();
+                    }
+                }
+                LoadTracker load = new LoadTracker(currentExpected);
+                lightConfiguration(load);
+
                 currentVJob.clear();
                 currentVJob.addAll(vjobs);
+                currentLoad = load;
             }
         } catch (AssignmentException e) {
             getLogger().error(e.getMessage(), e);
@@ -302,15 +765,23 @@ public class CustomizableControlLoop extends ControlLoop implements Runnable {
         StateAnalyzer analyzer = new StateAnalyzer("analyze.txt");
         while (!stop) {
             try {
-                Thread.sleep(refreshDelay * 1000L);
+                Thread.sleep(refreshPeriod);
                 makeCurrents();
                 synchronized (this.refreshLock) {
-                    analyzer.analyze(currentExpected, currentVJob, isReconfiguring);
+                    analyzer.analyze(currentExpected, currentVJob, isReconfiguring || exec.isExecuting());
                     getLogger().debug("Refreshing expected configuration & vjobs");
+                    PlanningTrigger t = trigger;
+                    if (t != null) {
+                        List<String> issues = detector.detect(currentLoad, currentVJob);
+                        for (String i : issues) {
+                            t.fire(i);
+                        }
+                    }
                 }
                 //Wait
             } catch (InterruptedException e) {
-                getLogger().warn(e.getMessage(), e);
+                //The refresh period changed or the loop is stopped
+                getLogger().debug("Refresh delay interrupted");
             }
         }
     }
@@ -346,20 +817,46 @@ public class CustomizableControlLoop extends ControlLoop implements Runnable {
             for (VirtualMachine vm : cfg.getRunnings(n)) {
                 over += vm.getCPUConsumption();
             }
+            reduce(cfg, n, over, null);
+        }
+    }
 
-            //Reduce the VMs           
-            while (over > 0) {
-                for (int i = 0; i < cfg.getRunnings(n).size(); i++) {
-                    VirtualMachine vm = cfg.getRunnings(n).get(i);
-                    int step = over / 10 + 1;
-                    if (vm.getCPUConsumption() > step) {
-                        over -= vm.getCPUConsumption();
-                        vm.setCPUConsumption(vm.getCPUConsumption() - step);
-                        over += vm.getCPUConsumption();
-                    }
-                    if (over <= 0) {
-                        break;
+    /**
+     * Reduce the CPU consumption of the VMs running on the currently overloaded nodes.
+     * The tracker is refreshed accordingly.
+     *
+     * @param load the tracker of the configuration to alter
+     */
+    public static void lightConfiguration(LoadTracker load) {
+        Configuration cfg = load.getConfiguration();
+        for (Node n : load.getCurrentlyOverloadedNodes().clone()) {
+            reduce(cfg, n, load.getCPUConsumption(n) - n.getCPUCapacity(), load);
+        }
+    }
+
+    /**
+     * Reduce the CPU consumption of the VMs running on a node until the overload is absorbed.
+     *
+     * @param cfg  the configuration to alter
+     * @param n    the overloaded node
+     * @param over the amount of the overload
+     * @param load the tracker to refresh. {@code null} if there is no tracker
+     */
+    private static void reduce(Configuration cfg, Node n, int over, LoadTracker load) {
+        while (over > 0) {
+            for (int i = 0; i < cfg.getRunnings(n).size(); i++) {
+                VirtualMachine vm = cfg.getRunnings(n).get(i);
+                int step = over / 10 + 1;
+                if (vm.getCPUConsumption() > step) {
+                    over -= vm.getCPUConsumption();
+                    vm.setCPUConsumption(vm.getCPUConsumption() - step);
+                    if (load != null) {
+                        load.refresh(vm);
                     }
+                    over += vm.getCPUConsumption();
+                }
+                if (over <= 0) {
+                    break;
                 }
             }
         }
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.controlLoop;
+
+import entropy.configuration.Configuration;
+import entropy.configuration.Configurations;
+import entropy.configuration.LoadTracker;
+import entropy.configuration.ManagedElementSet;
+import entropy.configuration.Node;
+import entropy.configuration.VirtualMachine;
+import entropy.vjob.PlacementConstraint;
+import entropy.vjob.VJob;
+
+import java.util.*;
+
+/**
+ * A lightweight detector of the issues that require a planning.
+ * An issue is an overloaded node, a violated constraint or a waiting VM.
+ * The detector compares each configuration with the previous one it analyzed
+ * and only reports the issues that just appeared.
+ * <p/>
+ * An issue that survives an iteration of the loop is reported again, but after a
+ * number of analyses that doubles each time it survives an iteration, up to {@link #MAX_BACKOFF}.
+ * So a persistent issue the planner can not fix does not trigger a planning at each analysis.
+ *
+ * @author Fabien Hermenier
+ */
+public class OverloadDetector {
+
+    /**
+     * The maximum number of analyses a persistent issue is ignored.
+     */
+    public static final int MAX_BACKOFF = 64;
+
+    /**
+     * The issues found in the previous configuration.
+     */
+    private Set<String> previous = new HashSet<String>();
+
+    /**
+     * The number of iterations each persistent issue survived.
+     */
+    private Map<String, Integer> survivals = new HashMap<String, Integer>();
+
+    /**
+     * The number of analyses to ignore before reporting again each persistent issue.
+     */
+    private Map<String, Integer> delays = new HashMap<String, Integer>();
+
+    /**
+     * Get the issues that appeared since the previous analysis.
+     *
+     * @param cfg the configuration to analyze
+     * @param vjs the vjobs to consider
+     * @return the new issues, may be empty
+     */
+    public List<String> detect(Configuration cfg, List<VJob> vjs) {
+        return detect(cfg, Configurations.futureOverloadedNodes(cfg), vjs);
+    }
+
+    /**
+     * Get the issues that appeared since the previous analysis.
+     * The overloaded nodes are read from the tracker.
+     *
+     * @param load the tracker of the configuration to analyze
+     * @param vjs  the vjobs to consider
+     * @return the new issues, may be empty
+     */
+    public List<String> detect(LoadTracker load, List<VJob> vjs) {
+        return detect(load.getConfiguration(), load.getFutureOverloadedNodes(), vjs);
+    }
+
+    private List<String> detect(Configuration cfg, ManagedElementSet<Node> overloaded, List<VJob> vjs) {
+        Set<String> issues = new HashSet<String>();
+        for (Node n : overloaded) {
+            issues.add("'" + n.getName() + "' is overloaded");
+        }
+        for (VJob v : vjs) {
+            for (PlacementConstraint c : v.getConstraints()) {
+                if (!c.isSatisfied(cfg)) {
+                    issues.add("'" + c + "' is violated");
+                }
+            }
+        }
+        for (VirtualMachine vm : cfg.getWaitings()) {
+            issues.add("'" + vm.getName() + "' is waiting");
+        }
+        List<String> fresh = new ArrayList<String>();
+        for (String i : issues) {
+            if (!previous.contains(i)) {
+                fresh.add(i);
+            } else if (delays.containsKey(i)) {
+                int d = delays.get(i);
+                if (d == 0) {
+                    delays.remove(i);
+                    fresh.add(i);
+                } else {
+                    delays.put(i, d - 1);
+                }
+            }
+        }
+        previous = issues;
+        //The issues that disappeared are new when they come back
+        survivals.keySet().retainAll(issues);
+        delays.keySet().retainAll(issues);
+        return fresh;
+    }
+
+    /**
+     * Indicates an iteration of the loop is terminated.
+     * The reported issues that are still present will be reported again
+     * once their delay is elapsed.
+     */
+    public void done() {
+        for (String i : previous) {
+            if (!delays.containsKey(i)) {
+                int s = survivals.containsKey(i) ? survivals.get(i) + 1 : 1;
+                survivals.put(i, s);
+                delays.put(i, Math.min(MAX_BACKOFF, (1 << Math.min(s - 1, 30)) - 1));
+            }
+        }
+    }
+
+    /**
+     * Forget the previous analysis.
+     * The issues that persist will be reported again by the next analysis.
+     */
+    public void reset() {
+        previous.clear();
+        survivals.clear();
+        delays.clear();
+    }
+}
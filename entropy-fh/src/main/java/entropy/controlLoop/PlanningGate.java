@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.controlLoop;
+
+import entropy.configuration.*;
+import entropy.vjob.PlacementConstraint;
+import entropy.vjob.VJob;
+
+import java.util.*;
+
+/**
+ * A cheap check performed before the planning to skip the solver when
+ * nothing meaningful changed since the last planned configuration.
+ * The planning is required when:
+ * <ul>
+ * <li>there is no reference configuration</li>
+ * <li>the configuration is not viable or at least one constraint is violated</li>
+ * <li>the vjobs or their constraints changed</li>
+ * <li>the state of an element or the location of a VM changed</li>
+ * <li>the CPU or the memory demand of a node changed by at least a threshold</li>
+ * <li>the planning was already skipped a maximum number of consecutive times</li>
+ * </ul>
+ *
+ * @author Fabien Hermenier
+ */
+public class PlanningGate {
+
+    /**
+     * The default maximum number of consecutive skipped plannings.
+     */
+    public static final int DEFAULT_MAX_SKIPS = 10;
+
+    /**
+     * The default minimal change of the memory demand of a node that requires a planning.
+     */
+    public static final int DEFAULT_MEMORY_THRESHOLD = 256;
+
+    /**
+     * The minimal change of the CPU demand of a node that requires a planning.
+     */
+    private int cpuThreshold;
+
+    /**
+     * The minimal change of the memory demand of a node that requires a planning.
+     */
+    private int memThreshold;
+
+    /**
+     * The maximum number of consecutive skipped plannings.
+     */
+    private int maxSkips = DEFAULT_MAX_SKIPS;
+
+    /**
+     * The number of plannings skipped since the last one.
+     */
+    private int nbConsecutiveSkips;
+
+    /**
+     * The demand of each online node in the reference configuration: CPU, then memory.
+     */
+    private Map<String, int[]> loads;
+
+    /**
+     * The location of each VM in the reference configuration. {@code null} for the waiting ones.
+     */
+    private Map<String, String> locations;
+
+    private Set<String> onlines;
+
+    private Set<String> offlines;
+
+    private Set<String> sleepings;
+
+    /**
+     * The vjobs used for the reference configuration, with a copy of their constraints.
+     */
+    private Map<String, Set<PlacementConstraint>> vjobs;
+
+    private String reason;
+
+    private int nbChecks;
+
+    private int nbSkips;
+
+    /**
+     * Make a new gate.
+     *
+     * @param cpuTh the minimal change of the CPU demand of a node that requires a planning
+     * @param memTh the minimal change of the memory demand of a node that requires a planning
+     */
+    public PlanningGate(int cpuTh, int memTh) {
+        this.cpuThreshold = cpuTh;
+        this.memThreshold = memTh;
+    }
+
+    /**
+     * Check whether a planning is necessary.
+     * The reason of the decision is available through {@link #getReason()}.
+     *
+     * @param cfg the configuration to plan
+     * @param vjs the vjobs to consider
+     * @return {@code true} if the planning is required, {@code false} if it can be skipped
+     */
+    public boolean mustPlan(Configuration cfg, List<VJob> vjs) {
+        nbChecks++;
+        reason = check(cfg, vjs);
+        if (reason == null) {
+            if (nbConsecutiveSkips >= maxSkips) {
+                reason = "the planning was skipped " + nbConsecutiveSkips + " consecutive times";
+            } else {
+                reason = "no significant change since the last planned configuration";
+                nbSkips++;
+                nbConsecutiveSkips++;
+                return false;
+            }
+        }
+        nbConsecutiveSkips = 0;
+        return true;
+    }
+
+    private String check(Configuration cfg, List<VJob> vjs) {
+        if (loads == null) {
+            return "no reference configuration";
+        }
+        ManagedElementSet<Node> overloaded = Configurations.futureOverloadedNodes(cfg);
+        if (!overloaded.isEmpty()) {
+            return overloaded.size() + " overloaded node(s)";
+        }
+        int nbViolations = 0;
+        for (VJob v : vjs) {
+            for (PlacementConstraint c : v.getConstraints()) {
+                if (!c.isSatisfied(cfg)) {
+                    nbViolations++;
+                }
+            }
+        }
+        if (nbViolations > 0) {
+            return nbViolations + " violated constraint(s)";
+        }
+        if (!vjobs.equals(snapshot(vjs))) {
+            return "the vjobs changed";
+        }
+        if (!onlines.equals(names(cfg.getOnlines())) || !offlines.equals(names(cfg.getOfflines()))
+                || !sleepings.equals(names(cfg.getSleepings()))) {
+            return "the state of some elements changed";
+        }
+        if (locations.size() != cfg.getRunnings().size() + cfg.getWaitings().size()) {
+            return "the state of some VMs changed";
+        }
+        for (VirtualMachine vm : cfg.getRunnings()) {
+            if (!cfg.getLocation(vm).getName().equals(locations.get(vm.getName()))) {
+                return "'" + vm.getName() + "' moved";
+            }
+        }
+        for (VirtualMachine vm : cfg.getWaitings()) {
+            if (!locations.containsKey(vm.getName()) || locations.get(vm.getName()) != null) {
+                return "'" + vm.getName() + "' is now waiting";
+            }
+        }
+        for (Node n : cfg.getOnlines()) {
+            int[] ref = loads.get(n.getName());
+            int[] cur = load(cfg, n);
+            if (Math.abs(ref[0] - cur[0]) >= cpuThreshold || Math.abs(ref[1] - cur[1]) >= memThreshold) {
+                return "the demand of '" + n.getName() + "' changed from " + Arrays.toString(ref) + " to " + Arrays.toString(cur);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Declare the configuration that was planned.
+     *
+     * @param cfg the planned configuration. Typically the destination of the computed plan
+     * @param vjs the vjobs that were considered
+     */
+    public void planned(Configuration cfg, List<VJob> vjs) {
+        loads = new HashMap<String, int[]>(cfg.getOnlines().size());
+        for (Node n : cfg.getOnlines()) {
+            loads.put(n.getName(), load(cfg, n));
+        }
+        locations = new HashMap<String, String>(cfg.getRunnings().size() + cfg.getWaitings().size());
+        for (VirtualMachine vm : cfg.getRunnings()) {
+            locations.put(vm.getName(), cfg.getLocation(vm).getName());
+        }
+        for (VirtualMachine vm : cfg.getWaitings()) {
+            locations.put(vm.getName(), null);
+        }
+        onlines = names(cfg.getOnlines());
+        offlines = names(cfg.getOfflines());
+        sleepings = names(cfg.getSleepings());
+        vjobs = snapshot(vjs);
+    }
+
+    /**
+     * Forget the reference configuration. The next check will require a planning.
+     */
+    public void reset() {
+        loads = null;
+    }
+
+    private static int[] load(Configuration cfg, Node n) {
+        int[] l = new int[2];
+        for (VirtualMachine vm : cfg.getRunnings(n)) {
+            l[0] += vm.getCPUDemand();
+            l[1] += vm.getMemoryDemand();
+        }
+        return l;
+    }
+
+    private static Set<String> names(ManagedElementSet<? extends ManagedElement> elems) {
+        Set<String> s = new HashSet<String>(elems.size());
+        for (ManagedElement e : elems) {
+            s.add(e.getName());
+        }
+        return s;
+    }
+
+    private static Map<String, Set<PlacementConstraint>> snapshot(List<VJob> vjs) {
+        Map<String, Set<PlacementConstraint>> m = new HashMap<String, Set<PlacementConstraint>>(vjs.size());
+        for (VJob v : vjs) {
+            m.put(v.id(), new HashSet<PlacementConstraint>(v.getConstraints()));
+        }
+        return m;
+    }
+
+    /**
+     * Get the reason of the last decision.
+     *
+     * @return a message. {@code null} if no check was performed
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * Get the minimal change of the CPU demand of a node that requires a planning.
+     *
+     * @return a positive integer
+     */
+    public int getCPUThreshold() {
+        return cpuThreshold;
+    }
+
+    /**
+     * Set the minimal change of the CPU demand of a node that requires a planning.
+     *
+     * @param th a positive integer
+     */
+    public void setCPUThreshold(int th) {
+        this.cpuThreshold = th;
+    }
+
+    /**
+     * Get the minimal change of the memory demand of a node that requires a planning.
+     *
+     * @return a positive integer
+     */
+    public int getMemoryThreshold() {
+        return memThreshold;
+    }
+
+    /**
+     * Set the minimal change of the memory demand of a node that requires a planning.
+     *
+     * @param th a positive integer
+     */
+    public void setMemoryThreshold(int th) {
+        this.memThreshold = th;
+    }
+
+    /**
+     * Get the maximum number of consecutive skipped plannings.
+     *
+     * @return a positive integer
+     */
+    public int getMaxSkips() {
+        return maxSkips;
+    }
+
+    /**
+     * Set the maximum number of consecutive skipped plannings.
+     * Once reached, the next check requires a planning even if nothing changed.
+     *
+     * @param nb a positive integer. {@code 0} to never skip the planning
+     */
+    public void setMaxSkips(int nb) {
+        this.maxSkips = nb;
+    }
+
+    /**
+     * Get the number of checks performed.
+     *
+     * @return a positive integer
+     */
+    public int getNbChecks() {
+        return nbChecks;
+    }
+
+    /**
+     * Get the number of plannings skipped.
+     *
+     * @return a positive integer
+     */
+    public int getNbSkips() {
+        return nbSkips;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.controlLoop;
+
+/**
+ * Decide when an event-driven control loop must run its next iteration.
+ * Events are signaled using {@link #fire(String)}. Once an event is pending, the iteration
+ * is released after a debouncing delay to gather the events that arrive in a burst, and
+ * never before a minimum gap since the end of the previous iteration.
+ * When no event is pending, waiting for the trigger costs nothing.
+ *
+ * @author Fabien Hermenier
+ */
+public class PlanningTrigger {
+
+    /**
+     * Default debouncing delay in milliseconds.
+     */
+    public static final long DEFAULT_DEBOUNCE = 1000;
+
+    /**
+     * Default minimum gap between two iterations, in milliseconds.
+     */
+    public static final long DEFAULT_MIN_GAP = 10000;
+
+    private long debounce;
+
+    private long minGap;
+
+    /**
+     * The moment the oldest pending event was fired. {@code -1} if no event is pending.
+     */
+    private long pendingSince = -1;
+
+    /**
+     * The moment the last iteration terminated.
+     */
+    private long lastDone = -1;
+
+    private StringBuilder reasons = new StringBuilder();
+
+    private int nbEvents;
+
+    private int nbReleases;
+
+    /**
+     * Make a new trigger with the default delays.
+     */
+    public PlanningTrigger() {
+        this(DEFAULT_DEBOUNCE, DEFAULT_MIN_GAP);
+    }
+
+    /**
+     * Make a new trigger.
+     *
+     * @param d   the debouncing delay in milliseconds
+     * @param gap the minimum gap between two iterations in milliseconds
+     */
+    public PlanningTrigger(long d, long gap) {
+        this.debounce = d;
+        this.minGap = gap;
+    }
+
+    /**
+     * Signal an event that requires an iteration.
+     *
+     * @param reason the reason of the event
+     */
+    public synchronized void fire(String reason) {
+        nbEvents++;
+        if (pendingSince < 0) {
+            pendingSince = System.currentTimeMillis();
+        } else {
+            reasons.append("; ");
+        }
+        reasons.append(reason);
+        notifyAll();
+    }
+
+    /**
+     * Wait for the next iteration.
+     *
+     * @param timeout the maximum waiting time in milliseconds
+     * @return the reasons of the iteration, or {@code null} if the timeout was reached before
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public synchronized String await(long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (true) {
+            long now = System.currentTimeMillis();
+            long release = Long.MAX_VALUE;
+            if (pendingSince >= 0) {
+                release = pendingSince + debounce;
+                if (lastDone >= 0) {
+                    release = Math.max(release, lastDone + minGap);
+                }
+                if (now >= release) {
+                    String r = reasons.toString();
+                    reasons.setLength(0);
+                    pendingSince = -1;
+                    nbReleases++;
+                    return r;
+                }
+            }
+            if (now >= deadline) {
+                return null;
+            }
+            wait(Math.min(release, deadline) - now);
+        }
+    }
+
+    /**
+     * Indicates the iteration is terminated.
+     * The minimum gap before the next iteration starts from now.
+     */
+    public synchronized void done() {
+        lastDone = System.currentTimeMillis();
+    }
+
+    /**
+     * Indicates whether an event is pending.
+     *
+     * @return {@code true} if an iteration will be released
+     */
+    public synchronized boolean isPending() {
+        return pendingSince >= 0;
+    }
+
+    /**
+     * Get the debouncing delay.
+     *
+     * @return a delay in milliseconds
+     */
+    public synchronized long getDebounce() {
+        return debounce;
+    }
+
+    /**
+     * Set the debouncing delay.
+     *
+     * @param d a delay in milliseconds
+     */
+    public synchronized void setDebounce(long d) {
+        this.debounce = d;
+        notifyAll();
+    }
+
+    /**
+     * Get the minimum gap between two iterations.
+     *
+     * @return a delay in milliseconds
+     */
+    public synchronized long getMinGap() {
+        return minGap;
+    }
+
+    /**
+     * Set the minimum gap between two iterations.
+     *
+     * @param gap a delay in milliseconds
+     */
+    public synchronized void setMinGap(long gap) {
+        this.minGap = gap;
+        notifyAll();
+    }
+
+    /**
+     * Get the number of events signaled so far.
+     *
+     * @return a positive integer
+     */
+    public synchronized int getNbEvents() {
+        return nbEvents;
+    }
+
+    /**
+     * Get the number of iterations released so far.
+     *
+     * @return a positive integer
+     */
+    public synchronized int getNbReleases() {
+        return nbReleases;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.decision.predictor;
+
+/**
+ * A predictor based on an exponentially weighted moving average of the consumption.
+ * Only the last sample is kept in the history.
+ *
+ * @author Fabien Hermenier
+ */
+public class EWMAPredictor extends HistoryBasedPredictor {
+
+    private double alpha;
+
+    private double average = Double.NaN;
+
+    /**
+     * Make a new predictor.
+     *
+     * @param st the step used to round the demand
+     * @param a  the smoothing factor, between 0 and 1. The higher, the more reactive
+     */
+    public EWMAPredictor(int st, double a) {
+        super(st, 1);
+        if (a < 0 || a > 1) {
+            throw new IllegalArgumentException("The smoothing factor must be between 0 and 1. Got " + a);
+        }
+        this.alpha = a;
+    }
+
+    @Override
+    public double forecast(SampleHistory h) {
+        if (Double.isNaN(average)) {
+            average = h.last();
+        } else {
+            average = alpha * h.last() + (1 - alpha) * average;
+        }
+        return average;
+    }
+
+    /**
+     * Get the smoothing factor.
+     *
+     * @return a value between 0 and 1
+     */
+    public double getAlpha() {
+        return alpha;
+    }
+}
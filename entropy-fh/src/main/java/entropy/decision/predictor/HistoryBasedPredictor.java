@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.decision.predictor;
+
+import entropy.configuration.VirtualMachine;
+import entropy.decision.DecisionModule;
+
+/**
+ * A predictor that estimates the CPU demand of a VM from
+ * a bounded history of its CPU consumption.
+ * The predicted demand is rounded to the upper multiple of a step.
+ *
+ * @author Fabien Hermenier
+ */
+public abstract class HistoryBasedPredictor implements VMDemandPredictor {
+
+    private SampleHistory history;
+
+    private int step;
+
+    /**
+     * Make a new predictor.
+     *
+     * @param st     the step used to round the demand
+     * @param window the number of samples to keep
+     */
+    public HistoryBasedPredictor(int st, int window) {
+        this.step = st;
+        this.history = new SampleHistory(window);
+    }
+
+    /**
+     * Estimate the next consumption of the VM.
+     *
+     * @param h the history of the consumption, including the current one
+     * @return the forecast
+     */
+    public abstract double forecast(SampleHistory h);
+
+    @Override
+    public void predictCPUDemand(VirtualMachine vm) {
+        history.add(vm.getCPUConsumption());
+        double f = forecast(history);
+        int demand = f <= 0 ? 0 : (int) Math.ceil(f);
+        vm.setCPUDemand(sample(demand));
+        DecisionModule.getLogger().debug("cpuDemand of '" + vm.getName()
+                + " rounded to " + vm.getCPUDemand()
+                + " (forecast= " + f + ", consumption=" + vm.getCPUConsumption() + ", step= " + step + ")");
+    }
+
+    /**
+     * Get the history of the CPU consumption.
+     *
+     * @return the history
+     */
+    public SampleHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Get the step used to round the demand.
+     *
+     * @return the step
+     */
+    public int getStep() {
+        return step;
+    }
+
+    private int sample(int v) {
+        return (v / step + 1) * step;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.decision.predictor;
+
+/**
+ * A predictor based on the additive Holt-Winters method.
+ * It follows the level, the trend and a seasonal component of the consumption.
+ * Only the last sample is kept in the history, the season is stored in the predictor.
+ *
+ * @author Fabien Hermenier
+ */
+public class HoltWintersPredictor extends HistoryBasedPredictor {
+
+    private double alpha;
+
+    private double beta;
+
+    private double gamma;
+
+    private double level;
+
+    private double trend;
+
+    private double[] seasonal;
+
+    /**
+     * The number of samples seen so far.
+     */
+    private long t;
+
+    /**
+     * Make a new predictor.
+     *
+     * @param st     the step used to round the demand
+     * @param alpha  the smoothing factor of the level, between 0 and 1
+     * @param beta   the smoothing factor of the trend, between 0 and 1
+     * @param gamma  the smoothing factor of the seasonal component, between 0 and 1
+     * @param season the length of a season, in samples
+     */
+    public HoltWintersPredictor(int st, double alpha, double beta, double gamma, int season) {
+        super(st, 1);
+        if (alpha < 0 || alpha > 1 || beta < 0 || beta > 1 || gamma < 0 || gamma > 1) {
+            throw new IllegalArgumentException("The smoothing factors must be between 0 and 1");
+        }
+        if (season <= 0) {
+            throw new IllegalArgumentException("The season length must be strictly positive. Got " + season);
+        }
+        this.alpha = alpha;
+        this.beta = beta;
+        this.gamma = gamma;
+        this.seasonal = new double[season];
+    }
+
+    @Override
+    public double forecast(SampleHistory h) {
+        double x = h.last();
+        int s = (int) (t % seasonal.length);
+        if (t == 0) {
+            level = x;
+            trend = 0;
+        } else {
+            double prev = level;
+            level = alpha * (x - seasonal[s]) + (1 - alpha) * (level + trend);
+            trend = beta * (level - prev) + (1 - beta) * trend;
+            seasonal[s] = gamma * (x - level) + (1 - gamma) * seasonal[s];
+        }
+        t++;
+        return level + trend + seasonal[(int) (t % seasonal.length)];
+    }
+
+    /**
+     * Get the length of a season.
+     *
+     * @return a number of samples
+     */
+    public int getSeason() {
+        return seasonal.length;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.decision.predictor;
+
+import java.util.Arrays;
+
+/**
+ * A predictor that estimates the demand as a percentile of
+ * the consumption over a sliding window.
+ *
+ * @author Fabien Hermenier
+ */
+public class PercentilePredictor extends HistoryBasedPredictor {
+
+    private double percentile;
+
+    /**
+     * Make a new predictor.
+     *
+     * @param st     the step used to round the demand
+     * @param window the number of samples in the window
+     * @param p      the percentile, between 0 (excluded) and 100
+     */
+    public PercentilePredictor(int st, int window, double p) {
+        super(st, window);
+        if (p <= 0 || p > 100) {
+            throw new IllegalArgumentException("The percentile must be in ]0, 100]. Got " + p);
+        }
+        this.percentile = p;
+    }
+
+    /**
+     * Get the percentile using the nearest-rank method.
+     *
+     * @param h the history of the consumption
+     * @return the percentile of the samples in the window
+     */
+    @Override
+    public double forecast(SampleHistory h) {
+        int[] values = h.toArray();
+        Arrays.sort(values);
+        int rank = (int) Math.ceil(percentile / 100 * values.length);
+        return values[Math.max(rank - 1, 0)];
+    }
+
+    /**
+     * Get the percentile.
+     *
+     * @return a value in ]0, 100]
+     */
+    public double getPercentile() {
+        return percentile;
+    }
+}
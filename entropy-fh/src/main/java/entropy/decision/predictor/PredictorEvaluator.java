@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.decision.predictor;
+
+import entropy.configuration.SimpleVirtualMachine;
+import entropy.configuration.VirtualMachine;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replay recorded consumption traces to evaluate a demand predictor offline.
+ * At each period, the demand predicted for a VM at the previous period is compared
+ * to its actual consumption. A period triggers a replan when the consumption
+ * of at least one VM exceeds its predicted demand.
+ * <p/>
+ * The evaluation can be run from the command line using the {@code predictorEval} launcher.
+ *
+ * @author Fabien Hermenier
+ */
+public class PredictorEvaluator {
+
+    private VMDemandPredictorBuilder builder;
+
+    /**
+     * Make a new evaluator.
+     *
+     * @param b the builder to make the predictors to evaluate
+     */
+    public PredictorEvaluator(VMDemandPredictorBuilder b) {
+        this.builder = b;
+    }
+
+    /**
+     * Replay traces.
+     *
+     * @param traces the CPU consumption of each VM, at each period. All the traces must have the same length
+     * @return the result of the evaluation
+     * @throws IllegalArgumentException if the traces do not have the same length
+     */
+    public Result evaluate(int[][] traces) {
+        int nbPeriods = traces.length == 0 ? 0 : traces[0].length;
+        for (int i = 1; i < traces.length; i++) {
+            if (traces[i].length != nbPeriods) {
+                throw new IllegalArgumentException("Trace " + i + " has " + traces[i].length + " sample(s). Expected " + nbPeriods);
+            }
+        }
+        Result r = new Result();
+        VMDemandPredictor[] preds = new VMDemandPredictor[traces.length];
+        int[] demands = new int[traces.length];
+        for (int i = 0; i < traces.length; i++) {
+            preds[i] = builder.build();
+        }
+        long sumErrors = 0;
+        long sumOver = 0;
+        for (int t = 0; t < nbPeriods; t++) {
+            boolean replan = false;
+            for (int i = 0; i < traces.length; i++) {
+                int c = traces[i][t];
+                if (t > 0) {
+                    r.nbForecasts++;
+                    sumErrors += Math.abs(demands[i] - c);
+                    if (c > demands[i]) {
+                        r.nbUnderEstimations++;
+                        replan = true;
+                    } else {
+                        sumOver += demands[i] - c;
+                    }
+                }
+                VirtualMachine vm = new SimpleVirtualMachine("VM" + i, 1, c, 0);
+                preds[i].predictCPUDemand(vm);
+                demands[i] = vm.getCPUDemand();
+            }
+            if (replan) {
+                r.nbReplans++;
+            }
+        }
+        if (r.nbForecasts > 0) {
+            r.meanAbsoluteError = (double) sumErrors / r.nbForecasts;
+            r.meanOverReservation = (double) sumOver / r.nbForecasts;
+        }
+        return r;
+    }
+
+    /**
+     * Read traces from a file.
+     * Each line contains the CPU consumption of one VM, at each period, separated by spaces.
+     * Empty lines and lines starting with a '#' are ignored. All the traces must have the same length.
+     *
+     * @param path the file to read
+     * @return the traces
+     * @throws IOException if an error occurred while reading the file or if the traces do not have the same length
+     */
+    public static int[][] readTraces(String path) throws IOException {
+        List<int[]> traces = new ArrayList<int[]>();
+        BufferedReader in = null;
+        try {
+            in = new BufferedReader(new FileReader(path));
+            String line = in.readLine();
+            int nb = 1;
+            while (line != null) {
+                line = line.trim();
+                if (line.length() > 0 && !line.startsWith("#")) {
+                    String[] toks = line.split("\\s+");
+                    if (!traces.isEmpty() && toks.length != traces.get(0).length) {
+                        throw new IOException("Bad trace in '" + path + "' at line " + nb + ": " + toks.length
+                                + " sample(s). Expected " + traces.get(0).length);
+                    }
+                    int[] trace = new int[toks.length];
+                    for (int i = 0; i < toks.length; i++) {
+                        trace[i] = Integer.parseInt(toks[i]);
+                    }
+                    traces.add(trace);
+                }
+                line = in.readLine();
+                nb++;
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Bad sample in '" + path + "': " + e.getMessage());
+        } finally {
+            if (in != null) {
+                in.close();
+            }
+        }
+        return traces.toArray(new int[traces.size()][]);
+    }
+
+    /**
+     * Make a builder from the description of a predictor.
+     * The description is the name of the predictor followed by its parameters, separated by ':'.
+     *
+     * @param desc the description of the predictor
+     * @param step the step used to round the demand
+     * @return the builder
+     * @throws IllegalArgumentException if the description is not valid
+     */
+    static VMDemandPredictorBuilder makeBuilder(String desc, final int step) {
+        String[] toks = desc.split(":");
+        String name = toks[0];
+        try {
+            if (name.equals("tendency") && toks.length == 1) {
+                return new VMDemandPredictorBuilder() {
+                    @Override
+                    public VMDemandPredictor build() {
+                        return new VMTendencyPredictor(step);
+                    }
+                };
+            } else if (name.equals("ewma") && toks.length == 2) {
+                final double a = Double.parseDouble(toks[1]);
+                return new VMDemandPredictorBuilder() {
+                    @Override
+                    public VMDemandPredictor build() {
+                        return new EWMAPredictor(step, a);
+                    }
+                };
+            } else if (name.equals("percentile") && toks.length == 3) {
+                final int w = Integer.parseInt(toks[1]);
+                final double p = Double.parseDouble(toks[2]);
+                return new VMDemandPredictorBuilder() {
+                    @Override
+                    public VMDemandPredictor build() {
+                        return new PercentilePredictor(step, w, p);
+                    }
+                };
+            } else if (name.equals("holtWinters") && toks.length == 5) {
+                final double alpha = Double.parseDouble(toks[1]);
+                final double beta = Double.parseDouble(toks[2]);
+                final double gamma = Double.parseDouble(toks[3]);
+                final int season = Integer.parseInt(toks[4]);
+                return new VMDemandPredictorBuilder() {
+                    @Override
+                    public VMDemandPredictor build() {
+                        return new HoltWintersPredictor(step, alpha, beta, gamma, season);
+                    }
+                };
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad parameter for predictor '" + desc + "': " + e.getMessage());
+        }
+        throw new IllegalArgumentException("Unknown predictor '" + desc + "'");
+    }
+
+    private static void fatal(String msg) {
+        System.err.println(msg);
+        System.exit(1);
+    }
+
+    /**
+     * Launcher.
+     *
+     * @param args arguments to pass
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Evaluate demand predictors on recorded traces");
+            System.out.println("Usage: predictorEval [-step step] predictor... traces_file");
+            System.out.println("step: the step used to round the demand. Default is " + TendencyBasedDecisionModule.DEFAULT_STEP);
+            System.out.println("traces_file: one line per VM, with the CPU consumption at each period separated by spaces");
+            System.out.println("Supported predictors:");
+            System.out.println("	tendency");
+            System.out.println("	ewma:alpha");
+            System.out.println("	percentile:window:p");
+            System.out.println("	holtWinters:alpha:beta:gamma:season");
+            if (args.length == 0) {
+                System.exit(0);
+            }
+            System.exit(1);
+        }
+        int step = TendencyBasedDecisionModule.DEFAULT_STEP;
+        List<String> descs = new ArrayList<String>();
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("-step") && i < args.length - 2) {
+                try {
+                    step = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    fatal("Invalid step: " + args[i]);
+                }
+            } else {
+                descs.add(args[i]);
+            }
+        }
+        int[][] traces = null;
+        try {
+            traces = readTraces(args[args.length - 1]);
+        } catch (IOException e) {
+            fatal("Unable to read the traces: " + e.getMessage());
+        }
+        for (String desc : descs) {
+            try {
+                PredictorEvaluator ev = new PredictorEvaluator(makeBuilder(desc, step));
+                System.out.println(desc + ": " + ev.evaluate(traces));
+            } catch (IllegalArgumentException e) {
+                fatal(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The result of an evaluation.
+     */
+    public static class Result {
+
+        private int nbForecasts;
+
+        private int nbUnderEstimations;
+
+        private int nbReplans;
+
+        private double meanAbsoluteError;
+
+        private double meanOverReservation;
+
+        /**
+         * Get the number of evaluated forecasts.
+         *
+         * @return a positive integer
+         */
+        public int getNbForecasts() {
+            return nbForecasts;
+        }
+
+        /**
+         * Get the number of forecasts below the actual consumption.
+         *
+         * @return a positive integer
+         */
+        public int getNbUnderEstimations() {
+            return nbUnderEstimations;
+        }
+
+        /**
+         * Get the number of periods that trigger a replan.
+         *
+         * @return a positive integer
+         */
+        public int getNbReplans() {
+            return nbReplans;
+        }
+
+        /**
+         * Get the mean absolute difference between the predicted demand and the actual consumption.
+         *
+         * @return a positive value
+         */
+        public double getMeanAbsoluteError() {
+            return meanAbsoluteError;
+        }
+
+        /**
+         * Get the mean amount of resources reserved but not consumed.
+         * Under-estimations count as 0.
+         *
+         * @return a positive value
+         */
+        public double getMeanOverReservation() {
+            return meanOverReservation;
+        }
+
+        @Override
+        public String toString() {
+            return new StringBuilder("forecasts=").append(nbForecasts)
+                    .append(", MAE=").append(meanAbsoluteError)
+                    .append(", over-reservation=").append(meanOverReservation)
+                    .append(", under-estimations=").append(nbUnderEstimations)
+                    .append(", replans=").append(nbReplans).toString();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.decision.predictor;
+
+/**
+ * A bounded history of samples, stored in a ring buffer.
+ * Once the buffer is full, each new sample replaces the oldest one.
+ *
+ * @author Fabien Hermenier
+ */
+public class SampleHistory {
+
+    private int[] values;
+
+    /**
+     * The position of the oldest sample.
+     */
+    private int head;
+
+    private int size;
+
+    /**
+     * Make a new history.
+     *
+     * @param capacity the maximum number of samples to keep. Must be strictly positive
+     */
+    public SampleHistory(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be strictly positive. Got " + capacity);
+        }
+        values = new int[capacity];
+    }
+
+    /**
+     * Add a sample. The oldest sample is evicted if the history is full.
+     *
+     * @param v the sample to add
+     */
+    public void add(int v) {
+        if (size < values.length) {
+            values[(head + size) % values.length] = v;
+            size++;
+        } else {
+            values[head] = v;
+            head = (head + 1) % values.length;
+        }
+    }
+
+    /**
+     * Get a sample.
+     *
+     * @param i the position of the sample. {@code 0} is the oldest one
+     * @return the sample
+     */
+    public int get(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", size: " + size);
+        }
+        return values[(head + i) % values.length];
+    }
+
+    /**
+     * Get the most recent sample.
+     *
+     * @return the sample
+     */
+    public int last() {
+        return get(size - 1);
+    }
+
+    /**
+     * Get the number of samples in the history.
+     *
+     * @return a positive integer, at most equals to the capacity
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the maximum number of samples in the history.
+     *
+     * @return a strictly positive integer
+     */
+    public int capacity() {
+        return values.length;
+    }
+
+    /**
+     * Copy the samples.
+     *
+     * @return an array of {@link #size()} samples, from the oldest to the most recent
+     */
+    public int[] toArray() {
+        int[] res = new int[size];
+        for (int i = 0; i < size; i++) {
+            res[i] = values[(head + i) % values.length];
+        }
+        return res;
+    }
+
+    /**
+     * Remove all the samples.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                b.append(", ");
+            }
+            b.append(get(i));
+        }
+        return b.append("]").toString();
+    }
+}
@@ -25,11 +25,14 @@ import entropy.decision.AssignmentException;
 import entropy.decision.DecisionModule;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
 /**
  * A Decision module that ask to always restart failed VMs and uses
- * a tendency based approach to estimate the CPU demand of the VMs.
+ * a predictor to estimate the CPU demand of the VMs.
+ * By default, a tendency based approach is used.
+ * The predictors of the VMs that leave the configuration are discarded.
  *
  * @author Fabien Hermenier
  */
@@ -39,21 +42,48 @@ public class TendencyBasedDecisionModule extends DecisionModule {
 
     private int step = DEFAULT_STEP;
 
-    private Map<VirtualMachine, VMTendencyPredictor> preds;
+    private Map<VirtualMachine, VMDemandPredictor> preds;
+
+    private VMDemandPredictorBuilder builder;
 
     public TendencyBasedDecisionModule() {
-        this.preds = new HashMap<VirtualMachine, VMTendencyPredictor>();
+        this(null);
+        this.builder = new VMDemandPredictorBuilder() {
+            @Override
+            public VMDemandPredictor build() {
+                return new VMTendencyPredictor(step);
+            }
+        };
+    }
+
+    /**
+     * Make a new module that uses specific predictors.
+     *
+     * @param b the builder to make the predictor of each VM
+     */
+    public TendencyBasedDecisionModule(VMDemandPredictorBuilder b) {
+        this.preds = new HashMap<VirtualMachine, VMDemandPredictor>();
+        this.builder = b;
     }
 
     @Override
     public Configuration compute(Configuration cfg) throws AssignmentException {
 
+        //Forget the VMs that are no longer in the configuration
+        for (Iterator<VirtualMachine> ite = preds.keySet().iterator(); ite.hasNext(); ) {
+            if (!cfg.contains(ite.next())) {
+                ite.remove();
+            }
+        }
+
         //Update the consumption of all the running VMs.
         for (VirtualMachine vm : cfg.getAllVirtualMachines()) {
-            if (!preds.containsKey(vm)) {
-                preds.put(vm, new VMTendencyPredictor(step));
+            VMDemandPredictor p = preds.get(vm);
+            if (p == null) {
+                p = builder.build();
+                preds.put(vm, p);
             }
-            preds.get(vm).predictCPUDemand(vm);
+            p.predictCPUDemand(vm);
             if (cfg.isRunning(vm) && vm.getCPUDemand() > cfg.getLocation(vm).getCPUCapacity()) {
                 int d = vm.getCPUDemand();
                 DecisionModule.getLogger().debug(vm.getName() + "' demand '" + d + "' decreased to '" + cfg.getLocation(vm).getCPUCapacity() + "'");
@@ -64,6 +94,15 @@ public class TendencyBasedDecisionModule extends DecisionModule {
         return cfg;
     }
 
+    /**
+     * Get the number of VMs having a predictor.
+     *
+     * @return a positive integer
+     */
+    public int getNbPredictors() {
+        return preds.size();
+    }
+
     public int getStep() {
         return step;
     }
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.execution;
+
+import entropy.plan.TimedReconfigurationPlan;
+import entropy.plan.action.Action;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A handle on the execution of a plan launched by a {@link TimedReconfigurationExecuter}.
+ * It reports the progress of the execution and allows to drop the actions that are
+ * not started yet.
+ *
+ * @author Fabien Hermenier
+ */
+public class ExecutionHandle {
+
+    private TimedReconfigurationExecuter master;
+
+    private TimedReconfigurationPlan plan;
+
+    /**
+     * The actions that are neither committed nor dropped.
+     */
+    private Set<Action> remaining;
+
+    private List<Action> committed;
+
+    private List<Action> failed;
+
+    private List<Action> dropped;
+
+    /**
+     * The moment of the last progress of the execution.
+     */
+    private long lastProgress;
+
+    /**
+     * Make a new handle.
+     *
+     * @param e the executer of the plan
+     * @param p the executed plan
+     */
+    ExecutionHandle(TimedReconfigurationExecuter e, TimedReconfigurationPlan p) {
+        this.master = e;
+        this.plan = p;
+        this.remaining = new HashSet<Action>(p.getActions());
+        this.committed = new ArrayList<Action>();
+        this.failed = new ArrayList<Action>();
+        this.dropped = new ArrayList<Action>();
+        this.lastProgress = System.currentTimeMillis();
+    }
+
+    /**
+     * Get the executed plan.
+     *
+     * @return the plan
+     */
+    public TimedReconfigurationPlan getPlan() {
+        return plan;
+    }
+
+    /**
+     * Indicates an action of the plan is terminated.
+     * Must be called while holding the lock of the executer.
+     *
+     * @param a  the action
+     * @param ok {@code true} if the action succeeded
+     */
+    void terminated(Action a, boolean ok) {
+        if (remaining.remove(a)) {
+            if (ok) {
+                committed.add(a);
+            } else {
+                failed.add(a);
+            }
+            lastProgress = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Indicates actions of the plan will never be executed.
+     * Must be called while holding the lock of the executer.
+     *
+     * @param as the dropped actions
+     */
+    void dropped(List<Action> as) {
+        for (Action a : as) {
+            if (remaining.remove(a)) {
+                dropped.add(a);
+            }
+        }
+    }
+
+    /**
+     * Drop the actions of the plan that are not started yet.
+     * The actions already started are terminated normally.
+     *
+     * @return the dropped actions
+     */
+    public List<Action> cancel() {
+        synchronized (master) {
+            if (master.getCurrentExecution() != this) {
+                return Collections.emptyList();
+            }
+            return master.cancel();
+        }
+    }
+
+    /**
+     * Indicates whether all the actions of the plan are committed or dropped.
+     *
+     * @return {@code true} if the execution is terminated
+     */
+    public boolean isTerminated() {
+        synchronized (master) {
+            return remaining.isEmpty();
+        }
+    }
+
+    /**
+     * Wait for the termination of the execution.
+     *
+     * @param timeout the maximum waiting time in milliseconds
+     * @return {@code true} if the execution is terminated
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public boolean waitForCompletion(long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized (master) {
+            long now = System.currentTimeMillis();
+            while (!remaining.isEmpty() && now < deadline) {
+                master.wait(deadline - now);
+                now = System.currentTimeMillis();
+            }
+            return remaining.isEmpty();
+        }
+    }
+
+    /**
+     * Get the moment of the last progress of the execution, that is the launch of the plan
+     * or the termination of its last action.
+     *
+     * @return a moment in milliseconds, as {@link System#currentTimeMillis()}
+     */
+    public long getLastProgress() {
+        synchronized (master) {
+            return lastProgress;
+        }
+    }
+
+    /**
+     * Get the actions that succeeded.
+     *
+     * @return a list, in the order of termination
+     */
+    public List<Action> getCommittedActions() {
+        synchronized (master) {
+            return new ArrayList<Action>(committed);
+        }
+    }
+
+    /**
+     * Get the actions that failed.
+     *
+     * @return a list that may be empty
+     */
+    public List<Action> getFailedActions() {
+        synchronized (master) {
+            return new ArrayList<Action>(failed);
+        }
+    }
+
+    /**
+     * Get the actions that were dropped before being started.
+     *
+     * @return a list that may be empty
+     */
+    public List<Action> getDroppedActions() {
+        synchronized (master) {
+            return new ArrayList<Action>(dropped);
+        }
+    }
+}
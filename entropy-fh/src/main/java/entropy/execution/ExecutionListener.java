@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.execution;
+
+import entropy.plan.action.Action;
+
+/**
+ * A listener to be notified about the progress of the execution of the plans.
+ *
+ * @author Fabien Hermenier
+ */
+public interface ExecutionListener {
+
+    /**
+     * Notify the termination of an action.
+     * The method is called from the thread that executed the action, before the action is
+     * seen as terminated by the executer. It must then return quickly.
+     *
+     * @param a         the terminated action
+     * @param succeeded {@code true} if the action succeeded
+     */
+    void actionCommitted(Action a, boolean succeeded);
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.execution;
+
+import entropy.configuration.Node;
+import entropy.plan.action.Migration;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Limit the number of concurrent migrations on each node.
+ * A migration can start only if both its source and its destination node are below their limit.
+ * The limit of each node is adapted using an additive increase/multiplicative decrease policy:
+ * when a migration terminates with a slowdown below a threshold, the limits of
+ * its nodes are incremented. Otherwise, they are halved. A limit is halved at most once
+ * between two increases so the migrations that terminate slowly because of the same
+ * congestion only reduce it once.
+ *
+ * @author Fabien Hermenier
+ */
+public class MigrationThrottle {
+
+    /**
+     * Default initial limit for each node.
+     */
+    public static final int DEFAULT_INITIAL_LIMIT = 2;
+
+    /**
+     * Default maximum limit for each node.
+     */
+    public static final int DEFAULT_MAX_LIMIT = 8;
+
+    /**
+     * Default slowdown above which the limits are decreased.
+     */
+    public static final double DEFAULT_THRESHOLD = 1.5;
+
+    private int initial;
+
+    private int max;
+
+    private double threshold;
+
+    private Map<Node, Integer> limits;
+
+    private Map<Node, Integer> running;
+
+    /**
+     * The nodes whose limit was halved since its last increase.
+     */
+    private Set<Node> reduced;
+
+    /**
+     * Make a new throttle with the default parameters.
+     */
+    public MigrationThrottle() {
+        this(DEFAULT_INITIAL_LIMIT, DEFAULT_MAX_LIMIT, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Make a new throttle.
+     *
+     * @param init the initial limit of each node
+     * @param m    the maximum limit of each node
+     * @param t    the slowdown above which the limits are decreased
+     */
+    public MigrationThrottle(int init, int m, double t) {
+        if (init < 1 || m < init) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= initial <= max: " + init + ", " + m);
+        }
+        this.initial = init;
+        this.max = m;
+        this.threshold = t;
+        limits = new HashMap<Node, Integer>();
+        running = new HashMap<Node, Integer>();
+        reduced = new HashSet<Node>();
+    }
+
+    /**
+     * Try to reserve a slot on the source and the destination node of a migration.
+     *
+     * @param m the migration to start
+     * @return {@code true} if the migration can start. {@code false} if one of its nodes is saturated
+     */
+    public synchronized boolean tryAcquire(Migration m) {
+        if (getNbRunnings(m.getHost()) >= getLimit(m.getHost())
+                || getNbRunnings(m.getDestination()) >= getLimit(m.getDestination())) {
+            return false;
+        }
+        running.put(m.getHost(), getNbRunnings(m.getHost()) + 1);
+        running.put(m.getDestination(), getNbRunnings(m.getDestination()) + 1);
+        return true;
+    }
+
+    /**
+     * Release the slots reserved by a terminated migration and adapt the limits of its nodes.
+     *
+     * @param m        the terminated migration
+     * @param slowdown the ratio between the actual and the planned duration of the migration.
+     *                 {@code Double.NaN} to keep the limits unchanged
+     */
+    public synchronized void release(Migration m, double slowdown) {
+        release(m.getHost(), slowdown);
+        release(m.getDestination(), slowdown);
+    }
+
+    private void release(Node n, double slowdown) {
+        int nb = getNbRunnings(n);
+        if (nb <= 1) {
+            running.remove(n);
+        } else {
+            running.put(n, nb - 1);
+        }
+        if (!Double.isNaN(slowdown)) {
+            int l = getLimit(n);
+            if (slowdown > threshold) {
+                if (reduced.add(n)) {
+                    limits.put(n, Math.max(1, l / 2));
+                }
+            } else {
+                reduced.remove(n);
+                limits.put(n, Math.min(max, l + 1));
+            }
+        }
+    }
+
+    /**
+     * Get the current limit of a node.
+     *
+     * @param n the node
+     * @return a positive integer
+     */
+    public synchronized int getLimit(Node n) {
+        Integer l = limits.get(n);
+        return l == null ? initial : l;
+    }
+
+    /**
+     * Get the number of running migrations that involve a node.
+     *
+     * @param n the node
+     * @return a positive integer
+     */
+    public synchronized int getNbRunnings(Node n) {
+        Integer nb = running.get(n);
+        return nb == null ? 0 : nb;
+    }
+
+    /**
+     * Get the slowdown above which the limits are decreased.
+     *
+     * @return a ratio
+     */
+    public double getThreshold() {
+        return threshold;
+    }
+}
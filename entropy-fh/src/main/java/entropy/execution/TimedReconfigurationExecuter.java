@@ -23,17 +23,33 @@ import entropy.execution.driver.DriverFactory;
 import entropy.execution.driver.DriverInstantiationException;
 import entropy.plan.TimedReconfigurationPlan;
 import entropy.plan.action.Action;
+import entropy.plan.action.Migration;
+import entropy.plan.durationEvaluator.DurationStatistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * An execution module dedicated to the execution of time bounded Action. All feasible actions are made in parallel.
  * The execution module try to execute new action when a Action is committed.
+ * <p/>
+ * A plan can be executed in a blocking way using {@link #start(TimedReconfigurationPlan)} or in background
+ * using {@link #launch(TimedReconfigurationPlan)}. In the latter case, the actions that are not started yet
+ * can be dropped using {@link #cancel()} or the returned {@link ExecutionHandle}. Once a plan is cancelled,
+ * a new one can be launched even if some actions of the previous plan are still running.
+ * The termination of each action is notified to the registered {@link ExecutionListener}.
+ * <p/>
+ * The actual duration of the actions can be recorded into a {@link DurationStatistics}, and the
+ * number of concurrent migrations per node can be limited using a {@link MigrationThrottle}.
+ * A feasible migration that exceeds the limits is delayed until a migration terminates.
  *
  * @author Fabien Hermenier
  */
@@ -54,6 +70,52 @@ public class TimedReconfigurationExecuter {
      */
     private List<Action> uncommited;
 
+    /**
+     * The uncommited actions that have been started.
+     */
+    private Set<Action> started;
+
+    /**
+     * Indicates the actions that are not started yet must be dropped.
+     */
+    private boolean cancelled;
+
+    /**
+     * The number of actions that failed for the current plan.
+     */
+    private int nbFailures;
+
+    /**
+     * The handle on the current plan.
+     */
+    private ExecutionHandle current;
+
+    /**
+     * The running actions that belong to previous cancelled plans, with the handle of their plan.
+     */
+    private Map<Action, ExecutionHandle> orphans;
+
+    /**
+     * The feasible migrations delayed by the throttle.
+     */
+    private List<Action> deferred;
+
+    /**
+     * The moment each running action was started.
+     */
+    private Map<Action, Long> startMoments;
+
+    /**
+     * The number of threads waiting for the termination of the current plan.
+     */
+    private int nbWaiters;
+
+    private MigrationThrottle throttle;
+
+    private DurationStatistics statistics;
+
+    private List<ExecutionListener> listeners;
+
     private Logger logger = LoggerFactory.getLogger("Actuator");
 
     /**
@@ -66,6 +128,66 @@ public class TimedReconfigurationExecuter {
         this.factory = f;
         this.revDependencies = new HashMap<Action, List<Dependencies>>();
         this.uncommited = new LinkedList<Action>();
+        this.started = new HashSet<Action>();
+        this.orphans = new HashMap<Action, ExecutionHandle>();
+        this.listeners = new CopyOnWriteArrayList<ExecutionListener>();
+        this.deferred = new LinkedList<Action>();
+        this.startMoments = new HashMap<Action, Long>();
+    }
+
+    /**
+     * Set the throttle to limit the number of concurrent migrations per node.
+     *
+     * @param t the throttle. {@code null} to start the migrations as soon as they are feasible
+     */
+    public synchronized void setMigrationThrottle(MigrationThrottle t) {
+        this.throttle = t;
+    }
+
+    /**
+     * Get the throttle that limits the number of concurrent migrations per node.
+     *
+     * @return the throttle. {@code null} if there is no limit
+     */
+    public synchronized MigrationThrottle getMigrationThrottle() {
+        return throttle;
+    }
+
+    /**
+     * Set the statistics to record the actual duration of the succeeded actions.
+     *
+     * @param s the statistics. {@code null} to record nothing
+     */
+    public synchronized void setDurationStatistics(DurationStatistics s) {
+        this.statistics = s;
+    }
+
+    /**
+     * Get the statistics that record the actual duration of the actions.
+     *
+     * @return the statistics. {@code null} if the durations are not recorded
+     */
+    public synchronized DurationStatistics getDurationStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Register a listener to be notified about the termination of the actions.
+     *
+     * @param l the listener to add
+     */
+    public void addListener(ExecutionListener l) {
+        listeners.add(l);
+    }
+
+    /**
+     * Remove a listener.
+     *
+     * @param l the listener to remove
+     * @return {@code true} if the listener was registered
+     */
+    public boolean removeListener(ExecutionListener l) {
+        return listeners.remove(l);
     }
 
     /**
@@ -75,54 +197,201 @@ public class TimedReconfigurationExecuter {
      * @param plan the plan to execute
      */
     public void start(TimedReconfigurationPlan plan) {
+        launch(plan);
+        waitForCompletion();
+    }
 
-        revDependencies.clear();
-        uncommited.clear();
-        uncommited.addAll(plan.getActions());
+    /**
+     * Start the execution of a plan in background.
+     * The method returns once the feasible actions have been started.
+     * The previous plan, if any, must be terminated or cancelled.
+     *
+     * @param plan the plan to execute
+     * @return the handle on the execution
+     */
+    public ExecutionHandle launch(TimedReconfigurationPlan plan) {
+
+        List<Action> feasibles = new ArrayList<Action>();
+        ExecutionHandle h;
+        synchronized (this) {
+            if (!uncommited.isEmpty()) {
+                if (!cancelled) {
+                    throw new IllegalStateException("The previous plan is not terminated");
+                }
+                //Only started actions remain. They are still tracked until their termination
+                for (Action a : uncommited) {
+                    orphans.put(a, current);
+                }
+                uncommited.clear();
+            }
+            h = new ExecutionHandle(this, plan);
+            current = h;
+            revDependencies.clear();
+            started.clear();
+            deferred.clear();
+            cancelled = false;
+            nbFailures = 0;
+            uncommited.addAll(plan.getActions());
+
+            TimedExecutionGraph g = plan.extractExecutionGraph();
 
-        TimedExecutionGraph g = plan.extractExecutionGraph();
+            //Set the reverse dependencies map
+            for (Dependencies dep : g.extractDependencies()) {
+                for (Action a : dep.getUnsatisfiedDependencies()) {
+                    if (!revDependencies.containsKey(a)) {
+                        revDependencies.put(a, new LinkedList<Dependencies>());
+                    }
+                    revDependencies.get(a).add(dep);
 
-        //Set the reverse dependencies map
-        for (Dependencies dep : g.extractDependencies()) {
-            for (Action a : dep.getUnsatisfiedDependencies()) {
-                if (!revDependencies.containsKey(a)) {
-                    revDependencies.put(a, new LinkedList<Dependencies>());
                 }
-                revDependencies.get(a).add(dep);
+            }
 
+            //Start the feasible actions
+            // ie, actions with a start moment equals to 0.
+            for (Action a : plan) {
+                if (a.getStartMoment() == 0) {
+                    schedule(a, feasibles);
+                }
             }
         }
+        for (Action a : feasibles) {
+            instantiateAndStart(a);
+        }
+        return h;
+    }
+
+    /**
+     * Get the handle on the current or the last plan.
+     *
+     * @return the handle. {@code null} if no plan was launched
+     */
+    public synchronized ExecutionHandle getCurrentExecution() {
+        return current;
+    }
+
+    /**
+     * Wait for the termination of the current plan.
+     */
+    public synchronized void waitForCompletion() {
+        nbWaiters++;
+        try {
+            while (!uncommited.isEmpty()) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    logger.error(e.getMessage(), e);
+                }
+            }
+        } finally {
+            nbWaiters--;
+        }
+    }
+
+    /**
+     * Indicates whether a thread is blocked until the termination of the current plan.
+     *
+     * @return {@code true} if a thread waits in {@link #waitForCompletion()} while some actions are not commited
+     */
+    public synchronized boolean isWaitedFor() {
+        return nbWaiters > 0 && !uncommited.isEmpty();
+    }
+
+    /**
+     * Indicates whether a plan is currently executed.
+     *
+     * @return {@code true} if some actions are not commited
+     */
+    public synchronized boolean isExecuting() {
+        return !uncommited.isEmpty();
+    }
+
+    /**
+     * Cancel the execution of the current plan.
+     * The actions that are already started are terminated normally
+     * while the others are dropped.
+     *
+     * @return the dropped actions
+     */
+    public synchronized List<Action> cancel() {
+        cancelled = true;
+        List<Action> dropped = getPendingActions();
+        uncommited.removeAll(dropped);
+        deferred.clear();
+        if (current != null) {
+            current.dropped(dropped);
+        }
+        notifyAll();
+        return dropped;
+    }
 
-        //Start the feasible actions
-        // ie, actions with a start moment equals to 0.
-        for (Action a : plan) {
-            if (a.getStartMoment() == 0) {
-                instantiateAndStart(a);
+    /**
+     * Get the actions of the current plan that are not started yet.
+     * This includes the feasible migrations delayed by the throttle.
+     *
+     * @return a list that may be empty
+     */
+    public synchronized List<Action> getPendingActions() {
+        List<Action> pending = new ArrayList<Action>();
+        for (Action a : uncommited) {
+            if (!started.contains(a)) {
+                pending.add(a);
             }
         }
+        return pending;
+    }
 
-        //Check each second if all the actions has been performed
-        while (!uncommited.isEmpty()) {
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                logger.error(e.getMessage(), e);
+    /**
+     * Get the actions that are started but not commited yet.
+     * This includes the running actions of the previous cancelled plans.
+     *
+     * @return a list that may be empty
+     */
+    public synchronized List<Action> getRunningActions() {
+        List<Action> running = new ArrayList<Action>(orphans.keySet());
+        for (Action a : uncommited) {
+            if (started.contains(a)) {
+                running.add(a);
             }
         }
+        return running;
+    }
+
+    /**
+     * Get the number of actions that failed during the execution
+     * of the current or the last plan.
+     *
+     * @return a positive integer
+     */
+    public synchronized int getNbFailures() {
+        return nbFailures;
     }
 
     /**
      * Associate an action with a driver and start its execution
      * using a {@link Executor}.
+     * If no driver can be associated, the action is considered as failed
+     * and the reconfiguration is aborted.
      *
      * @param a the action to instantiate and start
      */
     private void instantiateAndStart(Action a) {
+        synchronized (this) {
+            startMoments.put(a, System.currentTimeMillis());
+        }
         try {
             Driver drv = factory.transform(a);
             new Executor(drv, this).start();
         } catch (DriverInstantiationException ex) {
             logger.error(ex.getMessage(), ex);
+            notifyListeners(a, false);
+            synchronized (this) {
+                terminated(a, false);
+                uncommited.remove(a);
+                started.remove(a);
+                current.terminated(a, false);
+                nbFailures++;
+                cancel();
+            }
         }
     }
 
@@ -135,21 +404,94 @@ public class TimedReconfigurationExecuter {
      */
     public void commit(Executor e) {
         Action a = e.getDriver().getAction();
-        uncommited.remove(a);
-        if (e.hasSuceeded()) {
-            if (revDependencies.containsKey(a)) {
-                //Get the associated depenencies and update it
-                for (Dependencies dep : revDependencies.get(a)) {
-                    dep.removeDependency(a);
-                    //Launch new feasible actions.
-                    if (dep.isFeasible()) {
-                        instantiateAndStart(dep.getAction());
+        List<Action> feasibles = new ArrayList<Action>();
+        //Listeners are notified before the action is seen as terminated
+        notifyListeners(a, e.hasSuceeded());
+        synchronized (this) {
+            notifyAll();
+            terminated(a, e.hasSuceeded());
+            ExecutionHandle h = orphans.remove(a);
+            if (h != null) {
+                h.terminated(a, e.hasSuceeded());
+                if (!e.hasSuceeded()) {
+                    logger.error("Action of a cancelled plan failed: " +
+                            e.getException().getMessage(), e.getException());
+                }
+            } else if (e.hasSuceeded()) {
+                uncommited.remove(a);
+                started.remove(a);
+                current.terminated(a, true);
+                if (revDependencies.containsKey(a)) {
+                    //Get the associated depenencies and update it
+                    for (Dependencies dep : revDependencies.get(a)) {
+                        dep.removeDependency(a);
+                        //Launch new feasible actions.
+                        if (dep.isFeasible() && !cancelled) {
+                            schedule(dep.getAction(), feasibles);
+                        }
                     }
                 }
+            } else {
+                uncommited.remove(a);
+                started.remove(a);
+                current.terminated(a, false);
+                nbFailures++;
+                //The actions that are not started yet may depend on the failed one
+                cancel();
+                logger.error("Reconfiguration aborded: " +
+                        e.getException().getMessage(), e.getException());
+            }
+            //Terminated migrations may have released slots for the delayed ones
+            if (!cancelled && !deferred.isEmpty()) {
+                List<Action> delayed = new ArrayList<Action>(deferred);
+                deferred.clear();
+                for (Action d : delayed) {
+                    schedule(d, feasibles);
+                }
             }
+        }
+        for (Action f : feasibles) {
+            instantiateAndStart(f);
+        }
+    }
+
+    /**
+     * Mark a feasible action as started, unless it is a migration
+     * that exceeds the limits of the throttle. In this case, it is delayed.
+     *
+     * @param a         the feasible action
+     * @param feasibles the actions to start
+     */
+    private void schedule(Action a, List<Action> feasibles) {
+        if (throttle != null && a instanceof Migration && !throttle.tryAcquire((Migration) a)) {
+            deferred.add(a);
         } else {
-            logger.error("Reconfiguration aborded: " +
-                    e.getException().getMessage(), e.getException());
+            started.add(a);
+            feasibles.add(a);
+        }
+    }
+
+    /**
+     * Record the duration of a terminated action and release its throttle slots.
+     *
+     * @param a  the terminated action
+     * @param ok {@code true} if the action succeeded
+     */
+    private void terminated(Action a, boolean ok) {
+        Long st = startMoments.remove(a);
+        double slowdown = Double.NaN;
+        if (st != null && ok) {
+            long elapsed = System.currentTimeMillis() - st;
+            slowdown = statistics != null ? statistics.record(a, elapsed) : DurationStatistics.slowdown(a, elapsed);
+        }
+        if (throttle != null && st != null && a instanceof Migration) {
+            throttle.release((Migration) a, slowdown);
+        }
+    }
+
+    private void notifyListeners(Action a, boolean ok) {
+        for (ExecutionListener l : listeners) {
+            l.actionCommitted(a, ok);
         }
     }
 
@@ -42,6 +42,16 @@ import entropy.plan.action.Shutdown;
  *
  */
 public class DriverFactory {
+
+	/**
+	 * The identifier of the driver to boot a node using Wake On Lan.
+	 */
+	public static final String WOL_STARTUP = "wakeOnLan";
+
+	/**
+	 * The identifier of the driver to shutdown a node using SSH.
+	 */
+	public static final String SSH_SHUTDOWN = "sshShutdown";
 	
 	/**
 	 * The current properties of Entropy.
@@ -81,12 +91,12 @@ public class DriverFactory {
 			}
 		} else if (action instanceof Startup) {
 			String drv = ((Startup) action).getNode().getStartupDriverID();
-			if ("wakeOnLan".equals(drv)) {
+			if (WOL_STARTUP.equals(drv)) {
 				return new WoLStartup((Startup) action);
 			}			
 		} else if (action instanceof Shutdown) {
 			String drv = ((Shutdown) action).getNode().getShutdownDriverID();
-			if ("sshShutdown".equals(drv)) {
+			if (SSH_SHUTDOWN.equals(drv)) {
                 try {
 				    return new SSHShutdown((Shutdown) action, props);
                 } catch (PropertiesHelperException e) {
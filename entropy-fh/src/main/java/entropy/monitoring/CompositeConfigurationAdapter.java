@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.monitoring;
+
+import entropy.configuration.Configuration;
+import entropy.configuration.Configurations;
+import entropy.configuration.ConfigurationsException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * An adapter that aggregates the configurations extracted from several sources.
+ * The sources are queried concurrently. A source that does not answer within the timeout
+ * or that fails is replaced by the last configuration it provided, flagged as stale with its age.
+ * A source that is still busy with a previous query is not queried again until it answers.
+ * <p/>
+ * The configurations are merged using {@link Configurations#merge(List)}, so the sets of
+ * virtual machines of the sources must be disjoint.
+ *
+ * @author Fabien Hermenier
+ */
+public class CompositeConfigurationAdapter extends ConfigurationAdapter {
+
+    /**
+     * The default timeout for a source, in milliseconds.
+     */
+    public static final int DEFAULT_TIMEOUT = 5000;
+
+    private List<ConfigurationAdapter> sources;
+
+    private ExecutorService executor;
+
+    private int timeout = DEFAULT_TIMEOUT;
+
+    /**
+     * The maximum age of a cached configuration, in milliseconds.
+     */
+    private long maxAge = Long.MAX_VALUE;
+
+    /**
+     * The query in progress for each source.
+     */
+    private List<Future<Configuration>> pending;
+
+    /**
+     * The last configuration provided by each source.
+     */
+    private Configuration[] cache;
+
+    /**
+     * The moment each configuration was cached.
+     */
+    private long[] cacheDates;
+
+    /**
+     * The age of the configuration used for each source during the last extraction. {@code 0} if fresh.
+     */
+    private long[] ages;
+
+    /**
+     * Make a new adapter.
+     *
+     * @param srcs the sources to aggregate
+     */
+    public CompositeConfigurationAdapter(List<ConfigurationAdapter> srcs) {
+        this.sources = new ArrayList<ConfigurationAdapter>(srcs);
+        int nb = sources.size();
+        this.pending = new ArrayList<Future<Configuration>>(nb);
+        for (int i = 0; i < nb; i++) {
+            pending.add(null);
+        }
+        this.cache = new Configuration[nb];
+        this.cacheDates = new long[nb];
+        this.ages = new long[nb];
+        this.executor = Executors.newFixedThreadPool(Math.max(nb, 1), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "monitoring-source");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    @Override
+    public Configuration extractConfiguration() throws MonitoringException {
+        for (int i = 0; i < sources.size(); i++) {
+            if (pending.get(i) == null) {
+                final ConfigurationAdapter a = sources.get(i);
+                pending.set(i, executor.submit(new Callable<Configuration>() {
+                    @Override
+                    public Configuration call() throws MonitoringException {
+                        return a.extractConfiguration();
+                    }
+                }));
+            }
+        }
+        long deadline = System.currentTimeMillis() + timeout;
+        List<Configuration> cfgs = new ArrayList<Configuration>(sources.size());
+        for (int i = 0; i < sources.size(); i++) {
+            boolean fresh = false;
+            try {
+                Configuration c = pending.get(i).get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+                pending.set(i, null);
+                cache[i] = c;
+                cacheDates[i] = System.currentTimeMillis();
+                fresh = true;
+            } catch (TimeoutException e) {
+                Monitor.getLogger().warn("Source " + i + " did not answer within " + timeout + " ms");
+            } catch (ExecutionException e) {
+                pending.set(i, null);
+                Monitor.getLogger().warn("Source " + i + " failed: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                throw new MonitoringException("Interrupted while waiting for source " + i, e);
+            }
+            if (cache[i] == null) {
+                ages[i] = -1;
+                continue;
+            }
+            ages[i] = fresh ? 0 : Math.max(System.currentTimeMillis() - cacheDates[i], 1);
+            if (ages[i] > maxAge) {
+                Monitor.getLogger().warn("Configuration of source " + i + " is too old (" + ages[i] + " ms). Ignored");
+            } else {
+                if (!fresh) {
+                    Monitor.getLogger().warn("Using the configuration of source " + i + " cached " + ages[i] + " ms ago");
+                }
+                cfgs.add(cache[i]);
+            }
+        }
+        if (cfgs.isEmpty()) {
+            throw new MonitoringException("No source available");
+        }
+        try {
+            return Configurations.merge(cfgs);
+        } catch (ConfigurationsException e) {
+            throw new MonitoringException("Unable to merge the configurations: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the sources of the configurations.
+     *
+     * @return a list of adapters
+     */
+    public List<ConfigurationAdapter> getSources() {
+        return sources;
+    }
+
+    /**
+     * Get the age of the configuration used for a source during the last extraction.
+     *
+     * @param i the index of the source
+     * @return {@code 0} if the configuration was fresh, its age in milliseconds if it was cached,
+     *         {@code -1} if the source never provided a configuration
+     */
+    public long getAge(int i) {
+        return ages[i];
+    }
+
+    /**
+     * Indicates whether a cached configuration was used for a source during the last extraction.
+     *
+     * @param i the index of the source
+     * @return {@code true} if the configuration was stale or missing
+     */
+    public boolean isStale(int i) {
+        return ages[i] != 0;
+    }
+
+    /**
+     * Get the maximum duration to wait for the sources.
+     *
+     * @return a duration in milliseconds
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Set the maximum duration to wait for the sources.
+     *
+     * @param ms a duration in milliseconds
+     */
+    public void setTimeout(int ms) {
+        this.timeout = ms;
+    }
+
+    /**
+     * Get the maximum age of a cached configuration.
+     *
+     * @return a duration in milliseconds
+     */
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Set the maximum age of a cached configuration. Older configurations are ignored.
+     *
+     * @param ms a duration in milliseconds
+     */
+    public void setMaxAge(long ms) {
+        this.maxAge = ms;
+    }
+
+    /**
+     * Stop the threads that query the sources.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -19,10 +19,14 @@
 package entropy.monitoring;
 
 import entropy.configuration.Configuration;
+import entropy.monitoring.sampler.ChainedSampler;
 import entropy.monitoring.sampler.ConfigurationSampler;
+import entropy.monitoring.sampler.ElementSampler;
+import entropy.monitoring.store.MetricsStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -45,6 +49,11 @@ public class Monitor {
 	 * The adapter to extract the configuration.
 	 */
 	private ConfigurationAdapter adapter;
+
+	/**
+	 * The store to keep the history of the metrics. {@code null} if not used.
+	 */
+	private MetricsStore store;
 	
 	/**
 	 * Make a new monitor.
@@ -68,15 +77,33 @@ public class Monitor {
 	 * Get the configuration.
 	 * First the configuration is extracted using the ConfigurationAdapter
 	 * then, each attached sampler is used to simplify the configuration.
+	 * Consecutive element samplers are fused so the configuration is copied only once for all of them.
 	 * @return a configuration
 	 * @throws MonitoringException if an error occurs during the extraction of the configuration
 	 */
 	public Configuration getConfiguration() throws MonitoringException {
 		Configuration tmp = adapter.extractConfiguration();
+		if (store != null) {
+			try {
+				store.record(System.currentTimeMillis(), tmp);
+			} catch (IOException e) {
+				//The history is not required to monitor the configuration
+				logger.error("Unable to store the metrics: " + e.getMessage(), e);
+			} catch (IllegalArgumentException e) {
+				logger.warn("Metrics not stored: " + e.getMessage());
+			}
+		}
+		ChainedSampler chain = new ChainedSampler();
 		for (ConfigurationSampler sampler : this.samplers) {
-			tmp = sampler.sample(tmp);
+			if (sampler instanceof ElementSampler) {
+				chain.add((ElementSampler) sampler);
+			} else {
+				tmp = chain.sample(tmp);
+				chain = new ChainedSampler();
+				tmp = sampler.sample(tmp);
+			}
 		}
-		return tmp;
+		return chain.sample(tmp);
 	}
 	
 	/**
@@ -87,6 +114,23 @@ public class Monitor {
 		return this.adapter;
 	}
 	
+	/**
+	 * Set the store that keeps the history of the metrics.
+	 * The raw configuration extracted by the adapter is recorded at each refresh.
+	 * @param s the store. {@code null} to not keep the history
+	 */
+	public void setMetricsStore(MetricsStore s) {
+		this.store = s;
+	}
+
+	/**
+	 * Get the store that keeps the history of the metrics.
+	 * @return the store. {@code null} if the history is not kept
+	 */
+	public MetricsStore getMetricsStore() {
+		return this.store;
+	}
+
 	/**
 	 * Get the list of sampler used to simplify the configuration.
 	 * @return a list, may be empty
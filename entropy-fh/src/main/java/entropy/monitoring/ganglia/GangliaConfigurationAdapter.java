@@ -21,18 +21,16 @@ package entropy.monitoring.ganglia;
 
 import entropy.configuration.Configuration;
 import entropy.monitoring.ConfigurationAdapter;
+import entropy.monitoring.Monitor;
 import entropy.monitoring.MonitoringException;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
 
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParserFactory;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.StringReader;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.util.Set;
 
 /**
  * Adapter that extract a configuration from a Ganglia meta daemon.
@@ -41,6 +39,7 @@ import java.net.UnknownHostException;
  *
  * @author Fabien Hermenier
  * @see GangliaMetaXMLParser for metrics specifications.
+ * @see GangliaStAXParser for the parsing of the XML output.
  */
 public class GangliaConfigurationAdapter extends ConfigurationAdapter {
 
@@ -59,6 +58,11 @@ public class GangliaConfigurationAdapter extends ConfigurationAdapter {
      */
     private int port;
 
+    /**
+     * The clusters to parse. {@code null} to parse all of them.
+     */
+    private Set<String> clusters;
+
     /**
      * Make a new adapter that request a ganglia meta daemon on the default port.
      *
@@ -114,29 +118,54 @@ public class GangliaConfigurationAdapter extends ConfigurationAdapter {
      * @throws MonitoringException if an error occured
      */
     public Configuration parseConfiguration(String buffer) throws MonitoringException {
-        SAXParserFactory factory = SAXParserFactory.newInstance();
-        javax.xml.parsers.SAXParser parser;
-        GangliaMetaXMLParser gangliaXMLParser;
+        return makeParser().parse(new StringReader(buffer));
+    }
+
+    @Override
+    public Configuration extractConfiguration() throws MonitoringException {
+        Socket s = null;
         try {
-            parser = factory.newSAXParser();
-            gangliaXMLParser = new GangliaMetaXMLParser(this);
-            parser.parse(new InputSource(new StringReader(buffer)), gangliaXMLParser);
-
-        } catch (ParserConfigurationException e) {
-            throw new MonitoringException("Error while parsing the configuration", e);
-        } catch (SAXException e) {
-            throw new MonitoringException("Error while parsing the XML stream of GMetad", e);
+            s = new Socket(this.host, this.port);
+            return makeParser().parse(new BufferedReader(new InputStreamReader(s.getInputStream())));
+        } catch (UnknownHostException e) {
+            throw new MonitoringException("Unknown host: " + this.host + ":" + this.port, e);
         } catch (IOException e) {
-            throw new MonitoringException("I/O error", e);
+            throw new MonitoringException("Unable to get the monitoring report from the GMeta daemon", e);
+        } finally {
+            if (s != null) {
+                try {
+                    s.close();
+                } catch (IOException e) {
+                    Monitor.getLogger().warn(e.getMessage());
+                }
+            }
         }
-        return gangliaXMLParser.getConfiguration();
     }
 
-    @Override
-    public Configuration extractConfiguration() throws MonitoringException {
-        return parseConfiguration(this.readXMLDump());
+    private GangliaStAXParser makeParser() {
+        GangliaStAXParser p = new GangliaStAXParser(this);
+        p.setClusters(clusters);
+        return p;
     }
 
+    /**
+     * Restrict the extraction to some clusters.
+     * The hosts of the other clusters are skipped while parsing the XML output.
+     *
+     * @param names the names of the clusters to consider. {@code null} to consider all the clusters
+     */
+    public void setClusters(Set<String> names) {
+        this.clusters = names;
+    }
+
+    /**
+     * Get the clusters to consider.
+     *
+     * @return the names of the clusters. {@code null} if all the clusters are considered
+     */
+    public Set<String> getClusters() {
+        return this.clusters;
+    }
 
     /**
      * Get the hostname of the Ganglia meta daemon.
@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.monitoring.ganglia;
+
+import entropy.configuration.*;
+import entropy.monitoring.ConfigurationAdapter;
+import entropy.monitoring.Monitor;
+import entropy.monitoring.MonitoringException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Reader;
+import java.util.*;
+
+import static entropy.monitoring.ganglia.GangliaMetaXMLParser.*;
+
+/**
+ * A streaming parser to create a configuration from a GMetad XML output.
+ * It recognizes the same containers and virtual machines than {@link GangliaMetaXMLParser}
+ * but it only keeps the metrics Entropy consumes. Each of these metrics is identified by a small
+ * integer so the values of a host are stored in an array that is reused from one host to another.
+ * The hosts in the nodes black list and the clusters that are not selected are skipped without
+ * reading their metrics.
+ *
+ * @author Fabien Hermenier
+ */
+public class GangliaStAXParser {
+
+    private static final int CONTAINER_TYPE = 0;
+
+    private static final int CONTAINER_LIST_VMS = 1;
+
+    private static final int CONTAINER_MEMORY_TOTAL = 2;
+
+    private static final int CONTAINER_NB_CPU = 3;
+
+    private static final int CONTAINER_MIGRATION_DRIVER = 4;
+
+    private static final int CONTAINER_STARTUP_DRIVER = 5;
+
+    private static final int CONTAINER_SHUTDOWN_DRIVER = 6;
+
+    private static final int CONTAINER_RUN_DRIVER = 7;
+
+    private static final int CONTAINER_RESUME_DRIVER = 8;
+
+    private static final int CONTAINER_SUSPEND_DRIVER = 9;
+
+    private static final int CONTAINER_STOP_DRIVER = 10;
+
+    private static final int CPU_FREQUENCY = 11;
+
+    private static final int VM_MEMORY_CONSUMPTION = 12;
+
+    private static final int NB_CPU = 13;
+
+    private static final int CPU_PCT_USER = 14;
+
+    private static final int CPU_PCT_NICE = 15;
+
+    private static final int CPU_PCT_SYSTEM = 16;
+
+    /**
+     * The identifier of each consumed metric.
+     */
+    private static final Map<String, Integer> METRICS;
+
+    static {
+        String[] names = {METRIC_CONTAINER_TYPE, METRIC_CONTAINER_LIST_VMS, METRIC_CONTAINER_MEMORY_TOTAL,
+                METRIC_CONTAINER_NB_CPU, METRIC_CONTAINER_MIGRATION_DRIVER, METRIC_CONTAINER_STARTUP_DRIVER,
+                METRIC_CONTAINER_SHUTDOWN_DRIVER, METRIC_CONTAINER_RUN_DRIVER, METRIC_CONTAINER_RESUME_DRIVER,
+                METRIC_CONTAINER_SUSPEND_DRIVER, METRIC_CONTAINER_STOP_DRIVER, METRIC_CPU_FREQUENCY,
+                METRIC_VM_MEMORY_CONSUMPTION, METRIC_NB_CPU, METRIC_CPU_PCT_USER, METRIC_CPU_PCT_NICE,
+                METRIC_CPU_PCT_SYSTEM};
+        METRICS = new HashMap<String, Integer>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            METRICS.put(names[i], i);
+        }
+    }
+
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        FACTORY.setProperty(XMLInputFactory.IS_COALESCING, false);
+    }
+
+    /**
+     * The associated configuration adapter.
+     */
+    private ConfigurationAdapter parent;
+
+    /**
+     * The clusters to consider. {@code null} to consider all of them.
+     */
+    private Set<String> clusters;
+
+    /**
+     * The values of the metrics of the current host.
+     */
+    private String[] values = new String[METRICS.size()];
+
+    private Configuration cfg;
+
+    private ManagedElementSet<VirtualMachine> allVMs;
+
+    /**
+     * The online containers, with their list of hosted virtual machines.
+     */
+    private Map<Node, String> assigns;
+
+    private Map<VirtualMachine, Float> cpuPcts;
+
+    /**
+     * Make a new parser.
+     *
+     * @param cfgAdapter the associated configuration adapter
+     */
+    public GangliaStAXParser(ConfigurationAdapter cfgAdapter) {
+        this.parent = cfgAdapter;
+    }
+
+    /**
+     * Restrict the parsing to some clusters.
+     *
+     * @param names the names of the clusters to parse. {@code null} to parse all the clusters
+     */
+    public void setClusters(Set<String> names) {
+        this.clusters = names;
+    }
+
+    /**
+     * Get the clusters to parse.
+     *
+     * @return the names of the clusters. {@code null} if all the clusters are parsed
+     */
+    public Set<String> getClusters() {
+        return clusters;
+    }
+
+    /**
+     * Parse a GMetad XML output.
+     *
+     * @param in the stream to read
+     * @return the resulting configuration
+     * @throws MonitoringException if an error occurred while parsing the stream
+     */
+    public Configuration parse(Reader in) throws MonitoringException {
+        cfg = new DefaultConfiguration();
+        allVMs = new DefaultManagedElementSet<VirtualMachine>();
+        assigns = new LinkedHashMap<Node, String>();
+        cpuPcts = new HashMap<VirtualMachine, Float>();
+        XMLStreamReader r = null;
+        try {
+            r = FACTORY.createXMLStreamReader(in);
+            while (r.hasNext()) {
+                if (r.next() == XMLStreamConstants.START_ELEMENT) {
+                    String name = r.getLocalName();
+                    if ("HOST".equals(name)) {
+                        parseHost(r);
+                    } else if ("CLUSTER".equals(name) && clusters != null && !clusters.contains(r.getAttributeValue(null, "NAME"))) {
+                        skip(r);
+                    }
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new MonitoringException("Error while parsing the XML stream of GMetad", e);
+        } catch (NumberFormatException e) {
+            throw new MonitoringException("Bad metric value: " + e.getMessage(), e);
+        } finally {
+            if (r != null) {
+                try {
+                    r.close();
+                } catch (XMLStreamException e) {
+                    Monitor.getLogger().warn(e.getMessage());
+                }
+            }
+        }
+        assign();
+        return cfg;
+    }
+
+    /**
+     * Skip the current element and all its children.
+     *
+     * @param r the reader, positioned on the start of the element
+     * @throws XMLStreamException if an error occurred while reading the stream
+     */
+    private static void skip(XMLStreamReader r) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int e = r.next();
+            if (e == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (e == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private void parseHost(XMLStreamReader r) throws XMLStreamException {
+        String hostname = r.getAttributeValue(null, "NAME");
+        if (parent.getNodesBlackList().contains(hostname)) {
+            Monitor.getLogger().debug("Ignoring '" + hostname + "': belong to the nodes black list");
+            skip(r);
+            return;
+        }
+        String ip = r.getAttributeValue(null, "IP");
+        boolean online = Integer.parseInt(r.getAttributeValue(null, "TN")) < 4 * Integer.parseInt(r.getAttributeValue(null, "TMAX"));
+        Arrays.fill(values, null);
+        int depth = 1;
+        while (depth > 0) {
+            int e = r.next();
+            if (e == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                if (depth == 2) {
+                    Integer id = METRICS.get(r.getAttributeValue(null, "NAME"));
+                    if (id != null) {
+                        values[id] = r.getAttributeValue(null, "VAL");
+                    }
+                }
+            } else if (e == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+
+        if (isContainer()) {
+            if (!parent.getNodesWhiteList().isEmpty() && !parent.getNodesWhiteList().contains(hostname)) {
+                Monitor.getLogger().debug("Ignoring '" + hostname + "': do not belong to the nodes white list");
+                return;
+            }
+            int nbCPUs = Integer.parseInt(values[CONTAINER_NB_CPU]);
+            Node n = new DefaultNode(hostname, nbCPUs,
+                    ConfigurationAdapter.getCPUCapacity(Integer.parseInt(values[CPU_FREQUENCY]), nbCPUs),
+                    Integer.parseInt(values[CONTAINER_MEMORY_TOTAL]) / 1000); //Memory in MB
+            n.setHypervisorID(values[CONTAINER_TYPE]);
+            n.setIPAddress(ip);
+            n.setStartupDriverID(values[CONTAINER_STARTUP_DRIVER]);
+            n.setShutdownDriverID(values[CONTAINER_SHUTDOWN_DRIVER]);
+            n.setMigrationDriverID(values[CONTAINER_MIGRATION_DRIVER]);
+            n.setRunDriverID(values[CONTAINER_RUN_DRIVER]);
+            n.setResumeDriverID(values[CONTAINER_RESUME_DRIVER]);
+            n.setSuspendDriverID(values[CONTAINER_SUSPEND_DRIVER]);
+            n.setStopDriverID(values[CONTAINER_STOP_DRIVER]);
+            if (online) {
+                Monitor.getLogger().debug(hostname + " is considered as a container");
+                cfg.addOnline(n);
+                assigns.put(n, values[CONTAINER_LIST_VMS]);
+            } else {
+                cfg.addOffline(n);
+            }
+        } else if (values[VM_MEMORY_CONSUMPTION] != null && values[NB_CPU] != null) {
+            Monitor.getLogger().debug(hostname + " is considered as a virtual machine");
+            VirtualMachine vm = new DefaultVirtualMachine(hostname, Integer.parseInt(values[NB_CPU]),
+                    0,
+                    Math.round(Float.parseFloat(values[VM_MEMORY_CONSUMPTION]) / 1000));
+            cpuPcts.put(vm, pct(CPU_PCT_NICE) + pct(CPU_PCT_SYSTEM) + pct(CPU_PCT_USER));
+            allVMs.add(vm);
+        } else {
+            Monitor.getLogger().debug(hostname + " is ignored");
+        }
+    }
+
+    private float pct(int id) {
+        return values[id] == null ? 0 : Float.parseFloat(values[id]);
+    }
+
+    private boolean isContainer() {
+        return values[CONTAINER_TYPE] != null
+                && values[CONTAINER_LIST_VMS] != null
+                && values[CONTAINER_MEMORY_TOTAL] != null
+                && values[CONTAINER_NB_CPU] != null
+                && values[CONTAINER_MIGRATION_DRIVER] != null;
+    }
+
+    /**
+     * Place the virtual machines on their container.
+     *
+     * @throws MonitoringException if a container declares an unknown virtual machine
+     */
+    private void assign() throws MonitoringException {
+        for (Map.Entry<Node, String> e : assigns.entrySet()) {
+            Node n = e.getKey();
+            StringTokenizer st = new StringTokenizer(e.getValue(), " ");
+            while (st.hasMoreTokens()) {
+                String buf = st.nextToken();
+                boolean sleeping = buf.startsWith(BEGIN_SLEEPING) && buf.endsWith(END_SLEEPING);
+                String name = sleeping ? buf.substring(1, buf.length() - 1) : buf;
+                VirtualMachine vm = allVMs.get(name);
+                if (vm == null) {
+                    //The configuration is incoherent and skipping the virtual machine is not a viable solution.
+                    throw new MonitoringException("Unknown virtual machine '" + name + "'");
+                }
+                vm.setCPUConsumption(ConfigurationAdapter.getCPUConsumption(cpuPcts.get(vm), n));
+                if (sleeping) {
+                    cfg.setSleepOn(vm, n);
+                } else {
+                    cfg.setRunOn(vm, n);
+                }
+            }
+        }
+    }
+}
@@ -18,9 +18,7 @@
 */
 package entropy.monitoring.sampler;
 
-import entropy.configuration.Configuration;
 import entropy.configuration.Node;
-import entropy.configuration.SimpleConfiguration;
 import entropy.configuration.VirtualMachine;
 
 /**
@@ -34,7 +32,7 @@ import entropy.configuration.VirtualMachine;
  *
  * @author Fabien Hermenier
  */
-public class CPUBurningVMsSampler implements ConfigurationSampler {
+public class CPUBurningVMsSampler extends ElementSampler {
 
     /**
      * The CPU consumption threshold to use.
@@ -60,50 +58,17 @@ public class CPUBurningVMsSampler implements ConfigurationSampler {
     }
 
     @Override
-    public Configuration sample(Configuration c) {
-        Configuration newConf = new SimpleConfiguration();
-        for (Node n : c.getOnlines()) {
-            Node copyNode = n.clone();//new DefaultNode(n);
-            copyNode.setCPUCapacity(copyNode.getNbOfCPUs());
-            newConf.addOnline(copyNode);
-        }
-        for (Node n : c.getOfflines()) {
-            Node copyNode = n.clone();//new DefaultNode(n);
-            copyNode.setCPUCapacity(copyNode.getNbOfCPUs());
-            newConf.addOffline(copyNode);
-        }
-
-        for (VirtualMachine vm : c.getRunnings()) {
-            VirtualMachine copy = vm.clone();//new DefaultVirtualMachine(vm);
-            if (copy.getCPUConsumption() > this.threshold) {
-                copy.setCPUConsumption(copy.getNbOfCPUs());
-            } else {
-                copy.setCPUConsumption(0);
-            }
-            newConf.setRunOn(copy, newConf.getOnlines().get(c.getLocation(vm).getName()));
-        }
-
-
-        for (VirtualMachine vm : c.getWaitings()) {
-            VirtualMachine copy = vm.clone();//new DefaultVirtualMachine(vm);
-            if (copy.getCPUConsumption() > this.threshold) {
-                copy.setCPUConsumption(copy.getNbOfCPUs());
-            } else {
-                copy.setCPUConsumption(0);
-            }
-            newConf.addWaiting(copy);
-        }
+    public void sample(Node n) {
+        n.setCPUCapacity(n.getNbOfCPUs());
+    }
 
-        for (VirtualMachine vm : c.getSleepings()) {
-            VirtualMachine copy = vm.clone();//new DefaultVirtualMachine(vm);
-            if (copy.getCPUConsumption() > this.threshold) {
-                copy.setCPUConsumption(copy.getNbOfCPUs());
-            } else {
-                copy.setCPUConsumption(0);
-            }
-            newConf.setSleepOn(copy, newConf.getOnlines().get(c.getLocation(vm).getName()));
+    @Override
+    public void sample(VirtualMachine vm) {
+        if (vm.getCPUConsumption() > this.threshold) {
+            vm.setCPUConsumption(vm.getNbOfCPUs());
+        } else {
+            vm.setCPUConsumption(0);
         }
-        return newConf;
     }
 
 }
@@ -18,9 +18,7 @@
 */
 package entropy.monitoring.sampler;
 
-import entropy.configuration.Configuration;
 import entropy.configuration.Node;
-import entropy.configuration.SimpleConfiguration;
 import entropy.configuration.VirtualMachine;
 
 /**
@@ -32,7 +30,7 @@ import entropy.configuration.VirtualMachine;
  *
  * @author Fabien Hermenier
  */
-public class CPUSampler implements ConfigurationSampler {
+public class CPUSampler extends ElementSampler {
 
     /**
      * The divider to use.
@@ -58,37 +56,12 @@ public class CPUSampler implements ConfigurationSampler {
     }
 
     @Override
-    public Configuration sample(Configuration cfg) {
-        Configuration sampled = new SimpleConfiguration();
-        for (Node n : cfg.getOnlines()) {
-            Node copy = n.clone();//new DefaultNode(n);
-            copy.setCPUCapacity((int) Math.floor(n.getCPUCapacity() / (double) this.divider));
-            sampled.addOnline(copy);
-        }
-        for (Node n : cfg.getOfflines()) {
-            Node copy = n.clone();//new DefaultNode(n);
-            copy.setCPUCapacity((int) Math.floor(n.getCPUCapacity() / (double) this.divider));
-            sampled.addOffline(copy);
-        }
-
-        for (VirtualMachine vm : cfg.getRunnings()) {
-            VirtualMachine copy = vm.clone();//new DefaultVirtualMachine(vm);
-            copy.setCPUConsumption((int) Math.ceil(vm.getCPUConsumption() / (double) this.divider));
-            sampled.setRunOn(copy, sampled.getOnlines().get(cfg.getLocation(vm).getName()));
-        }
-
-        for (VirtualMachine vm : cfg.getSleepings()) {
-            VirtualMachine copy = vm.clone();//new DefaultVirtualMachine(vm);
-            copy.setCPUConsumption((int) Math.ceil(vm.getCPUConsumption() / (double) this.divider));
-            sampled.setSleepOn(copy, sampled.getOnlines().get(cfg.getLocation(vm).getName()));
-        }
-
-        for (VirtualMachine vm : cfg.getWaitings()) {
-            VirtualMachine copy = vm.clone();//new DefaultVirtualMachine(vm);
-            copy.setCPUConsumption((int) Math.ceil(vm.getCPUConsumption() / (double) this.divider));
-            sampled.addWaiting(copy);
-        }
+    public void sample(Node n) {
+        n.setCPUCapacity((int) Math.floor(n.getCPUCapacity() / (double) this.divider));
+    }
 
-        return sampled;
+    @Override
+    public void sample(VirtualMachine vm) {
+        vm.setCPUConsumption((int) Math.ceil(vm.getCPUConsumption() / (double) this.divider));
     }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.monitoring.sampler;
+
+import entropy.configuration.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sequence of element samplers applied in a single pass.
+ * The result is the same as applying each sampler one after the other,
+ * but the configuration is copied only once.
+ *
+ * @author Fabien Hermenier
+ */
+public class ChainedSampler implements ConfigurationSampler {
+
+    private List<ElementSampler> samplers;
+
+    /**
+     * Make a new empty chain.
+     */
+    public ChainedSampler() {
+        samplers = new ArrayList<ElementSampler>();
+    }
+
+    /**
+     * Add a sampler at the end of the chain.
+     *
+     * @param s the sampler to add
+     */
+    public void add(ElementSampler s) {
+        samplers.add(s);
+    }
+
+    /**
+     * Get the samplers in the chain.
+     *
+     * @return a list, may be empty
+     */
+    public List<ElementSampler> getSamplers() {
+        return samplers;
+    }
+
+    /**
+     * Sample a configuration.
+     *
+     * @param cfg the configuration to manipulate
+     * @return a new configuration, or {@code cfg} if the chain is empty
+     */
+    @Override
+    public Configuration sample(Configuration cfg) {
+        if (samplers.isEmpty()) {
+            return cfg;
+        }
+        return ElementSampler.sample(cfg, samplers);
+    }
+}
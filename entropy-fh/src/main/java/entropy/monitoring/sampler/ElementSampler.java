@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.monitoring.sampler;
+
+import entropy.configuration.Configuration;
+import entropy.configuration.Node;
+import entropy.configuration.SimpleConfiguration;
+import entropy.configuration.VirtualMachine;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A sampler that transforms each element of a configuration independently.
+ * Such samplers can be fused by a {@link ChainedSampler} so that a whole
+ * chain of transformations copies the configuration only once.
+ *
+ * @author Fabien Hermenier
+ */
+public abstract class ElementSampler implements ConfigurationSampler {
+
+    /**
+     * Sample the resources of a node.
+     *
+     * @param n the node to modify. It is already a copy
+     */
+    public abstract void sample(Node n);
+
+    /**
+     * Sample the resources of a virtual machine.
+     *
+     * @param vm the virtual machine to modify. It is already a copy
+     */
+    public abstract void sample(VirtualMachine vm);
+
+    @Override
+    public Configuration sample(Configuration cfg) {
+        return sample(cfg, Collections.singletonList(this));
+    }
+
+    /**
+     * Copy a configuration and apply a list of samplers on each copied element.
+     * Each element is copied once, and the placement of the virtual machines
+     * is rebuilt directly from the copy of their hosting node.
+     *
+     * @param cfg      the configuration to sample
+     * @param samplers the samplers to apply, in order
+     * @return the sampled configuration
+     */
+    static Configuration sample(Configuration cfg, List<ElementSampler> samplers) {
+        Configuration sampled = new SimpleConfiguration();
+        for (Node n : cfg.getOnlines()) {
+            Node copy = n.clone();
+            for (ElementSampler s : samplers) {
+                s.sample(copy);
+            }
+            sampled.addOnline(copy);
+            for (VirtualMachine vm : cfg.getRunnings(n)) {
+                sampled.setRunOn(copy(vm, samplers), copy);
+            }
+            for (VirtualMachine vm : cfg.getSleepings(n)) {
+                sampled.setSleepOn(copy(vm, samplers), copy);
+            }
+        }
+        for (Node n : cfg.getOfflines()) {
+            Node copy = n.clone();
+            for (ElementSampler s : samplers) {
+                s.sample(copy);
+            }
+            sampled.addOffline(copy);
+        }
+        for (VirtualMachine vm : cfg.getWaitings()) {
+            sampled.addWaiting(copy(vm, samplers));
+        }
+        return sampled;
+    }
+
+    private static VirtualMachine copy(VirtualMachine vm, List<ElementSampler> samplers) {
+        VirtualMachine copy = vm.clone();
+        for (ElementSampler s : samplers) {
+            s.sample(copy);
+        }
+        return copy;
+    }
+}
@@ -19,9 +19,7 @@
 package entropy.monitoring.sampler;
 
 
-import entropy.configuration.Configuration;
 import entropy.configuration.Node;
-import entropy.configuration.SimpleConfiguration;
 import entropy.configuration.VirtualMachine;
 
 /**
@@ -32,7 +30,7 @@ import entropy.configuration.VirtualMachine;
  *
  * @author Fabien Hermenier
  */
-public class MemorySampler implements ConfigurationSampler {
+public class MemorySampler extends ElementSampler {
 
     /**
      * The divider to use.
@@ -57,44 +55,13 @@ public class MemorySampler implements ConfigurationSampler {
         return this.divider;
     }
 
-    /**
-     * Sample the memory resources of a configuration.
-     *
-     * @param cfg the configuration to sample
-     * @return the new sampled configuration
-     */
     @Override
-    public Configuration sample(Configuration cfg) {
-        Configuration sampled = new SimpleConfiguration();
-        for (Node n : cfg.getOnlines()) {
-            Node copy = n.clone();//new DefaultNode(n);
-            copy.setMemoryCapacity((int) Math.floor(n.getMemoryCapacity() / (double) this.divider));
-            sampled.addOnline(copy);
-        }
-        for (Node n : cfg.getOfflines()) {
-            Node copy = n.clone();//new DefaultNode(n);
-            copy.setMemoryCapacity((int) Math.floor(n.getMemoryCapacity() / (double) this.divider));
-            sampled.addOffline(copy);
-        }
-
-        for (VirtualMachine vm : cfg.getRunnings()) {
-            VirtualMachine copy = vm.clone();//new DefaultVirtualMachine(vm);
-            copy.setMemoryConsumption((int) Math.ceil(vm.getMemoryConsumption() / (double) this.divider));
-            sampled.setRunOn(copy, sampled.getOnlines().get(cfg.getLocation(vm).getName()));
-        }
-
-        for (VirtualMachine vm : cfg.getSleepings()) {
-            VirtualMachine copy = vm.clone();//new DefaultVirtualMachine(vm);
-            copy.setMemoryConsumption((int) Math.ceil(vm.getMemoryConsumption() / (double) this.divider));
-            sampled.setSleepOn(copy, sampled.getOnlines().get(cfg.getLocation(vm).getName()));
-        }
-
-        for (VirtualMachine vm : cfg.getWaitings()) {
-            VirtualMachine copy = vm.clone();//new DefaultVirtualMachine(vm);
-            copy.setMemoryConsumption((int) Math.ceil(vm.getMemoryConsumption() / (double) this.divider));
-            sampled.addWaiting(copy);
-        }
+    public void sample(Node n) {
+        n.setMemoryCapacity((int) Math.floor(n.getMemoryCapacity() / (double) this.divider));
+    }
 
-        return sampled;
+    @Override
+    public void sample(VirtualMachine vm) {
+        vm.setMemoryConsumption((int) Math.ceil(vm.getMemoryConsumption() / (double) this.divider));
     }
 }
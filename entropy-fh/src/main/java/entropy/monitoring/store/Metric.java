@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.monitoring.store;
+
+import entropy.configuration.Node;
+import entropy.configuration.VirtualMachine;
+
+/**
+ * The metrics stored for the virtual machines and the nodes.
+ *
+ * @author Fabien Hermenier
+ */
+public enum Metric {
+
+    /**
+     * The CPU consumption of a VM.
+     */
+    cpuConsumption,
+    /**
+     * The memory consumption of a VM.
+     */
+    memoryConsumption,
+    /**
+     * The CPU demand of a VM.
+     */
+    cpuDemand,
+    /**
+     * The memory demand of a VM.
+     */
+    memoryDemand,
+    /**
+     * The CPU capacity of a node.
+     */
+    cpuCapacity,
+    /**
+     * The memory capacity of a node.
+     */
+    memoryCapacity;
+
+    /**
+     * The metrics of the virtual machines.
+     */
+    public static final Metric[] VM_METRICS = {cpuConsumption, memoryConsumption, cpuDemand, memoryDemand};
+
+    /**
+     * The metrics of the nodes.
+     */
+    public static final Metric[] NODE_METRICS = {cpuCapacity, memoryCapacity};
+
+    /**
+     * Get the value of the metric for a virtual machine.
+     *
+     * @param vm the virtual machine
+     * @return the value of the metric
+     * @throws IllegalArgumentException if the metric is not related to the virtual machines
+     */
+    public int get(VirtualMachine vm) {
+        switch (this) {
+            case cpuConsumption:
+                return vm.getCPUConsumption();
+            case memoryConsumption:
+                return vm.getMemoryConsumption();
+            case cpuDemand:
+                return vm.getCPUDemand();
+            case memoryDemand:
+                return vm.getMemoryDemand();
+            default:
+                throw new IllegalArgumentException("'" + this + "' is not a metric of the virtual machines");
+        }
+    }
+
+    /**
+     * Get the value of the metric for a node.
+     *
+     * @param n the node
+     * @return the value of the metric
+     * @throws IllegalArgumentException if the metric is not related to the nodes
+     */
+    public int get(Node n) {
+        switch (this) {
+            case cpuCapacity:
+                return n.getCPUCapacity();
+            case memoryCapacity:
+                return n.getMemoryCapacity();
+            default:
+                throw new IllegalArgumentException("'" + this + "' is not a metric of the nodes");
+        }
+    }
+}
@@ -0,0 +1,583 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.monitoring.store;
+
+import entropy.configuration.Configuration;
+import entropy.configuration.Node;
+import entropy.configuration.VirtualMachine;
+import gnu.trove.TObjectIntHashMap;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An append-only store for the history of the metrics of the VMs and the nodes.
+ * <p/>
+ * Each series, i.e. a metric for one element, is identified by an integer.
+ * The samples of the current block are staged off-heap. Once a block is full,
+ * or once the staging area reaches its maximum size, the block is written into
+ * a memory-mapped segment file where each series is a column
+ * of delta-encoded integers (zigzag variable-length encoding). The heap only keeps
+ * the identifiers of the series and the boundaries of the segments, so the store
+ * can hold long histories for large infrastructures.
+ * <p/>
+ * A store is persistent: re-opening a directory gives access to the segments previously written.
+ * It can be shared between threads.
+ *
+ * @author Fabien Hermenier
+ */
+public class MetricsStore implements Closeable {
+
+    /**
+     * The value of a series when no sample was recorded.
+     */
+    public static final int MISSING = Integer.MIN_VALUE;
+
+    /**
+     * The default maximum number of samples in a segment. One hour of 10 seconds samples.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 360;
+
+    /**
+     * The default maximum number of values in the staging area. 16 MB.
+     */
+    public static final int DEFAULT_STAGING_SIZE = 1 << 22;
+
+    private static final int MAGIC = 0x454d5331;
+
+    private static final String SERIES_FILE = "series.idx";
+
+    private static final String SEGMENT_PREFIX = "seg-";
+
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    private File root;
+
+    private int blockSize;
+
+    /**
+     * The maximum number of values in the staging area.
+     */
+    private int stagingSize;
+
+    /**
+     * The number of samples staged before a flush. At most the block size,
+     * smaller when there is too many series to stage a whole block.
+     */
+    private int chunk;
+
+    /**
+     * The identifier of each series.
+     */
+    private TObjectIntHashMap<String> ids;
+
+    private DataOutputStream seriesOut;
+
+    /**
+     * The staged samples. Series-major: the value of series {@code s} at sample {@code i}
+     * is at {@code s * chunk + i}.
+     */
+    private IntBuffer staging;
+
+    private int stagingCapacity;
+
+    private long[] timestamps;
+
+    private int nbStaged;
+
+    private List<Segment> segments;
+
+    private boolean closed;
+
+    /**
+     * Open a store with the default block size.
+     *
+     * @param dir the directory of the store. Created if needed
+     * @throws IOException if an error occurred while opening the store
+     */
+    public MetricsStore(File dir) throws IOException {
+        this(dir, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Open a store with the default staging size.
+     *
+     * @param dir the directory of the store. Created if needed
+     * @param bs  the maximum number of samples in a segment
+     * @throws IOException if an error occurred while opening the store
+     */
+    public MetricsStore(File dir, int bs) throws IOException {
+        this(dir, bs, DEFAULT_STAGING_SIZE);
+    }
+
+    /**
+     * Open a store.
+     *
+     * @param dir the directory of the store. Created if needed
+     * @param bs  the maximum number of samples in a segment
+     * @param st  the maximum number of values in the staging area
+     * @throws IOException if an error occurred while opening the store
+     */
+    public MetricsStore(File dir, int bs, int st) throws IOException {
+        if (bs <= 0) {
+            throw new IllegalArgumentException("The block size must be strictly positive. Got " + bs);
+        }
+        if (st <= 0) {
+            throw new IllegalArgumentException("The staging size must be strictly positive. Got " + st);
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create directory '" + dir + "'");
+        }
+        this.root = dir;
+        this.blockSize = bs;
+        this.stagingSize = st;
+        this.timestamps = new long[bs];
+        this.ids = new TObjectIntHashMap<String>();
+        this.segments = new ArrayList<Segment>();
+        loadSeries();
+        loadSegments();
+        seriesOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(root, SERIES_FILE), true)));
+        stagingCapacity = Math.max(16, ids.size());
+        chunk = chunkSize(stagingCapacity, 0);
+        staging = allocate(stagingCapacity, chunk);
+    }
+
+    /**
+     * Read the identifiers of the series.
+     * An entry partially written, after a crash for example, is removed from the file
+     * so the next entries are appended after the last complete one.
+     *
+     * @throws IOException if an error occurred while reading the file
+     */
+    private void loadSeries() throws IOException {
+        File f = new File(root, SERIES_FILE);
+        if (!f.exists()) {
+            return;
+        }
+        byte[] content = new byte[(int) f.length()];
+        DataInputStream in = new DataInputStream(new FileInputStream(f));
+        try {
+            in.readFully(content);
+        } finally {
+            in.close();
+        }
+        ByteArrayInputStream bytes = new ByteArrayInputStream(content);
+        in = new DataInputStream(bytes);
+        int valid = 0;
+        try {
+            while (valid < content.length) {
+                String k = in.readUTF();
+                ids.put(k, ids.size());
+                valid = content.length - bytes.available();
+            }
+        } catch (EOFException e) {
+            //Truncated entry
+        } catch (UTFDataFormatException e) {
+            //Corrupted entry
+        }
+        if (valid < content.length) {
+            RandomAccessFile raf = new RandomAccessFile(f, "rw");
+            try {
+                raf.setLength(valid);
+            } finally {
+                raf.close();
+            }
+        }
+    }
+
+    private void loadSegments() throws IOException {
+        File[] files = root.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2) {
+                return segmentIndex(f1) - segmentIndex(f2);
+            }
+        });
+        for (File f : files) {
+            segments.add(new Segment(map(f, FileChannel.MapMode.READ_ONLY, f.length())));
+        }
+    }
+
+    private static int segmentIndex(File f) {
+        String n = f.getName();
+        return Integer.parseInt(n.substring(SEGMENT_PREFIX.length(), n.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static MappedByteBuffer map(File f, FileChannel.MapMode mode, long size) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(f, mode == FileChannel.MapMode.READ_ONLY ? "r" : "rw");
+        try {
+            return raf.getChannel().map(mode, 0, size);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static String key(String element, Metric m) {
+        return element + '#' + m.name();
+    }
+
+    /**
+     * Record the metrics of all the elements of a configuration.
+     *
+     * @param t   the timestamp of the sample
+     * @param cfg the configuration
+     * @throws IOException if an error occurred while writing a segment
+     */
+    public synchronized void record(long t, Configuration cfg) throws IOException {
+        for (VirtualMachine vm : cfg.getAllVirtualMachines()) {
+            for (Metric m : Metric.VM_METRICS) {
+                record(t, vm.getName(), m, m.get(vm));
+            }
+        }
+        for (Node n : cfg.getAllNodes()) {
+            for (Metric m : Metric.NODE_METRICS) {
+                record(t, n.getName(), m, m.get(n));
+            }
+        }
+    }
+
+    /**
+     * Record one value.
+     * Values with the timestamp of the current sample belong to that sample, a greater timestamp
+     * starts a new sample.
+     *
+     * @param t       the timestamp of the sample
+     * @param element the name of the element
+     * @param m       the metric
+     * @param v       the value
+     * @throws IOException              if the store is closed or an error occurred while writing a segment
+     * @throws IllegalArgumentException if the timestamp is older than the current sample
+     */
+    public synchronized void record(long t, String element, Metric m, int v) throws IOException {
+        if (closed) {
+            throw new IOException("The store is closed");
+        }
+        if (nbStaged == 0 || t > timestamps[nbStaged - 1]) {
+            if (nbStaged >= chunk) {
+                flush();
+            }
+            if (!segments.isEmpty() && nbStaged == 0 && t <= segments.get(segments.size() - 1).last) {
+                throw new IllegalArgumentException("Timestamp " + t + " is older than the last sample");
+            }
+            timestamps[nbStaged++] = t;
+        } else if (t < timestamps[nbStaged - 1]) {
+            throw new IllegalArgumentException("Timestamp " + t + " is older than the current sample " + timestamps[nbStaged - 1]);
+        }
+        String k = key(element, m);
+        int id;
+        if (ids.containsKey(k)) {
+            id = ids.get(k);
+        } else {
+            id = ids.size();
+            ids.put(k, id);
+            seriesOut.writeUTF(k);
+            if (id >= stagingCapacity) {
+                grow(id + 1);
+            }
+        }
+        staging.put(id * chunk + nbStaged - 1, v);
+    }
+
+    /**
+     * Get the number of samples to stage for a given number of series.
+     * The samples already staged are kept, so the staging area may exceed
+     * its maximum size until the next flush.
+     *
+     * @param nbSeries the number of series to stage
+     * @param min      the minimum number of samples
+     * @return a strictly positive integer
+     */
+    private int chunkSize(int nbSeries, int min) {
+        return Math.max(Math.max(1, min), Math.min(blockSize, stagingSize / nbSeries));
+    }
+
+    private static IntBuffer allocate(int nbSeries, int nbSamples) {
+        IntBuffer b = ByteBuffer.allocateDirect(nbSeries * nbSamples * 4).asIntBuffer();
+        for (int i = 0; i < b.capacity(); i++) {
+            b.put(i, MISSING);
+        }
+        return b;
+    }
+
+    private void grow(int min) {
+        int cap = Math.max(min, stagingCapacity * 2);
+        int c = chunkSize(cap, nbStaged);
+        IntBuffer b = allocate(cap, c);
+        for (int s = 0; s < stagingCapacity; s++) {
+            for (int i = 0; i < nbStaged; i++) {
+                b.put(s * c + i, staging.get(s * chunk + i));
+            }
+        }
+        staging = b;
+        stagingCapacity = cap;
+        chunk = c;
+    }
+
+    private void fillMissing() {
+        for (int i = 0; i < staging.capacity(); i++) {
+            staging.put(i, MISSING);
+        }
+    }
+
+    /**
+     * Write the staged samples into a new segment.
+     *
+     * @throws IOException if an error occurred while writing the segment
+     */
+    public synchronized void flush() throws IOException {
+        seriesOut.flush();
+        if (nbStaged == 0) {
+            return;
+        }
+        int nbSeries = ids.size();
+        //First pass to compute the size of each column
+        int[] offsets = new int[nbSeries + 1];
+        for (int s = 0; s < nbSeries; s++) {
+            int prev = 0;
+            int size = 0;
+            for (int i = 0; i < nbStaged; i++) {
+                int v = staging.get(s * chunk + i);
+                size += varIntSize(zigzag(v - prev));
+                prev = v;
+            }
+            offsets[s + 1] = offsets[s] + size;
+        }
+        int header = 12 + 8 * nbStaged + 4 * (nbSeries + 1);
+        File f = new File(root, SEGMENT_PREFIX + segments.size() + SEGMENT_SUFFIX);
+        MappedByteBuffer buf = map(f, FileChannel.MapMode.READ_WRITE, header + offsets[nbSeries]);
+        buf.putInt(MAGIC);
+        buf.putInt(nbStaged);
+        buf.putInt(nbSeries);
+        for (int i = 0; i < nbStaged; i++) {
+            buf.putLong(timestamps[i]);
+        }
+        for (int o : offsets) {
+            buf.putInt(o);
+        }
+        for (int s = 0; s < nbSeries; s++) {
+            int prev = 0;
+            for (int i = 0; i < nbStaged; i++) {
+                int v = staging.get(s * chunk + i);
+                putVarInt(buf, zigzag(v - prev));
+                prev = v;
+            }
+        }
+        buf.force();
+        segments.add(new Segment(buf));
+        nbStaged = 0;
+        int c = chunkSize(stagingCapacity, 0);
+        if (c != chunk) {
+            chunk = c;
+            staging = allocate(stagingCapacity, c);
+        } else {
+            fillMissing();
+        }
+    }
+
+    /**
+     * Get the values of a metric for an element.
+     *
+     * @param element the name of the element
+     * @param m       the metric
+     * @param from    the beginning of the range, included
+     * @param to      the end of the range, included
+     * @return the recorded values in the range. Missing samples are ignored
+     */
+    public synchronized TimeSeries get(String element, Metric m, long from, long to) {
+        TimeSeries res = new TimeSeries();
+        String k = key(element, m);
+        if (!ids.containsKey(k)) {
+            return res;
+        }
+        int id = ids.get(k);
+        for (Segment s : segments) {
+            if (s.last >= from && s.first <= to) {
+                s.read(id, from, to, res);
+            }
+        }
+        for (int i = 0; i < nbStaged; i++) {
+            int v = staging.get(id * chunk + i);
+            if (timestamps[i] >= from && timestamps[i] <= to && v != MISSING) {
+                res.add(timestamps[i], v);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Get the values of a metric for an element, downsampled.
+     *
+     * @param element the name of the element
+     * @param m       the metric
+     * @param from    the beginning of the range, included
+     * @param to      the end of the range, included
+     * @param period  the duration of a bucket
+     * @param a       the aggregation of the values in a bucket
+     * @return one value per non-empty bucket
+     */
+    public TimeSeries get(String element, Metric m, long from, long to, long period, TimeSeries.Aggregation a) {
+        return get(element, m, from, to).downsample(from, period, a);
+    }
+
+    /**
+     * Get the number of series in the store.
+     *
+     * @return a positive integer
+     */
+    public synchronized int getNbSeries() {
+        return ids.size();
+    }
+
+    /**
+     * Get the number of segments written.
+     *
+     * @return a positive integer
+     */
+    public synchronized int getNbSegments() {
+        return segments.size();
+    }
+
+    /**
+     * Get the maximum number of samples in a segment.
+     *
+     * @return a strictly positive integer
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Get the maximum number of values in the staging area.
+     *
+     * @return a strictly positive integer
+     */
+    public int getStagingSize() {
+        return stagingSize;
+    }
+
+    /**
+     * Write the staged samples and close the store.
+     *
+     * @throws IOException if an error occurred while writing the segment
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        flush();
+        seriesOut.close();
+        segments.clear();
+        closed = true;
+    }
+
+    private static int zigzag(int v) {
+        return (v << 1) ^ (v >> 31);
+    }
+
+    private static int unzigzag(int v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static int varIntSize(int v) {
+        int n = 1;
+        while ((v & ~0x7F) != 0) {
+            v >>>= 7;
+            n++;
+        }
+        return n;
+    }
+
+    private static void putVarInt(ByteBuffer buf, int v) {
+        while ((v & ~0x7F) != 0) {
+            buf.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buf.put((byte) v);
+    }
+
+    /**
+     * A segment mapped in memory.
+     */
+    private static class Segment {
+
+        private ByteBuffer buf;
+
+        private int nbSamples;
+
+        private int nbSeries;
+
+        private long first;
+
+        private long last;
+
+        Segment(ByteBuffer b) throws IOException {
+            this.buf = b;
+            if (b.getInt(0) != MAGIC) {
+                throw new IOException("Not a segment of metrics");
+            }
+            nbSamples = b.getInt(4);
+            nbSeries = b.getInt(8);
+            first = b.getLong(12);
+            last = b.getLong(12 + 8 * (nbSamples - 1));
+        }
+
+        void read(int id, long from, long to, TimeSeries res) {
+            if (id >= nbSeries) {
+                return;
+            }
+            int offsets = 12 + 8 * nbSamples;
+            int data = offsets + 4 * (nbSeries + 1);
+            ByteBuffer b = buf.duplicate();
+            b.position(data + buf.getInt(offsets + 4 * id));
+            int prev = 0;
+            for (int i = 0; i < nbSamples; i++) {
+                int shift = 0;
+                int x = 0;
+                byte by;
+                do {
+                    by = b.get();
+                    x |= (by & 0x7F) << shift;
+                    shift += 7;
+                } while ((by & 0x80) != 0);
+                prev += unzigzag(x);
+                long t = buf.getLong(12 + 8 * i);
+                if (t > to) {
+                    return;
+                }
+                if (t >= from && prev != MISSING) {
+                    res.add(t, prev);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.monitoring.store;
+
+import gnu.trove.TIntArrayList;
+import gnu.trove.TLongArrayList;
+
+/**
+ * A sequence of timestamped values, ordered by increasing timestamp.
+ *
+ * @author Fabien Hermenier
+ */
+public class TimeSeries {
+
+    /**
+     * The possible aggregations of the values when downsampling.
+     */
+    public static enum Aggregation {
+        min, max, avg, last
+    }
+
+    private TLongArrayList timestamps;
+
+    private TIntArrayList values;
+
+    /**
+     * Make a new empty series.
+     */
+    public TimeSeries() {
+        timestamps = new TLongArrayList();
+        values = new TIntArrayList();
+    }
+
+    /**
+     * Add a value at the end of the series.
+     *
+     * @param t the timestamp of the value. Must be greater than the timestamp of the last value
+     * @param v the value
+     */
+    public void add(long t, int v) {
+        timestamps.add(t);
+        values.add(v);
+    }
+
+    /**
+     * Get the number of values.
+     *
+     * @return a positive integer
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Get the timestamp of a value.
+     *
+     * @param i the index of the value
+     * @return the timestamp
+     */
+    public long getTimestamp(int i) {
+        return timestamps.get(i);
+    }
+
+    /**
+     * Get a value.
+     *
+     * @param i the index of the value
+     * @return the value
+     */
+    public int getValue(int i) {
+        return values.get(i);
+    }
+
+    /**
+     * Get all the values.
+     *
+     * @return a copy of the values
+     */
+    public int[] getValues() {
+        return values.toNativeArray();
+    }
+
+    /**
+     * Downsample the series. The values are grouped into buckets of a given period
+     * and each non-empty bucket is reduced to one value, timestamped with the beginning of the bucket.
+     *
+     * @param from   the beginning of the first bucket
+     * @param period the duration of a bucket
+     * @param a      the aggregation to use
+     * @return a new series
+     */
+    public TimeSeries downsample(long from, long period, Aggregation a) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("The period must be strictly positive. Got " + period);
+        }
+        TimeSeries res = new TimeSeries();
+        int i = 0;
+        while (i < size()) {
+            if (timestamps.get(i) < from) {
+                i++;
+                continue;
+            }
+            long bucket = from + (timestamps.get(i) - from) / period * period;
+            long acc = values.get(i);
+            int nb = 1;
+            int j = i + 1;
+            for (; j < size() && timestamps.get(j) < bucket + period; j++) {
+                int v = values.get(j);
+                switch (a) {
+                    case min:
+                        acc = Math.min(acc, v);
+                        break;
+                    case max:
+                        acc = Math.max(acc, v);
+                        break;
+                    case avg:
+                        acc += v;
+                        break;
+                    default:
+                        acc = v;
+                }
+                nb++;
+            }
+            res.add(bucket, (int) (a == Aggregation.avg ? acc / nb : acc));
+            i = j;
+        }
+        return res;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder("[");
+        for (int i = 0; i < size(); i++) {
+            if (i > 0) {
+                b.append(", ");
+            }
+            b.append(timestamps.get(i)).append('=').append(values.get(i));
+        }
+        return b.append(']').toString();
+    }
+}
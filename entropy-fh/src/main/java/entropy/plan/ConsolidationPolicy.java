@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.plan;
+
+import entropy.configuration.*;
+import entropy.execution.driver.DriverFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A policy to consolidate the running virtual machines on a few nodes
+ * and switch off the others.
+ * Keeping a node online has an energy cost that depends on its platform.
+ * To prevent the nodes from being booted and shut down repeatedly, the policy
+ * uses an hysteresis: a node can only be shut down if it is underused and has been
+ * online for a minimum duration. A node can only be booted if it has been offline for
+ * a minimum duration.
+ * By default, the nodes that can not be operated by the {@link entropy.execution.driver.WoLStartup}
+ * and the {@link entropy.execution.driver.SSHShutdown} drivers are never considered.
+ *
+ * @author Fabien Hermenier
+ */
+public class ConsolidationPolicy {
+
+    /**
+     * The weight of each platform.
+     */
+    private Map<String, Integer> weights;
+
+    private int defaultWeight;
+
+    private int lowWatermark;
+
+    private int minUptime;
+
+    private int minDowntime;
+
+    private boolean driversRequired = true;
+
+    /**
+     * The last known state of each node. {@code true} for online.
+     */
+    private Map<String, Boolean> states;
+
+    /**
+     * The moment each node changed its state for the last time.
+     */
+    private Map<String, Long> lastChanges;
+
+    /**
+     * Make a new policy.
+     *
+     * @param defaultWeight the energy cost of an online node, when its platform has no specific weight
+     * @param lowWatermark  the load, in percent, under which a node is considered as underused
+     * @param minUptime     the minimum duration in seconds a node must stay online
+     * @param minDowntime   the minimum duration in seconds a node must stay offline
+     */
+    public ConsolidationPolicy(int defaultWeight, int lowWatermark, int minUptime, int minDowntime) {
+        this.defaultWeight = defaultWeight;
+        this.lowWatermark = lowWatermark;
+        this.minUptime = minUptime;
+        this.minDowntime = minDowntime;
+        weights = new HashMap<String, Integer>();
+        states = new HashMap<String, Boolean>();
+        lastChanges = new HashMap<String, Long>();
+    }
+
+    /**
+     * Set the energy cost of the online nodes having a given platform.
+     *
+     * @param platform the platform identifier
+     * @param w        the cost
+     */
+    public void setWeight(String platform, int w) {
+        weights.put(platform, w);
+    }
+
+    /**
+     * Set the weights of the platforms using a textual description.
+     * The description is a list of {@code platform:weight} separated by a comma.
+     * The platform {@code *} denotes the default weight.
+     *
+     * @param desc the description
+     * @throws IllegalArgumentException if the description is malformed
+     */
+    public void setWeights(String desc) {
+        for (String tok : desc.split(",")) {
+            tok = tok.trim();
+            if (tok.length() == 0) {
+                continue;
+            }
+            int idx = tok.lastIndexOf(':');
+            if (idx <= 0) {
+                throw new IllegalArgumentException("Malformed weight '" + tok + "'. Expected 'platform:weight'");
+            }
+            String p = tok.substring(0, idx).trim();
+            int w;
+            try {
+                w = Integer.parseInt(tok.substring(idx + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed weight '" + tok + "'. Expected 'platform:weight'", e);
+            }
+            if ("*".equals(p)) {
+                defaultWeight = w;
+            } else {
+                setWeight(p, w);
+            }
+        }
+    }
+
+    /**
+     * Get the energy cost of keeping a node online.
+     *
+     * @param n the node
+     * @return a positive integer
+     */
+    public int getWeight(Node n) {
+        Integer w = n.getCurrentPlatform() == null ? null : weights.get(n.getCurrentPlatform());
+        return w == null ? defaultWeight : w;
+    }
+
+    /**
+     * Get the load under which a node may be shut down.
+     *
+     * @return a percentage
+     */
+    public int getLowWatermark() {
+        return lowWatermark;
+    }
+
+    /**
+     * Get the minimum duration a node must stay online.
+     *
+     * @return a duration in seconds
+     */
+    public int getMinUptime() {
+        return minUptime;
+    }
+
+    /**
+     * Get the minimum duration a node must stay offline.
+     *
+     * @return a duration in seconds
+     */
+    public int getMinDowntime() {
+        return minDowntime;
+    }
+
+    /**
+     * Indicate whether the nodes must be operated by the power management drivers
+     * to be booted or switched off.
+     *
+     * @param b {@code false} to consider every node, for simulation purpose
+     */
+    public void requireDrivers(boolean b) {
+        driversRequired = b;
+    }
+
+    /**
+     * Check whether a node can be booted by the Wake On Lan driver.
+     *
+     * @param n the node
+     * @return {@code true} if the driver is declared and the MAC address of the node is known
+     */
+    private boolean isBootable(Node n) {
+        if (!driversRequired) {
+            return true;
+        }
+        try {
+            return DriverFactory.WOL_STARTUP.equals(n.getStartupDriverID()) && n.getMACAddress() != null;
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Check whether a node can be switched off by the SSH driver.
+     *
+     * @param n the node
+     * @return {@code true} if the driver is declared
+     */
+    private boolean isShutdownable(Node n) {
+        if (!driversRequired) {
+            return true;
+        }
+        try {
+            return DriverFactory.SSH_SHUTDOWN.equals(n.getShutdownDriverID());
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Record the state of the nodes.
+     * A node observed for the first time is considered as being in its state
+     * for a long time.
+     *
+     * @param cfg the current configuration
+     * @param now the current moment in milliseconds
+     */
+    public void observe(Configuration cfg, long now) {
+        for (Node n : cfg.getAllNodes()) {
+            boolean on = cfg.isOnline(n);
+            Boolean prev = states.put(n.getName(), on);
+            if (prev != null && prev != on) {
+                lastChanges.put(n.getName(), now);
+            }
+        }
+    }
+
+    /**
+     * Check whether the state of a node has been stable for a given duration.
+     *
+     * @param n   the node
+     * @param now the current moment in milliseconds
+     * @param d   the duration in seconds
+     * @return {@code true} if the last change is older than {@code d}
+     */
+    private boolean isStable(Node n, long now, int d) {
+        Long l = lastChanges.get(n.getName());
+        return l == null || now - l >= d * 1000L;
+    }
+
+    /**
+     * Check whether a node may be shut down.
+     *
+     * @param cfg the current configuration
+     * @param n   the node
+     * @param now the current moment in milliseconds
+     * @return {@code true} if the node is online, underused, stable and can be shut down by a driver
+     */
+    public boolean canBeShutdown(Configuration cfg, Node n, long now) {
+        if (!cfg.isOnline(n) || !isShutdownable(n) || !isStable(n, now, minUptime)) {
+            return false;
+        }
+        ManagedElementSet<VirtualMachine> vms = cfg.getRunnings(n);
+        int[] sum = ManagedElementSets.sum(vms, ResourcePicker.VMRc.cpuDemand, ResourcePicker.VMRc.memoryDemand);
+        return sum[0] * 100 <= lowWatermark * n.getCPUCapacity()
+                && sum[1] * 100 <= lowWatermark * n.getMemoryCapacity()
+                && cfg.getSleepings(n).isEmpty();
+    }
+
+    /**
+     * Check whether a node may be booted.
+     *
+     * @param cfg the current configuration
+     * @param n   the node
+     * @param now the current moment in milliseconds
+     * @return {@code true} if the node is offline, stable and can be booted by a driver
+     */
+    public boolean canBeBooted(Configuration cfg, Node n, long now) {
+        return cfg.isOffline(n) && isBootable(n) && isStable(n, now, minDowntime);
+    }
+}
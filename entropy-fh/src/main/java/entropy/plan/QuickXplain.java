@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.plan;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compute a minimal subset of constraints that can not be satisfied together,
+ * using the QuickXplain algorithm from U. Junker.
+ * <p/>
+ * The satisfiability of a subset is evaluated by a {@link Checker}, that is
+ * supposed to also consider the constraints that are not part of the explanation (the background).
+ * When the probes are performed in parallel, the probes the recursion will need next are
+ * launched speculatively, one per thread, and the result of each probe is cached.
+ * The checker must bound the duration of a probe as the explanation waits for the
+ * termination of the speculative probes before returning.
+ * <p/>
+ * A probe that can not conclude is considered as satisfiable, and so are the probes once the
+ * time limit is reached. In that case, the returned subset is still not satisfiable but may
+ * not be minimal.
+ *
+ * @param <C> the type of the constraints
+ * @author Fabien Hermenier
+ */
+public class QuickXplain<C> {
+
+    /**
+     * Evaluate the satisfiability of a subset of constraints.
+     *
+     * @param <C> the type of the constraints
+     */
+    public interface Checker<C> {
+
+        /**
+         * Check whether a subset of the constraints can be satisfied.
+         *
+         * @param cstrs the constraints
+         * @return {@code true} if they can be satisfied, {@code false} if they can not. {@code null} if unknown
+         */
+        Boolean isConsistent(List<C> cstrs);
+    }
+
+    private Checker<C> checker;
+
+    private int parallelism;
+
+    private List<C> cstrs;
+
+    private Map<BitSet, Future<Boolean>> probes;
+
+    private ExecutorService executor;
+
+    /**
+     * The moment the explanation must stop. {@code Long.MAX_VALUE} without time limit.
+     */
+    private long deadline;
+
+    private long timeLimit = 0;
+
+    /**
+     * Indicates whether every probe concluded during the last explanation.
+     */
+    private boolean complete;
+
+    /**
+     * Make a new explainer.
+     *
+     * @param checker     the checker to use to evaluate the subsets
+     * @param parallelism the maximum number of probes to perform simultaneously
+     */
+    public QuickXplain(Checker<C> checker, int parallelism) {
+        this.checker = checker;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Set the time limit of an explanation.
+     * Once reached, the remaining probes are considered as satisfiable.
+     *
+     * @param ms the limit in milliseconds. {@code 0} for no limit
+     */
+    public void setTimeLimit(long ms) {
+        timeLimit = ms;
+    }
+
+    /**
+     * Get the time limit of an explanation.
+     *
+     * @return the limit in milliseconds. {@code 0} for no limit
+     */
+    public long getTimeLimit() {
+        return timeLimit;
+    }
+
+    /**
+     * Indicates whether the last explanation is known to be minimal, so every
+     * probe concluded before the time limit.
+     *
+     * @return {@code true} if the explanation is minimal
+     */
+    public boolean isMinimal() {
+        return complete;
+    }
+
+    /**
+     * Get the number of probes launched during the last explanation,
+     * including the speculative ones.
+     *
+     * @return a positive integer
+     */
+    public int getNbProbes() {
+        return probes == null ? 0 : probes.size();
+    }
+
+    /**
+     * Compute a minimal subset of unsatisfiable constraints.
+     *
+     * @param all the constraints to consider
+     * @return the subset, empty if the background can not be satisfied. {@code null} if all the constraints
+     *         can be satisfied together
+     */
+    public List<C> explain(List<C> all) {
+        this.cstrs = all;
+        this.probes = new HashMap<BitSet, Future<Boolean>>();
+        this.complete = true;
+        this.deadline = timeLimit > 0 ? System.currentTimeMillis() + timeLimit : Long.MAX_VALUE;
+        if (parallelism > 1) {
+            executor = Executors.newFixedThreadPool(parallelism);
+        }
+        try {
+            BitSet c = new BitSet(all.size());
+            c.set(0, all.size());
+            if (isConsistent(c)) {
+                return null;
+            }
+            BitSet res = all.isEmpty() ? new BitSet() : qxp(new BitSet(), true, c);
+            List<C> l = new ArrayList<C>(res.cardinality());
+            for (int i = res.nextSetBit(0); i >= 0; i = res.nextSetBit(i + 1)) {
+                l.add(all.get(i));
+            }
+            return l;
+        } finally {
+            if (executor != null) {
+                //Cancel the speculative probes that are not started and wait for the others
+                executor.shutdownNow();
+                try {
+                    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                executor = null;
+            }
+        }
+    }
+
+    /**
+     * The recursive part of QuickXplain.
+     *
+     * @param b        the background
+     * @param hasDelta {@code true} if constraints were added to the background since the last check
+     * @param c        the constraints to explain
+     * @return the minimal conflict among {@code c}
+     */
+    private BitSet qxp(BitSet b, boolean hasDelta, BitSet c) {
+        BitSet c1 = new BitSet();
+        BitSet c2 = new BitSet();
+        split(c, c1, c2);
+        BitSet bc1 = (BitSet) b.clone();
+        bc1.or(c1);
+        if (executor != null) {
+            speculate(b, c);
+        }
+        if (hasDelta && !isConsistent(b)) {
+            return new BitSet();
+        }
+        if (c.cardinality() == 1) {
+            return c;
+        }
+        BitSet d2 = qxp(bc1, true, c2);
+        BitSet bd2 = (BitSet) b.clone();
+        bd2.or(d2);
+        BitSet d1 = qxp(bd2, !d2.isEmpty(), c1);
+        d1.or(d2);
+        return d1;
+    }
+
+    /**
+     * Split a set of constraints into two halves.
+     *
+     * @param c  the constraints to split
+     * @param c1 the first half. Filled
+     * @param c2 the second half. Filled
+     */
+    private static void split(BitSet c, BitSet c1, BitSet c2) {
+        int half = c.cardinality() / 2;
+        for (int i = c.nextSetBit(0); i >= 0; i = c.nextSetBit(i + 1)) {
+            if (c1.cardinality() < half) {
+                c1.set(i);
+            } else {
+                c2.set(i);
+            }
+        }
+    }
+
+    /**
+     * Launch the probes the next recursive calls will check if the backgrounds are consistent:
+     * b + c1, then b + c1 + c2.1, then b + c1 + c2.1 + c2.2.1, ...
+     * At most one probe per thread is launched.
+     *
+     * @param b the background
+     * @param c the constraints to explain
+     */
+    private void speculate(BitSet b, BitSet c) {
+        BitSet bg = (BitSet) b.clone();
+        BitSet rest = c;
+        for (int k = 0; k < parallelism && rest.cardinality() > 1; k++) {
+            BitSet r1 = new BitSet();
+            BitSet r2 = new BitSet();
+            split(rest, r1, r2);
+            bg.or(r1);
+            probe(bg);
+            rest = r2;
+        }
+    }
+
+    /**
+     * Launch a probe, if not already done.
+     *
+     * @param s the subset to evaluate
+     * @return the future result of the probe
+     */
+    private Future<Boolean> probe(BitSet s) {
+        Future<Boolean> f = probes.get(s);
+        if (f == null) {
+            final List<C> l = new ArrayList<C>(s.cardinality());
+            for (int i = s.nextSetBit(0); i >= 0; i = s.nextSetBit(i + 1)) {
+                l.add(cstrs.get(i));
+            }
+            Callable<Boolean> task = new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return checker.isConsistent(l);
+                }
+            };
+            if (executor != null) {
+                f = executor.submit(task);
+            } else {
+                //Evaluated lazily, when the result is needed
+                f = new FutureTask<Boolean>(task);
+            }
+            probes.put((BitSet) s.clone(), f);
+        }
+        return f;
+    }
+
+    /**
+     * Check the satisfiability of a subset of constraints.
+     *
+     * @param s the subset
+     * @return {@code false} iff the subset is proven to be unsatisfiable
+     */
+    private boolean isConsistent(BitSet s) {
+        Future<Boolean> f = probe(s);
+        if (!f.isDone() && System.currentTimeMillis() >= deadline) {
+            complete = false;
+            return true;
+        }
+        if (f instanceof FutureTask && executor == null) {
+            ((FutureTask<Boolean>) f).run();
+        }
+        try {
+            Boolean ret = f.get();
+            if (ret == null) {
+                complete = false;
+                return true;
+            }
+            return ret;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            complete = false;
+            return true;
+        } catch (ExecutionException e) {
+            Plan.logger.warn("Probe failed: " + e.getMessage(), e);
+            complete = false;
+            return true;
+        }
+    }
+}
@@ -21,8 +21,10 @@ package entropy.plan.choco;
 
 import choco.cp.solver.search.integer.branching.AssignOrForbidIntVarVal;
 import choco.cp.solver.search.integer.branching.AssignVar;
+import choco.cp.solver.search.integer.valselector.MaxVal;
 import choco.cp.solver.search.integer.valselector.MinVal;
 import choco.cp.solver.search.integer.varselector.StaticVarOrder;
+import choco.kernel.solver.search.ValSelector;
 import choco.kernel.solver.variables.integer.IntDomainVar;
 import entropy.configuration.*;
 import entropy.plan.choco.actionModel.*;
@@ -34,6 +36,7 @@ import gnu.trove.TLongIntHashMap;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 /**
  * A placement heuristic focused on each VM.
@@ -49,6 +52,8 @@ public class BasicPlacementHeuristic2 implements CorePlanHeuristic {
 
     private SatisfyDemandingSliceHeights packing;
 
+    private ManagedElementSet<Node> toEmpty = new SimpleManagedElementSet<Node>();
+
     /**
      * Make a new placement heuristic.
      *
@@ -65,11 +70,37 @@ public class BasicPlacementHeuristic2 implements CorePlanHeuristic {
         this.packing = packing;
     }
 
+    /**
+     * Set the nodes the VMs should leave.
+     * These nodes are considered as the last candidates to host VMs.
+     *
+     * @param ns the nodes to empty
+     */
+    public void setNodesToEmpty(ManagedElementSet<Node> ns) {
+        this.toEmpty = ns;
+    }
+
     /**
      * To compare VMs in a descending order, wrt. their memory consumption.
      */
     private VirtualMachineComparator dsc = new VirtualMachineComparator(false, ResourcePicker.VMRc.memoryConsumption);
 
+    /**
+     * Make the value selector for the hosting variables.
+     *
+     * @param rp          the problem
+     * @param oldLocation the current location of the VMs
+     * @param favorites   the groups of nodes, by decreasing preference
+     * @param rnd         the generator to break the ties. {@code null} to pick the first candidate
+     * @return the selector
+     */
+    private ValSelector<IntDomainVar> makeValSelector(ReconfigurationProblem rp, TLongIntHashMap oldLocation, TIntHashSet[] favorites, Random rnd) {
+        if (managed.isEmpty()) {
+            return new StayFirstSelector2(rp, oldLocation, packing, StayFirstSelector2.Option.wfMem);
+        }
+        return new StayFirstSelector3(rp, oldLocation, packing, favorites, StayFirstSelector3.Option.wfMem, rnd);
+    }
+
     @Override
     public void add(ChocoCustomRP plan) {
         ReconfigurationProblem rp = plan.getModel();
@@ -79,9 +110,10 @@ public class BasicPlacementHeuristic2 implements CorePlanHeuristic {
 
         //Compute the nodes that will not leave resources. Awesome candidates to place VMs
         //on as they will be scheduled asap.
-        TIntHashSet[] favorites = new TIntHashSet[2];
+        TIntHashSet[] favorites = new TIntHashSet[3];
         favorites[0] = new TIntHashSet();
         favorites[1] = new TIntHashSet();
+        favorites[2] = new TIntHashSet();
         if (!managed.isEmpty()) {
 
             //Composed with nodes that do not host misplaced VMs.
@@ -117,6 +149,13 @@ public class BasicPlacementHeuristic2 implements CorePlanHeuristic {
                     favorites[0].remove(i);
                 }
             }
+            //Nodes to empty are the last candidates
+            for (Node n : toEmpty) {
+                int i = rp.getNode(n);
+                favorites[0].remove(i);
+                favorites[1].remove(i);
+                favorites[2].add(i);
+            }
             //System.err.println(involded.size() + " (" + favorites[0].size() + ") idylic nodes over " + src.getAllNodes().size() + " (" + favorites[1].size() + ")");
         }
 
@@ -139,8 +178,11 @@ public class BasicPlacementHeuristic2 implements CorePlanHeuristic {
         Collections.sort(onGoodNodes, dsc);
         Collections.sort(onBadNodes, dsc);
 
-        List<VirtualMachineActionModel> goodActions = rp.getAssociatedActions(onGoodNodes);
-        List<VirtualMachineActionModel> badActions = rp.getAssociatedActions(onBadNodes);
+        //Try to satisfy the soft constraints first
+        List<IntDomainVar> softs = rp.getSoftConstraints();
+        if (!softs.isEmpty()) {
+            rp.addGoal(new AssignVar(new StaticVarOrder(rp, softs.toArray(new IntDomainVar[softs.size()])), new MaxVal()));
+        }
 
         //Go for the VMgroup variable
         VMGroupVarSelector vmGrp = new VMGroupVarSelector(rp);
@@ -154,58 +196,52 @@ public class BasicPlacementHeuristic2 implements CorePlanHeuristic {
             int idx = rp.getVirtualMachine(vm);
             VirtualMachineActionModel a = rp.getAssociatedVirtualMachineAction(idx);
             if (a.getClass() == MigratableActionModel.class || a.getClass() == ResumeActionModel.class || a.getClass() == ReInstantiateActionModel.class) {
+                if (toEmpty.contains(rp.getNode(rp.getCurrentLocation(idx)))) {
+                    //Don't try to keep it on a node to empty
+                    continue;
+                }
                 oldLocation.put(a.getDemandingSlice().hoster().getIndex(), rp.getCurrentLocation(idx));
             }
         }
 
 
+        //With restarts, the ties are broken randomly to diversify the runs
+        RestartPolicy restarts = plan.getRestartPolicy();
+        Random rnd = restarts == null ? null : new Random(restarts.getSeed());
+
         //Get the VMs to move for exclusion issue
         ManagedElementSet<VirtualMachine> vmsToExlude = rp.getSourceConfiguration().getAllVirtualMachines().clone();
         Collections.sort(vmsToExlude, dsc);
-        if (managed.isEmpty()) {
-            rp.addGoal(new AssignVar(new ExcludedVirtualMachines(rp, rp.getSourceConfiguration(), vmsToExlude), new StayFirstSelector2(rp, oldLocation, packing, StayFirstSelector2.Option.wfMem)));
-        } else {
-            rp.addGoal(new AssignVar(new ExcludedVirtualMachines(rp, rp.getSourceConfiguration(), vmsToExlude), new StayFirstSelector3(rp, oldLocation, packing, favorites, StayFirstSelector3.Option.wfMem)));
-        }
+        rp.addGoal(new AssignVar(new ExcludedVirtualMachines(rp, rp.getSourceConfiguration(), vmsToExlude), makeValSelector(rp, oldLocation, favorites, rnd)));
 
 
         for (ManagedElementSet<VirtualMachine> vms : rp.getVMGroups()) {
             ManagedElementSet<VirtualMachine> sorted = vms.clone();
             Collections.sort(sorted, dsc);
-            List<VirtualMachineActionModel> inGroupActions = rp.getAssociatedActions(sorted);
-            HosterVarSelector selectForInGroups = new HosterVarSelector(rp, ActionModels.extractDemandingSlices(inGroupActions));
-            if (managed.isEmpty()) {
-                rp.addGoal(new AssignVar(selectForInGroups, new StayFirstSelector2(rp, oldLocation, packing, StayFirstSelector2.Option.wfMem)));
-            } else {
-                rp.addGoal(new AssignVar(selectForInGroups, new StayFirstSelector3(rp, oldLocation, packing, favorites, StayFirstSelector3.Option.wfMem)));
-            }
-        }
-        HosterVarSelector selectForBads = new HosterVarSelector(rp, ActionModels.extractDemandingSlices(badActions));
-        if (managed.isEmpty()) {
-            rp.addGoal(new AssignVar(selectForBads, new StayFirstSelector2(rp, oldLocation, packing, StayFirstSelector2.Option.wfMem)));
-        } else {
-            rp.addGoal(new AssignVar(selectForBads, new StayFirstSelector3(rp, oldLocation, packing, favorites, StayFirstSelector3.Option.wfMem)));
-        }
-
-        HosterVarSelector selectForGoods = new HosterVarSelector(rp, ActionModels.extractDemandingSlices(goodActions));
-        if (managed.isEmpty()) {
-            rp.addGoal(new AssignVar(selectForGoods, new StayFirstSelector2(rp, oldLocation, packing, StayFirstSelector2.Option.wfMem)));
-        } else {
-            rp.addGoal(new AssignVar(selectForGoods, new StayFirstSelector3(rp, oldLocation, packing, favorites, StayFirstSelector3.Option.wfMem)));
+            HosterVarSelector selectForInGroups = new HosterVarSelector(rp, rp.getDemandingHosters(sorted));
+            rp.addGoal(new AssignVar(selectForInGroups, makeValSelector(rp, oldLocation, favorites, rnd)));
         }
-
         //VMs to run
         ManagedElementSet<VirtualMachine> vmsToRun = rp.getSourceConfiguration().getWaitings().minus(rp.getFutureWaitings()).clone();
 
         //vmsToRun.removeAll(rp.getFutureWaitings());
-        List<VirtualMachineActionModel> runActions = rp.getAssociatedActions(vmsToRun);
-        HosterVarSelector selectForRuns = new HosterVarSelector(rp, ActionModels.extractDemandingSlices(runActions));
 
+        if (restarts == null) {
+            HosterVarSelector selectForBads = new HosterVarSelector(rp, rp.getDemandingHosters(onBadNodes));
+            rp.addGoal(new AssignVar(selectForBads, makeValSelector(rp, oldLocation, favorites, rnd)));
 
-        if (managed.isEmpty()) {
-            rp.addGoal(new AssignVar(selectForRuns, new StayFirstSelector2(rp, oldLocation, packing, StayFirstSelector2.Option.wfMem)));
+            HosterVarSelector selectForGoods = new HosterVarSelector(rp, rp.getDemandingHosters(onGoodNodes));
+            rp.addGoal(new AssignVar(selectForGoods, makeValSelector(rp, oldLocation, favorites, rnd)));
+
+            HosterVarSelector selectForRuns = new HosterVarSelector(rp, rp.getDemandingHosters(vmsToRun));
+            rp.addGoal(new AssignVar(selectForRuns, makeValSelector(rp, oldLocation, favorites, rnd)));
         } else {
-            rp.addGoal(new AssignVar(selectForRuns, new StayFirstSelector3(rp, oldLocation, packing, favorites, StayFirstSelector3.Option.wfMem)));
+            //With restarts, a single activity-based goal. Without conflicts, it follows the same order
+            List<VirtualMachine> others = new ArrayList<VirtualMachine>(onBadNodes);
+            others.addAll(onGoodNodes);
+            others.addAll(vmsToRun);
+            ActivityHosterVarSelector selectForOthers = new ActivityHosterVarSelector(rp, rp.getDemandingHosters(others));
+            rp.addGoal(new AssignVar(selectForOthers, makeValSelector(rp, oldLocation, favorites, rnd)));
         }
 
         ///SCHEDULING PROBLEM
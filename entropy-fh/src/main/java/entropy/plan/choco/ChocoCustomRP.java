@@ -19,6 +19,7 @@
 package entropy.plan.choco;
 
 import choco.Choco;
+import choco.cp.solver.CPSolver;
 import choco.cp.solver.constraints.integer.MaxOfAList;
 import choco.kernel.common.Constant;
 import choco.kernel.solver.ContradictionException;
@@ -31,14 +32,21 @@ import entropy.configuration.*;
 import entropy.plan.*;
 import entropy.plan.choco.actionModel.ActionModel;
 import entropy.plan.choco.actionModel.ActionModels;
+import entropy.plan.choco.actionModel.ManageableNodeActionModel;
+import entropy.plan.choco.actionModel.NodeActionModel;
 import entropy.plan.choco.actionModel.VirtualMachineActionModel;
 import entropy.plan.choco.actionModel.slice.Slice;
+import entropy.plan.choco.constraint.SymmetryBreaking;
 import entropy.plan.choco.constraint.pack.SatisfyDemandingSliceHeights;
 import entropy.plan.choco.constraint.pack.SatisfyDemandingSlicesHeightsFastBP;
 import entropy.plan.choco.constraint.sliceScheduling.SlicesPlanner;
+import entropy.plan.choco.search.RestartPolicy;
 import entropy.plan.durationEvaluator.DurationEvaluationException;
 import entropy.plan.durationEvaluator.DurationEvaluator;
+import entropy.vjob.DefaultVJob;
 import entropy.vjob.PlacementConstraint;
+import entropy.vjob.Split;
+import entropy.vjob.Soft;
 import entropy.vjob.VJob;
 
 import java.util.*;
@@ -63,6 +71,36 @@ public class ChocoCustomRP extends CustomizablePlannerModule {
 
     private boolean optimize = true;
 
+    private boolean symmetryBreaking = true;
+
+    private boolean energeticReasoning = false;
+
+    private RestartPolicy restarts = null;
+
+    private boolean explain = false;
+
+    private int explanationTimeLimit = 10;
+
+    /**
+     * The VMs to manage whatever the repair mode. Set for the probes of an explanation
+     * to solve the same problem than the one to explain.
+     */
+    private ManagedElementSet<VirtualMachine> manageable = null;
+
+    private int explanationParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The conflicting constraints found during the last computation.
+     */
+    private List<PlacementConstraint> conflict = null;
+
+    /**
+     * The soft constraints violated by the last computed plan.
+     */
+    private List<PlacementConstraint> relaxed = new ArrayList<PlacementConstraint>();
+
+    private ConsolidationPolicy consolidation = null;
+
     /**
      * Make a new plan module.
      *
@@ -103,9 +141,9 @@ public class ChocoCustomRP extends CustomizablePlannerModule {
 
     /**
      * the class to instantiate to generate the global constraint.
-     * Default is SatisfyDemandingSlicesHeightsSimpleBP.
+     * Default is SatisfyDemandingSlicesHeightsFastBP.
      */
-    private SatisfyDemandingSliceHeights packingConstraintClass = new SatisfyDemandingSlicesHeightsFastBP();//new SatisfyDemandingSlicesHeightsSimpleBP();
+    private SatisfyDemandingSliceHeights packingConstraintClass = new SatisfyDemandingSlicesHeightsFastBP();
 
     /**
      * @return the globalConstraintClass
@@ -135,9 +173,35 @@ public class ChocoCustomRP extends CustomizablePlannerModule {
         queue = q;
 
         model = null;
+        conflict = null;
+        relaxed = new ArrayList<PlacementConstraint>();
+
+        //Release the state of the nodes that may be switched off or booted
+        ManagedElementSet<Node> toEmpty = new SimpleManagedElementSet<Node>();
+        if (consolidation != null) {
+            long now = System.currentTimeMillis();
+            consolidation.observe(src, now);
+            on = on.clone();
+            off = off.clone();
+            for (Node n : src.getOnlines()) {
+                if (on.contains(n) && consolidation.canBeShutdown(src, n, now)) {
+                    on.remove(n);
+                    toEmpty.add(n);
+                }
+            }
+            for (Node n : src.getOfflines()) {
+                if (off.contains(n) && consolidation.canBeBooted(src, n, now)) {
+                    off.remove(n);
+                }
+            }
+            Plan.logger.debug(toEmpty.size() + " underused node(s) may be switched off");
+        }
 
+        ManagedElementSet<Node> overloaded = Configurations.futureOverloadedNodes(src);
         ManagedElementSet<VirtualMachine> vms;
-        if (repair) {
+        if (manageable != null) {
+            vms = manageable.clone();
+        } else if (repair) {
             //Look for the VMs to consider
             vms = new SimpleManagedElementSet<VirtualMachine>();
             for (VJob v : queue) {
@@ -149,7 +213,9 @@ public class ChocoCustomRP extends CustomizablePlannerModule {
             }
             //Hardcore way for the packing. TODO: externalize
             //System.err.println("pack issue:" + src.getRunnings(src.getUnacceptableNodes()));
-            vms.addAll(src.getRunnings(Configurations.futureOverloadedNodes(src)));
+            vms.addAll(src.getRunnings(overloaded));
+            //The VMs that have to leave the nodes to switch off
+            vms.addAll(src.getRunnings(toEmpty));
             /*for (Node n : Configurations.futureOverloadedNodes(src)) {
                             System.err.println("Before: " + n);
                         for (VirtualMachine vm : src.getRunnings(n)) {
@@ -162,7 +228,7 @@ public class ChocoCustomRP extends CustomizablePlannerModule {
 
         model = new DefaultReconfigurationProblem(src, run, wait, sleep, stop, vms,
                 on, off, getDurationEvaluator());
-        vms.addAll(src.getRunnings(Configurations.futureOverloadedNodes(src)));
+        vms.addAll(src.getRunnings(overloaded));
         /*for (Node n : Configurations.futureOverloadedNodes(src)) {
            System.err.println("After model: " + n);
            for (VirtualMachine vm : src.getRunnings(n)) {
@@ -185,6 +251,7 @@ public class ChocoCustomRP extends CustomizablePlannerModule {
                         relatives.add(c);
                     }
 
+                    declare(c);
                     if (!occurences.containsKey(c.getClass())) {
                         occurences.put(c.getClass(), 0);
                     }
@@ -200,8 +267,11 @@ public class ChocoCustomRP extends CustomizablePlannerModule {
             c.inject(model);
         }
 
+        if (symmetryBreaking) {
+            new SymmetryBreaking().add(model);
+        }
         packingConstraintClass.add(model);
-        new SlicesPlanner().add(model);
+        new SlicesPlanner(energeticReasoning).add(model);
 
         /*
            * A pretty print of the problem
@@ -244,6 +314,20 @@ public class ChocoCustomRP extends CustomizablePlannerModule {
                 varCosts.add(c);
             }
         }
+        //The energy cost of the nodes that will be online
+        if (consolidation != null) {
+            for (NodeActionModel a : model.getNodeMachineActions()) {
+                if (a instanceof ManageableNodeActionModel) {
+                    IntDomainVar state = ((ManageableNodeActionModel) a).getState();
+                    int w = consolidation.getWeight(a.getNode());
+                    if (w > 0 && !state.isInstantiated()) {
+                        varCosts.add(model.mult(state, w));
+                    }
+                }
+            }
+        }
+        //The penalties of the violated soft constraints
+        varCosts.addAll(model.getViolationCosts());
         IntDomainVar[] costs = varCosts.toArray(new IntDomainVar[varCosts.size()]);
         //model.post(model.eq(globalCost, /*model.sum(costs)*/explodedSum(model, costs, 200, true)));
         SConstraint<?> cs = model.eq(globalCost,
@@ -280,8 +364,13 @@ public class ChocoCustomRP extends CustomizablePlannerModule {
             model.post(new MaxOfAList(model.getEnvironment(), values));
         }
 
-        new BasicPlacementHeuristic2(globalCost, packingConstraintClass, vms).add(this);
+        BasicPlacementHeuristic2 h = new BasicPlacementHeuristic2(globalCost, packingConstraintClass, vms);
+        h.setNodesToEmpty(toEmpty);
+        h.add(this);
         new DummyPlacementHeuristic().add(model);
+        if (restarts != null) {
+            restarts.apply((CPSolver) model);
+        }
         model.setDoMaximize(false);
         model.setObjective(globalCost);
         model.setFirstSolution(!optimize);
@@ -306,12 +395,19 @@ public class ChocoCustomRP extends CustomizablePlannerModule {
                     ", #nbsol= " + model.getNbSolutions());
 
             if (Boolean.FALSE.equals(ret)) {
+                if (explain) {
+                    conflict = explain(src, run, wait, sleep, stop, on, off, vms);
+                    if (conflict != null) {
+                        throw new PlanException("No solution. Conflicting constraints: " + conflict);
+                    }
+                }
                 throw new PlanException("No solution");
             } else {
                 TimedReconfigurationPlan plan = model.extractSolution();
                 Configuration res = plan.getDestination();
-                if (!Configurations.futureOverloadedNodes(res).isEmpty()) {
-                    throw new PlanException(res.toString(), "Resulting configuration is not viable: Overloaded nodes=" + Configurations.futureOverloadedNodes(res));
+                ManagedElementSet<Node> bad = Configurations.futureOverloadedNodes(res);
+                if (!bad.isEmpty()) {
+                    throw new PlanException(res.toString(), "Resulting configuration is not viable: Overloaded nodes=" + bad);
                 }
 
                 if (model.getEnd().getVal() != plan.getDuration()) {
@@ -320,16 +416,92 @@ public class ChocoCustomRP extends CustomizablePlannerModule {
                 for (VJob vjob : queue) {
                     for (PlacementConstraint c : vjob.getConstraints()) {
                         if (!c.isSatisfied(res)) {
-                            throw new PlanException("Resulting configuration does not satisfy '" + c.toString() + "'");
+                            if (c instanceof Soft) {
+                                relaxed.add(c);
+                            } else {
+                                throw new PlanException("Resulting configuration does not satisfy '" + c.toString() + "'");
+                            }
                         }
                     }
                 }
+                if (!relaxed.isEmpty()) {
+                    Plan.logger.info("Relaxed constraints: " + relaxed);
+                }
                 Plan.logger.debug("#action= " + plan.getActions().size() + ", apply=" + plan.getDuration() + " secs.");
                 return plan;
             }
         }
     }
 
+    /**
+     * Compute a minimal set of placement constraints that can not be satisfied together.
+     * Each probe solves the problem with a subset of the constraints, without optimization.
+     * The probes manage the same VMs than the problem to explain so they solve nested problems.
+     * The whole explanation is limited to {@link #getExplanationTimeLimit()} seconds.
+     *
+     * @param vms the VMs managed by the problem to explain
+     * @return the conflicting constraints, an empty list if the problem has no solution even without
+     *         constraints. {@code null} if the probes did not reproduce the failure
+     */
+    private List<PlacementConstraint> explain(final Configuration src,
+                                              final ManagedElementSet<VirtualMachine> run,
+                                              final ManagedElementSet<VirtualMachine> wait,
+                                              final ManagedElementSet<VirtualMachine> sleep,
+                                              final ManagedElementSet<VirtualMachine> stop,
+                                              final ManagedElementSet<Node> on,
+                                              final ManagedElementSet<Node> off,
+                                              ManagedElementSet<VirtualMachine> vms) {
+        long st = System.currentTimeMillis();
+        final long deadline = st + explanationTimeLimit * 1000L;
+        final ManagedElementSet<VirtualMachine> movables = vms.clone();
+        List<PlacementConstraint> all = new ArrayList<PlacementConstraint>();
+        for (VJob v : queue) {
+            all.addAll(v.getConstraints());
+        }
+        QuickXplain<PlacementConstraint> qx = new QuickXplain<PlacementConstraint>(new QuickXplain.Checker<PlacementConstraint>() {
+            @Override
+            public Boolean isConsistent(List<PlacementConstraint> cstrs) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return null;
+                }
+                ChocoCustomRP p = new ChocoCustomRP(getDurationEvaluator());
+                p.manageable = movables;
+                p.setSymmetryBreaking(symmetryBreaking);
+                p.setEnergeticReasoning(energeticReasoning);
+                p.doOptimize(false);
+                //A probe never outlives the explanation
+                p.setTimeLimit((int) ((remaining + 999) / 1000));
+                VJob v = new DefaultVJob("probe");
+                for (PlacementConstraint c : cstrs) {
+                    v.addConstraint(c);
+                }
+                List<VJob> q = new ArrayList<VJob>(1);
+                q.add(v);
+                try {
+                    p.compute(src, run, wait, sleep, stop, on, off, q);
+                    return true;
+                } catch (PlanException e) {
+                    if (p.getModel() != null && Boolean.FALSE.equals(p.getModel().isFeasible())) {
+                        return false;
+                    }
+                    return null;
+                }
+            }
+        }, explanationParallelism);
+        qx.setTimeLimit(explanationTimeLimit * 1000L);
+        List<PlacementConstraint> res = qx.explain(all);
+        long ed = System.currentTimeMillis();
+        if (res == null) {
+            Plan.logger.info("Unable to explain the failure in " + (ed - st) + "ms (" + qx.getNbProbes() + " probes)");
+        } else if (!qx.isMinimal()) {
+            Plan.logger.info("Failure partially explained in " + (ed - st) + "ms (" + qx.getNbProbes() + " probes): " + res);
+        } else {
+            Plan.logger.info("Failure explained in " + (ed - st) + "ms (" + qx.getNbProbes() + " probes): " + res);
+        }
+        return res;
+    }
+
     /**
      * Estimate the lower and the upper bound of model.getEnd()
      *
@@ -423,6 +595,166 @@ public class ChocoCustomRP extends CustomizablePlannerModule {
     }
 
 
+    /**
+     * Use symmetry breaking constraints between equivalent nodes and virtual machines.
+     *
+     * @param b {@code true} to break the symmetries
+     */
+    public void setSymmetryBreaking(boolean b) {
+        symmetryBreaking = b;
+    }
+
+    /**
+     * Indicates whether the symmetries between equivalent elements are broken.
+     *
+     * @return {@code true} if symmetry breaking constraints are used
+     */
+    public boolean isSymmetryBreakingUsed() {
+        return symmetryBreaking;
+    }
+
+    /**
+     * Use an energetic reasoning to schedule the slices on each node.
+     * It detects the overloaded nodes earlier, for plans with long chains of
+     * migrations through saturated nodes.
+     *
+     * @param b {@code true} to use the energetic reasoning
+     */
+    public void setEnergeticReasoning(boolean b) {
+        energeticReasoning = b;
+    }
+
+    /**
+     * Indicates whether the slices are scheduled using an energetic reasoning.
+     *
+     * @return {@code true} if the energetic reasoning is used
+     */
+    public boolean isEnergeticReasoningUsed() {
+        return energeticReasoning;
+    }
+
+    /**
+     * Explain the failures. When no solution exists, a minimal set of conflicting placement
+     * constraints is computed, logged and available using {@link #getConflict()}.
+     *
+     * @param b {@code true} to explain the failures
+     */
+    public void setExplainConflicts(boolean b) {
+        explain = b;
+    }
+
+    /**
+     * Indicates whether the failures are explained.
+     *
+     * @return {@code true} if the failures are explained
+     */
+    public boolean isExplainingConflicts() {
+        return explain;
+    }
+
+    /**
+     * Set the time limit of the explanation of a failure. Each probe is limited to the
+     * remaining time. A probe that reaches the limit is considered as satisfiable so
+     * the conflict may not be minimal.
+     *
+     * @param seconds the limit in seconds
+     */
+    public void setExplanationTimeLimit(int seconds) {
+        explanationTimeLimit = seconds;
+    }
+
+    /**
+     * Get the time limit of the explanation of a failure.
+     *
+     * @return the limit in seconds. 10 by default
+     */
+    public int getExplanationTimeLimit() {
+        return explanationTimeLimit;
+    }
+
+    /**
+     * Set the number of probes that are solved simultaneously to explain a failure.
+     *
+     * @param nb a positive integer. By default, the number of available processors
+     */
+    public void setExplanationParallelism(int nb) {
+        explanationParallelism = nb;
+    }
+
+    /**
+     * Get the minimal set of conflicting constraints found during the last computation.
+     *
+     * @return a list of constraints, empty if the problem has no solution even without constraints.
+     *         {@code null} if the last computation succeeded or was not explained
+     */
+    public List<PlacementConstraint> getConflict() {
+        return conflict;
+    }
+
+    /**
+     * Get the soft constraints that are violated by the last computed plan.
+     *
+     * @return a list of constraints, empty if all the constraints are satisfied
+     */
+    public List<PlacementConstraint> getRelaxedConstraints() {
+        return relaxed;
+    }
+
+    /**
+     * Set the policy to restart the search.
+     * When a policy is set, the placement heuristic breaks the ties randomly
+     * and branches first on the hosting variables involved in the conflicts.
+     *
+     * @param p the policy. {@code null} for a single search without restarts
+     */
+    public void setRestartPolicy(RestartPolicy p) {
+        restarts = p;
+    }
+
+    /**
+     * Get the policy to restart the search.
+     *
+     * @return the policy. {@code null} if the search does not restart
+     */
+    public RestartPolicy getRestartPolicy() {
+        return restarts;
+    }
+
+    /**
+     * Set the policy to consolidate the VMs and switch off the underused nodes.
+     * When a policy is set, the energy cost of the online nodes is added to the cost of the plan.
+     *
+     * @param p the policy. {@code null} to disable the consolidation
+     */
+    public void setConsolidationPolicy(ConsolidationPolicy p) {
+        consolidation = p;
+    }
+
+    /**
+     * Get the policy to consolidate the VMs.
+     *
+     * @return the policy if the consolidation is enabled, {@code null} otherwise
+     */
+    public ConsolidationPolicy getConsolidationPolicy() {
+        return consolidation;
+    }
+
+    /**
+     * Declare the elements involved in a constraint to the model, so that
+     * they are not considered as interchangeable with the others.
+     *
+     * @param c the constraint
+     */
+    private void declare(PlacementConstraint c) {
+        if (c instanceof Split) {
+            //The two sets of VMs have different roles
+            model.declareConstrainedElements(((Split) c).getFirstSet(), c.getNodes());
+            model.declareConstrainedElements(((Split) c).getSecondSet(), c.getNodes());
+        } else {
+            model.declareConstrainedElements(c.getAllVirtualMachines(), c.getNodes());
+        }
+    }
+
     /**
      * Make a sum of a large number of variables using
      * decomposition
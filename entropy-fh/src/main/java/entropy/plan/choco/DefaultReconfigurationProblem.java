@@ -20,7 +20,6 @@
 package entropy.plan.choco;
 
 import choco.cp.solver.CPSolver;
-import choco.cp.solver.constraints.global.BoundGccVar;
 import choco.cp.solver.constraints.integer.Element;
 import choco.cp.solver.constraints.integer.ElementV;
 import choco.cp.solver.constraints.integer.EuclideanDivisionXYZ;
@@ -40,11 +39,14 @@ import entropy.plan.action.ActionComparator;
 import entropy.plan.choco.actionModel.*;
 import entropy.plan.choco.actionModel.slice.ConsumingSlice;
 import entropy.plan.choco.actionModel.slice.DemandingSlice;
-import entropy.plan.choco.actionModel.slice.Slices;
+import entropy.plan.choco.actionModel.slice.SliceStore;
+import entropy.plan.choco.constraint.HostingCounter;
+import entropy.plan.choco.constraint.MultiDisjoint;
 import entropy.plan.choco.constraint.pack.SatisfyDemandingSliceHeights;
 import entropy.plan.durationEvaluator.DurationEvaluationException;
 import entropy.plan.durationEvaluator.DurationEvaluator;
 import gnu.trove.TIntArrayList;
+import gnu.trove.TIntHashSet;
 import gnu.trove.TIntIntHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -66,11 +68,6 @@ public class DefaultReconfigurationProblem extends CPSolver implements Reconfigu
 
     private ManagedElementSet<VirtualMachine> manageable;
 
-    /**
-     * The maximum number of group of nodes.
-     */
-    public static final Integer MAX_NB_GRP = 1000;
-
     /**
      * The moment the reconfiguration starts. Equals to 0.
      */
@@ -190,6 +187,11 @@ public class DefaultReconfigurationProblem extends CPSolver implements Reconfigu
      */
     private List<ManagedElementSet<Node>> revNodesGrp;
 
+    /**
+     * The index of the nodes that belong to each group of nodes. To synchronize with revNodesGrp.
+     */
+    private List<BitSet> nodesGrpMembers;
+
     /**
      * The next value to use when creating a nodeGrp.
      */
@@ -205,6 +207,11 @@ public class DefaultReconfigurationProblem extends CPSolver implements Reconfigu
      */
     private List<DemandingSlice> demandingSlices;
 
+    /**
+     * The slices of the model, as primitive arrays.
+     */
+    private SliceStore slices;
+
     /**
      * The moments each VM is ready.
      */
@@ -272,19 +279,7 @@ public class DefaultReconfigurationProblem extends CPSolver implements Reconfigu
         this.willChangePlatform = willChangePlatform;
 
         checkDisjointSet();
-        if (!Configurations.currentlyOverloadedNodes(source).isEmpty()) {
-            for (Node n : Configurations.currentlyOverloadedNodes(source)) {
-                System.err.println(n + ": " + source.getRunnings(n));
-                for (VirtualMachine vm : source.getRunnings(n)) {
-                    System.err.print(vm + " ");
-                }
-                System.err.println();
-                System.err.println(n.getCPUCapacity() - ManagedElementSets.sum(source.getRunnings(n), ResourcePicker.VMRc.cpuConsumption)[0]);
-                System.err.println(n.getMemoryCapacity() - ManagedElementSets.sum(source.getRunnings(n), ResourcePicker.VMRc.memoryConsumption)[0]);
-            }
-            System.err.println(source.getOfflines().size() + " offline(s); " + source.getWaitings().size() + "waitings");
-            throw new NonViableSourceConfigurationException(source, Configurations.currentlyOverloadedNodes(source).get(0));
-        }
+        checkSourceViability();
 
         start = this.makeConstantIntVar(0);
         end = createBoundIntVar("end", 0, MAX_TIME);
@@ -326,7 +321,8 @@ public class DefaultReconfigurationProblem extends CPSolver implements Reconfigu
             nodeGrps.add(i, new TIntArrayList());
         }
         nodesGrp = new HashMap<ManagedElementSet<Node>, Integer>();
-        revNodesGrp = new ArrayList<ManagedElementSet<Node>>(MAX_NB_GRP);
+        revNodesGrp = new ArrayList<ManagedElementSet<Node>>();
+        nodesGrpMembers = new ArrayList<BitSet>();
 
     }
 
@@ -366,19 +362,7 @@ public class DefaultReconfigurationProblem extends CPSolver implements Reconfigu
         willChangePlatform = new HashMap<Node, String>();
 
         checkDisjointSet();
-        if (!Configurations.currentlyOverloadedNodes(source).isEmpty()) {
-            for (Node n : Configurations.currentlyOverloadedNodes(source)) {
-                System.err.println(n + ": " + source.getRunnings(n));
-                for (VirtualMachine vm : source.getRunnings(n)) {
-                    System.err.print(vm + " ");
-                }
-                System.err.println();
-                System.err.println(n.getCPUCapacity() - ManagedElementSets.sum(source.getRunnings(n), ResourcePicker.VMRc.cpuConsumption)[0]);
-                System.err.println(n.getMemoryCapacity() - ManagedElementSets.sum(source.getRunnings(n), ResourcePicker.VMRc.memoryConsumption)[0]);
-            }
-            System.err.println(source.getOfflines().size() + " offline(s); " + source.getWaitings().size() + "waitings");
-            throw new NonViableSourceConfigurationException(source, Configurations.currentlyOverloadedNodes(source).get(0));
-        }
+        checkSourceViability();
 
         start = this.makeConstantIntVar(0);
         end = createBoundIntVar("end", 0, MAX_TIME);
@@ -420,7 +404,8 @@ public class DefaultReconfigurationProblem extends CPSolver implements Reconfigu
             nodeGrps.add(i, new TIntArrayList());
         }
         nodesGrp = new HashMap<ManagedElementSet<Node>, Integer>();
-        revNodesGrp = new ArrayList<ManagedElementSet<Node>>(MAX_NB_GRP);
+        revNodesGrp = new ArrayList<ManagedElementSet<Node>>();
+        nodesGrpMembers = new ArrayList<BitSet>();
 
     }
 
@@ -448,7 +433,7 @@ public class DefaultReconfigurationProblem extends CPSolver implements Reconfigu
             }
 
             //Make the channeling with the assignment variable of all the d-slices
-            IntDomainVar[] assigns = Slices.extractHosters(demandingSlices);
+            IntDomainVar[] assigns = slices.getDemandingHosters();
             post(new InverseSetInt(assigns, sets));
         }
     }
@@ -460,6 +445,28 @@ public class DefaultReconfigurationProblem extends CPSolver implements Reconfigu
         return momentVMReady[idx];
     }
 
+    /**
+     * Check the source configuration is currently viable.
+     *
+     * @throws NonViableSourceConfigurationException if a node is currently overloaded
+     */
+    private void checkSourceViability() throws NonViableSourceConfigurationException {
+        ManagedElementSet<Node> overloaded = Configurations.currentlyOverloadedNodes(source);
+        if (!overloaded.isEmpty()) {
+            for (Node n : overloaded) {
+                System.err.println(n + ": " + source.getRunnings(n));
+                for (VirtualMachine vm : source.getRunnings(n)) {
+                    System.err.print(vm + " ");
+                }
+                System.err.println();
+                System.err.println(n.getCPUCapacity() - ManagedElementSets.sum(source.getRunnings(n), ResourcePicker.VMRc.cpuConsumption)[0]);
+                System.err.println(n.getMemoryCapacity() - ManagedElementSets.sum(source.getRunnings(n), ResourcePicker.VMRc.memoryConsumption)[0]);
+            }
+            System.err.println(source.getOfflines().size() + " offline(s); " + source.getWaitings().size() + "waitings");
+            throw new NonViableSourceConfigurationException(source, overloaded.get(0));
+        }
+    }
+
     /**
      * Set the resources capacity of the nodes.
      */
@@ -764,13 +771,37 @@ public class DefaultReconfigurationProblem extends CPSolver implements Reconfigu
         }
 
         //Get all the slices
-        demandingSlices = new ArrayList<DemandingSlice>();
-        demandingSlices.addAll(ActionModels.extractDemandingSlices(getVirtualMachineActions()));
-        demandingSlices.addAll(ActionModels.extractDemandingSlices(getNodeMachineActions()));
-
-        consumingSlices = new ArrayList<ConsumingSlice>();
-        consumingSlices.addAll(ActionModels.extractConsumingSlices(getVirtualMachineActions()));
-        consumingSlices.addAll(ActionModels.extractConsumingSlices(getNodeMachineActions()));
+        List<ActionModel> allActions = new ArrayList<ActionModel>(vmActions.size() + nodesActions.size());
+        allActions.addAll(getVirtualMachineActions());
+        allActions.addAll(getNodeMachineActions());
+        int nbD = 0;
+        int nbC = 0;
+        for (ActionModel a : allActions) {
+            if (a.getDemandingSlice() != null) {
+                nbD++;
+            }
+            if (a.getConsumingSlice() != null) {
+                nbC++;
+            }
+        }
+        demandingSlices = new ArrayList<DemandingSlice>(nbD);
+        consumingSlices = new ArrayList<ConsumingSlice>(nbC);
+        slices = new SliceStore(nodes.length, vms.length, nbD, nbC);
+        for (ActionModel a : allActions) {
+            int dIdx = slices.register(a);
+            if (a.getDemandingSlice() != null) {
+                demandingSlices.add(a.getDemandingSlice());
+            }
+            if (a.getConsumingSlice() != null) {
+                consumingSlices.add(a.getConsumingSlice());
+            }
+            if (a instanceof VirtualMachineActionModel && dIdx != SliceStore.NO_ASSOCIATION) {
+                slices.setVirtualMachine(getVirtualMachine(((VirtualMachineActionModel) a).getVirtualMachine()), dIdx);
+            }
+            if (a instanceof ShutdownableNodeActionModel) {
+                slices.setExclusive(getNode(((ShutdownableNodeActionModel) a).getNode()), dIdx);
+            }
+        }
     }
 
 
@@ -834,7 +865,12 @@ public class DefaultReconfigurationProblem extends CPSolver implements Reconfigu
             return v;
         }
 
-        v = createEnumIntVar("vmset" + vms.toString(), 0, MAX_NB_GRP);
+        //The candidates are the groups of nodes declared so far
+        if (nextNodeGroupVal == 0) {
+            v = createEnumIntVar("vmset" + vms.toString(), -1, -1);
+        } else {
+            v = createEnumIntVar("vmset" + vms.toString(), 0, nextNodeGroupVal - 1);
+        }
         for (VirtualMachine vm : vms) {
             vmGrp.set(getVirtualMachine(vm), v);
         }
@@ -842,24 +878,15 @@ public class DefaultReconfigurationProblem extends CPSolver implements Reconfigu
         return v;
     }
 
-    private Comparator nodeSetComparator = new java.util.Comparator<ManagedElementSet<Node>>() {
-
-        public int compare(ManagedElementSet<Node> nodes, ManagedElementSet<Node> nodes1) {
-            return getNode(nodes.get(0)) - getNode(nodes1.get(0));
-        }
-    };
-
     @Override
     public IntDomainVar makeGroup(ManagedElementSet<VirtualMachine> vms, Set<ManagedElementSet<Node>> nodes) {
-        int[] values = new int[nodes.size()];
-        int i = 0;
-        //System.err.println(nodes);
-        Set<ManagedElementSet<Node>> cpy = new TreeSet<ManagedElementSet<Node>>(nodeSetComparator);
-        cpy.addAll(nodes);
-        for (ManagedElementSet<Node> ns : cpy) {
-            values[i] = getGroup(ns);
-            i++;
+        //Distinct groups of nodes may share some nodes, so the duplicates are detected on their identifier
+        TIntHashSet ids = new TIntHashSet();
+        for (ManagedElementSet<Node> ns : nodes) {
+            ids.add(getGroup(ns));
         }
+        int[] values = ids.toArray();
+        Arrays.sort(values);
         IntDomainVar v = createEnumIntVar(""/*"vmset" + vms.toString()*/, values);
         vmsGrp.put(vms, v);
         return v;
@@ -877,24 +904,54 @@ public class DefaultReconfigurationProblem extends CPSolver implements Reconfigu
 
     @Override
     public int getGroup(ManagedElementSet<Node> nodes) {
-        if (nodesGrp.get(nodes) != null) {
-            return nodesGrp.get(nodes);
-        } else {
-            if (nextNodeGroupVal > MAX_NB_GRP) {
-                return -1;
+        Integer v = nodesGrp.get(nodes);
+        if (v != null) {
+            return v;
+        }
+        v = nextNodeGroupVal++;
+        nodesGrp.put(nodes, v);
+        revNodesGrp.add(v, nodes);
+        BitSet members = new BitSet(this.nodes.length);
+        for (Node n : nodes) {
+            int nIdx = getNode(n);
+            members.set(nIdx);
+            nodeGrps.get(nIdx).add(v);
+            grpId[nIdx] = v;
+        }
+        nodesGrpMembers.add(v, members);
+        return v;
+    }
+
+    @Override
+    public int[] getNodesGroupId(int[] grps) {
+        int[] ids = new int[nodes.length];
+        Arrays.fill(ids, -1);
+        for (int g : grps) {
+            BitSet members = nodesGrpMembers.get(g);
+            for (int i = members.nextSetBit(0); i >= 0; i = members.nextSetBit(i + 1)) {
+                if (ids[i] != -1 && ids[i] != g) {
+                    throw new IllegalArgumentException("Node '" + nodes[i].getName() + "' belongs to the groups "
+                            + ids[i] + " and " + g);
+                }
+                ids[i] = g;
             }
-            int v = nextNodeGroupVal++;
-            nodesGrp.put(nodes, v);
-            revNodesGrp.add(v, nodes);
-            for (Node n : nodes) {
-                int nIdx = getNode(n);
-                TIntArrayList l = nodeGrps.get(nIdx);
-                l.add(v);
-                grpId[nIdx] = v;
+        }
+        return ids;
+    }
+
+    @Override
+    public int[][] getNodesGroupCouples(int[] grps) {
+        TIntArrayList ns = new TIntArrayList();
+        TIntArrayList gs = new TIntArrayList();
+        for (int i = 0; i < nodes.length; i++) {
+            for (int g : grps) {
+                if (nodesGrpMembers.get(g).get(i)) {
+                    ns.add(i);
+                    gs.add(g);
+                }
             }
-            //Set the group of the nodes
-            return v;
         }
+        return new int[][]{ns.toNativeArray(), gs.toNativeArray()};
     }
 
     @Override
@@ -932,6 +989,21 @@ public class DefaultReconfigurationProblem extends CPSolver implements Reconfigu
         return consumingSlices;
     }
 
+    @Override
+    public SliceStore getSliceStore() {
+        return slices;
+    }
+
+    @Override
+    public IntDomainVar[] getDemandingHosters(List<VirtualMachine> vms) {
+        int[] idx = new int[vms.size()];
+        int i = 0;
+        for (VirtualMachine vm : vms) {
+            idx[i++] = getVirtualMachine(vm);
+        }
+        return slices.getVirtualMachineHosters(idx);
+    }
+
     @Override
     public List<VirtualMachineActionModel> getAssociatedActions(ManagedElementSet<VirtualMachine> vms) {
         List<VirtualMachineActionModel> l = new LinkedList<VirtualMachineActionModel>();
@@ -965,12 +1037,12 @@ public class DefaultReconfigurationProblem extends CPSolver implements Reconfigu
 
     private void makeCards() {
         if (cards == null) {
+            IntDomainVar[] hs = slices.getDemandingHosters();
             cards = new IntDomainVar[nodes.length];
             for (int i = 0; i < cards.length; i++) {
-                cards[i] = createBoundIntVar("nb#" + i, 0, vms.length);
+                cards[i] = createBoundIntVar("nb#" + i, 0, hs.length);
             }
-            IntDomainVar[] hs = Slices.extractHosters(demandingSlices);
-            post(new BoundGccVar(hs, cards, 0, nodes.length - 1, getEnvironment()));
+            post(new HostingCounter(getEnvironment(), hs, cards));
 
         }
     }
@@ -1321,4 +1393,296 @@ public class DefaultReconfigurationProblem extends CPSolver implements Reconfigu
         }
         return hostingStatus[nIdx];
     }
+
+    /**
+     * The virtual machines declared together by the constraints.
+     */
+    private List<ManagedElementSet<VirtualMachine>> constrainedVMs = new ArrayList<ManagedElementSet<VirtualMachine>>();
+
+    /**
+     * The nodes declared together by the constraints.
+     */
+    private List<ManagedElementSet<Node>> constrainedNodes = new ArrayList<ManagedElementSet<Node>>();
+
+    private int[] nodeClasses = null;
+
+    private int[] vmClasses = null;
+
+    @Override
+    public void declareConstrainedElements(ManagedElementSet<VirtualMachine> vms, ManagedElementSet<Node> ns) {
+        constrainedVMs.add(vms == null ? new SimpleManagedElementSet<VirtualMachine>() : vms);
+        constrainedNodes.add(ns == null ? new SimpleManagedElementSet<Node>() : ns);
+        nodeClasses = null;
+        vmClasses = null;
+    }
+
+    @Override
+    public int[] getNodeEquivalenceClasses() {
+        if (nodeClasses != null) {
+            return nodeClasses;
+        }
+        StringBuilder[] keys = new StringBuilder[nodes.length];
+        for (int i = 0; i < constrainedNodes.size(); i++) {
+            for (Node n : constrainedNodes.get(i)) {
+                int idx = getNode(n);
+                if (idx >= 0) {
+                    keys[idx] = keys[idx] == null ? new StringBuilder() : keys[idx];
+                    keys[idx].append('c').append(i);
+                }
+            }
+        }
+
+        //Gather the empty nodes sharing the same characteristics
+        Map<String, TIntArrayList> candidates = new LinkedHashMap<String, TIntArrayList>();
+        for (int i = 0; i < nodes.length; i++) {
+            Node n = nodes[i];
+            if (!source.getRunnings(n).isEmpty() || !source.getSleepings(n).isEmpty() || willChangePlatform.containsKey(n)) {
+                continue;
+            }
+            StringBuilder b = keys[i] == null ? new StringBuilder() : keys[i];
+            b.append(' ').append(n.getCPUCapacity()).append(' ').append(n.getMemoryCapacity()).append(' ').append(n.getNbOfCPUs());
+            b.append(' ').append(n.getCurrentPlatform()).append(' ').append(new TreeSet<String>(n.getAvailablePlatforms()));
+            b.append(' ').append(source.isOnline(n)).append(' ').append(onlines.contains(n)).append(' ').append(offlines.contains(n));
+            NodeActionModel a = nodesActions.get(i);
+            if (a != null) {
+                b.append(' ').append(a.getClass().getSimpleName());
+                if (a.getDuration() != null) {
+                    b.append(' ').append(a.getDuration().getInf()).append('-').append(a.getDuration().getSup());
+                }
+            }
+            TIntArrayList grps = nodeGrps.get(i);
+            for (int j = 0; j < grps.size(); j++) {
+                b.append(" g").append(grps.get(j));
+            }
+            String k = b.toString();
+            TIntArrayList c = candidates.get(k);
+            if (c == null) {
+                c = new TIntArrayList();
+                candidates.put(k, c);
+            }
+            c.add(i);
+        }
+
+        //Split the classes wrt. the nodes each VM can be hosted on
+        List<TIntArrayList> classes = new ArrayList<TIntArrayList>();
+        for (TIntArrayList c : candidates.values()) {
+            if (c.size() > 1) {
+                classes.add(c);
+            }
+        }
+        for (VirtualMachineActionModel a : vmActions) {
+            if (a == null || a.getDemandingSlice() == null) {
+                continue;
+            }
+            IntDomainVar h = a.getDemandingSlice().hoster();
+            List<TIntArrayList> refined = new ArrayList<TIntArrayList>(classes.size());
+            for (TIntArrayList c : classes) {
+                TIntArrayList in = new TIntArrayList();
+                TIntArrayList out = new TIntArrayList();
+                for (int j = 0; j < c.size(); j++) {
+                    if (h.canBeInstantiatedTo(c.get(j))) {
+                        in.add(c.get(j));
+                    } else {
+                        out.add(c.get(j));
+                    }
+                }
+                if (in.size() > 1) {
+                    refined.add(in);
+                }
+                if (out.size() > 1) {
+                    refined.add(out);
+                }
+            }
+            classes = refined;
+        }
+        nodeClasses = makeClasses(nodes.length, classes);
+        logger.debug(classes.size() + " classes of equivalent nodes");
+        return nodeClasses;
+    }
+
+    @Override
+    public int[] getVirtualMachineEquivalenceClasses() {
+        if (vmClasses != null) {
+            return vmClasses;
+        }
+        StringBuilder[] keys = new StringBuilder[vms.length];
+        for (int i = 0; i < constrainedVMs.size(); i++) {
+            for (VirtualMachine vm : constrainedVMs.get(i)) {
+                int idx = getVirtualMachine(vm);
+                if (idx >= 0) {
+                    keys[idx] = keys[idx] == null ? new StringBuilder() : keys[idx];
+                    keys[idx].append('c').append(i);
+                }
+            }
+        }
+
+        //Gather the VMs sharing the same characteristics
+        Map<String, TIntArrayList> candidates = new LinkedHashMap<String, TIntArrayList>();
+        Map<IntDomainVar, Integer> grps = new IdentityHashMap<IntDomainVar, Integer>();
+        for (int i = 0; i < vms.length; i++) {
+            VirtualMachine vm = vms[i];
+            VirtualMachineActionModel a = vmActions.get(i);
+            if (a == null || a.getDemandingSlice() == null) {
+                continue;
+            }
+            StringBuilder b = keys[i] == null ? new StringBuilder() : keys[i];
+            DemandingSlice d = a.getDemandingSlice();
+            b.append(' ').append(a.getClass().getSimpleName());
+            if (a.getDuration() != null) {
+                b.append(' ').append(a.getDuration().getInf()).append('-').append(a.getDuration().getSup());
+            }
+            b.append(' ').append(d.getCPUheight()).append(' ').append(d.getMemoryheight());
+            ConsumingSlice c = a.getConsumingSlice();
+            if (c != null) {
+                b.append(' ').append(c.getCPUheight()).append(' ').append(c.getMemoryheight());
+            }
+            b.append(' ').append(currentLocation[i]).append(' ').append(manageable.contains(vm));
+            b.append(' ').append(vm.getCPUConsumption()).append(' ').append(vm.getCPUDemand()).append(' ').append(vm.getCPUMax());
+            b.append(' ').append(vm.getMemoryConsumption()).append(' ').append(vm.getMemoryDemand()).append(' ').append(vm.getNbOfCPUs());
+            b.append(' ').append(vm.getTemplate()).append(' ').append(new TreeSet<String>(vm.getOptions()));
+            IntDomainVar g = vmGrp.get(i);
+            if (g != null) {
+                if (!grps.containsKey(g)) {
+                    grps.put(g, grps.size());
+                }
+                b.append(" g").append(grps.get(g));
+            }
+            String k = b.toString();
+            TIntArrayList l = candidates.get(k);
+            if (l == null) {
+                l = new TIntArrayList();
+                candidates.put(k, l);
+            }
+            l.add(i);
+        }
+
+        //Split the classes wrt. the hosting capabilities of each VM
+        List<TIntArrayList> classes = new ArrayList<TIntArrayList>();
+        for (TIntArrayList c : candidates.values()) {
+            List<TIntArrayList> refined = new ArrayList<TIntArrayList>();
+            for (int j = 0; j < c.size(); j++) {
+                IntDomainVar h = vmActions.get(c.get(j)).getDemandingSlice().hoster();
+                TIntArrayList into = null;
+                for (TIntArrayList r : refined) {
+                    if (sameDomains(h, vmActions.get(r.get(0)).getDemandingSlice().hoster())) {
+                        into = r;
+                        break;
+                    }
+                }
+                if (into == null) {
+                    into = new TIntArrayList();
+                    refined.add(into);
+                }
+                into.add(c.get(j));
+            }
+            for (TIntArrayList r : refined) {
+                if (r.size() > 1) {
+                    classes.add(r);
+                }
+            }
+        }
+        vmClasses = makeClasses(vms.length, classes);
+        logger.debug(classes.size() + " classes of equivalent virtual machines");
+        return vmClasses;
+    }
+
+    /**
+     * Make the class index of each element.
+     *
+     * @param nb      the number of elements
+     * @param classes the classes, each sorted by ascending index
+     * @return for each element, the index of the first element of its class
+     */
+    private static int[] makeClasses(int nb, List<TIntArrayList> classes) {
+        int[] res = new int[nb];
+        for (int i = 0; i < nb; i++) {
+            res[i] = i;
+        }
+        for (TIntArrayList c : classes) {
+            for (int j = 1; j < c.size(); j++) {
+                res[c.get(j)] = c.get(0);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Check if two variables have the same domain.
+     *
+     * @param v1 the first variable
+     * @param v2 the second variable
+     * @return {@code true} if the domains are identical
+     */
+    private static boolean sameDomains(IntDomainVar v1, IntDomainVar v2) {
+        if (v1.getDomainSize() != v2.getDomainSize() || v1.getInf() != v2.getInf() || v1.getSup() != v2.getSup()) {
+            return false;
+        }
+        for (int v = v1.getInf(); v <= v1.getSup(); v = v1.getDomain().getNextValue(v)) {
+            if (!v2.canBeInstantiatedTo(v)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The constraint that isolates the groups of lonely VMs.
+     */
+    private MultiDisjoint lonelyGroups;
+
+    /**
+     * The position of the hoster of each future running VM in {@code lonelyGroups}.
+     */
+    private TIntIntHashMap lonelyIdxs;
+
+    @Override
+    public void declareLonelyGroup(ManagedElementSet<VirtualMachine> group) {
+        if (lonelyGroups == null) {
+            lonelyIdxs = new TIntIntHashMap();
+            List<IntDomainVar> hs = new ArrayList<IntDomainVar>();
+            for (VirtualMachine vm : getFutureRunnings()) {
+                DemandingSlice s = getAssociatedAction(vm).getDemandingSlice();
+                if (s != null) {
+                    lonelyIdxs.put(getVirtualMachine(vm), hs.size());
+                    hs.add(s.hoster());
+                }
+            }
+            lonelyGroups = new MultiDisjoint(getEnvironment(), hs.toArray(new IntDomainVar[hs.size()]), nodes.length);
+            post(lonelyGroups);
+        }
+        TIntArrayList idxs = new TIntArrayList(group.size());
+        for (VirtualMachine vm : group) {
+            int vIdx = getVirtualMachine(vm);
+            if (lonelyIdxs.containsKey(vIdx)) {
+                idxs.add(lonelyIdxs.get(vIdx));
+            }
+        }
+        lonelyGroups.isolate(idxs.toNativeArray());
+    }
+
+    /**
+     * The costs associated to the violation of the soft constraints.
+     */
+    private List<IntDomainVar> violationCosts = new ArrayList<IntDomainVar>();
+
+    /**
+     * The satisfaction variables of the soft constraints.
+     */
+    private List<IntDomainVar> softs = new ArrayList<IntDomainVar>();
+
+    @Override
+    public void declareSoftConstraint(IntDomainVar sat, IntDomainVar cost) {
+        softs.add(sat);
+        violationCosts.add(cost);
+    }
+
+    @Override
+    public List<IntDomainVar> getSoftConstraints() {
+        return softs;
+    }
+
+    @Override
+    public List<IntDomainVar> getViolationCosts() {
+        return violationCosts;
+    }
 }
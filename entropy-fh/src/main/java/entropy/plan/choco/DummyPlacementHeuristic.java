@@ -20,15 +20,19 @@
 package entropy.plan.choco;
 
 import choco.cp.solver.search.integer.branching.AssignVar;
+import choco.cp.solver.search.integer.valselector.MaxVal;
 import choco.cp.solver.search.integer.valselector.MinVal;
 import choco.cp.solver.search.integer.varselector.StaticVarOrder;
 import choco.cp.solver.search.set.StaticSetVarOrder;
 import choco.kernel.solver.variables.integer.IntDomainVar;
 import choco.kernel.solver.variables.set.SetVar;
 
+import java.util.List;
+
 /**
  * A dummy placement heuristic.
  * Branch on all the variables in a static manner, and select the minimum value for each selected variable.
+ * The satisfaction of the soft constraints is tried first.
  *
  * @author Fabien Hermenier
  */
@@ -36,6 +40,13 @@ public class DummyPlacementHeuristic implements PlanHeuristic {
 
     @Override
     public void add(ReconfigurationProblem m) {
+        //The soft constraints are satisfied first
+        List<IntDomainVar> softs = m.getSoftConstraints();
+        if (!softs.isEmpty()) {
+            m.addGoal(new AssignVar(new StaticVarOrder(m,
+                    softs.toArray(new IntDomainVar[softs.size()])), new MaxVal()));
+        }
+
         IntDomainVar[] foo = new IntDomainVar[m.getNbIntVars()];
         SetVar[] bar = new SetVar[m.getNbSetVars()];
 
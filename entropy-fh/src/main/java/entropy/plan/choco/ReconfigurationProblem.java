@@ -34,6 +34,7 @@ import entropy.plan.choco.actionModel.NodeActionModel;
 import entropy.plan.choco.actionModel.VirtualMachineActionModel;
 import entropy.plan.choco.actionModel.slice.ConsumingSlice;
 import entropy.plan.choco.actionModel.slice.DemandingSlice;
+import entropy.plan.choco.actionModel.slice.SliceStore;
 import entropy.plan.durationEvaluator.DurationEvaluator;
 import gnu.trove.TIntArrayList;
 
@@ -49,7 +50,10 @@ public interface ReconfigurationProblem extends Solver {
 
     /**
      * The maximum number of group of nodes.
+     *
+     * @deprecated the number of groups of nodes is no longer limited
      */
+    @Deprecated
     Integer MAX_NB_GRP = 100;
 
     /**
@@ -236,7 +240,8 @@ public interface ReconfigurationProblem extends Solver {
 
     /**
      * Get the variable associated to a group of VMs.
-     * If the group was not defined, it is created. All the VMs must only belong to one group
+     * If the group was not defined, it is created with the groups of nodes declared so far as its domain,
+     * or {@code -1} if there is none. All the VMs must only belong to one group
      *
      * @param vms the group of virtual machines.
      * @return the variable associated to the group or null if at least one VM of the proposed new group already belong to a group
@@ -272,7 +277,7 @@ public interface ReconfigurationProblem extends Solver {
      * If the group was not defined, it is created.
      *
      * @param nodes the group to define
-     * @return the value associated to the group. -1 if the maximum number of group of nodes has been reached.
+     * @return the value associated to the group
      */
     int getGroup(ManagedElementSet<Node> nodes);
 
@@ -299,8 +304,37 @@ public interface ReconfigurationProblem extends Solver {
      */
     ManagedElementSet<Node> getNodeGroup(int idx);
 
+    /**
+     * Get the last group each node has been associated to.
+     *
+     * @return for each node index, the identifier of a group
+     * @see #getNodesGroupId(int[])
+     */
     int[] getNodesGroupId();
 
+    /**
+     * Get the group each node belongs to, among some candidate groups.
+     * The result can be used as the table of an element constraint between
+     * the hoster of a virtual machine and the group variable made by
+     * {@link #makeGroup(ManagedElementSet, Set)}. The candidate groups must be disjoint,
+     * use {@link #getNodesGroupCouples(int[])} otherwise.
+     *
+     * @param grps the identifiers of the candidate groups
+     * @return for each node index, the identifier of its group or {@code -1} if the node belongs to none of the candidates
+     * @throws IllegalArgumentException if a node belongs to several candidate groups
+     */
+    int[] getNodesGroupId(int[] grps);
+
+    /**
+     * Get all the couples (node, group) among some candidate groups that may overlap.
+     * A node that belongs to several candidate groups appears in one couple per group.
+     *
+     * @param grps the identifiers of the candidate groups
+     * @return two arrays of the same length: the node indexes, in increasing order,
+     *         and the identifier of the associated group
+     */
+    int[][] getNodesGroupCouples(int[] grps);
+
     /**
      * Get the evaluator to estimate the duration of the actions.
      *
@@ -322,6 +356,25 @@ public interface ReconfigurationProblem extends Solver {
      */
     List<ConsumingSlice> getConsumingSlice();
 
+    /**
+     * Get all the slices in the model, stored as primitive arrays.
+     * The indexes of the slices are the same than in {@link #getDemandingSlices()}
+     * and {@link #getConsumingSlice()}.
+     *
+     * @return the store of slices
+     */
+    SliceStore getSliceStore();
+
+    /**
+     * Get the hosting variable of the demanding slices of some virtual machines.
+     * The variables are read from the {@link SliceStore}. The virtual machines
+     * without demanding slices are ignored.
+     *
+     * @param vms the virtual machines
+     * @return an array of variables. The order is the same than the order of the VMs.
+     */
+    IntDomainVar[] getDemandingHosters(List<VirtualMachine> vms);
+
     /**
      * Get all the actions associated to a list of virtual machines.
      *
@@ -400,4 +453,66 @@ public interface ReconfigurationProblem extends Solver {
      */
     IntDomainVar isIdle(int nIdx);
 
+    /**
+     * Declare elements that are handled together by a constraint.
+     * Two elements are only considered as interchangeable if they
+     * have been declared in the same calls.
+     *
+     * @param vms the virtual machines involved in the constraint
+     * @param ns  the nodes involved in the constraint
+     */
+    void declareConstrainedElements(ManagedElementSet<VirtualMachine> vms, ManagedElementSet<Node> ns);
+
+    /**
+     * Get the equivalence classes of the nodes.
+     * Two nodes are equivalent if they are empty, have the same characteristics,
+     * may host the same virtual machines and are involved in the same constraints.
+     * Any solution can then be turned into another one by exchanging their contents.
+     *
+     * @return for each node index, the index of the first node of its class.
+     */
+    int[] getNodeEquivalenceClasses();
+
+    /**
+     * Get the equivalence classes of the virtual machines.
+     * Two virtual machines are equivalent if they have the same current location,
+     * the same resource demands, the same action and are involved in the same constraints.
+     *
+     * @return for each virtual machine index, the index of the first virtual machine of its class.
+     */
+    int[] getVirtualMachineEquivalenceClasses();
+
+    /**
+     * Declare a group of virtual machines that must not share nodes with the other virtual machines.
+     * All the groups are handled by a single constraint over the hosters of the future running virtual machines.
+     * Must be called before the solving process starts.
+     *
+     * @param vms the virtual machines in the group. Only the future running ones are considered
+     */
+    void declareLonelyGroup(ManagedElementSet<VirtualMachine> vms);
+
+    /**
+     * Declare a soft constraint.
+     * The cost of its violation is added to the cost of the plan and
+     * the heuristics try to satisfy the constraint first.
+     *
+     * @param sat  the boolean variable indicating whether the constraint is satisfied
+     * @param cost the variable denoting the cost of the violation
+     * @see entropy.vjob.Soft
+     */
+    void declareSoftConstraint(IntDomainVar sat, IntDomainVar cost);
+
+    /**
+     * Get the satisfaction variables of the soft constraints.
+     *
+     * @return a list of boolean variables, may be empty
+     */
+    List<IntDomainVar> getSoftConstraints();
+
+    /**
+     * Get the costs of the violations of the soft constraints.
+     *
+     * @return a list of variables, may be empty
+     */
+    List<IntDomainVar> getViolationCosts();
 }
@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.plan.choco.actionModel.slice;
+
+import choco.kernel.solver.variables.integer.IntDomainVar;
+import entropy.plan.choco.actionModel.ActionModel;
+
+import java.util.Arrays;
+
+/**
+ * A struct-of-arrays view of all the slices of a reconfiguration problem.
+ * The store is allocated once with the exact number of slices and filled
+ * by registering the actions. The scheduling and the packing constraints
+ * then read the heights and the variables directly from the arrays
+ * returned by the getters.
+ * <p/>
+ * The arrays are shared, not copied: they must not be modified by their users.
+ * The index of a slice in the store is its index in the order of registration.
+ *
+ * @author Fabien Hermenier
+ */
+public class SliceStore {
+
+    /**
+     * The value to indicate a demanding slice is not associated to a consuming slice.
+     */
+    public static final int NO_ASSOCIATION = -1;
+
+    private final DemandingSlice[] dSlices;
+
+    private final IntDomainVar[] dHosters;
+
+    private final IntDomainVar[] dStarts;
+
+    private final int[] dCPUHeights;
+
+    private final int[] dMemHeights;
+
+    /**
+     * For each demanding slice, the index of the consuming slice of the same action.
+     */
+    private final int[] associations;
+
+    private final ConsumingSlice[] cSlices;
+
+    private final IntDomainVar[] cHosters;
+
+    private final IntDomainVar[] cEnds;
+
+    private final int[] cCPUHeights;
+
+    private final int[] cMemHeights;
+
+    /**
+     * For each node, the variable that indicates whether its demanding slice is exclusive.
+     */
+    private final IntDomainVar[] exclusives;
+
+    /**
+     * For each node, the index of its exclusive demanding slice.
+     */
+    private final int[] exclusiveSlices;
+
+    /**
+     * For each virtual machine, the index of its demanding slice.
+     */
+    private final int[] vmSlices;
+
+    private int nbDSlices = 0;
+
+    private int nbCSlices = 0;
+
+    /**
+     * Make a new store.
+     *
+     * @param nbNodes   the number of nodes in the problem
+     * @param nbVMs     the number of virtual machines in the problem
+     * @param nbDSlices the exact number of demanding slices that will be registered
+     * @param nbCSlices the exact number of consuming slices that will be registered
+     */
+    public SliceStore(int nbNodes, int nbVMs, int nbDSlices, int nbCSlices) {
+        dSlices = new DemandingSlice[nbDSlices];
+        dHosters = new IntDomainVar[nbDSlices];
+        dStarts = new IntDomainVar[nbDSlices];
+        dCPUHeights = new int[nbDSlices];
+        dMemHeights = new int[nbDSlices];
+        associations = new int[nbDSlices];
+        Arrays.fill(associations, NO_ASSOCIATION);
+
+        cSlices = new ConsumingSlice[nbCSlices];
+        cHosters = new IntDomainVar[nbCSlices];
+        cEnds = new IntDomainVar[nbCSlices];
+        cCPUHeights = new int[nbCSlices];
+        cMemHeights = new int[nbCSlices];
+
+        exclusives = new IntDomainVar[nbNodes];
+        exclusiveSlices = new int[nbNodes];
+
+        vmSlices = new int[nbVMs];
+        Arrays.fill(vmSlices, NO_ASSOCIATION);
+    }
+
+    /**
+     * Register the slices of an action.
+     * If the action has both a demanding and a consuming slice, they are associated.
+     *
+     * @param a the action to register
+     * @return the index of the demanding slice of the action, {@link #NO_ASSOCIATION} if it does not have one
+     */
+    public int register(ActionModel a) {
+        DemandingSlice d = a.getDemandingSlice();
+        ConsumingSlice c = a.getConsumingSlice();
+        int dIdx = NO_ASSOCIATION;
+        if (d != null) {
+            dIdx = nbDSlices++;
+            dSlices[dIdx] = d;
+            dHosters[dIdx] = d.hoster();
+            dStarts[dIdx] = d.start();
+            dCPUHeights[dIdx] = d.getCPUheight();
+            dMemHeights[dIdx] = d.getMemoryheight();
+        }
+        if (c != null) {
+            int cIdx = nbCSlices++;
+            cSlices[cIdx] = c;
+            cHosters[cIdx] = c.hoster();
+            cEnds[cIdx] = c.end();
+            cCPUHeights[cIdx] = c.getCPUheight();
+            cMemHeights[cIdx] = c.getMemoryheight();
+            if (d != null) {
+                associations[dIdx] = cIdx;
+            }
+        }
+        return dIdx;
+    }
+
+    /**
+     * Indicate the demanding slice that may be exclusive on a node.
+     *
+     * @param node the index of the node
+     * @param dIdx the index of the demanding slice
+     */
+    public void setExclusive(int node, int dIdx) {
+        exclusives[node] = dSlices[dIdx].isExclusive();
+        exclusiveSlices[node] = dIdx;
+    }
+
+    /**
+     * Indicate the demanding slice of a virtual machine.
+     *
+     * @param vm   the index of the virtual machine
+     * @param dIdx the index of the demanding slice
+     */
+    public void setVirtualMachine(int vm, int dIdx) {
+        vmSlices[vm] = dIdx;
+    }
+
+    /**
+     * Get the hosting variable of the demanding slices of some virtual machines.
+     * The virtual machines without demanding slices are ignored.
+     *
+     * @param vms the index of the virtual machines. Negative index are ignored
+     * @return an array of variables, in the order of the virtual machines
+     */
+    public IntDomainVar[] getVirtualMachineHosters(int[] vms) {
+        int nb = 0;
+        for (int vm : vms) {
+            if (vm >= 0 && vmSlices[vm] != NO_ASSOCIATION) {
+                nb++;
+            }
+        }
+        IntDomainVar[] hs = new IntDomainVar[nb];
+        int i = 0;
+        for (int vm : vms) {
+            if (vm >= 0 && vmSlices[vm] != NO_ASSOCIATION) {
+                hs[i++] = dHosters[vmSlices[vm]];
+            }
+        }
+        return hs;
+    }
+
+    /**
+     * Get the index of the demanding slices sorted by decreasing heights.
+     * Slices with a same height stay in their order of registration.
+     *
+     * @param heights   the heights to sort, either {@link #getDemandingCPUHeights()} or {@link #getDemandingMemoryHeights()}
+     * @param withZeros {@code true} to keep the slices having a height equals to 0
+     * @return an array of index
+     */
+    public int[] sortByDecreasingHeights(int[] heights, boolean withZeros) {
+        //The height and the index are packed into a single long to sort primitives
+        long[] keys = new long[nbDSlices];
+        int nb = 0;
+        for (int i = 0; i < nbDSlices; i++) {
+            if (withZeros || heights[i] != 0) {
+                keys[nb++] = ((long) (Integer.MAX_VALUE - heights[i]) << 32) | i;
+            }
+        }
+        Arrays.sort(keys, 0, nb);
+        int[] idx = new int[nb];
+        for (int i = 0; i < nb; i++) {
+            idx[i] = (int) keys[i];
+        }
+        return idx;
+    }
+
+    /**
+     * Get the number of registered demanding slices.
+     *
+     * @return a positive integer
+     */
+    public int getNbDemandingSlices() {
+        return nbDSlices;
+    }
+
+    /**
+     * Get the number of registered consuming slices.
+     *
+     * @return a positive integer
+     */
+    public int getNbConsumingSlices() {
+        return nbCSlices;
+    }
+
+    /**
+     * Get the demanding slices.
+     *
+     * @return an array of slices
+     */
+    public DemandingSlice[] getDemandingSlices() {
+        return dSlices;
+    }
+
+    /**
+     * Get the hosting variable of each demanding slice.
+     *
+     * @return an array of variables
+     */
+    public IntDomainVar[] getDemandingHosters() {
+        return dHosters;
+    }
+
+    /**
+     * Get the moment each demanding slice starts.
+     *
+     * @return an array of variables
+     */
+    public IntDomainVar[] getDemandingStarts() {
+        return dStarts;
+    }
+
+    /**
+     * Get the CPU height of each demanding slice.
+     *
+     * @return an array of heights
+     */
+    public int[] getDemandingCPUHeights() {
+        return dCPUHeights;
+    }
+
+    /**
+     * Get the memory height of each demanding slice.
+     *
+     * @return an array of heights
+     */
+    public int[] getDemandingMemoryHeights() {
+        return dMemHeights;
+    }
+
+    /**
+     * Get the index of the consuming slice associated to each demanding slice.
+     *
+     * @return an array of index, {@link #NO_ASSOCIATION} for the demanding slices without associations
+     */
+    public int[] getAssociations() {
+        return associations;
+    }
+
+    /**
+     * Get the consuming slices.
+     *
+     * @return an array of slices
+     */
+    public ConsumingSlice[] getConsumingSlices() {
+        return cSlices;
+    }
+
+    /**
+     * Get the hosting variable of each consuming slice.
+     *
+     * @return an array of variables
+     */
+    public IntDomainVar[] getConsumingHosters() {
+        return cHosters;
+    }
+
+    /**
+     * Get the moment each consuming slice ends.
+     *
+     * @return an array of variables
+     */
+    public IntDomainVar[] getConsumingEnds() {
+        return cEnds;
+    }
+
+    /**
+     * Get the CPU height of each consuming slice.
+     *
+     * @return an array of heights
+     */
+    public int[] getConsumingCPUHeights() {
+        return cCPUHeights;
+    }
+
+    /**
+     * Get the memory height of each consuming slice.
+     *
+     * @return an array of heights
+     */
+    public int[] getConsumingMemoryHeights() {
+        return cMemHeights;
+    }
+
+    /**
+     * Get the exclusive flag of the demanding slice of each node.
+     *
+     * @return an array of variables, indexed by node. {@code null} for the nodes without such a slice
+     */
+    public IntDomainVar[] getExclusives() {
+        return exclusives;
+    }
+
+    /**
+     * Get the index of the demanding slice that may be exclusive on each node.
+     *
+     * @return an array of index, indexed by node
+     */
+    public int[] getExclusiveSlices() {
+        return exclusiveSlices;
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.plan.choco.constraint;
+
+import choco.cp.solver.variables.integer.IntVarEvent;
+import choco.kernel.common.util.iterators.DisposableIntIterator;
+import choco.kernel.common.util.tools.ArrayUtils;
+import choco.kernel.memory.IEnvironment;
+import choco.kernel.memory.IStateBitSet;
+import choco.kernel.memory.IStateBool;
+import choco.kernel.memory.IStateInt;
+import choco.kernel.solver.ContradictionException;
+import choco.kernel.solver.constraints.integer.AbstractLargeIntSConstraint;
+import choco.kernel.solver.variables.integer.IntDomainVar;
+
+/**
+ * A constraint to count the number of virtual machines hosted by each node.
+ * It is a lightweight alternative to a global cardinality constraint or to set variables
+ * as it only maintains two counters per node:
+ * the number of hosters instantiated to the node and the number of hosters that may be instantiated to the node.
+ * Rules:
+ * 1) for each node: nbRequired <= nbHosted <= nbRequired + nbCandidates
+ * 2) globally: the sum of the nbHosted variables is equal to the number of hosters
+ * 3) for each node: if nbRequired == nbHosted.sup then the node is removed from the candidate hosters
+ * 4) for each node: if nbRequired + nbCandidates == nbHosted.inf then the candidate hosters are instantiated to the node
+ * Rules 3 and 4 browse all the hosters but they are only applied once per node and per branch.
+ *
+ * @author Fabien Hermenier
+ */
+public class HostingCounter extends AbstractLargeIntSConstraint {
+
+    /**
+     * The solver environment.
+     */
+    private IEnvironment env;
+
+    /**
+     * The hoster of each virtual machine.
+     */
+    private final IntDomainVar[] hosters;
+
+    /**
+     * The number of virtual machines hosted by each node.
+     */
+    private final IntDomainVar[] cards;
+
+    /**
+     * The number of hosters instantiated to each node.
+     */
+    private IStateInt[] nbRequired;
+
+    /**
+     * The number of hosters instantiated to each node or that may be instantiated to it.
+     */
+    private IStateInt[] nbTotal;
+
+    /**
+     * The hosters that are already counted as instantiated.
+     */
+    private IStateBitSet assigned;
+
+    /**
+     * The sum of the cards LBs.
+     */
+    private IStateInt sumInf;
+
+    /**
+     * The sum of the cards UBs.
+     */
+    private IStateInt sumSup;
+
+    /**
+     * Has some card variable changed since the last propagation ?
+     */
+    private IStateBool cardsHaveChanged;
+
+    /**
+     * Make a new constraint.
+     *
+     * @param environment the solver environment
+     * @param hosters     the hoster of each virtual machine. The values denote a node index
+     * @param cards       the number of virtual machines hosted by each node
+     */
+    public HostingCounter(IEnvironment environment, IntDomainVar[] hosters, IntDomainVar[] cards) {
+        super(ArrayUtils.append(hosters, cards));
+        this.env = environment;
+        this.hosters = hosters;
+        this.cards = cards;
+        this.nbRequired = new IStateInt[cards.length];
+        this.nbTotal = new IStateInt[cards.length];
+    }
+
+    @Override
+    public int getFilteredEventMask(int idx) {
+        if (idx < hosters.length) {
+            return IntVarEvent.REMVAL_MASK;
+        }
+        return IntVarEvent.BOUNDS_MASK;
+    }
+
+    @Override
+    public boolean isSatisfied(int[] tuple) {
+        int[] nb = new int[cards.length];
+        for (int i = 0; i < hosters.length; i++) {
+            nb[tuple[i]]++;
+        }
+        for (int n = 0; n < cards.length; n++) {
+            if (tuple[hosters.length + n] != nb[n]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void awake() throws ContradictionException {
+        int[] req = new int[cards.length];
+        int[] tot = new int[cards.length];
+        assigned = env.makeBitSet(hosters.length);
+        for (int i = 0; i < hosters.length; i++) {
+            hosters[i].updateInf(0, this, false);
+            hosters[i].updateSup(cards.length - 1, this, false);
+            if (hosters[i].isInstantiated()) {
+                req[hosters[i].getVal()]++;
+                tot[hosters[i].getVal()]++;
+                assigned.set(i);
+            } else {
+                DisposableIntIterator ite = hosters[i].getDomain().getIterator();
+                try {
+                    while (ite.hasNext()) {
+                        tot[ite.next()]++;
+                    }
+                } finally {
+                    ite.dispose();
+                }
+            }
+        }
+        int sInf = 0;
+        int sSup = 0;
+        for (int n = 0; n < cards.length; n++) {
+            nbRequired[n] = env.makeInt(req[n]);
+            nbTotal[n] = env.makeInt(tot[n]);
+            cards[n].updateInf(req[n], this, false);
+            cards[n].updateSup(tot[n], this, false);
+            sInf += cards[n].getInf();
+            sSup += cards[n].getSup();
+        }
+        sumInf = env.makeInt(sInf);
+        sumSup = env.makeInt(sSup);
+        cardsHaveChanged = env.makeBool(false);
+        propagate();
+    }
+
+    @Override
+    public void propagate() throws ContradictionException {
+        recomputeSums();
+        boolean noFixPoint = true;
+        while (noFixPoint) {
+            if (hosters.length > sumSup.get() || hosters.length < sumInf.get()) {
+                fail();
+            }
+            noFixPoint = false;
+            for (int n = 0; n < cards.length; n++) {
+                noFixPoint |= filterInf(n, Math.max(nbRequired[n].get(), hosters.length - sumSup.get() + cards[n].getSup()));
+                noFixPoint |= filterSup(n, Math.min(nbTotal[n].get(), hosters.length - sumInf.get() + cards[n].getInf()));
+                if (nbRequired[n].get() != nbTotal[n].get()) {
+                    if (nbRequired[n].get() == cards[n].getSup()) {
+                        removeCandidates(n);
+                        noFixPoint = true;
+                    } else if (nbTotal[n].get() == cards[n].getInf()) {
+                        assignCandidates(n);
+                        noFixPoint = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * recompute the sum of the cards bounds only if at least one variable bound has been updated outside the constraint
+     */
+    private void recomputeSums() {
+        if (!cardsHaveChanged.get()) {
+            return;
+        }
+        cardsHaveChanged.set(false);
+        int sInf = 0;
+        int sSup = 0;
+        for (IntDomainVar c : cards) {
+            sInf += c.getInf();
+            sSup += c.getSup();
+        }
+        sumInf.set(sInf);
+        sumSup.set(sSup);
+    }
+
+    /**
+     * on cards variables: delay propagation
+     */
+    @Override
+    public void awakeOnInf(int varIdx) throws ContradictionException {
+        cardsHaveChanged.set(true);
+        this.constAwake(false);
+    }
+
+    /**
+     * on cards variables: delay propagation
+     */
+    @Override
+    public void awakeOnSup(int varIdx) throws ContradictionException {
+        cardsHaveChanged.set(true);
+        this.constAwake(false);
+    }
+
+    /**
+     * on hosters variables: update the counters of the removed nodes and of the
+     * hosting node once the hoster is instantiated.
+     *
+     * @throws ContradictionException on the cards variables
+     */
+    @Override
+    public void awakeOnRemovals(int idx, DisposableIntIterator deltaDomain) throws ContradictionException {
+        try {
+            while (deltaDomain.hasNext()) {
+                int n = deltaDomain.next();
+                if (n >= 0 && n < cards.length) {
+                    filterSup(n, nbTotal[n].add(-1));
+                }
+            }
+        } finally {
+            deltaDomain.dispose();
+        }
+        if (vars[idx].isInstantiated()) {
+            assign(idx);
+        }
+        this.constAwake(false);
+    }
+
+    /**
+     * count an instantiated hoster as required on its node.
+     *
+     * @param i the hoster index
+     * @throws ContradictionException on the card variable
+     */
+    private void assign(int i) throws ContradictionException {
+        if (!assigned.get(i)) {
+            assigned.set(i);
+            int n = hosters[i].getVal();
+            filterInf(n, nbRequired[n].add(1));
+        }
+    }
+
+    /**
+     * rule 3: remove a full node from its candidate hosters.
+     *
+     * @param n the node index
+     * @throws ContradictionException on the hosters and the cards variables
+     */
+    private void removeCandidates(int n) throws ContradictionException {
+        for (int i = 0; i < hosters.length; i++) {
+            if (!hosters[i].isInstantiated() && hosters[i].canBeInstantiatedTo(n)) {
+                nbTotal[n].add(-1);
+                hosters[i].removeVal(n, this, false);
+                if (hosters[i].isInstantiated()) {
+                    assign(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * rule 4: instantiate the candidate hosters of a node that requires all of them.
+     *
+     * @param n the node index
+     * @throws ContradictionException on the hosters and the cards variables
+     */
+    private void assignCandidates(int n) throws ContradictionException {
+        for (int i = 0; i < hosters.length; i++) {
+            if (!hosters[i].isInstantiated() && hosters[i].canBeInstantiatedTo(n)) {
+                DisposableIntIterator ite = hosters[i].getDomain().getIterator();
+                try {
+                    while (ite.hasNext()) {
+                        int v = ite.next();
+                        if (v != n) {
+                            filterSup(v, nbTotal[v].add(-1));
+                        }
+                    }
+                } finally {
+                    ite.dispose();
+                }
+                hosters[i].instantiate(n, this, false);
+                assign(i);
+            }
+        }
+    }
+
+    /**
+     * increase the LB of a card and the sum of the cards LBs
+     *
+     * @param n      node index
+     * @param newInf new LB of the card
+     * @return {@code true} if LB is increased.
+     * @throws ContradictionException on the card variable
+     */
+    private boolean filterInf(int n, int newInf) throws ContradictionException {
+        int inc = newInf - cards[n].getInf();
+        if (inc > 0) {
+            cards[n].updateInf(newInf, this, false);
+            if (sumInf.add(inc) > hosters.length) {
+                fail();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * decrease the UB of a card and the sum of the cards UBs
+     *
+     * @param n      node index
+     * @param newSup new UB of the card
+     * @return {@code true} if UB is decreased.
+     * @throws ContradictionException on the card variable
+     */
+    private boolean filterSup(int n, int newSup) throws ContradictionException {
+        int dec = newSup - cards[n].getSup();
+        if (dec < 0) {
+            cards[n].updateSup(newSup, this, false);
+            if (sumSup.add(dec) < hosters.length) {
+                fail();
+            }
+            return true;
+        }
+        return false;
+    }
+}
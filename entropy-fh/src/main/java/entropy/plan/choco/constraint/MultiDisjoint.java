@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.plan.choco.constraint;
+
+import choco.cp.solver.variables.integer.IntVarEvent;
+import choco.kernel.common.util.iterators.DisposableIntIterator;
+import choco.kernel.memory.IEnvironment;
+import choco.kernel.memory.IStateInt;
+import choco.kernel.solver.ContradictionException;
+import choco.kernel.solver.constraints.integer.AbstractLargeIntSConstraint;
+import choco.kernel.solver.variables.integer.IntDomainVar;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Enforces variables of different colors to have different values.
+ * Each variable has a color, initially the same for all of them. Calls to {@link #isolate(int[])}
+ * refine the colors so two variables share a color iff they belong to the same isolated groups.
+ * Several disjoint constraints are then handled by a single propagator.
+ * <p/>
+ * Once a variable is instantiated, its value is owned by its color and removed from the domain
+ * of the variables of the other colors. Stored counters of candidate variables per color and per value
+ * allow to stop browsing the variables of a color as soon as all its candidates for a value have been removed.
+ * Each value is owned at most once per branch.
+ *
+ * @author Fabien Hermenier
+ */
+public class MultiDisjoint extends AbstractLargeIntSConstraint {
+
+    /**
+     * The solver environment.
+     */
+    private IEnvironment env;
+
+    /**
+     * The variable domains must be included in [0, nbValues-1].
+     */
+    private final int nbValues;
+
+    /**
+     * The color of each variable.
+     */
+    private final int[] colors;
+
+    /**
+     * The number of colors.
+     */
+    private int nbColors = 1;
+
+    /**
+     * The variable indexes, sorted by color.
+     */
+    private int[] byColor;
+
+    /**
+     * The position of the first variable of each color in {@code byColor}, plus the number of variables.
+     */
+    private int[] firsts;
+
+    /**
+     * candidates[color][value] = number of non-instantiated variables of the color that can be assigned to value.
+     */
+    private IStateInt[][] candidates;
+
+    /**
+     * The color that owns each value, {@code -1} if the value is not owned.
+     */
+    private IStateInt[] owners;
+
+    /**
+     * Make a new constraint. All the variables have the same color.
+     *
+     * @param environment the solver environment
+     * @param vs          the variables
+     * @param nbValues    max variable value + 1
+     */
+    public MultiDisjoint(IEnvironment environment, IntDomainVar[] vs, int nbValues) {
+        super(vs);
+        this.env = environment;
+        this.nbValues = nbValues;
+        this.colors = new int[vs.length];
+    }
+
+    /**
+     * Isolate a group of variables: they will not share any value with the other variables.
+     * Must be called before the constraint is awaken.
+     *
+     * @param idxs the index of the variables in the group
+     */
+    public void isolate(int[] idxs) {
+        if (candidates != null) {
+            throw new IllegalStateException("The constraint is already awaken");
+        }
+        Map<Integer, Integer> refined = new HashMap<Integer, Integer>();
+        for (int i : idxs) {
+            Integer c = refined.get(colors[i]);
+            if (c == null) {
+                c = nbColors++;
+                refined.put(colors[i], c);
+            }
+            colors[i] = c;
+        }
+    }
+
+    /**
+     * Get the color of a variable.
+     *
+     * @param idx the variable index
+     * @return the color
+     */
+    public int getColor(int idx) {
+        return colors[idx];
+    }
+
+    /**
+     * Get the number of colors.
+     *
+     * @return a positive number. Some colors may have no variables
+     */
+    public int getNbColors() {
+        return nbColors;
+    }
+
+    @Override
+    public int getFilteredEventMask(int idx) {
+        return IntVarEvent.REMVAL_MASK + IntVarEvent.INSTINT_MASK;
+    }
+
+    @Override
+    public void awake() throws ContradictionException {
+        firsts = new int[nbColors + 1];
+        for (int c : colors) {
+            firsts[c + 1]++;
+        }
+        for (int c = 0; c < nbColors; c++) {
+            firsts[c + 1] += firsts[c];
+        }
+        byColor = new int[vars.length];
+        int[] next = firsts.clone();
+        for (int i = 0; i < vars.length; i++) {
+            byColor[next[colors[i]]++] = i;
+        }
+
+        int[][] cands = new int[nbColors][nbValues];
+        for (int i = 0; i < vars.length; i++) {
+            vars[i].updateInf(0, this, false);
+            vars[i].updateSup(nbValues - 1, this, false);
+            if (!vars[i].isInstantiated()) {
+                DisposableIntIterator it = vars[i].getDomain().getIterator();
+                try {
+                    while (it.hasNext()) {
+                        cands[colors[i]][it.next()]++;
+                    }
+                } finally {
+                    it.dispose();
+                }
+            }
+        }
+        candidates = new IStateInt[nbColors][nbValues];
+        for (int c = 0; c < nbColors; c++) {
+            for (int v = 0; v < nbValues; v++) {
+                candidates[c][v] = env.makeInt(cands[c][v]);
+            }
+        }
+        owners = new IStateInt[nbValues];
+        for (int v = 0; v < nbValues; v++) {
+            owners[v] = env.makeInt(-1);
+        }
+        propagate();
+    }
+
+    @Override
+    public void propagate() throws ContradictionException {
+        for (int i = 0; i < vars.length; i++) {
+            if (vars[i].isInstantiated()) {
+                own(vars[i].getVal(), colors[i]);
+            }
+        }
+    }
+
+    /**
+     * A variable of a color is instantiated to a value:
+     * 1) fail if the value is owned by another color
+     * 2) remove the value from the domain of the variables of the other colors
+     *
+     * @param val   the value
+     * @param color the color of the instantiated variable
+     * @throws ContradictionException if the value is already owned by another color
+     */
+    private void own(int val, int color) throws ContradictionException {
+        int o = owners[val].get();
+        if (o == color) {
+            return;
+        } else if (o >= 0) {
+            fail();
+        }
+        owners[val].set(color);
+        for (int c = 0; c < nbColors; c++) {
+            if (c != color) {
+                for (int x = firsts[c]; x < firsts[c + 1] && candidates[c][val].get() > 0; x++) {
+                    IntDomainVar v = vars[byColor[x]];
+                    if (!v.isInstantiated() && v.canBeInstantiatedTo(val)) {
+                        candidates[c][val].add(-1);
+                        v.removeVal(val, this, false);
+                        if (v.isInstantiated()) {
+                            own(v.getVal(), c);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void awakeOnInst(int idx) throws ContradictionException {
+        own(vars[idx].getVal(), colors[idx]);
+    }
+
+    @Override
+    public void awakeOnRemovals(int idx, DisposableIntIterator deltaDomain) throws ContradictionException {
+        try {
+            while (deltaDomain.hasNext()) {
+                int v = deltaDomain.next();
+                if (v >= 0 && v < nbValues) {
+                    candidates[colors[idx]][v].add(-1);
+                }
+            }
+        } finally {
+            deltaDomain.dispose();
+        }
+    }
+
+    @Override
+    public boolean isSatisfied(int[] tuple) {
+        int[] owned = new int[nbValues];
+        for (int i = 0; i < tuple.length; i++) {
+            int c = colors[i] + 1;
+            if (owned[tuple[i]] == 0) {
+                owned[tuple[i]] = c;
+            } else if (owned[tuple[i]] != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.plan.choco.constraint;
+
+import choco.kernel.solver.variables.integer.IntDomainVar;
+import entropy.configuration.Configuration;
+import entropy.configuration.ManagedElementSet;
+import entropy.configuration.Node;
+import entropy.configuration.VirtualMachine;
+import entropy.plan.Plan;
+import entropy.plan.choco.ReconfigurationProblem;
+
+/**
+ * A global constraint to break the symmetries of a reconfiguration problem.
+ * Inside a class of equivalent nodes, the memory usage of the nodes is decreasing
+ * with their index. Inside a class of equivalent virtual machines, the index of
+ * the hosting node is increasing with the index of the virtual machines.
+ * Any solution of the problem can be turned into a solution satisfying this constraint
+ * by exchanging equivalent elements, so no solution is lost, but the search no longer
+ * explores the permutations of equivalent elements after a failure.
+ *
+ * @author Fabien Hermenier
+ */
+public class SymmetryBreaking implements GlobalConstraint {
+
+    @Override
+    public void add(ReconfigurationProblem rp) {
+        int nbCstrs = 0;
+
+        Node[] ns = rp.getNodes();
+        int[] nClasses = rp.getNodeEquivalenceClasses();
+        int[] last = new int[ns.length];
+        for (int i = 0; i < ns.length; i++) {
+            int c = nClasses[i];
+            if (c != i) {
+                rp.post(rp.geq(rp.getUsedMem(ns[last[c]]), rp.getUsedMem(ns[i])));
+                nbCstrs++;
+            }
+            last[c] = i;
+        }
+
+        VirtualMachine[] vms = rp.getVirtualMachines();
+        int[] vClasses = rp.getVirtualMachineEquivalenceClasses();
+        last = new int[vms.length];
+        for (int i = 0; i < vms.length; i++) {
+            int c = vClasses[i];
+            if (c != i) {
+                IntDomainVar prev = rp.getAssociatedVirtualMachineAction(last[c]).getDemandingSlice().hoster();
+                IntDomainVar cur = rp.getAssociatedVirtualMachineAction(i).getDemandingSlice().hoster();
+                rp.post(rp.leq(prev, cur));
+                nbCstrs++;
+            }
+            last[c] = i;
+        }
+        Plan.logger.debug("SymmetryBreaking branched: " + nbCstrs + " constraints");
+    }
+
+    @Override
+    public boolean isSatisfied(Configuration cfg) {
+        return true;
+    }
+
+    @Override
+    public ManagedElementSet<VirtualMachine> getAllVirtualMachines() {
+        return null;
+    }
+
+    @Override
+    public ManagedElementSet<VirtualMachine> getMisPlaced(Configuration cfg) {
+        return null;
+    }
+}
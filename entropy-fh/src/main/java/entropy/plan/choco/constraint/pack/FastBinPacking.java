@@ -144,6 +144,36 @@ public class FastBinPacking extends AbstractLargeIntSConstraint implements Custo
      */
     private IStateBitSet bigRequired;
 
+    /**
+     * Reasoning on the loads once the fast fix point is reached:
+     * 1) no additional reasoning, or 2) the Martello and Toth L2 lower bound on the number of bins
+     * required for the unpacked items and the adjustment of each bin load to a reachable sum of candidate sizes
+     */
+    public enum LoadReasoningPolicy {
+        FAST, KNAPSACK
+    }
+
+    /**
+     * Load reasoning default policy (no additional reasoning).
+     */
+    public static final LoadReasoningPolicy DEFAULT_LOAD_REASONING_POLICY = LoadReasoningPolicy.FAST;
+
+    /**
+     * The maximum number of words to process when computing the reachable loads of a bin.
+     * Beyond that limit, the bin is ignored by the knapsack reasoning.
+     */
+    public static final int MAX_REACHABILITY_WORK = 1 << 16;
+
+    /**
+     * Load reasoning policy.
+     */
+    private LoadReasoningPolicy loadReasoningPolicy = DEFAULT_LOAD_REASONING_POLICY;
+
+    /**
+     * Buffer for the sizes of the unpacked items.
+     */
+    private int[] unpackedSizes;
+
     /**
      * constructor of the FastBinPacking global constraint
      *
@@ -190,6 +220,20 @@ public class FastBinPacking extends AbstractLargeIntSConstraint implements Custo
         this(environment, loads, sizes, bins, DEFAULT_BIG_ITEMS_POLICY);
     }
 
+    /**
+     * constructor of the FastBinPacking global constraint without the "big items" optimization
+     *
+     * @param environment the solver environment
+     * @param loads       array of nbBins variables, each figuring the total size of the items assigned to it, usually initialized to [0, capacity]
+     * @param sizes       array of nbItems CONSTANTS in DECREASING order, each figuring the size of i-th biggest item
+     * @param bins        array of nbItems variables, each figuring the possible bins an item can be assigned to, usually initialized to [0, nbBins-1]
+     * @param loadFlag    {@code FAST, KNAPSACK} the reasoning on the loads once the fast fix point is reached
+     */
+    public FastBinPacking(IEnvironment environment, IntDomainVar[] loads, IntDomainVar[] sizes, IntDomainVar[] bins, LoadReasoningPolicy loadFlag) {
+        this(environment, loads, sizes, bins, DEFAULT_BIG_ITEMS_POLICY);
+        this.loadReasoningPolicy = loadFlag;
+    }
+
     public boolean checkArgs(IntDomainVar[] loads, IntDomainVar[] sizes, IntDomainVar[] bins) {
         //if (!bins[0].hasEnumeratedDomain()) return false;
         for (int i = 1; i < sizes.length; i++) {
@@ -253,6 +297,24 @@ public class FastBinPacking extends AbstractLargeIntSConstraint implements Custo
         this.bigItemsPolicy = bigItemsPolicy;
     }
 
+    /**
+     * get the load reasoning policy
+     *
+     * @return current policy
+     */
+    public LoadReasoningPolicy getLoadReasoningPolicy() {
+        return loadReasoningPolicy;
+    }
+
+    /**
+     * set the load reasoning policy. Must be called before the propagation starts
+     *
+     * @param p wanted policy
+     */
+    public void setLoadReasoningPolicy(LoadReasoningPolicy p) {
+        this.loadReasoningPolicy = p;
+    }
+
     /**
      * print the list of candidate items for a given bin
      *
@@ -372,6 +434,9 @@ public class FastBinPacking extends AbstractLargeIntSConstraint implements Custo
      * with "big items" optimization, the last rule is not valid for big items but can be replaced by:
      * rule 2.3: if smallItemSizes < binLoadInf then remove big candidates with size < binLoadInf-smallItemSizes
      * and update binLoadInf as binRequiredLoad + the size of the smallest big remaining candidate
+     * with the {@code KNAPSACK} load reasoning, once the fix point is reached:
+     * rule 3.0: if the L2 bound of the unpacked items exceeds the number of bins that can host one of them then fail
+     * rule 3.1, for each bin: binLoadInf and binLoadSup are adjusted to sums of candidate sizes
      */
     public void propagate() throws ContradictionException {
         recomputeLoadSums();
@@ -387,6 +452,9 @@ public class FastBinPacking extends AbstractLargeIntSConstraint implements Custo
                 //if (bigItemsPolicy == BigItemsPolicy.DYNAMIC) noFixPoint |= bigItemsKnapsackAdditionalFiltering(b);
                 noFixPoint |= propagateKnapsack(b);
             }
+            if (!noFixPoint && loadReasoningPolicy == LoadReasoningPolicy.KNAPSACK) {
+                noFixPoint = propagateLoadReasoning();
+            }
         }
         assert checkLoadConsistency() && checkCandidatesConsistency();
     }
@@ -676,6 +744,99 @@ public class FastBinPacking extends AbstractLargeIntSConstraint implements Custo
         return ret;
     }
 
+    /**
+     * the knapsack reasoning on the loads: check the L2 bound then adjust
+     * the load of each available bin to a reachable sum.
+     *
+     * @return {@code true} if at least one load bound has changed
+     * @throws ContradictionException if the items can not be packed
+     */
+    private boolean propagateLoadReasoning() throws ContradictionException {
+        checkL2Bound();
+        boolean ret = false;
+        for (int b = availableBins.nextSetBit(0); b >= 0; b = availableBins.nextSetBit(b + 1)) {
+            ret |= filterReachableLoads(b);
+        }
+        return ret;
+    }
+
+    /**
+     * rule 3.0: the unpacked items must fit into the bins that can host at least one of them.
+     * Each of these bins is relaxed to the biggest remaining space.
+     *
+     * @throws ContradictionException if the L2 bound exceeds the number of usable bins
+     */
+    private void checkL2Bound() throws ContradictionException {
+        if (unpackedSizes == null) {
+            unpackedSizes = new int[bins.length];
+        }
+        int nb = 0;
+        for (int i = 0; i < bins.length; i++) {
+            if (!bins[i].isInstantiated()) {
+                unpackedSizes[nb++] = iSizes[i];
+            }
+        }
+        if (nb == 0) {
+            return;
+        }
+        int smallest = unpackedSizes[nb - 1];
+        int capa = 0;
+        int nbUsable = 0;
+        for (int b = availableBins.nextSetBit(0); b >= 0; b = availableBins.nextSetBit(b + 1)) {
+            int free = getRemainingSpace(b);
+            if (free >= smallest) {
+                nbUsable++;
+                capa = Math.max(capa, free);
+            }
+        }
+        if (nbUsable == 0 || PackingBounds.lowerBoundL2(unpackedSizes, nb, capa) > nbUsable) {
+            fail();
+        }
+    }
+
+    /**
+     * rule 3.1: the load of a bin is the required load plus a sum of candidate sizes.
+     * The reachable sums are computed using a bitset, after a division of the sizes by their gcd.
+     * Bins with a too large space of sums are ignored.
+     *
+     * @param bin bin index
+     * @return {@code true} if a load bound has changed
+     * @throws ContradictionException if no sum is reachable within the load bounds
+     */
+    private boolean filterReachableLoads(int bin) throws ContradictionException {
+        int req = bRLoads[bin].get();
+        int lb = loads[bin].getInf() - req;
+        int ub = loads[bin].getSup() - req;
+        if (ub <= 0) {
+            return false;
+        }
+        int g = 0;
+        int nb = 0;
+        for (int item = candidates[bin].nextSetBit(0); item >= 0; item = candidates[bin].nextSetBit(item + 1)) {
+            g = PackingBounds.gcd(iSizes[item], g);
+            nb++;
+        }
+        if (g == 0) {
+            return false;
+        }
+        int max = ub / g;
+        if ((long) ((max >> 6) + 1) * nb > MAX_REACHABILITY_WORK) {
+            return false;
+        }
+        long[] reachable = PackingBounds.newReachableSums(max);
+        for (int item = candidates[bin].nextSetBit(0); item >= 0; item = candidates[bin].nextSetBit(item + 1)) {
+            PackingBounds.addItem(reachable, iSizes[item] / g, max);
+        }
+        int first = PackingBounds.nextReachable(reachable, lb <= 0 ? 0 : (lb + g - 1) / g);
+        if (first < 0) {
+            fail();
+        }
+        int last = PackingBounds.previousReachable(reachable, max);
+        boolean ret = filterLoadInf(bin, req + first * g);
+        ret |= filterLoadSup(bin, req + last * g);
+        return ret;
+    }
+
     //****************************************************************//
     //********* Checkers *********************************************//
     //****************************************************************//
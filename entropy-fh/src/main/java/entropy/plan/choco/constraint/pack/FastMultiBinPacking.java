@@ -15,6 +15,7 @@ import choco.kernel.solver.ContradictionException;
 import choco.kernel.solver.constraints.integer.AbstractLargeIntSConstraint;
 import choco.kernel.solver.variables.integer.IntDomainVar;
 
+import java.util.Arrays;
 import java.util.BitSet;
 
 /**
@@ -85,6 +86,21 @@ public class FastMultiBinPacking extends AbstractLargeIntSConstraint implements
      */
     private final int nbBins;
 
+    /**
+     * Buffer for the indexes of the unpacked items.
+     */
+    private int[] unpacked;
+
+    /**
+     * Buffer for the sizes of the unpacked items on one dimension.
+     */
+    private int[] unpackedSizes;
+
+    /**
+     * Buffer for the biggest remaining space among the available bins on each dimension.
+     */
+    private int[] maxRemainingSpaces;
+
     /**
      * constructor of the FastBinPacking global constraint
      *
@@ -233,6 +249,7 @@ public class FastMultiBinPacking extends AbstractLargeIntSConstraint implements
      * rule 3, for each bin: binRequiredLoad <= binLoad <= binTotalLoad
      * rule 4, for each bin and candidate item: if binRequiredLoad + itemSize > binLoadSup then remove item from bin
      * rule 5, for each bin and candidate item: if binTotalLoad - itemSize < binLoadInf then pack item into bin
+     * rule 6, once the fix point is reached: if the unpacked items require more bins than the available ones then fail
      */
     public void propagate() throws ContradictionException {
         //ChocoLogging.getSearchLogger().finest("propagate " + pretty());
@@ -240,7 +257,7 @@ public class FastMultiBinPacking extends AbstractLargeIntSConstraint implements
         while (noFixPoint) {
             noFixPoint = false;
             for (int d = 0; d < nbDims; d++) {
-                if (sumISizes[d] > sumLoadSup[d].get()) {
+                if (sumISizes[d] > sumLoadSup[d].get() || sumISizes[d] < sumLoadInf[d].get()) {
                     fail();
                 }
             }
@@ -252,9 +269,56 @@ public class FastMultiBinPacking extends AbstractLargeIntSConstraint implements
                 noFixPoint |= propagateMultiKnapsack(b);
             }
         }
+        checkBinsLowerBound();
         assert checkLoadConsistency() && checkCandidatesConsistency();
     }
 
+    /**
+     * rule 6: compare a lower bound of the number of bins required to pack the unpacked items
+     * to the number of available bins. Each available bin is relaxed to the biggest remaining space
+     * on each dimension. The bound is the maximum of the L2 bound on each dimension and of the size
+     * of a clique of items that can not share a bin.
+     *
+     * @throws ContradictionException if the bound exceeds the number of available bins
+     */
+    private void checkBinsLowerBound() throws ContradictionException {
+        if (unpacked == null) {
+            unpacked = new int[bins.length];
+            unpackedSizes = new int[bins.length];
+            maxRemainingSpaces = new int[nbDims];
+        }
+        int nb = 0;
+        for (int i = 0; i < bins.length; i++) {
+            if (!bins[i].isInstantiated()) {
+                unpacked[nb++] = i;
+            }
+        }
+        if (nb == 0) {
+            return;
+        }
+        int nbAvailables = 0;
+        int[] capa = maxRemainingSpaces;
+        Arrays.fill(capa, 0);
+        for (int b = availableBins.nextSetBit(0); b >= 0; b = availableBins.nextSetBit(b + 1)) {
+            nbAvailables++;
+            for (int d = 0; d < nbDims; d++) {
+                capa[d] = Math.max(capa[d], getRemainingSpace(d, b));
+            }
+        }
+        for (int d = 0; d < nbDims; d++) {
+            for (int k = 0; k < nb; k++) {
+                unpackedSizes[k] = iSizes[d][unpacked[k]];
+            }
+            PackingBounds.sortDecreasing(unpackedSizes, nb);
+            if (PackingBounds.lowerBoundL2(unpackedSizes, nb, capa[d]) > nbAvailables) {
+                fail();
+            }
+        }
+        if (PackingBounds.conflictCliqueBound(iSizes, unpacked, nb, capa, nbAvailables) > nbAvailables) {
+            fail();
+        }
+    }
+
     @Override
     /**
      * delayed propagation of the bound updates of a bin load variable
@@ -418,6 +482,7 @@ public class FastMultiBinPacking extends AbstractLargeIntSConstraint implements
      * 1) remove the candidate items bigger than the remaining free space (when binRequiredLoad + itemSize > binLoadSup)
      * 2) pack the candidate items necessary to reach the load LB (when binTotalLoad - itemSize < binLoadInf).
      * the loads are also filtered within this constraint (rather in the propagate loop) because considered bins are eventually became unavailable
+     * the items are only sorted on the first dimension so every candidate is checked
      *
      * @param bin bin index
      * @return {@code true} if at least one item is removed or packed.
@@ -426,8 +491,8 @@ public class FastMultiBinPacking extends AbstractLargeIntSConstraint implements
     private boolean propagateMultiKnapsack(int bin) throws ContradictionException {
         int d;
         int item;
-        boolean ret = false, up = true;
-        for (item = candidates[bin].nextSetBit(0); item >= 0 && up; item = candidates[bin].nextSetBit(item + 1)) {
+        boolean ret = false, up;
+        for (item = candidates[bin].nextSetBit(0); item >= 0; item = candidates[bin].nextSetBit(item + 1)) {
             up = false;
             for (d = 0; d < nbDims && (iSizes[d][item] + bRLoads[d][bin].get() <= loads[d][bin].getSup()); d++) ;
             if (d < nbDims && updateRemoveItemFromBin(item, bin)) {
@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ *        This file is part of Entropy.
+ *
+ *        Entropy is free software: you can redistribute it and/or modify
+ *        it under the terms of the GNU Lesser General Public License as published by
+ *        the Free Software Foundation, either version 3 of the License, or
+ *        (at your option) any later version.
+ *
+ *        Entropy is distributed in the hope that it will be useful,
+ *        but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *        MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *        GNU Lesser General Public License for more details.
+ *
+ *        You should have received a copy of the GNU Lesser General Public License
+ *        along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.plan.choco.constraint.pack;
+
+import java.util.Arrays;
+
+/**
+ * Bounds and reachability tools for the bin packing propagators.
+ * All the computations are made on sizes sorted in decreasing order.
+ *
+ * @author Fabien Hermenier
+ */
+public final class PackingBounds {
+
+    /**
+     * Utility class, no instantiation.
+     */
+    private PackingBounds() {
+    }
+
+    /**
+     * Compute the Martello and Toth L2 lower bound on the number of bins
+     * required to pack a list of items.
+     *
+     * @param sizes the sizes of the items, in decreasing order
+     * @param nb    the number of items to consider, from the beginning of {@code sizes}
+     * @param capa  the capacity of a bin
+     * @return the lower bound or {@code Integer.MAX_VALUE} if an item is bigger than a bin
+     */
+    public static int lowerBoundL2(int[] sizes, int nb, int capa) {
+        if (nb == 0) {
+            return 0;
+        }
+        if (sizes[0] > capa) {
+            return Integer.MAX_VALUE;
+        }
+        long[] prefix = new long[nb + 1];
+        for (int i = 0; i < nb; i++) {
+            prefix[i + 1] = prefix[i] + sizes[i];
+        }
+        //Items strictly bigger than half a bin can not share a bin
+        int nbHalf = countGreater(sizes, nb, capa / 2);
+        long best = 0;
+        int prev = -1;
+        //The threshold K takes 0 and every distinct size that is not bigger than half a bin
+        for (int i = nb; i >= nbHalf; i--) {
+            int k = i == nb ? 0 : sizes[i];
+            if (k == prev) {
+                continue;
+            }
+            prev = k;
+            int n1 = countGreater(sizes, nb, capa - k);
+            int n123 = countGreater(sizes, nb, k - 1);
+            long n2 = nbHalf - n1;
+            long freeInN2 = n2 * capa - (prefix[nbHalf] - prefix[n1]);
+            long sumN3 = prefix[n123] - prefix[nbHalf];
+            long l = n1 + n2 + Math.max(0, ceilDiv(sumN3 - freeInN2, capa));
+            if (l > best) {
+                best = l;
+            }
+        }
+        return best > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) best;
+    }
+
+    /**
+     * Count the items strictly bigger than a value.
+     *
+     * @param sizes the sizes, in decreasing order
+     * @param nb    the number of items to consider
+     * @param v     the value
+     * @return the number of items
+     */
+    public static int countGreater(int[] sizes, int nb, int v) {
+        int lo = 0;
+        int hi = nb;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sizes[mid] > v) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return a <= 0 ? 0 : (a + b - 1) / b;
+    }
+
+    /**
+     * Make an empty set of reachable sums where only 0 is reachable.
+     *
+     * @param max the maximum sum to consider
+     * @return the set of reachable sums
+     */
+    public static long[] newReachableSums(int max) {
+        long[] bits = new long[(max >> 6) + 1];
+        bits[0] = 1L;
+        return bits;
+    }
+
+    /**
+     * Add an item to a set of reachable sums: every sum {@code s}
+     * makes {@code s + size} reachable if it does not exceed {@code max}.
+     *
+     * @param bits the set of reachable sums
+     * @param size the size of the item
+     * @param max  the maximum sum to consider
+     */
+    public static void addItem(long[] bits, int size, int max) {
+        if (size > max || size <= 0) {
+            return;
+        }
+        int words = size >>> 6;
+        int offset = size & 63;
+        //From the last word to the first one to read the original values only
+        for (int i = bits.length - 1; i >= words; i--) {
+            long v = bits[i - words] << offset;
+            if (offset != 0 && i - words > 0) {
+                v |= bits[i - words - 1] >>> (64 - offset);
+            }
+            bits[i] |= v;
+        }
+        int last = max & 63;
+        if (last != 63) {
+            bits[bits.length - 1] &= (1L << (last + 1)) - 1;
+        }
+    }
+
+    /**
+     * Get the smallest reachable sum greater or equal to a value.
+     *
+     * @param bits the set of reachable sums
+     * @param from the value
+     * @return the sum or {@code -1} if there is no such sum
+     */
+    public static int nextReachable(long[] bits, int from) {
+        int w = from >> 6;
+        if (w >= bits.length) {
+            return -1;
+        }
+        long word = bits[w] & (-1L << (from & 63));
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == bits.length) {
+                return -1;
+            }
+            word = bits[w];
+        }
+    }
+
+    /**
+     * Get the biggest reachable sum lower or equal to a value.
+     *
+     * @param bits the set of reachable sums
+     * @param from the value
+     * @return the sum or {@code -1} if there is no such sum
+     */
+    public static int previousReachable(long[] bits, int from) {
+        if (from < 0) {
+            return -1;
+        }
+        int w = from >> 6;
+        if (w >= bits.length) {
+            w = bits.length - 1;
+            from = (w << 6) + 63;
+        }
+        long word = bits[w] & (-1L >>> (63 - (from & 63)));
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + 63 - Long.numberOfLeadingZeros(word);
+            }
+            if (--w < 0) {
+                return -1;
+            }
+            word = bits[w];
+        }
+    }
+
+    /**
+     * Sort the beginning of an array in decreasing order.
+     *
+     * @param values the values to sort
+     * @param nb     the number of values to consider, from the beginning of the array
+     */
+    public static void sortDecreasing(int[] values, int nb) {
+        Arrays.sort(values, 0, nb);
+        for (int i = 0, j = nb - 1; i < j; i++, j--) {
+            int t = values[i];
+            values[i] = values[j];
+            values[j] = t;
+        }
+    }
+
+    /**
+     * Compute a lower bound on the number of bins required to pack a list of multi-dimensional items
+     * using a clique of items that pairwise overflow a bin on at least one dimension.
+     * The clique is computed greedily, with the items sorted by decreasing maximum ratio
+     * between their size and the capacity of a bin. As two items that are not bigger than
+     * half a bin on every dimension can share a bin, at most one of them is in the clique.
+     *
+     * @param sizes the size of each item on each dimension [DxI]
+     * @param items the indexes of the items to consider
+     * @param nb    the number of items to consider, from the beginning of {@code items}
+     * @param capa  the capacity of a bin on each dimension [D]
+     * @param limit the clique computation stops once its size exceeds this limit
+     * @return the size of the clique
+     */
+    public static int conflictCliqueBound(int[][] sizes, int[] items, int nb, int[] capa, int limit) {
+        long[] bigs = new long[nb];
+        int nbBigs = 0;
+        for (int k = 0; k < nb; k++) {
+            int i = items[k];
+            double ratio = 0;
+            boolean big = false;
+            for (int d = 0; d < capa.length; d++) {
+                if (capa[d] > 0) {
+                    ratio = Math.max(ratio, (double) sizes[d][i] / capa[d]);
+                }
+                big |= 2L * sizes[d][i] > capa[d];
+            }
+            if (big) {
+                //The ratio is in the high bits so the keys are sorted by ratio
+                bigs[nbBigs++] = ((long) (Math.min(ratio, 1) * (1 << 30)) << 32) | k;
+            }
+        }
+        Arrays.sort(bigs, 0, nbBigs);
+        int[] clique = new int[Math.min(nb, limit + 1)];
+        int size = 0;
+        for (int x = nbBigs - 1; x >= 0 && size <= limit; x--) {
+            int i = items[(int) bigs[x]];
+            if (conflictsWithAll(sizes, i, clique, size, capa)) {
+                clique[size++] = i;
+            }
+        }
+        if (size <= limit) {
+            for (int k = 0; k < nb; k++) {
+                int i = items[k];
+                if (!isBig(sizes, i, capa) && conflictsWithAll(sizes, i, clique, size, capa)) {
+                    return size + 1;
+                }
+            }
+        }
+        return size;
+    }
+
+    private static boolean isBig(int[][] sizes, int i, int[] capa) {
+        for (int d = 0; d < capa.length; d++) {
+            if (2L * sizes[d][i] > capa[d]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean conflictsWithAll(int[][] sizes, int i, int[] clique, int size, int[] capa) {
+        for (int c = 0; c < size; c++) {
+            int j = clique[c];
+            boolean conflict = false;
+            for (int d = 0; d < capa.length && !conflict; d++) {
+                conflict = (long) sizes[d][i] + sizes[d][j] > capa[d];
+            }
+            if (!conflict) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Greatest common divisor.
+     *
+     * @param a a positive value
+     * @param b a positive value
+     * @return the greatest common divisor, {@code a} if {@code b} equals 0
+     */
+    public static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
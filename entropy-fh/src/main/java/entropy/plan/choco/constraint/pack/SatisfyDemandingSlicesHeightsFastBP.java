@@ -27,12 +27,7 @@ import entropy.configuration.Node;
 import entropy.configuration.VirtualMachine;
 import entropy.plan.Plan;
 import entropy.plan.choco.ReconfigurationProblem;
-import entropy.plan.choco.actionModel.slice.DemandingSlice;
-import entropy.plan.choco.actionModel.slice.SliceComparator;
-
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import entropy.plan.choco.actionModel.slice.SliceStore;
 
 /**
  * A constraint to assign a host with a sufficient amount of resources to satisfy
@@ -47,49 +42,62 @@ public class SatisfyDemandingSlicesHeightsFastBP implements SatisfyDemandingSlic
 
     private FastBinPacking mPack;
 
+    private FastBinPacking.LoadReasoningPolicy loadReasoning;
+
     public SatisfyDemandingSlicesHeightsFastBP() {
+        this(FastBinPacking.DEFAULT_LOAD_REASONING_POLICY);
+    }
+
+    /**
+     * Make a new constraint.
+     *
+     * @param p the load reasoning policy of the two bin packing constraints
+     */
+    public SatisfyDemandingSlicesHeightsFastBP(FastBinPacking.LoadReasoningPolicy p) {
+        this.loadReasoning = p;
+    }
 
+    /**
+     * Get the load reasoning policy of the bin packing constraints.
+     *
+     * @return the policy
+     */
+    public FastBinPacking.LoadReasoningPolicy getLoadReasoningPolicy() {
+        return loadReasoning;
     }
 
     @Override
     public void add(ReconfigurationProblem rp) {
-        //SetVar []bins = new SetVar[rp.getNodes().length];
-        List<DemandingSlice> demandingCPU = new ArrayList<DemandingSlice>();//rp.getDemandingSlices());
-        List<DemandingSlice> demandingMem = new ArrayList<DemandingSlice>();//rp.getDemandingSlices());
+        SliceStore store = rp.getSliceStore();
+        IntDomainVar[] hosters = store.getDemandingHosters();
+        int[] cpus = store.getDemandingCPUHeights();
+        int[] mems = store.getDemandingMemoryHeights();
 
-
-        //Remove slices with an height = 0
-        for (DemandingSlice d : rp.getDemandingSlices()) {
-            if (d.getCPUheight() != 0) {
-                demandingCPU.add(d);
-            }
-            if (d.getMemoryheight() != 0) {
-                demandingMem.add(d);
-            }
-        }
+        //Slices with an height = 0 are ignored, the others are sorted in descending order
+        int[] demandingCPU = store.sortByDecreasingHeights(cpus, false);
+        int[] demandingMem = store.sortByDecreasingHeights(mems, false);
 
         Node[] ns = rp.getNodes();
-        if (!demandingCPU.isEmpty()) {
-            IntDomainVar[] demandCPU = new IntDomainVar[demandingCPU.size()];
-            IntDomainVar[] assignsCPU = new IntDomainVar[demandingCPU.size()];
+        if (demandingCPU.length > 0) {
+            IntDomainVar[] demandCPU = new IntDomainVar[demandingCPU.length];
+            IntDomainVar[] assignsCPU = new IntDomainVar[demandingCPU.length];
 
             IntDomainVar[] capaCPU = new IntDomainVar[ns.length];
             for (int i = 0; i < ns.length; i++) {
                 capaCPU[i] = rp.getUsedCPU(ns[i]);
             }
 
-            //Sort in descending order
-            Collections.sort(demandingCPU, new SliceComparator(false, SliceComparator.ResourceType.cpuConsumption));
-            for (int i = 0; i < demandingCPU.size(); i++) {
-                DemandingSlice s = demandingCPU.get(i);
-                demandCPU[i] = rp.createIntegerConstant(""/*i + " #dCPU"*/, s.getCPUheight());
-                assignsCPU[i] = s.hoster();
+            for (int i = 0; i < demandingCPU.length; i++) {
+                int s = demandingCPU[i];
+                demandCPU[i] = rp.createIntegerConstant(""/*i + " #dCPU"*/, cpus[s]);
+                assignsCPU[i] = hosters[s];
             }
 
             cPack = new FastBinPacking(rp.getEnvironment(),
                     capaCPU,
                     demandCPU,
-                    assignsCPU
+                    assignsCPU,
+                    loadReasoning
             );
             rp.post(cPack);
         } else {
@@ -102,25 +110,25 @@ public class SatisfyDemandingSlicesHeightsFastBP implements SatisfyDemandingSlic
             }
         }
 
-        if (!demandingMem.isEmpty()) {
-            IntDomainVar[] demandMem = new IntDomainVar[demandingMem.size()];
-            IntDomainVar[] assignsMem = new IntDomainVar[demandingMem.size()];
+        if (demandingMem.length > 0) {
+            IntDomainVar[] demandMem = new IntDomainVar[demandingMem.length];
+            IntDomainVar[] assignsMem = new IntDomainVar[demandingMem.length];
             IntDomainVar[] capaMem = new IntDomainVar[ns.length];
             for (int i = 0; i < ns.length; i++) {
                 capaMem[i] = rp.getUsedMem(ns[i]);
             }
 
-            Collections.sort(demandingMem, new SliceComparator(false, SliceComparator.ResourceType.memoryConsumption));
-            for (int i = 0; i < demandingMem.size(); i++) {
-                DemandingSlice task = demandingMem.get(i);
-                demandMem[i] = rp.createIntegerConstant(""/*task.getName() + "#dMem"*/, task.getMemoryheight());
-                assignsMem[i] = task.hoster();
+            for (int i = 0; i < demandingMem.length; i++) {
+                int s = demandingMem[i];
+                demandMem[i] = rp.createIntegerConstant(""/*task.getName() + "#dMem"*/, mems[s]);
+                assignsMem[i] = hosters[s];
             }
 
             mPack = new FastBinPacking(rp.getEnvironment(),
                     capaMem,
                     demandMem,
-                    assignsMem
+                    assignsMem,
+                    loadReasoning
             );
             rp.post(mPack);
         } else {
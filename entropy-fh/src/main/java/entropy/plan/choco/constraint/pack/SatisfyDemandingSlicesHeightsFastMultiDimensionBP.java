@@ -19,6 +19,7 @@
 
 package entropy.plan.choco.constraint.pack;
 
+import choco.kernel.solver.ContradictionException;
 import choco.kernel.solver.variables.integer.IntDomainVar;
 import entropy.configuration.Configuration;
 import entropy.configuration.ManagedElementSet;
@@ -26,17 +27,13 @@ import entropy.configuration.Node;
 import entropy.configuration.VirtualMachine;
 import entropy.plan.Plan;
 import entropy.plan.choco.ReconfigurationProblem;
-import entropy.plan.choco.actionModel.slice.DemandingSlice;
-import entropy.plan.choco.actionModel.slice.SliceComparator;
-
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import entropy.plan.choco.actionModel.slice.SliceStore;
 
 /**
  * A constraint to assign a host with a sufficient amount of resources to satisfy
  * all the heights of the demanding slices.
- * The constraint is based on two dynamic bin packing constraints.
+ * The constraint is based on one vector bin packing constraint that
+ * handles the CPU and the memory dimensions together.
  *
  * @author Fabien Hermenier
  */
@@ -50,22 +47,38 @@ public class SatisfyDemandingSlicesHeightsFastMultiDimensionBP implements Satisf
 
     @Override
     public void add(ReconfigurationProblem rp) {
-        List<DemandingSlice> dSlices = new ArrayList<DemandingSlice>(rp.getDemandingSlices());
+        SliceStore store = rp.getSliceStore();
+        Node[] ns = rp.getNodes();
+        pack = null;
+        if (store.getNbDemandingSlices() == 0) {
+            for (Node n : ns) {
+                try {
+                    rp.getUsedCPU(n).setVal(0);
+                    rp.getUsedMem(n).setVal(0);
+                } catch (ContradictionException e) {
+                    Plan.logger.error("No demand but unable to set the resource usage to 0: " + e.getMessage(), e);
+                }
+            }
+            return;
+        }
 
-        Collections.sort(dSlices, new SliceComparator(false, SliceComparator.ResourceType.cpuConsumption));
+        int[] cpus = store.getDemandingCPUHeights();
+        int[] mems = store.getDemandingMemoryHeights();
+        IntDomainVar[] hosters = store.getDemandingHosters();
+        int[] sorted = store.sortByDecreasingHeights(cpus, true);
 
         int[][] sizes = new int[2][];
-        sizes[0] = new int[dSlices.size()];
-        sizes[1] = new int[dSlices.size()];
-
-        IntDomainVar[] assigns = new IntDomainVar[dSlices.size()];
-        for (int i = 0; i < dSlices.size(); i++) {
-            sizes[0][i] = dSlices.get(i).getCPUheight();
-            sizes[1][i] = dSlices.get(i).getMemoryheight();
-            assigns[i] = dSlices.get(i).hoster();
+        sizes[0] = new int[sorted.length];
+        sizes[1] = new int[sorted.length];
+
+        IntDomainVar[] assigns = new IntDomainVar[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            int s = sorted[i];
+            sizes[0][i] = cpus[s];
+            sizes[1][i] = mems[s];
+            assigns[i] = hosters[s];
         }
 
-        Node[] ns = rp.getNodes();
         IntDomainVar[][] capas = new IntDomainVar[2][];
         capas[0] = new IntDomainVar[ns.length];
         capas[1] = new IntDomainVar[ns.length];
@@ -78,7 +91,7 @@ public class SatisfyDemandingSlicesHeightsFastMultiDimensionBP implements Satisf
         pack = new FastMultiBinPacking(rp.getEnvironment(), capas, sizes, assigns);
         rp.post(pack);
 
-        Plan.logger.debug("SatisfyDemandingSlicesHeightsCustomBP branched");
+        Plan.logger.debug("SatisfyDemandingSlicesHeightsFastMultiDimensionBP branched");
     }
 
     @Override
@@ -108,11 +121,11 @@ public class SatisfyDemandingSlicesHeightsFastMultiDimensionBP implements Satisf
 
     @Override
     public int getRemainingCPU(int bin) {
-        return this.pack.getRemainingSpace(0, bin);
+        return pack == null ? Integer.MAX_VALUE : pack.getRemainingSpace(0, bin);
     }
 
     @Override
     public int getRemainingMemory(int bin) {
-        return this.pack.getRemainingSpace(1, bin);
+        return pack == null ? Integer.MAX_VALUE : pack.getRemainingSpace(1, bin);
     }
 }
@@ -31,10 +31,10 @@ import entropy.configuration.VirtualMachine;
 import entropy.plan.Plan;
 import entropy.plan.choco.ReconfigurationProblem;
 import entropy.plan.choco.actionModel.slice.DemandingSlice;
-import entropy.plan.choco.actionModel.slice.Slice;
-import entropy.plan.choco.actionModel.slice.SliceComparator;
+import entropy.plan.choco.actionModel.slice.SliceStore;
 
-import java.util.*;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * A constraint to assign a host with a sufficient amount of resources to satisfy
@@ -72,38 +72,29 @@ public class SatisfyDemandingSlicesHeightsSimpleBP implements SatisfyDemandingSl
 
     @Override
     public void add(ReconfigurationProblem rp) {
-        //SetVar []bins = new SetVar[rp.getNodes().length];
-        List<DemandingSlice> demandingCPU = new ArrayList<DemandingSlice>(rp.getDemandingSlices());
-        List<DemandingSlice> demandingMem = new ArrayList<DemandingSlice>(rp.getDemandingSlices());
-
-        //Remove slices with an height = 0
-        for (ListIterator<DemandingSlice> ite = demandingCPU.listIterator(); ite.hasNext(); ) {
-            DemandingSlice d = ite.next();
-            if (d.getCPUheight() == 0) {
-                ite.remove();
-            }
-        }
+        SliceStore store = rp.getSliceStore();
+        DemandingSlice[] dSlices = store.getDemandingSlices();
+        IntDomainVar[] hosters = store.getDemandingHosters();
+        int[] cpus = store.getDemandingCPUHeights();
+        int[] mems = store.getDemandingMemoryHeights();
 
-        for (ListIterator<DemandingSlice> ite = demandingMem.listIterator(); ite.hasNext(); ) {
-            DemandingSlice d = ite.next();
-            if (d.getMemoryheight() == 0) {
-                ite.remove();
-            }
-        }
+        //Slices with an height = 0 are ignored, the others are sorted in descending order
+        int[] demandingCPU = store.sortByDecreasingHeights(cpus, false);
+        int[] demandingMem = store.sortByDecreasingHeights(mems, false);
 
         //ManagedElementSet<Node> ns = cfg.getAllNodes();
         //Node[] ns = model.getNodes();
         Node[] ns = rp.getNodes();
-        if (!demandingCPU.isEmpty()) {
-            List<IntDomainVar> demandCPU = new ArrayList<IntDomainVar>();
-            List<IntDomainVar> assignsCPU = new ArrayList<IntDomainVar>();
+        if (demandingCPU.length > 0) {
+            IntDomainVar[] demands = new IntDomainVar[demandingCPU.length];
+            IntDomainVar[] assignsCPU = new IntDomainVar[demandingCPU.length];
 
             SetVar[] sets = new SetVar[ns.length];
             IntDomainVar[] capaCPU = new IntDomainVar[sets.length];
             for (int i = 0; i < ns.length; i++) {
                 //if (model.getSourceConfiguration().isOnline(ns[i])) {
                 capaCPU[i] = rp.getUsedCPU(ns[i]);
-                sets[i] = rp.createEnumSetVar("slicesCPU(" + ns[i].getName() + ")", 0, demandingCPU.size() - 1);
+                sets[i] = rp.createEnumSetVar("slicesCPU(" + ns[i].getName() + ")", 0, demandingCPU.length - 1);
                 /*} else {
                     capaCPU[i] = constant(0);
                     sets[i] = emptySet();//makeSetVar("slicesCPU(" + n.getName() + ")", new int[]{});
@@ -111,14 +102,11 @@ public class SatisfyDemandingSlicesHeightsSimpleBP implements SatisfyDemandingSl
                 //bins = sets;
             }
 
-            //Sort in descending order
-            Collections.sort(demandingCPU, new SliceComparator(false, SliceComparator.ResourceType.cpuConsumption));
-            for (int i = 0; i < demandingCPU.size(); i++) {
-                demandCPU.add(rp.createIntegerConstant(i + " #dCPU", demandingCPU.get(i).getCPUheight()));
-                assignsCPU.add(demandingCPU.get(i).hoster());
+            for (int i = 0; i < demandingCPU.length; i++) {
+                demands[i] = rp.createIntegerConstant(i + " #dCPU", cpus[demandingCPU[i]]);
+                assignsCPU[i] = hosters[demandingCPU[i]];
                 //    this.idxVM2Hoster.put(assignsCPU.get(i), i);
             }
-            IntDomainVar[] demands = demandCPU.toArray(new IntDomainVar[demandCPU.size()]);
             //Plan.logger.debug("Pack \n\tcapa:" + Arrays.toString(capaCPU) + "\n\tdemand: " + demandCPU + "\n\tassigns" + assignsCPU);
 
             IntDomainVar nbNonEmpty = rp.createBoundIntVar("non-empty", 0, sets.length);
@@ -126,7 +114,7 @@ public class SatisfyDemandingSlicesHeightsSimpleBP implements SatisfyDemandingSl
                     sets,
                     capaCPU,
                     demands,
-                    assignsCPU.toArray(new IntDomainVar[assignsCPU.size()]),
+                    assignsCPU,
 
                     nbNonEmpty);
             //cPack.readOptions(opts);
@@ -135,22 +123,21 @@ public class SatisfyDemandingSlicesHeightsSimpleBP implements SatisfyDemandingSl
         }
 
         //opts.add(SimpleBinPacking.ADDITIONAL_RULES.getOption());
-        if (!demandingMem.isEmpty()) {
-            List<IntDomainVar> demandMem = new ArrayList<IntDomainVar>();
-            List<IntDomainVar> assignsMem = new ArrayList<IntDomainVar>();
+        if (demandingMem.length > 0) {
+            IntDomainVar[] demands = new IntDomainVar[demandingMem.length];
+            IntDomainVar[] assignsMem = new IntDomainVar[demandingMem.length];
             SetVar[] sets = new SetVar[ns.length];
             IntDomainVar[] capaMem = new IntDomainVar[sets.length];
             for (int i = 0; i < ns.length; i++) {
                 capaMem[i] = rp.getUsedMem(ns[i]);
-                sets[i] = rp.createEnumSetVar("slicesMem(" + ns[i].getName() + ")", 0, demandingMem.size() - 1);
+                sets[i] = rp.createEnumSetVar("slicesMem(" + ns[i].getName() + ")", 0, demandingMem.length - 1);
             }
 
-            Collections.sort(demandingMem, new SliceComparator(false, SliceComparator.ResourceType.memoryConsumption));
-            for (Slice task : demandingMem) {
-                demandMem.add(rp.createIntegerConstant(task.getName() + "#dMem", task.getMemoryheight()));
-                assignsMem.add(task.hoster());
+            for (int i = 0; i < demandingMem.length; i++) {
+                int s = demandingMem[i];
+                demands[i] = rp.createIntegerConstant(dSlices[s].getName() + "#dMem", mems[s]);
+                assignsMem[i] = hosters[s];
             }
-            IntDomainVar[] demands = demandMem.toArray(new IntDomainVar[demandMem.size()]);
             //Plan.logger.debug("Pack \n\tcapa:" + Arrays.toString(capaMem) + "\n\tdemand: " + demandMem + "\n\tassigns" + assignsMem);
             IntDomainVar nbNonEmpty = rp.createBoundIntVar("non-empty", 0, sets.length);
 
@@ -159,7 +146,7 @@ public class SatisfyDemandingSlicesHeightsSimpleBP implements SatisfyDemandingSl
                     sets,
                     capaMem,
                     demands,
-                    assignsMem.toArray(new IntDomainVar[assignsMem.size()]),
+                    assignsMem,
                     nbNonEmpty);
 
 
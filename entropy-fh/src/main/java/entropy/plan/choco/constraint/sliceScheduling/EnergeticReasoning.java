@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.plan.choco.constraint.sliceScheduling;
+
+import java.util.Arrays;
+
+/**
+ * Energetic reasoning for the slices hosted by a single node and a single resource.
+ * <p/>
+ * A consuming slice uses the resource from the beginning of the reconfiguration to its end,
+ * a demanding slice uses it from its start to the end of the reconfiguration. For each
+ * interval {@code [t1, t2[} delimited by the moments a consuming slice surely runs until
+ * and the moments a demanding slice surely runs from, the energy the slices must
+ * consume inside the interval is compared with the energy the node provides.
+ * The bounds of the slices are also used as interval limits for the filtering.
+ * An overload indicates a failure, otherwise the remaining energy is used to
+ * decrease the latest end of the consuming slices and to increase the earliest start
+ * of the demanding slices.
+ * <p/>
+ * The bounds are updated in place. The complexity is cubic in the number of slices so
+ * the filtering is only worth it for nodes with few slices but saturated resources.
+ *
+ * @author Fabien Hermenier
+ */
+public final class EnergeticReasoning {
+
+    /**
+     * Utility class. No instantiation.
+     */
+    private EnergeticReasoning() {
+    }
+
+    /**
+     * Check the energy of every interval and filter the bounds of the slices.
+     *
+     * @param capacity  the capacity of the node
+     * @param nbC       the number of consuming slices to consider
+     * @param cHeights  the height of each consuming slice
+     * @param cEndInf   the earliest end of each consuming slice. Not modified
+     * @param cEndSup   the latest end of each consuming slice. Updated
+     * @param nbD       the number of demanding slices to consider
+     * @param dHeights  the height of each demanding slice
+     * @param dStartInf the earliest start of each demanding slice. Updated
+     * @param dStartSup the latest start of each demanding slice. Not modified
+     * @return {@code false} if an interval is overloaded or a bound becomes empty
+     */
+    public static boolean filter(int capacity,
+                                 int nbC, int[] cHeights, int[] cEndInf, int[] cEndSup,
+                                 int nbD, int[] dHeights, int[] dStartInf, int[] dStartSup) {
+        int[] moments = new int[2 * (nbC + nbD) + 1];
+        int nb = 0;
+        moments[nb++] = 0;
+        for (int i = 0; i < nbC; i++) {
+            moments[nb++] = cEndInf[i];
+            moments[nb++] = cEndSup[i];
+        }
+        for (int i = 0; i < nbD; i++) {
+            moments[nb++] = dStartInf[i];
+            moments[nb++] = dStartSup[i];
+        }
+        Arrays.sort(moments, 0, nb);
+        int m = 0;
+        for (int i = 0; i < nb; i++) {
+            if (i == 0 || moments[i] != moments[m - 1]) {
+                moments[m++] = moments[i];
+            }
+        }
+
+        for (int a = 0; a < m - 1; a++) {
+            int t1 = moments[a];
+            for (int b = a + 1; b < m; b++) {
+                int t2 = moments[b];
+                long available = (long) capacity * (t2 - t1);
+                long required = 0;
+                for (int i = 0; i < nbC; i++) {
+                    required += (long) cHeights[i] * cEnergy(t1, t2, cEndInf[i]);
+                }
+                for (int i = 0; i < nbD; i++) {
+                    required += (long) dHeights[i] * dEnergy(t1, t2, dStartSup[i]);
+                }
+                if (required > available) {
+                    return false;
+                }
+
+                //A c-slice that ends after t1 must leave enough energy for the others
+                for (int i = 0; i < nbC; i++) {
+                    int h = cHeights[i];
+                    if (h > 0 && cEndSup[i] > t1) {
+                        long slack = available - (required - (long) h * cEnergy(t1, t2, cEndInf[i]));
+                        if ((long) h * (Math.min(t2, cEndSup[i]) - t1) > slack) {
+                            int sup = t1 + (int) (slack / h);
+                            if (sup < cEndInf[i]) {
+                                return false;
+                            }
+                            cEndSup[i] = sup;
+                        }
+                    }
+                }
+
+                //A d-slice that starts before t2 must leave enough energy for the others
+                for (int i = 0; i < nbD; i++) {
+                    int h = dHeights[i];
+                    if (h > 0 && dStartInf[i] < t2) {
+                        long slack = available - (required - (long) h * dEnergy(t1, t2, dStartSup[i]));
+                        if ((long) h * (t2 - Math.max(t1, dStartInf[i])) > slack) {
+                            int inf = t2 - (int) (slack / h);
+                            if (inf > dStartSup[i]) {
+                                return false;
+                            }
+                            dStartInf[i] = inf;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The minimal duration a consuming slice runs inside an interval.
+     *
+     * @param t1     the beginning of the interval
+     * @param t2     the end of the interval
+     * @param endInf the earliest end of the slice
+     * @return a positive duration
+     */
+    private static int cEnergy(int t1, int t2, int endInf) {
+        return Math.max(0, Math.min(t2, endInf) - t1);
+    }
+
+    /**
+     * The minimal duration a demanding slice runs inside an interval.
+     *
+     * @param t1       the beginning of the interval
+     * @param t2       the end of the interval
+     * @param startSup the latest start of the slice
+     * @return a positive duration
+     */
+    private static int dEnergy(int t1, int t2, int startSup) {
+        return Math.max(0, t2 - Math.max(t1, startSup));
+    }
+}
@@ -202,6 +202,79 @@ public class LocalScheduler {
         return true;
     }
 
+    /**
+     * Energetic reasoning on the slices that are surely hosted by the node.
+     * The demanding slices that are not placed yet are ignored so the filtering
+     * may be performed before all the hosters are known.
+     * A slice associated to a slice of the same action on this node is ignored
+     * as the two slices share the resources. The VM still uses the smallest of
+     * the two heights during the whole reconfiguration so this amount is removed
+     * from the capacity of the node.
+     *
+     * @return {@code false} if the node is overloaded
+     * @throws ContradictionException if a bound can not be updated
+     */
+    public boolean propagateEnergy() throws ContradictionException {
+        int[] cIdx = new int[out.cardinality()];
+        int nbC = 0;
+        int stayCPU = 0;
+        int stayMem = 0;
+        for (int i = out.nextSetBit(0); i >= 0; i = out.nextSetBit(i + 1)) {
+            if (!associatedToDSliceOnCurrentNode(i)) {
+                cIdx[nbC++] = i;
+            } else {
+                stayCPU += Math.min(cCPUHeights[i], dCPUHeights[revAssociations[i]]);
+                stayMem += Math.min(cMemHeights[i], dMemHeights[revAssociations[i]]);
+            }
+        }
+        int[] dIdx = new int[in.cardinality()];
+        int nbD = 0;
+        for (int i = in.nextSetBit(0); i >= 0; i = in.nextSetBit(i + 1)) {
+            if (!associatedToCSliceOnCurrentNode(i)) {
+                dIdx[nbD++] = i;
+            }
+        }
+        if (nbC + nbD == 0) {
+            return true;
+        }
+        int[] cHeights = new int[nbC];
+        int[] cEndInf = new int[nbC];
+        int[] cEndSup = new int[nbC];
+        int[] dHeights = new int[nbD];
+        int[] dStartInf = new int[nbD];
+        int[] dStartSup = new int[nbD];
+        for (int r = 0; r < 2; r++) {
+            for (int x = 0; x < nbC; x++) {
+                int i = cIdx[x];
+                cHeights[x] = r == 0 ? cCPUHeights[i] : cMemHeights[i];
+                cEndInf[x] = cEnds[i].getInf();
+                cEndSup[x] = cEnds[i].getSup();
+            }
+            for (int x = 0; x < nbD; x++) {
+                int i = dIdx[x];
+                dHeights[x] = r == 0 ? dCPUHeights[i] : dMemHeights[i];
+                dStartInf[x] = dStarts[i].getInf();
+                dStartSup[x] = dStarts[i].getSup();
+            }
+            int free = r == 0 ? capacityCPU - stayCPU : capacityMem - stayMem;
+            if (free < 0 || !EnergeticReasoning.filter(free,
+                    nbC, cHeights, cEndInf, cEndSup,
+                    nbD, dHeights, dStartInf, dStartSup)) {
+                if (me == DEBUG) {
+                    ChocoLogging.getBranchingLogger().warning(me + ": energetic overload");
+                }
+                return false;
+            }
+            for (int x = 0; x < nbC; x++) {
+                cEnds[cIdx[x]].setSup(cEndSup[x]);
+            }
+            for (int x = 0; x < nbD; x++) {
+                dStarts[dIdx[x]].setInf(dStartInf[x]);
+            }
+        }
+        return true;
+    }
+
     /**
      * Translation for a relatives resources changes to an absolute free resources.
      *
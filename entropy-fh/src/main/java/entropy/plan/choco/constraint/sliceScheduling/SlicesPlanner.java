@@ -19,25 +19,15 @@
 
 package entropy.plan.choco.constraint.sliceScheduling;
 
-import choco.kernel.solver.variables.integer.IntDomainVar;
 import entropy.configuration.Configuration;
 import entropy.configuration.ManagedElementSet;
 import entropy.configuration.Node;
 import entropy.configuration.VirtualMachine;
 import entropy.plan.Plan;
 import entropy.plan.choco.ReconfigurationProblem;
-import entropy.plan.choco.actionModel.ActionModel;
-import entropy.plan.choco.actionModel.ShutdownableNodeActionModel;
-import entropy.plan.choco.actionModel.slice.ConsumingSlice;
-import entropy.plan.choco.actionModel.slice.DemandingSlice;
-import entropy.plan.choco.actionModel.slice.Slice;
+import entropy.plan.choco.actionModel.slice.SliceStore;
 import entropy.plan.choco.constraint.GlobalConstraint;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.List;
-
 /**
  * A global constraint to help to plan all the slices in a reconfiguration problem.
  *
@@ -45,84 +35,33 @@ import java.util.List;
  */
 public class SlicesPlanner implements GlobalConstraint {
 
-    @Override
-    public void add(ReconfigurationProblem rp) {
-        List<DemandingSlice> dS = new LinkedList<DemandingSlice>();
-        List<ConsumingSlice> cS = new LinkedList<ConsumingSlice>();
-
-        List<int[]> linked = new ArrayList<int[]>();
-        int dIdx = 0;
-        int cIdx = 0;
-        List<ActionModel> allActions = new ArrayList<ActionModel>();
-        allActions.addAll(rp.getNodeMachineActions());
-        allActions.addAll(rp.getVirtualMachineActions());
-        if (allActions.isEmpty()) {
-            return;
-        }
-        //The boolean variable to indicate if a d-slice will be exclusive or not
-        IntDomainVar[] excls = new IntDomainVar[rp.getNodes().length];
-        int[] exclSlice = new int[rp.getNodes().length];
-        for (int sliceIdx = 0; sliceIdx < allActions.size(); sliceIdx++) {
-            ActionModel na = allActions.get(sliceIdx);
-
-            if (na.getDemandingSlice() != null && na.getConsumingSlice() != null) {
-                linked.add(new int[]{dIdx, cIdx});
-            }
-            if (na.getDemandingSlice() != null) {
-                dS.add(dIdx, na.getDemandingSlice());
-                //Check for the exclusive flag for Demanding Slice
-                if (na instanceof ShutdownableNodeActionModel) {
-                    ShutdownableNodeActionModel a = (ShutdownableNodeActionModel) na;
-                    DemandingSlice ds = a.getDemandingSlice();
-                    excls[rp.getNode(a.getNode())] = ds.isExclusive();
-                    exclSlice[rp.getNode(a.getNode())] = dIdx;//sliceIdx;
-                    //System.err.println("excl slice for " + rp.getNode(a.getNode()) + " " + a.getNode().getName() + " is " + dIdx + " " + dS.get(dIdx));
-                }
-                dIdx++;
-            }
-
-            if (na.getConsumingSlice() != null) {
-                cS.add(cIdx, na.getConsumingSlice());
-                cIdx++;
-            }
-        }
-
-        //System.err.println(Arrays.toString(exclSlice) + " " + Arrays.toString(excls));
-
-        Slice[] dSlices = dS.toArray(new Slice[dS.size()]);
-        Slice[] cSlices = cS.toArray(new Slice[cS.size()]);
+    /**
+     * Indicates whether the energetic reasoning is performed.
+     */
+    private boolean energetic;
 
-        int[] cCPUH = new int[cSlices.length];
-        int[] cMemH = new int[cSlices.length];
-        IntDomainVar[] cHosters = new IntDomainVar[cSlices.length];
-        IntDomainVar[] cEnds = new IntDomainVar[cSlices.length];
-        for (int i = 0; i < cSlices.length; i++) {
-            Slice c = cSlices[i];
-            cCPUH[i] = c.getCPUheight();
-            cMemH[i] = c.getMemoryheight();
-            cHosters[i] = c.hoster();
-            cEnds[i] = c.end();
-        }
+    /**
+     * Make a new planner without energetic reasoning.
+     */
+    public SlicesPlanner() {
+        this(false);
+    }
 
-        int[] dCPUH = new int[dSlices.length];
-        int[] dMemH = new int[dSlices.length];
-        IntDomainVar[] dHosters = new IntDomainVar[dSlices.length];
-        IntDomainVar[] dStart = new IntDomainVar[dSlices.length];
-        for (int i = 0; i < dSlices.length; i++) {
-            Slice d = dSlices[i];
-            dCPUH[i] = d.getCPUheight();
-            dMemH[i] = d.getMemoryheight();
-            dHosters[i] = d.hoster();
-            dStart[i] = d.start();
-        }
+    /**
+     * Make a new planner.
+     *
+     * @param energetic {@code true} to perform an energetic reasoning on each node
+     * @see SlicesScheduler#setEnergeticReasoning(boolean)
+     */
+    public SlicesPlanner(boolean energetic) {
+        this.energetic = energetic;
+    }
 
-        int[] associations = new int[dHosters.length];
-        for (int i = 0; i < associations.length; i++) {
-            associations[i] = PlanMySlices.NO_ASSOCIATIONS; //No associations task
-        }
-        for (int i = 0; i < linked.size(); i++) {
-            int[] assoc = linked.get(i);
-            associations[assoc[0]] = assoc[1];
+    @Override
+    public void add(ReconfigurationProblem rp) {
+        SliceStore store = rp.getSliceStore();
+        if (store.getNbDemandingSlices() == 0 && store.getNbConsumingSlices() == 0) {
+            return;
         }
         int[] capaCPU = new int[rp.getNodes().length];
         int[] capaMem = new int[rp.getNodes().length];
@@ -133,8 +72,12 @@ public class SlicesPlanner implements GlobalConstraint {
         }
         Plan.logger.debug("SlicesPlanner branched");
 
-        rp.post(new SlicesScheduler(rp.getEnvironment(), capaCPU, capaMem, cHosters, cCPUH, cMemH, cEnds,
-                dHosters, dCPUH, dMemH, dStart, associations, excls, exclSlice));
+        SlicesScheduler sc = new SlicesScheduler(rp.getEnvironment(), capaCPU, capaMem,
+                store.getConsumingHosters(), store.getConsumingCPUHeights(), store.getConsumingMemoryHeights(), store.getConsumingEnds(),
+                store.getDemandingHosters(), store.getDemandingCPUHeights(), store.getDemandingMemoryHeights(), store.getDemandingStarts(),
+                store.getAssociations(), store.getExclusives(), store.getExclusiveSlices());
+        sc.setEnergeticReasoning(energetic);
+        rp.post(sc);
     }
 
     @Override
@@ -151,10 +94,4 @@ public class SlicesPlanner implements GlobalConstraint {
     public ManagedElementSet<VirtualMachine> getMisPlaced(Configuration cfg) {
         return null;  //To change body of implemented methods use File | Settings | File Templates.
     }
-
-    private static void printLinked(List<int[]> l) {
-        for (int[] arr : l) {
-            System.err.println(Arrays.toString(arr));
-        }
-    }
 }
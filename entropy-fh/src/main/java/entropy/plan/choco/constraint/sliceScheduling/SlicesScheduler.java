@@ -71,6 +71,11 @@ public class SlicesScheduler extends AbstractLargeIntSConstraint {
 
     private IntDomainVar[] dExclusives;
 
+    /**
+     * Indicates whether the energetic reasoning is performed on each node.
+     */
+    private boolean energetic = false;
+
 
     public static IntDomainVar[] allButNull(IntDomainVar[] xs) {
         List<IntDomainVar> l = new ArrayList<IntDomainVar>();
@@ -175,8 +180,36 @@ public class SlicesScheduler extends AbstractLargeIntSConstraint {
         }
     }
 
+    /**
+     * Enable or disable the energetic reasoning.
+     * When enabled, the constraint is also awaken by the bound modifications of the
+     * start and end moments, and the slices of each node are filtered even if some demanding
+     * slices are not placed yet. Must be set before the constraint is posted.
+     *
+     * @param b {@code true} to enable the energetic reasoning
+     */
+    public void setEnergeticReasoning(boolean b) {
+        energetic = b;
+    }
+
+    /**
+     * Indicates whether the energetic reasoning is performed.
+     *
+     * @return {@code true} if it is enabled
+     */
+    public boolean isEnergeticReasoningUsed() {
+        return energetic;
+    }
+
     @Override
     public void propagate() throws ContradictionException {
+        if (energetic) {
+            for (int i = 0; i < scheds.length; i++) {
+                if (!scheds[i].propagateEnergy()) {
+                    fail();
+                }
+            }
+        }
         if (isFull2()) {
             for (int i = 0; i < scheds.length; i++) {
                 if (!scheds[i].propagate()) {
@@ -211,8 +244,22 @@ public class SlicesScheduler extends AbstractLargeIntSConstraint {
         return toInstantiate.get() == 0;
     }
 
+    @Override
+    public void awakeOnInf(int idx) throws ContradictionException {
+        this.constAwake(false);
+    }
+
+    @Override
+    public void awakeOnSup(int idx) throws ContradictionException {
+        this.constAwake(false);
+    }
+
     @Override
     public int getFilteredEventMask(int idx) {
+        int firstMoment = dHosters.length + cHosters.length;
+        if (energetic && idx >= firstMoment && idx < firstMoment + cEnds.length + dStarts.length) {
+            return IntVarEvent.INSTINT_MASK + IntVarEvent.BOUNDS_MASK;
+        }
         return IntVarEvent.INSTINT_MASK;
     }
 
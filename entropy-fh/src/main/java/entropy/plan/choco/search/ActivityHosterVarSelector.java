@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.plan.choco.search;
+
+import choco.kernel.solver.search.integer.AbstractIntVarSelector;
+import choco.kernel.solver.variables.integer.IntDomainVar;
+import entropy.plan.choco.ReconfigurationProblem;
+
+/**
+ * An activity-based var selector for the assignment var of the demanding slices.
+ * When a failure occurred since the previous call, the variable branched by the
+ * previous call and the variables that saw their domain reduced in the meantime are
+ * considered as active. The activities are decayed at each failure.
+ * The selector picks the non-instantiated variable with the highest activity per value
+ * in its domain, so the hosters involved in the conflicts are branched first. Ties are
+ * broken using the order of the variables, so the selector follows this order until
+ * the first failure.
+ * As the activities are kept from one restart to another, the selector learns from the
+ * failures of the previous runs.
+ *
+ * @author Fabien Hermenier
+ */
+public class ActivityHosterVarSelector extends AbstractIntVarSelector {
+
+    /**
+     * The decay factor of the activities.
+     */
+    public static final double DECAY = 0.95;
+
+    private double[] activities;
+
+    /**
+     * The size of each domain at the last call.
+     */
+    private int[] lastSizes;
+
+    /**
+     * The index of the last selected variable.
+     */
+    private int last = -1;
+
+    /**
+     * The solver, to count the failures.
+     */
+    private ReconfigurationProblem rp;
+
+    /**
+     * The number of backtracks at the last call.
+     */
+    private int lastBacktracks;
+
+    /**
+     * Make a new heuristic.
+     *
+     * @param solver  the solver to use to extract the assignment variables
+     * @param hosters the hosting variables of the demanding slices to consider
+     */
+    public ActivityHosterVarSelector(ReconfigurationProblem solver, IntDomainVar[] hosters) {
+        super(solver, hosters);
+        rp = solver;
+        activities = new double[vars.length];
+        lastSizes = new int[vars.length];
+        for (int i = 0; i < vars.length; i++) {
+            lastSizes[i] = vars[i].getDomainSize();
+        }
+    }
+
+    @Override
+    public IntDomainVar selectVar() {
+        int bt = rp.getBackTrackCount();
+        boolean failed = bt != lastBacktracks;
+        lastBacktracks = bt;
+        int best = -1;
+        double bestScore = -1;
+        for (int i = 0; i < vars.length; i++) {
+            int size = vars[i].getDomainSize();
+            if (failed) {
+                activities[i] *= DECAY;
+                if (i == last || size < lastSizes[i]) {
+                    activities[i] += 1;
+                }
+            }
+            lastSizes[i] = size;
+            if (!vars[i].isInstantiated()) {
+                double score = activities[i] / size;
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+        }
+        last = best;
+        return best < 0 ? null : vars[best];
+    }
+
+    /**
+     * Get the current activity of a variable.
+     *
+     * @param idx the index of the variable
+     * @return a positive number
+     */
+    public double getActivity(int idx) {
+        return activities[idx];
+    }
+}
@@ -22,10 +22,6 @@ package entropy.plan.choco.search;
 import choco.kernel.solver.search.integer.AbstractIntVarSelector;
 import choco.kernel.solver.variables.integer.IntDomainVar;
 import entropy.plan.choco.ReconfigurationProblem;
-import entropy.plan.choco.actionModel.slice.DemandingSlice;
-import entropy.plan.choco.actionModel.slice.Slices;
-
-import java.util.List;
 
 /**
  * A Var selector that focuses on the assignment var of the demanding slices.
@@ -40,11 +36,11 @@ public class HosterVarSelector extends AbstractIntVarSelector {
      * Make a new heuristic.
      * By default, the heuristic doesn't touch the scheduling constraints.
      *
-     * @param solver the solver to use to extract the assignment variables
-     * @param slices the slices to consider
+     * @param solver  the solver to use to extract the assignment variables
+     * @param hosters the hosting variables of the demanding slices to consider
      */
-    public HosterVarSelector(ReconfigurationProblem solver, List<DemandingSlice> slices) {
-        super(solver, Slices.extractHosters(slices));
+    public HosterVarSelector(ReconfigurationProblem solver, IntDomainVar[] hosters) {
+        super(solver, hosters);
     }
 
     @Override
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.plan.choco.search;
+
+import choco.cp.solver.CPSolver;
+
+/**
+ * A policy to restart the search of a solver periodically.
+ * The number of backtracks allowed before a restart follows either a Luby sequence
+ * or a geometric sequence. Nogoods are recorded from the restarts, so a branch that
+ * was refuted before a restart is not explored again.
+ * The policy also provides the seed used by the heuristics to randomize their
+ * decisions between two restarts.
+ *
+ * @author Fabien Hermenier
+ */
+public class RestartPolicy {
+
+    /**
+     * The available sequences.
+     */
+    public enum Strategy {
+        luby, geometric
+    }
+
+    private Strategy strategy;
+
+    private int scale;
+
+    private double growth;
+
+    private int limit = Integer.MAX_VALUE;
+
+    private boolean nogoods = true;
+
+    private long seed = 0;
+
+    /**
+     * Make a new policy.
+     *
+     * @param s      the sequence to use
+     * @param scale  the number of backtracks allowed before the first restart
+     * @param growth the growing factor of the sequence. Rounded for a Luby sequence
+     */
+    public RestartPolicy(Strategy s, int scale, double growth) {
+        this.strategy = s;
+        this.scale = scale;
+        this.growth = growth;
+    }
+
+    /**
+     * Make a policy based on a Luby sequence with a growing factor of 2.
+     *
+     * @param scale the number of backtracks allowed before the first restart
+     * @return the policy
+     */
+    public static RestartPolicy luby(int scale) {
+        return new RestartPolicy(Strategy.luby, scale, 2);
+    }
+
+    /**
+     * Make a policy based on a geometric sequence.
+     *
+     * @param scale  the number of backtracks allowed before the first restart
+     * @param growth the growing factor
+     * @return the policy
+     */
+    public static RestartPolicy geometric(int scale, double growth) {
+        return new RestartPolicy(Strategy.geometric, scale, growth);
+    }
+
+    /**
+     * Get the sequence of the policy.
+     *
+     * @return a strategy
+     */
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Get the number of backtracks allowed before the first restart.
+     *
+     * @return a positive integer
+     */
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * Get the growing factor of the sequence.
+     *
+     * @return a positive number
+     */
+    public double getGrowth() {
+        return growth;
+    }
+
+    /**
+     * Set the maximum number of restarts.
+     *
+     * @param l a positive integer
+     */
+    public void setRestartLimit(int l) {
+        this.limit = l;
+    }
+
+    /**
+     * Get the maximum number of restarts.
+     *
+     * @return a positive integer
+     */
+    public int getRestartLimit() {
+        return limit;
+    }
+
+    /**
+     * Indicates whether nogoods are recorded from the restarts.
+     *
+     * @param b {@code true} to record the nogoods
+     */
+    public void setNogoodRecording(boolean b) {
+        this.nogoods = b;
+    }
+
+    /**
+     * Indicates whether nogoods are recorded from the restarts.
+     *
+     * @return {@code true} by default
+     */
+    public boolean isNogoodRecordingUsed() {
+        return nogoods;
+    }
+
+    /**
+     * Set the seed the heuristics use to break ties.
+     *
+     * @param s the seed
+     */
+    public void setSeed(long s) {
+        this.seed = s;
+    }
+
+    /**
+     * Get the seed the heuristics use to break ties.
+     *
+     * @return the seed. {@code 0} by default
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Configure a solver to restart following this policy.
+     *
+     * @param s the solver to configure
+     */
+    public void apply(CPSolver s) {
+        if (strategy == Strategy.luby) {
+            s.setLubyRestart(scale, (int) Math.round(growth), limit);
+        } else {
+            s.setGeometricRestart(scale, growth, limit);
+        }
+        s.setRecordNogoodFromRestart(nogoods);
+    }
+
+    @Override
+    public String toString() {
+        return strategy + "(" + scale + ", " + growth + ")";
+    }
+}
@@ -27,6 +27,8 @@ import entropy.plan.choco.constraint.pack.SatisfyDemandingSliceHeights;
 import gnu.trove.TIntHashSet;
 import gnu.trove.TLongIntHashMap;
 
+import java.util.Random;
+
 /**
  * A heuristic to try to assign the virtual machines to migrate
  * or to resume to its current (or previous) location.
@@ -53,6 +55,11 @@ public class StayFirstSelector3 implements ValSelector<IntDomainVar> {
 
     private ReconfigurationProblem rp;
 
+    /**
+     * To break the ties between the candidate nodes. {@code null} to pick the first one.
+     */
+    private Random rnd;
+
     /**
      * Build a selector for a specific solver.
      *
@@ -61,12 +68,37 @@ public class StayFirstSelector3 implements ValSelector<IntDomainVar> {
      * @param o    the option to customize the heuristic
      */
     public StayFirstSelector3(ReconfigurationProblem s, TLongIntHashMap oldLocation, SatisfyDemandingSliceHeights pack, TIntHashSet[] favorites, Option o) {
+        this(s, oldLocation, pack, favorites, o, null);
+    }
+
+    /**
+     * Build a selector for a specific solver that breaks the ties randomly.
+     * Useful with restarts to explore different placements at each run.
+     *
+     * @param s    the solver
+     * @param pack the pack constraint
+     * @param o    the option to customize the heuristic
+     * @param rnd  the generator to break the ties between equivalent nodes. {@code null} to pick the first one
+     */
+    public StayFirstSelector3(ReconfigurationProblem s, TLongIntHashMap oldLocation, SatisfyDemandingSliceHeights pack, TIntHashSet[] favorites, Option o, Random rnd) {
         this.opt = o;
         this.pack = pack;
         rp = s;
         this.favorites = favorites;
 
         this.oldLocation = oldLocation;
+        this.rnd = rnd;
+    }
+
+    /**
+     * Decide whether a candidate equivalent to the current best one replaces it.
+     * The choice is uniform among all the equivalent candidates met so far.
+     *
+     * @param nbTies the number of equivalent candidates, including the new one
+     * @return {@code true} to replace the current candidate
+     */
+    private boolean takeTie(int nbTies) {
+        return rnd != null && rnd.nextInt(nbTies) == 0;
     }
 
     /**
@@ -80,6 +112,7 @@ public class StayFirstSelector3 implements ValSelector<IntDomainVar> {
         DisposableIntIterator ite = place.getDomain().getIterator();
         int[] maxIdxs = new int[favorites.length];
         int[] maxVals = new int[favorites.length];
+        int[] nbTies = new int[favorites.length];
 
         //Initialization
         for (int i = 0; i < maxIdxs.length; i++) {
@@ -97,6 +130,9 @@ public class StayFirstSelector3 implements ValSelector<IntDomainVar> {
                         if (bVal > maxVals[i]) {
                             maxVals[i] = bVal;
                             maxIdxs[i] = bIdx;
+                            nbTies[i] = 1;
+                        } else if (bVal == maxVals[i] && takeTie(++nbTies[i])) {
+                            maxIdxs[i] = bIdx;
                         }
                     }
                 }
@@ -123,12 +159,16 @@ public class StayFirstSelector3 implements ValSelector<IntDomainVar> {
     private int bestFit(IntDomainVar place, int dim) {
         int minIdx = -1;
         int minVal = Integer.MAX_VALUE;
+        int nbTies = 0;
 
         for (int bIdx = place.getInf(); bIdx <= place.getSup(); bIdx = place.getDomain().getNextValue(bIdx)) {
             int bVal = dim == 0 ? pack.getRemainingCPU(bIdx) : pack.getRemainingMemory(bIdx);
             if (bVal < minVal) {
                 minVal = bVal;
                 minIdx = bIdx;
+                nbTies = 1;
+            } else if (bVal == minVal && takeTie(++nbTies)) {
+                minIdx = bIdx;
             }
         }
         return minIdx;
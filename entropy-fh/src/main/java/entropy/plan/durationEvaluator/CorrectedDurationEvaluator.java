@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.plan.durationEvaluator;
+
+import entropy.configuration.Configuration;
+import entropy.configuration.Node;
+import entropy.configuration.VirtualMachine;
+import entropy.plan.action.Action;
+import entropy.plan.action.Instantiate;
+import entropy.plan.action.Migration;
+import entropy.plan.action.Resume;
+import entropy.plan.action.Run;
+import entropy.plan.action.Shutdown;
+import entropy.plan.action.Startup;
+import entropy.plan.action.Stop;
+import entropy.plan.action.Suspend;
+
+/**
+ * A duration evaluator that corrects the estimations of another evaluator
+ * using the durations observed during the previous executions.
+ * Each estimation is multiplied by the average slowdown of its type of action.
+ * For a migration, the slowdown of its source node is preferred when known. The source
+ * node is retrieved from the configuration given using {@link #useConfiguration(Configuration)}.
+ * The correction factors are bounded to ignore the outliers.
+ * The uncorrected estimations are declared to the statistics, so the
+ * observed slowdowns are not biased by the previous corrections.
+ *
+ * @author Fabien Hermenier
+ */
+public class CorrectedDurationEvaluator implements DurationEvaluator {
+
+    /**
+     * The lowest correction factor.
+     */
+    public static final double MIN_FACTOR = 0.5;
+
+    /**
+     * The highest correction factor.
+     */
+    public static final double MAX_FACTOR = 10;
+
+    private DurationEvaluator base;
+
+    private DurationStatistics stats;
+
+    private Configuration cfg;
+
+    /**
+     * Make a new evaluator.
+     *
+     * @param e the evaluator to correct
+     * @param s the statistics about the observed durations
+     */
+    public CorrectedDurationEvaluator(DurationEvaluator e, DurationStatistics s) {
+        this.base = e;
+        this.stats = s;
+    }
+
+    /**
+     * Set the configuration to get the location of the virtual machines to migrate.
+     *
+     * @param c the source configuration of the next plan. {@code null} to ignore the nodes
+     */
+    public void useConfiguration(Configuration c) {
+        this.cfg = c;
+    }
+
+    /**
+     * Get the corrected evaluator.
+     *
+     * @return the evaluator
+     */
+    public DurationEvaluator getBase() {
+        return base;
+    }
+
+    /**
+     * Get the statistics used to correct the durations.
+     *
+     * @return the statistics
+     */
+    public DurationStatistics getStatistics() {
+        return stats;
+    }
+
+    private int correct(int d, Class<? extends Action> t, Object subject, double f) {
+        stats.estimated(t, subject, d);
+        if (d <= 0 || Double.isNaN(f)) {
+            return d;
+        }
+        double x = Math.min(MAX_FACTOR, Math.max(MIN_FACTOR, f));
+        return Math.max(1, (int) Math.ceil(d * x));
+    }
+
+    private int correct(int d, Class<? extends Action> t, Object subject) {
+        return correct(d, t, subject, stats.getSlowdown(t));
+    }
+
+    @Override
+    public int evaluateMigration(VirtualMachine vm) throws DurationEvaluationException {
+        double f = Double.NaN;
+        Configuration c = cfg;
+        if (c != null) {
+            Node n = c.getLocation(vm);
+            if (n != null) {
+                f = stats.getSlowdown(n);
+            }
+        }
+        if (Double.isNaN(f)) {
+            f = stats.getSlowdown(Migration.class);
+        }
+        return correct(base.evaluateMigration(vm), Migration.class, vm, f);
+    }
+
+    @Override
+    public int evaluateRun(VirtualMachine vm) throws DurationEvaluationException {
+        return correct(base.evaluateRun(vm), Run.class, vm);
+    }
+
+    @Override
+    public int evaluateStop(VirtualMachine vm) throws DurationEvaluationException {
+        return correct(base.evaluateStop(vm), Stop.class, vm);
+    }
+
+    @Override
+    public int evaluateLocalSuspend(VirtualMachine vm) throws DurationEvaluationException {
+        return correct(base.evaluateLocalSuspend(vm), Suspend.class, vm);
+    }
+
+    @Override
+    public int evaluateLocalResume(VirtualMachine vm) throws DurationEvaluationException {
+        return correct(base.evaluateLocalResume(vm), Resume.class, vm);
+    }
+
+    @Override
+    public int evaluateRemoteResume(VirtualMachine vm) throws DurationEvaluationException {
+        return correct(base.evaluateRemoteResume(vm), Resume.class, vm);
+    }
+
+    @Override
+    public int evaluateForge(VirtualMachine vm) throws DurationEvaluationException {
+        return correct(base.evaluateForge(vm), Instantiate.class, vm);
+    }
+
+    @Override
+    public int evaluateStartup(Node n) throws DurationEvaluationException {
+        return correct(base.evaluateStartup(n), Startup.class, n);
+    }
+
+    @Override
+    public int evaluateShutdown(Node n) throws DurationEvaluationException {
+        return correct(base.evaluateShutdown(n), Shutdown.class, n);
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.plan.durationEvaluator;
+
+import entropy.configuration.Node;
+import entropy.plan.action.Action;
+import entropy.plan.action.Migration;
+import entropy.plan.action.NodeAction;
+import entropy.plan.action.VirtualMachineAction;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Statistics about the actual duration of the actions compared to their planned duration.
+ * For each observed action, the slowdown is the ratio between its actual duration and
+ * the duration expected by the plan. Slowdowns are smoothed using an exponentially weighted
+ * moving average per type of action. For migrations, the slowdown is also tracked
+ * for each involved node and for each link between a source and a destination node.
+ * <p/>
+ * When the durations of the plan were corrected using these statistics, the planned duration
+ * already includes the average slowdown. The uncorrected estimations are then declared
+ * using {@link #estimated(Class, Object, int)} and the averages are computed against them.
+ * <p/>
+ * The moments of the actions are expected to be expressed in seconds.
+ *
+ * @author Fabien Hermenier
+ */
+public class DurationStatistics {
+
+    /**
+     * Default weight of a new sample in the moving averages.
+     */
+    public static final double DEFAULT_WEIGHT = 0.3;
+
+    private double weight;
+
+    private Map<Class<? extends Action>, Average> byType;
+
+    private Map<Node, Average> byNode;
+
+    private Map<Node, Map<Node, Average>> byLink;
+
+    private Map<Class<? extends Action>, Map<Object, Integer>> estimates;
+
+    private int nbSamples;
+
+    /**
+     * Make new statistics with the default weight.
+     */
+    public DurationStatistics() {
+        this(DEFAULT_WEIGHT);
+    }
+
+    /**
+     * Make new statistics.
+     *
+     * @param w the weight of a new sample in the moving averages, between 0 (exclusive) and 1
+     */
+    public DurationStatistics(double w) {
+        if (w <= 0 || w > 1) {
+            throw new IllegalArgumentException("The weight must be in ]0,1]: " + w);
+        }
+        this.weight = w;
+        byType = new HashMap<Class<? extends Action>, Average>();
+        byNode = new HashMap<Node, Average>();
+        byLink = new HashMap<Node, Map<Node, Average>>();
+        estimates = new HashMap<Class<? extends Action>, Map<Object, Integer>>();
+    }
+
+    /**
+     * Declare the uncorrected estimation of the duration of an action.
+     *
+     * @param t       the type of action
+     * @param subject the virtual machine or the node manipulated by the action
+     * @param d       the estimated duration in seconds
+     */
+    public synchronized void estimated(Class<? extends Action> t, Object subject, int d) {
+        Map<Object, Integer> m = estimates.get(t);
+        if (m == null) {
+            m = new HashMap<Object, Integer>();
+            estimates.put(t, m);
+        }
+        m.put(subject, d);
+    }
+
+    private Integer estimateOf(Action a) {
+        Map<Object, Integer> m = estimates.get(a.getClass());
+        if (m == null) {
+            return null;
+        }
+        if (a instanceof VirtualMachineAction) {
+            return m.get(((VirtualMachineAction) a).getVirtualMachine());
+        } else if (a instanceof NodeAction) {
+            return m.get(((NodeAction) a).getNode());
+        }
+        return null;
+    }
+
+    /**
+     * Compute the slowdown of an action.
+     *
+     * @param a       the action
+     * @param elapsed the actual duration of the action in milliseconds
+     * @return the ratio between the actual and the planned duration. {@code Double.NaN}
+     *         if the planned duration is null
+     */
+    public static double slowdown(Action a, long elapsed) {
+        int expected = a.getFinishMoment() - a.getStartMoment();
+        if (expected <= 0) {
+            return Double.NaN;
+        }
+        return (double) elapsed / (expected * 1000L);
+    }
+
+    /**
+     * Record the actual duration of an action.
+     * The averages are updated with the ratio between the actual duration and the
+     * uncorrected estimation of the action, if declared, or its planned duration otherwise.
+     *
+     * @param a       the terminated action
+     * @param elapsed the actual duration of the action in milliseconds
+     * @return the ratio between the actual and the planned duration.
+     *         {@code Double.NaN} if it can not be computed
+     */
+    public synchronized double record(Action a, long elapsed) {
+        double s = slowdown(a, elapsed);
+        if (Double.isNaN(s)) {
+            return s;
+        }
+        double x = s;
+        Integer e = estimateOf(a);
+        if (e != null && e > 0) {
+            x = (double) elapsed / (e * 1000L);
+        }
+        nbSamples++;
+        update(byType, a.getClass(), x);
+        if (a instanceof Migration) {
+            Migration m = (Migration) a;
+            update(byNode, m.getHost(), x);
+            update(byNode, m.getDestination(), x);
+            Map<Node, Average> links = byLink.get(m.getHost());
+            if (links == null) {
+                links = new HashMap<Node, Average>();
+                byLink.put(m.getHost(), links);
+            }
+            update(links, m.getDestination(), x);
+        }
+        return s;
+    }
+
+    private <K> void update(Map<K, Average> avgs, K k, double s) {
+        Average avg = avgs.get(k);
+        if (avg == null) {
+            avgs.put(k, new Average(s));
+        } else {
+            avg.value = weight * s + (1 - weight) * avg.value;
+            avg.nb++;
+        }
+    }
+
+    /**
+     * Get the average slowdown for a type of action.
+     *
+     * @param t the type of action
+     * @return the average slowdown. {@code Double.NaN} if no action of this type was observed
+     */
+    public synchronized double getSlowdown(Class<? extends Action> t) {
+        return valueOf(byType.get(t));
+    }
+
+    /**
+     * Get the average slowdown of the migrations that involve a node.
+     *
+     * @param n the node, either the source or the destination of the migrations
+     * @return the average slowdown. {@code Double.NaN} if no migration involved the node
+     */
+    public synchronized double getSlowdown(Node n) {
+        return valueOf(byNode.get(n));
+    }
+
+    /**
+     * Get the average slowdown of the migrations between two nodes.
+     *
+     * @param src the source node
+     * @param dst the destination node
+     * @return the average slowdown. {@code Double.NaN} if no migration was observed on this link
+     */
+    public synchronized double getSlowdown(Node src, Node dst) {
+        Map<Node, Average> links = byLink.get(src);
+        return links == null ? Double.NaN : valueOf(links.get(dst));
+    }
+
+    /**
+     * Get the number of migrations observed for a node.
+     *
+     * @param n the node
+     * @return a positive integer
+     */
+    public synchronized int getNbSamples(Node n) {
+        Average avg = byNode.get(n);
+        return avg == null ? 0 : avg.nb;
+    }
+
+    /**
+     * Get the number of actions that were recorded.
+     *
+     * @return a positive integer
+     */
+    public synchronized int getNbSamples() {
+        return nbSamples;
+    }
+
+    /**
+     * Forget all the observations.
+     */
+    public synchronized void reset() {
+        byType.clear();
+        byNode.clear();
+        byLink.clear();
+        estimates.clear();
+        nbSamples = 0;
+    }
+
+    private static double valueOf(Average avg) {
+        return avg == null ? Double.NaN : avg.value;
+    }
+
+    /**
+     * A moving average with its number of samples.
+     */
+    private static class Average {
+
+        private double value;
+
+        private int nb;
+
+        Average(double v) {
+            value = v;
+            nb = 1;
+        }
+    }
+}
@@ -65,7 +65,7 @@ public abstract class FileTimedReconfigurationPlanSerializer implements TimedRec
     public final void write(TimedReconfigurationPlan plan, String path) throws IOException {
         File f = new File(path);
         File parent = f.getParentFile();
-        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+        if (parent != null && !parent.mkdirs() && !parent.isDirectory()) {
             throw new IOException("Unable to create folder '" + parent.getAbsolutePath() + "'");
         }
         FileOutputStream out = null;
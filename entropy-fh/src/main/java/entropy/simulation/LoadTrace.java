@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.simulation;
+
+import entropy.configuration.Configuration;
+
+/**
+ * A trace that indicates the resource consumption of the virtual machines over the time.
+ *
+ * @author Fabien Hermenier
+ */
+public interface LoadTrace {
+
+    /**
+     * Update the resource consumption of the virtual machines
+     * of a configuration to reflect a moment of the trace.
+     *
+     * @param cfg  the configuration to update
+     * @param time the virtual moment in milliseconds
+     */
+    void update(Configuration cfg, long time);
+}
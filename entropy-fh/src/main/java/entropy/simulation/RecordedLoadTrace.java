@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.simulation;
+
+import entropy.configuration.Configuration;
+import entropy.configuration.VirtualMachine;
+import entropy.configuration.parser.ConfigurationSerializerException;
+import entropy.configuration.parser.FileConfigurationSerializerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A load trace that replays the resource consumption of recorded configurations.
+ * Each recorded configuration describes the consumption during a fixed period.
+ * The placement of the recorded configurations is ignored, only the consumption
+ * and the demand of the virtual machines are considered. Once the last sample is reached,
+ * it is used until the end of the simulation.
+ *
+ * @author Fabien Hermenier
+ */
+public class RecordedLoadTrace implements LoadTrace {
+
+    /**
+     * The recorded samples.
+     */
+    private List<Configuration> samples;
+
+    /**
+     * The duration of a sample in milliseconds.
+     */
+    private long period;
+
+    /**
+     * Make a new trace.
+     *
+     * @param cfgs the recorded samples, in the chronological order
+     * @param p    the duration of each sample in milliseconds
+     */
+    public RecordedLoadTrace(List<Configuration> cfgs, long p) {
+        if (cfgs.isEmpty()) {
+            throw new IllegalArgumentException("At least one sample is required");
+        }
+        this.samples = cfgs;
+        this.period = p;
+    }
+
+    /**
+     * Make a new trace from configurations stored in files.
+     *
+     * @param paths the files, in the chronological order
+     * @param p     the duration of each sample in milliseconds
+     * @return the trace
+     * @throws IOException if an error occurred while reading a file
+     * @throws ConfigurationSerializerException
+     *                     if an error occurred while parsing a file
+     */
+    public static RecordedLoadTrace read(List<String> paths, long p) throws IOException, ConfigurationSerializerException {
+        List<Configuration> cfgs = new ArrayList<Configuration>(paths.size());
+        for (String path : paths) {
+            Configuration c = FileConfigurationSerializerFactory.getInstance().read(path);
+            if (c == null) {
+                throw new IOException("No serializer available for '" + path + "'");
+            }
+            cfgs.add(c);
+        }
+        return new RecordedLoadTrace(cfgs, p);
+    }
+
+    /**
+     * Get the recorded samples.
+     *
+     * @return a non-empty list
+     */
+    public List<Configuration> getSamples() {
+        return samples;
+    }
+
+    /**
+     * Get the duration of a sample.
+     *
+     * @return a duration in milliseconds
+     */
+    public long getPeriod() {
+        return period;
+    }
+
+    @Override
+    public void update(Configuration cfg, long time) {
+        int idx = (int) Math.min(time / period, samples.size() - 1);
+        Configuration sample = samples.get(idx);
+        for (VirtualMachine vm : cfg.getAllVirtualMachines()) {
+            VirtualMachine rec = sample.getAllVirtualMachines().get(vm.getName());
+            if (rec != null) {
+                vm.setCPUConsumption(rec.getCPUConsumption());
+                vm.setCPUDemand(rec.getCPUDemand());
+                vm.setMemoryConsumption(rec.getMemoryConsumption());
+                vm.setMemoryDemand(rec.getMemoryDemand());
+            }
+        }
+    }
+}
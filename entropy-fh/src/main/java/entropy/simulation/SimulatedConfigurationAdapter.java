@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.simulation;
+
+import entropy.configuration.Configuration;
+import entropy.monitoring.ConfigurationAdapter;
+import entropy.monitoring.MonitoringException;
+
+/**
+ * An adapter that observes a virtual datacenter.
+ *
+ * @author Fabien Hermenier
+ */
+public class SimulatedConfigurationAdapter extends ConfigurationAdapter {
+
+    private VirtualDatacenter datacenter;
+
+    /**
+     * Make a new adapter.
+     *
+     * @param dc the datacenter to observe
+     */
+    public SimulatedConfigurationAdapter(VirtualDatacenter dc) {
+        this.datacenter = dc;
+    }
+
+    @Override
+    public Configuration extractConfiguration() throws MonitoringException {
+        return datacenter.observe();
+    }
+}
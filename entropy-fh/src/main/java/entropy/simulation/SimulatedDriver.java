@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.simulation;
+
+import entropy.execution.driver.Driver;
+import entropy.execution.driver.DriverException;
+import entropy.plan.action.Action;
+import entropy.plan.action.Migration;
+import entropy.plan.action.Resume;
+import entropy.plan.action.Run;
+import entropy.plan.action.Shutdown;
+import entropy.plan.action.Startup;
+import entropy.plan.action.Stop;
+import entropy.plan.action.Suspend;
+import entropy.plan.durationEvaluator.DurationEvaluationException;
+import entropy.plan.durationEvaluator.DurationEvaluator;
+
+/**
+ * A driver that applies an action on a virtual datacenter.
+ * The execution lasts the duration estimated by a {@link DurationEvaluator}, in virtual time.
+ * If the duration cannot be evaluated, the duration planned for the action is used.
+ *
+ * @author Fabien Hermenier
+ */
+public class SimulatedDriver extends Driver {
+
+    private VirtualDatacenter datacenter;
+
+    private DurationEvaluator eval;
+
+    /**
+     * Make a new driver.
+     *
+     * @param a  the action to execute
+     * @param dc the datacenter to modify
+     * @param ev the evaluator to estimate the duration of the action
+     */
+    public SimulatedDriver(Action a, VirtualDatacenter dc, DurationEvaluator ev) {
+        super(a);
+        this.datacenter = dc;
+        this.eval = ev;
+    }
+
+    @Override
+    public void execute() throws DriverException {
+        try {
+            datacenter.getClock().sleep(getDuration() * 1000L);
+        } catch (InterruptedException e) {
+            throw new DriverException(this, e.getMessage(), e);
+        }
+        if (!datacenter.apply(getAction())) {
+            throw new DriverException(this, "Unable to apply " + getAction() + " on the datacenter");
+        }
+    }
+
+    /**
+     * Get the duration of the action.
+     *
+     * @return a duration in seconds
+     */
+    public int getDuration() {
+        Action a = getAction();
+        int d = -1;
+        try {
+            if (a instanceof Migration) {
+                d = eval.evaluateMigration(((Migration) a).getVirtualMachine());
+            } else if (a instanceof Run) {
+                d = eval.evaluateRun(((Run) a).getVirtualMachine());
+            } else if (a instanceof Stop) {
+                d = eval.evaluateStop(((Stop) a).getVirtualMachine());
+            } else if (a instanceof Suspend) {
+                d = eval.evaluateLocalSuspend(((Suspend) a).getVirtualMachine());
+            } else if (a instanceof Resume) {
+                Resume r = (Resume) a;
+                if (r.getHost().equals(r.getDestination())) {
+                    d = eval.evaluateLocalResume(r.getVirtualMachine());
+                } else {
+                    d = eval.evaluateRemoteResume(r.getVirtualMachine());
+                }
+            } else if (a instanceof Startup) {
+                d = eval.evaluateStartup(((Startup) a).getNode());
+            } else if (a instanceof Shutdown) {
+                d = eval.evaluateShutdown(((Shutdown) a).getNode());
+            }
+        } catch (DurationEvaluationException e) {
+            d = -1;
+        }
+        if (d < 0) {
+            d = a.getFinishMoment() - a.getStartMoment();
+        }
+        return d;
+    }
+
+    @Override
+    public String toString() {
+        return "simulated(" + getAction() + ")";
+    }
+}
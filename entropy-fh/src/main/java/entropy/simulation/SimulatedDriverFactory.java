@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.simulation;
+
+import entropy.execution.driver.Driver;
+import entropy.execution.driver.DriverFactory;
+import entropy.execution.driver.DriverInstantiationException;
+import entropy.plan.action.Action;
+import entropy.plan.durationEvaluator.DurationEvaluator;
+
+/**
+ * A factory that associates any action to a {@link SimulatedDriver}.
+ *
+ * @author Fabien Hermenier
+ */
+public class SimulatedDriverFactory extends DriverFactory {
+
+    private VirtualDatacenter datacenter;
+
+    private DurationEvaluator eval;
+
+    /**
+     * Make a new factory.
+     *
+     * @param dc the datacenter to modify
+     * @param ev the evaluator to estimate the duration of the actions
+     */
+    public SimulatedDriverFactory(VirtualDatacenter dc, DurationEvaluator ev) {
+        super(null);
+        this.datacenter = dc;
+        this.eval = ev;
+    }
+
+    @Override
+    public Driver transform(Action action) throws DriverInstantiationException {
+        return new SimulatedDriver(action, datacenter, eval);
+    }
+}
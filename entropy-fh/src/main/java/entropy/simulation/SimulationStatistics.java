@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.simulation;
+
+import entropy.configuration.Configuration;
+import entropy.configuration.Configurations;
+import entropy.plan.action.Action;
+import entropy.plan.action.Migration;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Statistics collected during a simulation.
+ * The class is thread-safe.
+ *
+ * @author Fabien Hermenier
+ */
+public class SimulationStatistics {
+
+    /**
+     * The number of actions performed, per type of action.
+     */
+    private Map<String, Integer> actions;
+
+    private int nbFailures;
+
+    /**
+     * The number of observations of the datacenter.
+     */
+    private int nbSamples;
+
+    /**
+     * The number of observations having at least one overloaded node.
+     */
+    private int nbViolatingSamples;
+
+    /**
+     * The cumulated number of overloaded nodes over all the observations.
+     */
+    private long nbOverloadedNodes;
+
+    private int nbIterations;
+
+    /**
+     * The cumulated duration of the loop iterations, in real milliseconds.
+     */
+    private long iterationsDuration;
+
+    private long maxIterationDuration;
+
+    /**
+     * Make new statistics.
+     */
+    public SimulationStatistics() {
+        actions = new TreeMap<String, Integer>();
+    }
+
+    /**
+     * Record an observation of the datacenter.
+     *
+     * @param cfg the observed configuration
+     */
+    public synchronized void addSample(Configuration cfg) {
+        nbSamples++;
+        int nb = Configurations.currentlyOverloadedNodes(cfg).size();
+        if (nb > 0) {
+            nbViolatingSamples++;
+            nbOverloadedNodes += nb;
+        }
+    }
+
+    /**
+     * Record the execution of an action.
+     *
+     * @param a       the action
+     * @param success {@code true} if the action was applied successfully
+     */
+    public synchronized void addAction(Action a, boolean success) {
+        if (!success) {
+            nbFailures++;
+            return;
+        }
+        String k = a.getClass().getSimpleName();
+        Integer nb = actions.get(k);
+        actions.put(k, nb == null ? 1 : nb + 1);
+    }
+
+    /**
+     * Record the duration of an iteration of the control loop.
+     *
+     * @param duration the duration in real milliseconds
+     */
+    public synchronized void addIteration(long duration) {
+        nbIterations++;
+        iterationsDuration += duration;
+        maxIterationDuration = Math.max(maxIterationDuration, duration);
+    }
+
+    /**
+     * Get the number of migrations performed.
+     *
+     * @return a positive integer
+     */
+    public synchronized int getNbMigrations() {
+        Integer nb = actions.get(Migration.class.getSimpleName());
+        return nb == null ? 0 : nb;
+    }
+
+    /**
+     * Get the number of actions that failed.
+     *
+     * @return a positive integer
+     */
+    public synchronized int getNbFailures() {
+        return nbFailures;
+    }
+
+    /**
+     * Get the number of observations of the datacenter.
+     *
+     * @return a positive integer
+     */
+    public synchronized int getNbSamples() {
+        return nbSamples;
+    }
+
+    /**
+     * Get the number of observations having at least one overloaded node.
+     *
+     * @return a positive integer
+     */
+    public synchronized int getNbViolatingSamples() {
+        return nbViolatingSamples;
+    }
+
+    /**
+     * Get the cumulated number of overloaded nodes over all the observations.
+     *
+     * @return a positive integer
+     */
+    public synchronized long getNbOverloadedNodes() {
+        return nbOverloadedNodes;
+    }
+
+    /**
+     * Get the number of iterations of the control loop.
+     *
+     * @return a positive integer
+     */
+    public synchronized int getNbIterations() {
+        return nbIterations;
+    }
+
+    /**
+     * Get the average duration of an iteration of the control loop.
+     *
+     * @return a duration in real milliseconds
+     */
+    public synchronized long getAverageIterationDuration() {
+        return nbIterations == 0 ? 0 : iterationsDuration / nbIterations;
+    }
+
+    /**
+     * Get the maximum duration of an iteration of the control loop.
+     *
+     * @return a duration in real milliseconds
+     */
+    public synchronized long getMaxIterationDuration() {
+        return maxIterationDuration;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder b = new StringBuilder();
+        b.append("iterations: ").append(nbIterations);
+        b.append(", avg. duration: ").append(getAverageIterationDuration()).append(" ms");
+        b.append(", max. duration: ").append(maxIterationDuration).append(" ms\n");
+        b.append("samples: ").append(nbSamples);
+        b.append(", with overloaded nodes: ").append(nbViolatingSamples);
+        b.append(", overloaded nodes: ").append(nbOverloadedNodes).append("\n");
+        b.append("actions: ").append(actions).append(", failures: ").append(nbFailures);
+        return b.toString();
+    }
+}
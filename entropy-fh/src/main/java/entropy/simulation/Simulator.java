@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.simulation;
+
+import entropy.EntropyBuilder;
+import entropy.PropertiesHelper;
+import entropy.configuration.Configuration;
+import entropy.configuration.parser.FileConfigurationSerializerFactory;
+import entropy.controlLoop.ControlLoopFactory;
+import entropy.controlLoop.CustomizableControlLoop;
+import entropy.execution.TimedReconfigurationExecuter;
+import entropy.monitoring.Monitor;
+import entropy.plan.durationEvaluator.DurationEvaluator;
+import entropy.plan.durationEvaluator.FastDurationEvaluatorFactory;
+import entropy.vjob.builder.VJobBuilderFactory;
+import entropy.vjob.builder.VJobBuilderFactoryBuilderFromProperties;
+import entropy.vjob.queue.FCFSPersistentQueue;
+import entropy.vjob.queue.VJobsPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Run the customizable control loop on a virtual datacenter.
+ * <p/>
+ * The monitoring, the executions of the actions and the delays between the iterations
+ * follow the virtual clock of the datacenter. The simulator drives the clock: it only advances
+ * the virtual time, up to the next terminating action, refresh or iteration, once the loop and the
+ * running actions wait for it. The solving processes are then instantaneous in virtual time and
+ * a replay is deterministic as long as the solver terminates within its timeouts.
+ *
+ * @author Fabien Hermenier
+ */
+public class Simulator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("Simulator");
+
+    /**
+     * Default delay between two refresh of the monitoring, in virtual seconds.
+     */
+    public static final int DEFAULT_REFRESH_DELAY = 10;
+
+    private VirtualDatacenter datacenter;
+
+    private DurationEvaluator eval;
+
+    private VJobsPool pool;
+
+    private VJobBuilderFactory builder;
+
+    /**
+     * The delay between two refresh of the monitoring, in virtual seconds.
+     */
+    private int refreshDelay = DEFAULT_REFRESH_DELAY;
+
+    private int planTimeout = 60;
+
+    private int assignTimeout = 10;
+
+    private int predictionStep = 50;
+
+    private boolean pipelined = false;
+
+    /**
+     * Make a new simulator.
+     *
+     * @param dc the datacenter to simulate
+     * @param ev the evaluator to estimate the duration of the actions
+     * @param p  the pool of vjobs
+     * @param b  the builder for the vjobs
+     */
+    public Simulator(VirtualDatacenter dc, DurationEvaluator ev, VJobsPool p, VJobBuilderFactory b) {
+        this.datacenter = dc;
+        this.eval = ev;
+        this.pool = p;
+        this.builder = b;
+    }
+
+    /**
+     * Set the delay between two refresh of the monitoring.
+     *
+     * @param seconds the delay in virtual seconds. Must be strictly positive
+     */
+    public void setRefreshDelay(int seconds) {
+        if (seconds <= 0) {
+            throw new IllegalArgumentException("The refresh delay must be strictly positive: " + seconds);
+        }
+        this.refreshDelay = seconds;
+    }
+
+    /**
+     * Set the timeout of the planner.
+     *
+     * @param seconds the timeout in real seconds
+     */
+    public void setPlanTimeout(int seconds) {
+        this.planTimeout = seconds;
+    }
+
+    /**
+     * Set the timeout of the decision module.
+     *
+     * @param seconds the timeout in real seconds
+     */
+    public void setAssignTimeout(int seconds) {
+        this.assignTimeout = seconds;
+    }
+
+    /**
+     * Set the prediction step of the decision module.
+     *
+     * @param st the step
+     */
+    public void setPredictionStep(int st) {
+        this.predictionStep = st;
+    }
+
+    /**
+     * Set whether the control loop is pipelined.
+     *
+     * @param b {@code true} to pipeline the loop
+     * @see CustomizableControlLoop#setPipelined(boolean)
+     */
+    public void setPipelined(boolean b) {
+        this.pipelined = b;
+    }
+
+    /**
+     * Run the simulation.
+     *
+     * @param duration   the duration of the simulation in virtual seconds
+     * @param sleepDelay the delay between two iterations of the loop in virtual seconds. Must be strictly positive
+     * @return the statistics of the simulation
+     */
+    public SimulationStatistics run(long duration, int sleepDelay) {
+        if (sleepDelay <= 0) {
+            throw new IllegalArgumentException("The delay between two iterations must be strictly positive: " + sleepDelay);
+        }
+        VirtualClock clock = datacenter.getClock();
+        Monitor monitor = new Monitor(new SimulatedConfigurationAdapter(datacenter));
+        TimedReconfigurationExecuter exec = new TimedReconfigurationExecuter(new SimulatedDriverFactory(datacenter, eval));
+        final CustomizableControlLoop loop = new CustomizableControlLoop(monitor, pool, builder, eval, exec);
+        //The refreshes are performed by the simulator, at fixed virtual moments
+        loop.setRefreshPeriod(Long.MAX_VALUE);
+        loop.setPlanTimeout(planTimeout);
+        loop.setAssignTimeout(assignTimeout);
+        loop.setPredictionStep(predictionStep);
+        loop.setPipelined(pipelined);
+
+        final SimulationStatistics stats = datacenter.getStatistics();
+        long nextRefresh = 0;
+        try {
+            while (clock.now() < duration * 1000L) {
+                awaitQuiescence(null, exec, clock);
+                if (clock.now() >= nextRefresh) {
+                    loop.refresh();
+                    nextRefresh = clock.now() + refreshDelay * 1000L;
+                }
+                Thread it = new Thread("simulation-loop") {
+                    @Override
+                    public void run() {
+                        long st = System.currentTimeMillis();
+                        loop.runLoop();
+                        stats.addIteration(System.currentTimeMillis() - st);
+                    }
+                };
+                it.start();
+                long next = clock.now() + sleepDelay * 1000L;
+                while (true) {
+                    awaitQuiescence(it, exec, clock);
+                    if (clock.now() >= nextRefresh) {
+                        loop.refresh();
+                        nextRefresh = clock.now() + refreshDelay * 1000L;
+                    }
+                    if (!it.isAlive() && clock.now() >= next) {
+                        break;
+                    }
+                    advance(clock, it.isAlive() ? nextRefresh : Math.min(next, nextRefresh));
+                }
+                LOGGER.debug("Virtual time: " + clock.now() / 1000 + " s");
+            }
+            //Let the running actions terminate
+            while (!exec.getRunningActions().isEmpty()) {
+                awaitQuiescence(null, exec, clock);
+                advance(clock, Long.MAX_VALUE);
+            }
+        } catch (InterruptedException e) {
+            LOGGER.error(e.getMessage(), e);
+        } finally {
+            loop.destroy();
+        }
+        return stats;
+    }
+
+    /**
+     * Advance the clock up to the next moment a sleeping action must be woken up.
+     *
+     * @param clock the clock to advance
+     * @param limit the latest moment to reach
+     */
+    private static void advance(VirtualClock clock, long limit) {
+        long w = clock.getNextWakeup();
+        long t = w < 0 ? limit : Math.min(w, limit);
+        if (t == Long.MAX_VALUE) {
+            throw new IllegalStateException("The simulation is stuck: nothing to wait for at " + clock.now() + " ms");
+        }
+        clock.advanceTo(t);
+    }
+
+    /**
+     * Wait until the iteration of the loop and the running actions wait for the clock.
+     * The iteration waits if it is terminated or if it waits for the termination of the current plan.
+     * The state is read twice to ignore the transitions that occurred in between.
+     *
+     * @param it    the thread running the iteration. {@code null} if there is no iteration
+     * @param exec  the execution module
+     * @param clock the clock
+     * @throws InterruptedException if the thread is interrupted
+     */
+    private static void awaitQuiescence(Thread it, TimedReconfigurationExecuter exec, VirtualClock clock) throws InterruptedException {
+        while (true) {
+            boolean idle = it == null || !it.isAlive() || exec.isWaitedFor();
+            int nb = exec.getRunningActions().size();
+            if (idle && clock.getNbSleepers() == nb
+                    && (it == null || !it.isAlive() || exec.isWaitedFor())
+                    && exec.getRunningActions().size() == nb) {
+                return;
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Launcher.
+     *
+     * @param args arguments to pass
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Simulate the control loop on a virtual datacenter");
+            System.out.println("Usage: simulate properties configuration duration [period trace_files]");
+            System.out.println("properties: the entropy properties file");
+            System.out.println("configuration: the initial configuration of the datacenter");
+            System.out.println("duration: the duration of the simulation in virtual seconds");
+            System.out.println("period trace_files: recorded configurations to replay, each lasting 'period' seconds.");
+            System.out.println("Without trace files, a synthetic daily load is generated");
+            System.exit(args.length == 0 ? 0 : 1);
+        }
+        try {
+            PropertiesHelper props = new PropertiesHelper(args[0]);
+            Configuration init = FileConfigurationSerializerFactory.getInstance().read(args[1]);
+            if (init == null) {
+                throw new IllegalArgumentException("Unsupported configuration format: " + args[1]);
+            }
+            long duration = Long.parseLong(args[2]);
+            VirtualClock clock = new VirtualClock();
+            LoadTrace trace;
+            if (args.length > 4) {
+                List<String> files = new ArrayList<String>();
+                for (int i = 4; i < args.length; i++) {
+                    files.add(args[i]);
+                }
+                trace = RecordedLoadTrace.read(files, Long.parseLong(args[3]) * 1000L);
+            } else {
+                trace = new SyntheticLoadTrace(0, 24 * 3600 * 1000L, 0.3, 0.1, 60 * 1000L);
+            }
+            VirtualDatacenter dc = new VirtualDatacenter(init, trace, clock);
+            DurationEvaluator ev = FastDurationEvaluatorFactory.readFromProperties(props);
+            VJobBuilderFactory b = new VJobBuilderFactoryBuilderFromProperties().build();
+            VJobsPool pool = new FCFSPersistentQueue(b, new File(props.getRequiredProperty(ControlLoopFactory.CONTROL_LOOP + "."
+                    + ControlLoopFactory.CUSTOM + ".vjobsPath")));
+            Simulator sim = new Simulator(dc, ev, pool, b);
+            String prefix = ControlLoopFactory.CONTROL_LOOP + "." + ControlLoopFactory.CUSTOM;
+            sim.setPlanTimeout(props.getRequiredPropertyAsInt(prefix + ".planTimeout"));
+            sim.setAssignTimeout(props.getRequiredPropertyAsInt(prefix + ".assignTimeout"));
+            sim.setPredictionStep(props.getRequiredPropertyAsInt(prefix + ".prediction.step"));
+            sim.setPipelined(props.getOptionalProperty(prefix + ".pipelined", false));
+            int sleepDelay = props.getRequiredPropertyAsInt(EntropyBuilder.SLEEP_DELAY_KEY);
+            System.out.println(sim.run(duration, sleepDelay));
+            System.exit(0);
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.simulation;
+
+import entropy.configuration.Configuration;
+import entropy.configuration.VirtualMachine;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A synthetic load trace where the CPU consumption of each virtual machine follows
+ * a sinusoid around its initial consumption, with a random phase and a random noise.
+ * The trace is deterministic: the phase of a virtual machine and the noise of each step
+ * only depend on the seed, the name of the virtual machine and the moment.
+ *
+ * @author Fabien Hermenier
+ */
+public class SyntheticLoadTrace implements LoadTrace {
+
+    /**
+     * The initial CPU consumption of each virtual machine.
+     */
+    private Map<String, Integer> bases;
+
+    private long seed;
+
+    /**
+     * The period of the sinusoid in milliseconds.
+     */
+    private long period;
+
+    /**
+     * The amplitude of the sinusoid, as a ratio of the initial consumption.
+     */
+    private double amplitude;
+
+    /**
+     * The maximum noise, as a ratio of the initial consumption.
+     */
+    private double noise;
+
+    /**
+     * The duration of a step in milliseconds. The noise is constant during a step.
+     */
+    private long step;
+
+    /**
+     * Make a new trace.
+     *
+     * @param s   the seed
+     * @param p   the period of the sinusoid in milliseconds
+     * @param amp the amplitude of the sinusoid, as a ratio of the initial consumption
+     * @param n   the maximum noise, as a ratio of the initial consumption
+     * @param st  the duration of a noise step in milliseconds
+     */
+    public SyntheticLoadTrace(long s, long p, double amp, double n, long st) {
+        this.seed = s;
+        this.period = p;
+        this.amplitude = amp;
+        this.noise = n;
+        this.step = st;
+        this.bases = new HashMap<String, Integer>();
+    }
+
+    @Override
+    public void update(Configuration cfg, long time) {
+        for (VirtualMachine vm : cfg.getAllVirtualMachines()) {
+            Integer base = bases.get(vm.getName());
+            if (base == null) {
+                base = vm.getCPUConsumption();
+                bases.put(vm.getName(), base);
+            }
+            int c = getCPUConsumption(vm.getName(), base, time);
+            vm.setCPUConsumption(c);
+            vm.setCPUDemand(c);
+        }
+    }
+
+    /**
+     * Compute the CPU consumption of a virtual machine at a given moment.
+     *
+     * @param name the name of the virtual machine
+     * @param base its initial consumption
+     * @param time the moment in milliseconds
+     * @return a positive consumption
+     */
+    public int getCPUConsumption(String name, int base, long time) {
+        double phase = new Random(seed ^ name.hashCode()).nextDouble() * 2 * Math.PI;
+        double n = new Random(seed ^ name.hashCode() ^ (time / step) * 31).nextDouble() * 2 - 1;
+        double v = base * (1 + amplitude * Math.sin(2 * Math.PI * time / period + phase) + noise * n);
+        return Math.max(0, (int) Math.round(v));
+    }
+}
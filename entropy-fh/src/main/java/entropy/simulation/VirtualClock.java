@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.simulation;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A discrete clock for the simulations.
+ * The virtual time starts at 0 when the clock is created and is expressed in milliseconds.
+ * It does not depend on the real time: it only moves forward when the simulation advances it,
+ * typically up to the moment the next sleeping thread must be woken up. Replaying the same
+ * trace then observes the datacenter and terminates the actions at the same virtual moments,
+ * whatever the load of the host.
+ *
+ * @author Fabien Hermenier
+ */
+public class VirtualClock {
+
+    /**
+     * The current virtual time.
+     */
+    private long now;
+
+    /**
+     * The moments the sleeping threads must be woken up, with the number of threads for each moment.
+     */
+    private TreeMap<Long, Integer> wakeups;
+
+    /**
+     * Make a new clock.
+     */
+    public VirtualClock() {
+        this.wakeups = new TreeMap<Long, Integer>();
+    }
+
+    /**
+     * Get the current virtual time.
+     *
+     * @return a duration in milliseconds since the creation of the clock
+     */
+    public synchronized long now() {
+        return now;
+    }
+
+    /**
+     * Sleep during a virtual duration.
+     * The method returns once the clock has been advanced to the end of the duration.
+     *
+     * @param virtual the virtual duration in milliseconds
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public synchronized void sleep(long virtual) throws InterruptedException {
+        if (virtual <= 0) {
+            return;
+        }
+        long t = now + virtual;
+        Integer nb = wakeups.get(t);
+        wakeups.put(t, nb == null ? 1 : nb + 1);
+        try {
+            while (now < t) {
+                wait();
+            }
+        } finally {
+            nb = wakeups.remove(t);
+            if (nb > 1) {
+                wakeups.put(t, nb - 1);
+            }
+        }
+    }
+
+    /**
+     * Get the number of threads that are sleeping until a future moment.
+     * The threads woken up by the last advance of the clock are not counted.
+     *
+     * @return a positive integer
+     */
+    public synchronized int getNbSleepers() {
+        int nb = 0;
+        for (Map.Entry<Long, Integer> e : wakeups.tailMap(now, false).entrySet()) {
+            nb += e.getValue();
+        }
+        return nb;
+    }
+
+    /**
+     * Get the next moment a sleeping thread must be woken up.
+     *
+     * @return a moment in milliseconds. {@code -1} if no thread is sleeping
+     */
+    public synchronized long getNextWakeup() {
+        Long t = wakeups.higherKey(now);
+        return t == null ? -1 : t;
+    }
+
+    /**
+     * Advance the virtual time.
+     * The threads sleeping until this moment are woken up.
+     *
+     * @param t the new virtual time in milliseconds. Ignored if it is not in the future
+     */
+    public synchronized void advanceTo(long t) {
+        if (t > now) {
+            now = t;
+            notifyAll();
+        }
+    }
+}
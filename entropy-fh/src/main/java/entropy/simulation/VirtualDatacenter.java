@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.simulation;
+
+import entropy.configuration.Configuration;
+import entropy.configuration.Node;
+import entropy.configuration.SimpleConfiguration;
+import entropy.configuration.VirtualMachine;
+import entropy.plan.action.Action;
+import entropy.plan.action.Migration;
+import entropy.plan.action.Resume;
+import entropy.plan.action.Run;
+import entropy.plan.action.Shutdown;
+import entropy.plan.action.Startup;
+import entropy.plan.action.Stop;
+import entropy.plan.action.Suspend;
+
+/**
+ * A virtual datacenter. It maintains the real state of the simulated infrastructure.
+ * The resource consumption of the virtual machines follows a load trace
+ * while the placement is modified by the actions applied by the simulated drivers.
+ * <p/>
+ * The datacenter manages its own instances of nodes and virtual machines, actions are
+ * resolved using the name of their elements.
+ *
+ * @author Fabien Hermenier
+ */
+public class VirtualDatacenter {
+
+    /**
+     * The real state of the datacenter.
+     */
+    private Configuration state;
+
+    private LoadTrace trace;
+
+    private VirtualClock clock;
+
+    private SimulationStatistics stats;
+
+    /**
+     * Make a new datacenter.
+     *
+     * @param init the initial configuration. It is copied
+     * @param t    the load trace
+     * @param c    the clock
+     */
+    public VirtualDatacenter(Configuration init, LoadTrace t, VirtualClock c) {
+        this.state = copy(init);
+        this.trace = t;
+        this.clock = c;
+        this.stats = new SimulationStatistics();
+    }
+
+    /**
+     * Get the clock of the simulation.
+     *
+     * @return the clock
+     */
+    public VirtualClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Get the statistics of the simulation.
+     *
+     * @return the statistics
+     */
+    public SimulationStatistics getStatistics() {
+        return stats;
+    }
+
+    /**
+     * Observe the datacenter at the current virtual moment.
+     *
+     * @return a copy of the current state
+     */
+    public synchronized Configuration observe() {
+        trace.update(state, clock.now());
+        stats.addSample(state);
+        return copy(state);
+    }
+
+    /**
+     * Apply an action on the datacenter.
+     *
+     * @param a the action to apply
+     * @return {@code true} if the action was compatible with the current state
+     */
+    public synchronized boolean apply(Action a) {
+        boolean ret;
+        if (a instanceof Migration) {
+            Migration m = (Migration) a;
+            VirtualMachine vm = vm(m.getVirtualMachine());
+            ret = vm != null && state.isRunning(vm)
+                    && state.getLocation(vm).getName().equals(m.getHost().getName())
+                    && state.setRunOn(vm, node(m.getDestination()));
+        } else if (a instanceof Run) {
+            Run r = (Run) a;
+            VirtualMachine vm = vm(r.getVirtualMachine());
+            if (vm == null) {
+                vm = r.getVirtualMachine().clone();
+            }
+            ret = !state.isRunning(vm) && state.setRunOn(vm, node(r.getHost()));
+        } else if (a instanceof Stop) {
+            VirtualMachine vm = vm(((Stop) a).getVirtualMachine());
+            ret = vm != null && state.isRunning(vm);
+            if (ret) {
+                state.remove(vm);
+            }
+        } else if (a instanceof Suspend) {
+            Suspend s = (Suspend) a;
+            VirtualMachine vm = vm(s.getVirtualMachine());
+            ret = vm != null && state.isRunning(vm) && state.setSleepOn(vm, node(s.getDestination()));
+        } else if (a instanceof Resume) {
+            Resume r = (Resume) a;
+            VirtualMachine vm = vm(r.getVirtualMachine());
+            ret = vm != null && state.isSleeping(vm) && state.setRunOn(vm, node(r.getDestination()));
+        } else if (a instanceof Startup) {
+            Node n = node(((Startup) a).getNode());
+            ret = n != null && state.isOffline(n);
+            if (ret) {
+                state.addOnline(n);
+            }
+        } else if (a instanceof Shutdown) {
+            Node n = node(((Shutdown) a).getNode());
+            ret = n != null && state.isOnline(n)
+                    && state.getRunnings(n).isEmpty() && state.getSleepings(n).isEmpty()
+                    && state.addOffline(n);
+        } else {
+            ret = a.apply(state);
+        }
+        stats.addAction(a, ret);
+        return ret;
+    }
+
+    private VirtualMachine vm(VirtualMachine vm) {
+        return state.getAllVirtualMachines().get(vm.getName());
+    }
+
+    private Node node(Node n) {
+        Node x = state.getAllNodes().get(n.getName());
+        return x == null ? n : x;
+    }
+
+    /**
+     * Make a deep copy of a configuration.
+     *
+     * @param src the configuration to copy
+     * @return a configuration with copies of the nodes and the virtual machines
+     */
+    public static Configuration copy(Configuration src) {
+        Configuration c = new SimpleConfiguration();
+        for (Node n : src.getOfflines()) {
+            c.addOffline(n.clone());
+        }
+        for (VirtualMachine vm : src.getWaitings()) {
+            c.addWaiting(vm.clone());
+        }
+        for (Node n : src.getOnlines()) {
+            Node n2 = n.clone();
+            c.addOnline(n2);
+            for (VirtualMachine vm : src.getRunnings(n)) {
+                c.setRunOn(vm.clone(), n2);
+            }
+            for (VirtualMachine vm : src.getSleepings(n)) {
+                c.setSleepOn(vm.clone(), n2);
+            }
+        }
+        return c;
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * A simulation environment to run the control loop without a real infrastructure.
+ * The monitoring replays recorded configurations or synthetic load traces,
+ * while the actions are applied on a virtual datacenter using durations
+ * computed by a {@link entropy.plan.durationEvaluator.DurationEvaluator}.
+ * The time is given by a discrete {@link entropy.simulation.VirtualClock} that is advanced
+ * by the simulator from one event to the next, so long periods are replayed quickly and
+ * two replays of a same trace are identical.
+ */
+package entropy.simulation;
@@ -0,0 +1,552 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.tools;
+
+import entropy.configuration.Configuration;
+import entropy.configuration.parser.FileConfigurationSerializer;
+import entropy.configuration.parser.FileConfigurationSerializerFactory;
+import entropy.plan.TimedReconfigurationPlan;
+import entropy.plan.parser.FileTimedReconfigurationPlanSerializer;
+import entropy.plan.parser.FileTimedReconfigurationPlanSerializerFactory;
+import entropy.vjob.VJob;
+import entropy.vjob.builder.DefaultVJobFileSerializerFactory;
+import entropy.vjob.builder.VJobBuilderFactory;
+import entropy.vjob.builder.VJobBuilderFactoryBuilderException;
+import entropy.vjob.builder.VJobBuilderFactoryBuilderFromProperties;
+import entropy.vjob.builder.VJobFileSerializerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Convert large series of configurations, plans or vjobs using a bounded pool of workers.
+ * <p/>
+ * Inputs may be files, folders (browsed recursively) or globs on the file name
+ * (e.g. {@code logs/cfg-*.pbd}). The relative path of a file inside a browsed folder is kept
+ * in the output folder. Only the paths of the pending files are queued, so at most one object
+ * graph per worker is in memory. When the input and the output format are both protobuf,
+ * the file is streamed to the output without being unserialized.
+ * <p/>
+ * The absolute path of each converted input is appended to a journal in the output folder.
+ * When resuming, the inputs listed in the journal are skipped.
+ *
+ * @author Fabien Hermenier
+ */
+public class BatchDataConverter {
+
+    /**
+     * The name of the journal file inside the output folder.
+     */
+    public static final String JOURNAL = ".dataConv.journal";
+
+    /**
+     * The protobuf format.
+     */
+    public static final String PROTOBUF_FORMAT = "pbd";
+
+    /**
+     * The size of the buffer used to stream files.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The conversion mode. One of {@link DataConverter#CFG_MODE}, {@link DataConverter#PLAN_MODE}
+     * or {@link DataConverter#VJOB_MODE}.
+     */
+    private String mode;
+
+    private String outputFormat;
+
+    private String outputPath;
+
+    private int nbWorkers;
+
+    private boolean resume;
+
+    /**
+     * The configuration used to type the vjobs. May be {@code null}.
+     */
+    private Configuration vjobCfg;
+
+    /**
+     * The vjob builders. One per worker as they are not thread-safe.
+     */
+    private ThreadLocal<VJobBuilderFactory> vjobBuilders;
+
+    /**
+     * The inputs that have already been converted.
+     */
+    private Set<String> done;
+
+    private Writer journal;
+
+    /**
+     * Statistics per input format. Accesses must be synchronized on the map.
+     */
+    private final Map<String, FormatStats> stats;
+
+    private final AtomicLong bytesRead;
+
+    /**
+     * Make a new converter.
+     *
+     * @param mode         the type of the data to convert
+     * @param outputFormat the output format
+     * @param outputPath   the output folder
+     * @param nbWorkers    the number of workers. Must be strictly positive
+     * @param resume       {@code true} to skip the inputs that have been converted by a previous run
+     */
+    public BatchDataConverter(String mode, String outputFormat, String outputPath, int nbWorkers, boolean resume) {
+        this.mode = mode;
+        this.outputFormat = outputFormat;
+        this.outputPath = outputPath;
+        this.nbWorkers = nbWorkers;
+        this.resume = resume;
+        this.stats = new TreeMap<String, FormatStats>();
+        this.bytesRead = new AtomicLong(0);
+        this.done = new HashSet<String>();
+    }
+
+    /**
+     * Convert all the given inputs.
+     *
+     * @param inputs the files, folders or globs to convert
+     * @return {@code true} if all the conversions succeeded
+     * @throws IOException if an error occurred while managing the journal
+     */
+    public boolean convert(List<String> inputs) throws IOException {
+
+        List<String[]> jobs = new ArrayList<String[]>();
+        for (String input : inputs) {
+            expand(input, jobs);
+        }
+
+        if (mode.equals(DataConverter.VJOB_MODE) && !jobs.isEmpty()) {
+            //Same convention than the sequential mode, the first file may be a configuration.
+            String first = jobs.get(0)[0];
+            try {
+                vjobCfg = FileConfigurationSerializerFactory.getInstance().read(first);
+            } catch (Exception e) {
+                vjobCfg = null;
+            }
+            if (vjobCfg != null) {
+                System.out.println("Consider " + first + " as a configuration");
+                jobs.remove(0);
+            }
+            vjobBuilders = new ThreadLocal<VJobBuilderFactory>();
+        }
+
+        File out = new File(outputPath);
+        if (!out.exists() && !out.mkdirs()) {
+            throw new IOException("Unable to create folder '" + out.getAbsolutePath() + "'");
+        }
+        File jFile = new File(out, JOURNAL);
+        if (resume && jFile.exists()) {
+            readJournal(jFile);
+        }
+        journal = new FileWriter(jFile, resume);
+        if (resume && !endsWithNewLine(jFile)) {
+            //A crash may have left a partial line
+            journal.write('\n');
+        }
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(nbWorkers, nbWorkers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(nbWorkers * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+
+        long st = System.currentTimeMillis();
+        int skipped = 0;
+        try {
+            for (final String[] job : jobs) {
+                if (done.contains(job[0])) {
+                    skipped++;
+                    continue;
+                }
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        convertOne(job[0], job[1]);
+                    }
+                });
+            }
+            pool.shutdown();
+            while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+                //Waiting
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (this) {
+                journal.close();
+            }
+        }
+        long duration = System.currentTimeMillis() - st;
+        return report(skipped, duration);
+    }
+
+    /**
+     * Convert a single file. The result is stored in the statistics
+     * and the journal.
+     *
+     * @param input  the input file
+     * @param output the output file
+     */
+    private void convertOne(String input, String output) {
+        String fmt = extension(input);
+        FormatStats s = statsFor(fmt);
+        try {
+            if (mode.equals(DataConverter.CFG_MODE)) {
+                convertConfiguration(input, output);
+            } else if (mode.equals(DataConverter.PLAN_MODE)) {
+                convertPlan(input, output);
+            } else {
+                convertVJob(input, output);
+            }
+            //Counted as converted only once journaled
+            markDone(input);
+            bytesRead.addAndGet(new File(input).length());
+            synchronized (stats) {
+                s.nbConverted++;
+            }
+        } catch (Exception e) {
+            synchronized (stats) {
+                s.nbFailures++;
+            }
+            System.err.println("Unable to convert '" + input + "': " + e.getMessage());
+        }
+    }
+
+    private void convertConfiguration(String input, String output) throws Exception {
+        if (isStreamable(input)) {
+            copy(input, output);
+            return;
+        }
+        FileConfigurationSerializer src = FileConfigurationSerializerFactory.getInstance().getSerializer(input);
+        if (src == null) {
+            throw new IOException("not compatible with the input format");
+        }
+        Configuration cfg = src.read(input);
+        if (!FileConfigurationSerializerFactory.getInstance().write(cfg, output)) {
+            throw new IOException("Unsupported output format: " + outputFormat);
+        }
+    }
+
+    private void convertPlan(String input, String output) throws Exception {
+        if (isStreamable(input)) {
+            copy(input, output);
+            return;
+        }
+        FileTimedReconfigurationPlanSerializer src = FileTimedReconfigurationPlanSerializerFactory.getInstance().getSerializer(input);
+        if (src == null) {
+            throw new IOException("not compatible with the input format");
+        }
+        TimedReconfigurationPlan plan = src.read(input);
+        if (!FileTimedReconfigurationPlanSerializerFactory.getInstance().write(plan, output)) {
+            throw new IOException("Unsupported output format: " + outputFormat);
+        }
+    }
+
+    private void convertVJob(String input, String output) throws Exception {
+        VJobBuilderFactory in = vjobBuilders.get();
+        if (in == null) {
+            try {
+                in = new VJobBuilderFactoryBuilderFromProperties().build();
+            } catch (VJobBuilderFactoryBuilderException e) {
+                throw new IOException(e.getMessage());
+            }
+            if (vjobCfg != null) {
+                in.useConfiguration(vjobCfg);
+            }
+            vjobBuilders.set(in);
+        }
+        VJob v = in.build(input);
+        VJobFileSerializerFactory out = DefaultVJobFileSerializerFactory.getInstance();
+        out.write(v, output);
+    }
+
+    /**
+     * Indicates whether a file can be directly streamed to the output.
+     *
+     * @param input the input file
+     * @return {@code true} if the input and the output format are both protobuf
+     */
+    private boolean isStreamable(String input) {
+        return PROTOBUF_FORMAT.equals(outputFormat) && PROTOBUF_FORMAT.equals(extension(input));
+    }
+
+    /**
+     * Stream a file to another one.
+     *
+     * @param input  the source file
+     * @param output the destination file
+     * @throws IOException if an error occurred while streaming
+     */
+    private static void copy(String input, String output) throws IOException {
+        File f = new File(output);
+        File parent = f.getParentFile();
+        //Another worker may create the folder concurrently
+        if (parent != null && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Unable to create folder '" + parent.getAbsolutePath() + "'");
+        }
+        InputStream in = null;
+        OutputStream out = null;
+        try {
+            in = new BufferedInputStream(new FileInputStream(input), BUFFER_SIZE);
+            out = new BufferedOutputStream(new FileOutputStream(f), BUFFER_SIZE);
+            byte[] buf = new byte[BUFFER_SIZE];
+            int nb = in.read(buf);
+            while (nb >= 0) {
+                out.write(buf, 0, nb);
+                nb = in.read(buf);
+            }
+        } finally {
+            if (in != null) {
+                in.close();
+            }
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    private synchronized void markDone(String input) throws IOException {
+        journal.write(input);
+        journal.write('\n');
+        journal.flush();
+    }
+
+    private static boolean endsWithNewLine(File f) throws IOException {
+        if (f.length() == 0) {
+            return true;
+        }
+        RandomAccessFile in = new RandomAccessFile(f, "r");
+        try {
+            in.seek(f.length() - 1);
+            return in.read() == '\n';
+        } finally {
+            in.close();
+        }
+    }
+
+    private void readJournal(File f) throws IOException {
+        BufferedReader in = null;
+        try {
+            in = new BufferedReader(new FileReader(f));
+            String line = in.readLine();
+            while (line != null) {
+                done.add(line);
+                line = in.readLine();
+            }
+        } finally {
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+
+    private FormatStats statsFor(String fmt) {
+        synchronized (stats) {
+            FormatStats s = stats.get(fmt);
+            if (s == null) {
+                s = new FormatStats();
+                stats.put(fmt, s);
+            }
+            return s;
+        }
+    }
+
+    /**
+     * Get the number of files converted by the last run.
+     *
+     * @return a positive integer
+     */
+    public int getNbConverted() {
+        int nb = 0;
+        synchronized (stats) {
+            for (FormatStats s : stats.values()) {
+                nb += s.nbConverted;
+            }
+        }
+        return nb;
+    }
+
+    /**
+     * Get the number of files that failed to be converted during the last run.
+     *
+     * @return a positive integer
+     */
+    public int getNbFailures() {
+        int nb = 0;
+        synchronized (stats) {
+            for (FormatStats s : stats.values()) {
+                nb += s.nbFailures;
+            }
+        }
+        return nb;
+    }
+
+    /**
+     * Print the statistics of the conversion.
+     *
+     * @param skipped  the number of inputs skipped because already converted
+     * @param duration the duration of the conversion in milliseconds
+     * @return {@code true} if there was no failure
+     */
+    private boolean report(int skipped, long duration) {
+        int nbConverted = 0;
+        int nbFailures = 0;
+        StringBuilder b = new StringBuilder();
+        synchronized (stats) {
+            for (Map.Entry<String, FormatStats> e : stats.entrySet()) {
+                nbConverted += e.getValue().nbConverted;
+                nbFailures += e.getValue().nbFailures;
+                b.append("\t").append(e.getKey()).append(": ").append(e.getValue().nbConverted).append(" converted, ");
+                b.append(e.getValue().nbFailures).append(" failure(s)\n");
+            }
+        }
+        double secs = Math.max(duration, 1) / 1000.0;
+        System.out.println(nbConverted + " file(s) converted, " + nbFailures + " failure(s), "
+                + skipped + " already converted, in " + duration + " ms");
+        System.out.printf("Throughput: %.1f files/s, %.2f MB/s%n", nbConverted / secs,
+                bytesRead.get() / (1024.0 * 1024.0) / secs);
+        System.out.print(b.toString());
+        return nbFailures == 0;
+    }
+
+    /**
+     * Expand an input into a list of files to convert.
+     * Each job is a couple (input file, output file).
+     *
+     * @param input the input. A file, a folder or a glob
+     * @param jobs  the list to fill
+     */
+    private void expand(String input, List<String[]> jobs) {
+        File f = new File(input);
+        if (f.isDirectory()) {
+            browse(f, "", jobs);
+        } else if (f.getName().indexOf('*') >= 0 || f.getName().indexOf('?') >= 0) {
+            File parent = f.getAbsoluteFile().getParentFile();
+            Pattern p = globToPattern(f.getName());
+            File[] files = parent.listFiles();
+            if (files != null) {
+                List<String> matching = new ArrayList<String>();
+                for (File c : files) {
+                    if (c.isFile() && p.matcher(c.getName()).matches()) {
+                        matching.add(c.getAbsolutePath());
+                    }
+                }
+                Collections.sort(matching);
+                for (String m : matching) {
+                    jobs.add(new String[]{m, outputName(new File(m).getName())});
+                }
+            }
+        } else {
+            jobs.add(new String[]{f.getAbsolutePath(), outputName(f.getName())});
+        }
+    }
+
+    private void browse(File dir, String rel, List<String[]> jobs) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        List<File> sorted = new ArrayList<File>();
+        Collections.addAll(sorted, files);
+        Collections.sort(sorted);
+        for (File c : sorted) {
+            if (c.isDirectory()) {
+                browse(c, rel + c.getName() + File.separator, jobs);
+            } else if (!c.getName().equals(JOURNAL) && c.getName().lastIndexOf('.') > 0) {
+                jobs.add(new String[]{c.getAbsolutePath(), outputName(rel + c.getName())});
+            }
+        }
+    }
+
+    /**
+     * Get the output file of an input. The extension of the input, if any, is replaced by the output format.
+     *
+     * @param relPath the path of the input, relative to the input folder
+     * @return the path of the output file
+     */
+    private String outputName(String relPath) {
+        int idx = relPath.lastIndexOf('.');
+        String name = idx > relPath.lastIndexOf(File.separatorChar) + 1 ? relPath.substring(0, idx) : relPath;
+        return new StringBuilder(outputPath).append('/').append(name).append('.').append(outputFormat).toString();
+    }
+
+    private static String extension(String path) {
+        int idx = path.lastIndexOf('.');
+        return idx < 0 ? "" : path.substring(idx + 1);
+    }
+
+    /**
+     * Convert a glob to a regular expression.
+     * Only '*' and '?' are supported.
+     *
+     * @param glob the glob
+     * @return the pattern
+     */
+    private static Pattern globToPattern(String glob) {
+        StringBuilder b = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*') {
+                b.append(".*");
+            } else if (c == '?') {
+                b.append('.');
+            } else {
+                b.append(Pattern.quote(Character.toString(c)));
+            }
+        }
+        return Pattern.compile(b.toString());
+    }
+
+    /**
+     * Conversion statistics for a input format.
+     */
+    private static class FormatStats {
+
+        private int nbConverted;
+
+        private int nbFailures;
+    }
+}
@@ -51,6 +51,16 @@ public final class DataConverter {
 
     public static final String OUT_FORMAT_FLAG = "-of";
 
+    /**
+     * Flag to specify the number of workers. Enable the batch mode.
+     */
+    public static final String WORKERS_FLAG = "-j";
+
+    /**
+     * Flag to resume an interrupted batch conversion.
+     */
+    public static final String RESUME_FLAG = "-resume";
+
     private DataConverter() {
     }
 
@@ -68,9 +78,13 @@ public final class DataConverter {
 
         if (args.length < 5) {
             System.out.println("Convert configuration file");
-            System.out.println("Usage: dataConv [-plan | -cfg | -vjob] -of output_format input_files output");
+            System.out.println("Usage: dataConv [-plan | -cfg | -vjob] -of output_format [-j nb_workers] [-resume] input_files output");
             System.out.println("input_files: series of files. Format will de  inferred from the files extension");
             System.out.println("output: the ouput folder");
+            System.out.println("Batch mode, enabled with -j, -resume or when an input is a folder or a glob:");
+            System.out.println("\t-j nb_workers: number of files converted in parallel");
+            System.out.println("\t-resume: skip the files converted by a previous run");
+            System.out.println("\tfolders are browsed recursively, globs ('*', '?') apply on the file names");
             System.out.println("Supported datafile:");
             System.out.println("\t-plan reconfiguration plan");
             System.out.println("\t-cfg configuration");
@@ -91,6 +105,8 @@ public final class DataConverter {
         String outputPath;
         String outputFormat = null;
         String mode = null;
+        int nbWorkers = -1;
+        boolean resume = false;
         List<String> inputs = new LinkedList<String>();
         int i = 0;
         while (i < args.length) {
@@ -99,6 +115,18 @@ public final class DataConverter {
             } else if (args[i].equals(OUT_FORMAT_FLAG)) {
                 outputFormat = args[i + 1];
                 i++;
+            } else if (args[i].equals(WORKERS_FLAG)) {
+                try {
+                    nbWorkers = Integer.parseInt(args[i + 1]);
+                } catch (NumberFormatException e) {
+                    fatal("Invalid number of workers: " + args[i + 1]);
+                }
+                if (nbWorkers <= 0) {
+                    fatal("The number of workers must be strictly positive");
+                }
+                i++;
+            } else if (args[i].equals(RESUME_FLAG)) {
+                resume = true;
             } else if (i != args.length - 1) {
                 inputs.add(args[i]);
             }
@@ -120,7 +148,23 @@ public final class DataConverter {
             fatal("No input configurations");
         }
 
-        if (mode.equals(PLAN_MODE)) {
+        if (nbWorkers > 0 || resume || needBatch(inputs)) {
+            if (!mode.equals(PLAN_MODE) && !mode.equals(CFG_MODE) && !mode.equals(VJOB_MODE)) {
+                fatal("Unsupported mode '" + mode + "'");
+            }
+            checkOutputFormat(mode, outputFormat);
+            if (nbWorkers <= 0) {
+                nbWorkers = Runtime.getRuntime().availableProcessors();
+            }
+            BatchDataConverter b = new BatchDataConverter(mode, outputFormat, outputPath, nbWorkers, resume);
+            try {
+                if (!b.convert(inputs)) {
+                    System.exit(1);
+                }
+            } catch (IOException e) {
+                fatal(e.getMessage());
+            }
+        } else if (mode.equals(PLAN_MODE)) {
             convertPlan(inputs, outputFormat, outputPath);
         } else if (mode.equals(CFG_MODE)) {
             convertConfiguration(inputs, outputFormat, outputPath);
@@ -131,8 +175,37 @@ public final class DataConverter {
         }
     }
 
+    /**
+     * Check if the batch mode is required to handle the inputs.
+     *
+     * @param inputs the inputs
+     * @return {@code true} if at least one input is a folder or a glob
+     */
+    static boolean needBatch(List<String> inputs) {
+        for (String in : inputs) {
+            if (new File(in).isDirectory() || in.indexOf('*') >= 0 || in.indexOf('?') >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void checkOutputFormat(String mode, String outputFormat) {
+        boolean ok;
+        if (mode.equals(CFG_MODE)) {
+            ok = FileConfigurationSerializerFactory.getInstance().getSerializer("." + outputFormat) != null;
+        } else if (mode.equals(PLAN_MODE)) {
+            ok = FileTimedReconfigurationPlanSerializerFactory.getInstance().getSerializer("." + outputFormat) != null;
+        } else {
+            ok = DefaultVJobFileSerializerFactory.getInstance().getManagedExtensions().contains(outputFormat);
+        }
+        if (!ok) {
+            fatal("Unsupported output format: " + outputFormat);
+        }
+    }
+
     private static void convertConfiguration(List<String> inputs, String outputFormat, String outputPath) {
-        FileConfigurationSerializer out = FileConfigurationSerializerFactory.getInstance().getSerializer(outputFormat);
+        FileConfigurationSerializer out = FileConfigurationSerializerFactory.getInstance().getSerializer("." + outputFormat);
         if (out == null) {
             fatal("Unsupported output format: " + outputFormat);
         }
@@ -163,7 +236,7 @@ public final class DataConverter {
     }
 
     private static void convertPlan(List<String> inputs, String outputFormat, String outputPath) {
-        FileTimedReconfigurationPlanSerializer out = FileTimedReconfigurationPlanSerializerFactory.getInstance().getSerializer(outputFormat);
+        FileTimedReconfigurationPlanSerializer out = FileTimedReconfigurationPlanSerializerFactory.getInstance().getSerializer("." + outputFormat);
         if (out == null) {
             fatal("Unsupported output format: " + outputFormat);
         }
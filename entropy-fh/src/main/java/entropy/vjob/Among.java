@@ -154,15 +154,29 @@ public class Among implements PlacementConstraint {
 
             if (vmGrpId.isInstantiated()) {
                 new Fence(runnings, core.getNodeGroup(vmGrpId.getVal())).inject(core);
+            } else if (!isDisjoint()) {
+                //A node may belong to several groups. Each VM picks a couple (host, group)
+                int[] candidates = getCandidates(vmGrpId);
+                int[][] couples = core.getNodesGroupCouples(candidates);
+                new Fence(runnings, getNodes()).inject(core);
+                for (VirtualMachine vm : runnings) {
+                    IntDomainVar assign = core.getAssociatedAction(vm).getDemandingSlice().hoster();
+                    IntDomainVar couple = core.createEnumIntVar("", 0, couples[0].length - 1);
+                    core.post(new MyElement(couple, couples[0], assign, 0, MyElement.Sort.detect));
+                    core.post(new MyElement(couple, couples[1], vmGrpId, 0, MyElement.Sort.detect));
+                }
             } else {
+                //The group of each node, restricted to the candidate groups. Shared by all the VMs
+                int[] candidates = getCandidates(vmGrpId);
+                int[] nodesGrpId = core.getNodesGroupId(candidates);
                 for (VirtualMachine vm : runnings) {
                     IntDomainVar assign = core.getAssociatedAction(vm).getDemandingSlice().hoster();
                     if (assign.isInstantiated()) {
-                        if (vmGrpId.isInstantiated() && vmGrpId.getVal() != core.getNodesGroupId()[assign.getVal()]) {
+                        if (vmGrpId.isInstantiated() && vmGrpId.getVal() != nodesGrpId[assign.getVal()]) {
                             Plan.logger.error("Unconsistent among");
                         } else if (!vmGrpId.isInstantiated()) {
                             try {
-                                vmGrpId.setVal(core.getNodesGroupId()[assign.getVal()]);
+                                vmGrpId.setVal(nodesGrpId[assign.getVal()]);
                             } catch (ContradictionException e) {
                                 Plan.logger.error(e.getMessage(), e);
                             }
@@ -178,8 +192,7 @@ public class Among implements PlacementConstraint {
                     //new Fence(runnings, core.getNodeGroup(vmGrpId.getVal())).inject(core);
                     for (VirtualMachine vm : runnings) {
                         IntDomainVar assign = core.getAssociatedAction(vm).getDemandingSlice().hoster();
-                        //System.err.println(Arrays.toString(core.getNodesGroupId()));
-                        SConstraint c = new MyElement(assign, core.getNodesGroupId(), vmGrpId, 0, MyElement.Sort.detect);
+                        SConstraint c = new MyElement(assign, nodesGrpId, vmGrpId, 0, MyElement.Sort.detect);
                         //SConstraint c = new Element(assign, core.getNodesGroupId(), vmGrpId, 0);
                         core.post(c);
                     }
@@ -188,6 +201,28 @@ public class Among implements PlacementConstraint {
         }
     }
 
+    private static int[] getCandidates(IntDomainVar vmGrpId) {
+        int[] candidates = new int[vmGrpId.getDomainSize()];
+        int x = 0;
+        for (int g = vmGrpId.getInf(); g <= vmGrpId.getSup(); g = vmGrpId.getNextDomainValue(g)) {
+            candidates[x++] = g;
+        }
+        return candidates;
+    }
+
+    /**
+     * Check whether the groups of nodes are disjoint.
+     *
+     * @return {@code true} if each node belongs to at most one group
+     */
+    private boolean isDisjoint() {
+        int nb = 0;
+        for (ManagedElementSet<Node> grp : groups) {
+            nb += grp.size();
+        }
+        return nb == getNodes().size();
+    }
+
     /**
      * Check that the constraint is satisfied in a configuration.
      *
@@ -212,27 +247,29 @@ public class Among implements PlacementConstraint {
             //No running VMs, no need to check
             return true;
         }
+        //The groups may overlap, so any group hosting all the running VMs is fine
         Node n1 = cfg.getLocation(vm1);
-        ManagedElementSet<Node> selectedGroup = null;
+        boolean inGroup = false;
         for (ManagedElementSet<Node> grp : groups) {
             if (grp.contains(n1)) {
-                selectedGroup = grp;
-                break;
+                inGroup = true;
+                if (hostsAll(cfg, grp)) {
+                    return true;
+                }
             }
         }
-        if (selectedGroup == null) {
+        if (!inGroup) {
             VJob.logger.error(this + ": " + vm1.getName() + " is running on an invalid group");
-            return false;
         }
+        return false;
+    }
+
+    private boolean hostsAll(Configuration cfg, ManagedElementSet<Node> grp) {
         for (VirtualMachine vm : vms) {
-            Node n = cfg.getLocation(vm);
-            if (cfg.isRunning(vm)) {
-                if (!selectedGroup.contains(n)) {
-                    return false;
-                }
+            if (cfg.isRunning(vm) && !grp.contains(cfg.getLocation(vm))) {
+                return false;
             }
         }
-
         return true;
     }
 
@@ -19,21 +19,12 @@
 
 package entropy.vjob;
 
-import choco.cp.solver.constraints.global.AmongGAC;
-import choco.cp.solver.constraints.global.Occurrence;
-import choco.kernel.common.util.tools.ArrayUtils;
-import choco.kernel.solver.ContradictionException;
-import choco.kernel.solver.constraints.SConstraint;
 import choco.kernel.solver.variables.integer.IntDomainVar;
 import entropy.configuration.*;
 import entropy.plan.choco.ReconfigurationProblem;
-import entropy.plan.choco.actionModel.VirtualMachineActionModel;
-import entropy.plan.choco.actionModel.slice.DemandingSlice;
-import entropy.plan.choco.actionModel.slice.Slices;
 import entropy.vjob.builder.protobuf.PBVJob;
 import entropy.vjob.builder.protobuf.ProtobufVJobSerializer;
 import entropy.vjob.builder.xml.XmlVJobSerializer;
-import gnu.trove.TIntHashSet;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -70,69 +61,23 @@ public class Capacity implements PlacementConstraint {
     }
 
     public void inject(ReconfigurationProblem core) {
-        ManagedElementSet<Node> onlines = new SimpleManagedElementSet<Node>();
+        List<IntDomainVar> cards = new ArrayList<IntDomainVar>();
         for (Node n : nodes) {
             if (core.getFutureOnlines().contains(n)) {
-                onlines.add(n);
+                cards.add(core.getNbHosted(n));
             }
         }
 
-        TIntHashSet involved = new TIntHashSet();
-        int[] nIdxs = new int[onlines.size()];
-        int i = 0;
-        int minIdx = Integer.MAX_VALUE;
-        int maxIdx = -1;
-        for (Node n : onlines) {
-            int idx = core.getNode(n);
-            nIdxs[i++] = idx;
-            if (idx > maxIdx) {
-                maxIdx = idx;
-            }
-            if (idx < minIdx) {
-                minIdx = idx;
-            }
-            involved.add(idx);
-        }
-
         //TODO: no need to have constraints if max > the amount of future running VMs
         //TODO: a false() constraint if the given nodes are all the future online nodes
 
-        if (max == 0 && !onlines.isEmpty()) {
-            //max == 0, so we directly remove the nodes
-            // from the VMs d-slices hoster variable.
-            for (VirtualMachineActionModel a : core.getVirtualMachineActions()) {
-                DemandingSlice dSlice = a.getDemandingSlice();
-                if (dSlice != null) {
-                    for (int x = 0; i < nIdxs.length; x++) {
-                        try {
-                            dSlice.hoster().remVal(nIdxs[x]);
-                        } catch (ContradictionException e) {
-                            VJob.logger.error(e.getMessage(), e);
-                        }
-                    }
-                }
-            }
-        } else if (onlines.size() > 1) {   //More than one node, so we restrict the sum of sets cardinality
-            IntDomainVar card = core.createBoundIntVar("c", 0, max);
-            List<IntDomainVar> toWatch = new ArrayList<IntDomainVar>();
-            for (DemandingSlice s : core.getDemandingSlices()) {
-                IntDomainVar v = s.hoster();
-                if (v.isInstantiated()) {
-                    int x = v.getVal();
-                    if (x >= minIdx && x <= maxIdx && involved.contains(x)) {
-                        toWatch.add(v);
-                    }
-                } else {
-                    toWatch.add(v);
-                }
+        if (cards.size() == 1 || max == 0) {
+            //Directly restrict the number of VMs hosted by each node
+            for (IntDomainVar card : cards) {
+                core.post(core.leq(card, max));
             }
-            core.post(new AmongGAC(ArrayUtils.append(toWatch.toArray(new IntDomainVar[toWatch.size()]), new IntDomainVar[]{card}), nIdxs, core.getEnvironment()));
-
-        } else if (!onlines.isEmpty()) {  //One node, only restrict the cardinality of its set model.
-            IntDomainVar card = core.createBoundIntVar("cap(" + onlines.get(0).getName() + ")", max, max);
-            IntDomainVar[] hs = Slices.extractHosters(core.getDemandingSlices());
-            SConstraint c = new Occurrence(ArrayUtils.append(hs, new IntDomainVar[]{card}), nIdxs[0], false, true, core.getEnvironment());
-            core.post(c);
+        } else if (cards.size() > 1) {  //More than one node, so we restrict the sum of their counters
+            core.post(core.leq(core.sum(cards.toArray(new IntDomainVar[cards.size()])), max));
         }
     }
 
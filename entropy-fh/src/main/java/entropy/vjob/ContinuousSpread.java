@@ -78,6 +78,28 @@ public class ContinuousSpread extends Spread {
      */
     @Override
     public void inject(ReconfigurationProblem core) {
+        inject(core, null);
+    }
+
+    /**
+     * When the constraint is satisfied, the running VMs are hosted on distinct nodes
+     * and their slices do not overlap.
+     *
+     * @param core the problem to customize
+     * @param sat  the boolean variable indicating whether the constraint is satisfied
+     */
+    @Override
+    public void injectRelaxed(ReconfigurationProblem core, IntDomainVar sat) {
+        inject(core, sat);
+    }
+
+    /**
+     * Inject the constraint.
+     *
+     * @param core the problem to customize
+     * @param sat  the variable that enforces the constraint when instantiated to 1. {@code null} to always enforce it
+     */
+    private void inject(ReconfigurationProblem core, IntDomainVar sat) {
 
         //Consider only the currently running and the future running VMs
         ManagedElementSet<VirtualMachine> runnings = new SimpleManagedElementSet<VirtualMachine>();
@@ -88,7 +110,11 @@ public class ContinuousSpread extends Spread {
         }
         if (!runnings.isEmpty()) {
             //The lazy spread implementation for the placement
-            new LazySpread(runnings).inject(core);
+            if (sat == null) {
+                new LazySpread(runnings).inject(core);
+            } else {
+                new LazySpread(runnings).injectRelaxed(core, sat);
+            }
 
             for (int i = 0; i < runnings.size(); i++) {
                 VirtualMachine vmI = runnings.get(i);
@@ -103,8 +129,7 @@ public class ContinuousSpread extends Spread {
                         if (!(c.hoster().isInstantiated() && !d.hoster().canBeInstantiatedTo(c.hoster().getVal()))
                                 && !(d.hoster().isInstantiated() && !c.hoster().canBeInstantiatedTo(d.hoster().getVal()))
                                 ) {
-                            IntDomainVar eq = core.createBooleanVar("eq");
-                            core.post(ReifiedFactory.builder(eq, core.eq(d.hoster(), c.hoster()), core));
+                            IntDomainVar eq = overlap(core, d.hoster(), c.hoster(), sat);
                             Chocos.postImplies(core, eq, core.leq(c.end(), d.start()));
                             System.err.println(d.hoster().pretty() + " = " + c.hoster().pretty() + " => " + " " + c.end().pretty() + " <= " + d.start().pretty());
                         }
@@ -118,8 +143,7 @@ public class ContinuousSpread extends Spread {
                         if (!(c.hoster().isInstantiated() && !d.hoster().canBeInstantiatedTo(c.hoster().getVal()))
                                 && !(d.hoster().isInstantiated() && !c.hoster().canBeInstantiatedTo(d.hoster().getVal()))
                                 ) {
-                            IntDomainVar eq = core.createBooleanVar("eq");
-                            core.post(ReifiedFactory.builder(eq, core.eq(d.hoster(), c.hoster()), core));
+                            IntDomainVar eq = overlap(core, d.hoster(), c.hoster(), sat);
                             Chocos.postImplies(core, eq, core.leq(c.end(), d.start()));
                             System.err.println(d.hoster().pretty() + " = " + c.hoster().pretty() + " => " + " " + c.end().pretty() + " <= " + d.start().pretty());
                         }
@@ -129,6 +153,28 @@ public class ContinuousSpread extends Spread {
         }
     }
 
+    /**
+     * Make a boolean variable that indicates whether two slices are on the same node
+     * and must not overlap.
+     *
+     * @param core the problem to customize
+     * @param dh   the hoster of the demanding slice
+     * @param ch   the hoster of the consuming slice
+     * @param sat  the satisfaction variable of the constraint, may be {@code null}
+     * @return a boolean variable
+     */
+    private static IntDomainVar overlap(ReconfigurationProblem core, IntDomainVar dh, IntDomainVar ch, IntDomainVar sat) {
+        IntDomainVar eq = core.createBooleanVar("eq");
+        core.post(ReifiedFactory.builder(eq, core.eq(dh, ch), core));
+        if (sat == null) {
+            return eq;
+        }
+        //both = eq && sat
+        IntDomainVar both = core.createBooleanVar("eq&sat");
+        core.post(core.leq(core.plus(eq, sat), core.plus(both, 1)));
+        return both;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -19,7 +19,9 @@
 package entropy.vjob;
 
 import choco.kernel.solver.ContradictionException;
+import choco.kernel.solver.variables.integer.IntDomainVar;
 import entropy.configuration.*;
+import entropy.plan.choco.Chocos;
 import entropy.plan.choco.ReconfigurationProblem;
 import entropy.plan.choco.actionModel.slice.Slice;
 import entropy.vjob.builder.protobuf.PBVJob;
@@ -33,7 +35,7 @@ import gnu.trove.TIntHashSet;
  *
  * @author Fabien Hermenier
  */
-public class Fence implements PlacementConstraint {
+public class Fence implements PlacementConstraint, Relaxable {
 
     /**
      * The list of possible groups of nodes.
@@ -177,6 +179,33 @@ public class Fence implements PlacementConstraint {
         }
     }
 
+    /**
+     * When the constraint is satisfied, the running VMs can not be hosted on a node outside the group.
+     *
+     * @param core the problem to customize
+     * @param sat  the boolean variable indicating whether the constraint is satisfied
+     */
+    @Override
+    public void injectRelaxed(ReconfigurationProblem core, IntDomainVar sat) {
+        TIntHashSet toKeep = new TIntHashSet(group.size());
+        for (Node n : group) {
+            toKeep.add(core.getNode(n));
+        }
+        for (VirtualMachine vm : vms) {
+            if (core.getFutureRunnings().contains(vm)) {
+                Slice t = core.getAssociatedAction(vm).getDemandingSlice();
+                if (t != null) {
+                    for (Node n : core.getSourceConfiguration().getAllNodes()) {
+                        int idx = core.getNode(n);
+                        if (!toKeep.contains(idx)) {
+                            Chocos.postImplies(core, sat, core.neq(t.hoster(), idx));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Check that the constraint is satified in a configuration.
      *
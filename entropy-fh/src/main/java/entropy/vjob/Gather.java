@@ -19,7 +19,9 @@
 
 package entropy.vjob;
 
+import choco.kernel.solver.variables.integer.IntDomainVar;
 import entropy.configuration.*;
+import entropy.plan.choco.Chocos;
 import entropy.plan.choco.ReconfigurationProblem;
 import entropy.plan.choco.actionModel.slice.Slice;
 import entropy.vjob.builder.protobuf.PBVJob;
@@ -31,7 +33,7 @@ import entropy.vjob.builder.xml.XmlVJobSerializer;
  *
  * @author Fabien Hermenier
  */
-public class Gather implements PlacementConstraint {
+public class Gather implements PlacementConstraint, Relaxable {
 
     /**
      * The involved VMs.
@@ -112,6 +114,25 @@ public class Gather implements PlacementConstraint {
         }
     }
 
+    /**
+     * When the constraint is satisfied, all the running VMs are hosted on the same node than the first one.
+     *
+     * @param core the problem to customize
+     * @param sat  the boolean variable indicating whether the constraint is satisfied
+     */
+    @Override
+    public void injectRelaxed(ReconfigurationProblem core, IntDomainVar sat) {
+        ManagedElementSet<VirtualMachine> runnings = vms.clone();
+        runnings.retainAll(core.getFutureRunnings());
+        if (runnings.size() > 1) {
+            IntDomainVar h0 = core.getAssociatedAction(runnings.get(0)).getDemandingSlice().hoster();
+            for (int i = 1; i < runnings.size(); i++) {
+                IntDomainVar h = core.getAssociatedAction(runnings.get(i)).getDemandingSlice().hoster();
+                Chocos.postImplies(core, sat, core.eq(h0, h));
+            }
+        }
+    }
+
     /**
      * Check that the constraint is satified in a configuration.
      *
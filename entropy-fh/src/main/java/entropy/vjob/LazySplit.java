@@ -24,17 +24,10 @@ import choco.kernel.solver.variables.integer.IntDomainVar;
 import entropy.configuration.ManagedElementSet;
 import entropy.configuration.VirtualMachine;
 import entropy.plan.choco.ReconfigurationProblem;
-import entropy.plan.choco.actionModel.ActionModel;
-import entropy.plan.choco.actionModel.ActionModels;
-import entropy.plan.choco.actionModel.slice.DemandingSlice;
-import entropy.plan.choco.actionModel.slice.Slices;
 import entropy.vjob.builder.protobuf.PBVJob;
 import entropy.vjob.builder.protobuf.ProtobufVJobSerializer;
 import entropy.vjob.builder.xml.XmlVJobSerializer;
 
-import java.util.LinkedList;
-import java.util.List;
-
 /**
  * A lazy implementation of Split focused only on the demanding slices.
  * So during a reconfiguration process, some VMs of the two set may be hosted
@@ -61,21 +54,8 @@ public class LazySplit extends Split {
      */
     @Override
     public void inject(ReconfigurationProblem core) {
-        List<ActionModel> actions1 = new LinkedList<ActionModel>();
-        List<ActionModel> actions2 = new LinkedList<ActionModel>();
-        for (VirtualMachine vm : getFirstSet()) {
-            actions1.add(core.getAssociatedAction(vm));
-        }
-
-        for (VirtualMachine vm : getSecondSet()) {
-            actions2.add(core.getAssociatedAction(vm));
-        }
-
-        List<DemandingSlice> slices1 = ActionModels.extractDemandingSlices(actions1);
-        List<DemandingSlice> slices2 = ActionModels.extractDemandingSlices(actions2);
-
-        IntDomainVar[] hosters1 = Slices.extractHosters(slices1);
-        IntDomainVar[] hosters2 = Slices.extractHosters(slices2);
+        IntDomainVar[] hosters1 = core.getDemandingHosters(getFirstSet());
+        IntDomainVar[] hosters2 = core.getDemandingHosters(getSecondSet());
         for (int i = 0; i < hosters1.length; i++) {
             for (int j = 0; j < hosters2.length; j++) {
                 core.post(core.neq(hosters1[i], hosters2[j]));
@@ -91,11 +71,8 @@ public class LazySplit extends Split {
         otherVMs.retainAll(core.getFutureRunnings());
 
         //Link the assignment variables with the set
-        List<DemandingSlice> myDSlices = ActionModels.extractDemandingSlices(core.getAssociatedActions(goods));
-        IntDomainVar[] myAssigns = Slices.extractHosters(myDSlices);
-
-        List<DemandingSlice> otherDSlices = ActionModels.extractDemandingSlices(core.getAssociatedActions(otherVMs));
-        IntDomainVar[] otherAssigns = Slices.extractHosters(otherDSlices);
+        IntDomainVar[] myAssigns = core.getDemandingHosters(goods);
+        IntDomainVar[] otherAssigns = core.getDemandingHosters(otherVMs);
 
         core.post(new Disjoint(core.getEnvironment(), myAssigns, otherAssigns, core.getNodes().length));
     }
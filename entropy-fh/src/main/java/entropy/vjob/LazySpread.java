@@ -23,6 +23,7 @@ import choco.cp.solver.constraints.global.BoundAllDiff;
 import choco.kernel.solver.variables.integer.IntDomainVar;
 import entropy.configuration.ManagedElementSet;
 import entropy.configuration.VirtualMachine;
+import entropy.plan.choco.Chocos;
 import entropy.plan.choco.ReconfigurationProblem;
 import entropy.plan.choco.actionModel.slice.Slice;
 import entropy.vjob.builder.protobuf.PBVJob;
@@ -79,6 +80,30 @@ public class LazySpread extends Spread {
         }
     }
 
+    /**
+     * When the constraint is satisfied, the hosters of the running VMs are pairwise different.
+     *
+     * @param core the problem to customize
+     * @param sat  the boolean variable indicating whether the constraint is satisfied
+     */
+    @Override
+    public void injectRelaxed(ReconfigurationProblem core, IntDomainVar sat) {
+        List<IntDomainVar> runnings = new ArrayList<IntDomainVar>();
+        for (VirtualMachine vm : getAllVirtualMachines()) {
+            if (core.getFutureRunnings().contains(vm)) {
+                Slice t = core.getAssociatedAction(vm).getDemandingSlice();
+                if (t != null) {
+                    runnings.add(t.hoster());
+                }
+            }
+        }
+        for (int i = 0; i < runnings.size(); i++) {
+            for (int j = 0; j < i; j++) {
+                Chocos.postImplies(core, sat, core.neq(runnings.get(i), runnings.get(j)));
+            }
+        }
+    }
+
     @Override
     public String toString() {
         return new StringBuilder("lazySpread(").append(vms).append(')').toString();
@@ -19,24 +19,15 @@
 
 package entropy.vjob;
 
-//import choco.cp.solver.constraints.set.Disjoint;
-
-import choco.cp.solver.constraints.global.Disjoint;
-import choco.kernel.solver.variables.integer.IntDomainVar;
 import entropy.configuration.*;
 import entropy.plan.choco.ReconfigurationProblem;
-import entropy.plan.choco.actionModel.slice.DemandingSlice;
 import entropy.vjob.builder.protobuf.PBVJob;
 import entropy.vjob.builder.protobuf.ProtobufVJobSerializer;
 import entropy.vjob.builder.xml.XmlVJobSerializer;
 
-import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
-//import entropy.plan.choco.constraint.Disjoint;
-
 /**
  * A placement constraint to ensure the given set of VMs will not be hosted
  * on nodes that host other VMs
@@ -53,22 +44,8 @@ public class Lonely implements PlacementConstraint {
 
     @Override
     public void inject(ReconfigurationProblem core) {
-
-        //Remove non future-running VMs
-        List<IntDomainVar> goods = new ArrayList<IntDomainVar>();
-        List<IntDomainVar> otherVMs = new ArrayList<IntDomainVar>();
-        for (VirtualMachine vm : core.getFutureRunnings()) {
-            DemandingSlice s = core.getAssociatedAction(vm).getDemandingSlice();
-            if (s != null) {
-                if (vms.contains(vm)) {
-                    goods.add(s.hoster());
-                } else {
-                    otherVMs.add(s.hoster());
-                }
-            }
-        }
-        //Link the assignment variables with the set
-        core.post(new Disjoint(core.getEnvironment(), goods.toArray(new IntDomainVar[goods.size()]), otherVMs.toArray(new IntDomainVar[otherVMs.size()]), core.getNodes().length));
+        //All the lonely groups share a single constraint over the hosters of the future running VMs
+        core.declareLonelyGroup(vms);
     }
 
 
@@ -34,7 +34,7 @@ public class MaxVM implements PlacementConstraint {
             for (Action a : core.getAssociatedAction(n).getDefinedAction(core))
                 /* if the action consist in retyping the node to the registred type */
                 if (a instanceof Retype && ((Retype)a).getNewPlatform().equals(type))
-                    core.leq(core.getNbHosted(n), nVM);
+                    core.post(core.leq(core.getNbHosted(n), nVM));
     }
 
     public boolean isSatisfied(Configuration cfg) {
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.vjob;
+
+import choco.kernel.solver.variables.integer.IntDomainVar;
+import entropy.plan.choco.ReconfigurationProblem;
+
+/**
+ * A placement constraint that can be violated at a given cost.
+ * See {@link Soft}.
+ *
+ * @author Fabien Hermenier
+ */
+public interface Relaxable extends PlacementConstraint {
+
+    /**
+     * Inject a relaxed version of the constraint.
+     * The constraint is only enforced when the given variable is instantiated to 1.
+     *
+     * @param core the problem to customize
+     * @param sat  a boolean variable. {@code 1} to enforce the constraint
+     */
+    void injectRelaxed(ReconfigurationProblem core, IntDomainVar sat);
+}
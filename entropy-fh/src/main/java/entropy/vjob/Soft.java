@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.vjob;
+
+import choco.kernel.solver.variables.integer.IntDomainVar;
+import entropy.configuration.Configuration;
+import entropy.configuration.ManagedElementSet;
+import entropy.configuration.Node;
+import entropy.configuration.VirtualMachine;
+import entropy.plan.choco.ReconfigurationProblem;
+import entropy.vjob.builder.protobuf.PBVJob;
+
+/**
+ * A decorator to make a placement constraint soft.
+ * The decorated constraint may be violated if there is no other choice. In that case,
+ * a penalty is added to the cost of the reconfiguration plan, so the solver prefers the plans
+ * that satisfy the constraint.
+ * <p/>
+ * The serialization is delegated to the decorated constraint, so the softness is not serialized.
+ *
+ * @author Fabien Hermenier
+ */
+public class Soft implements PlacementConstraint {
+
+    private Relaxable cstr;
+
+    private int penalty;
+
+    /**
+     * Make a new soft constraint.
+     *
+     * @param c       the constraint to relax
+     * @param penalty the cost of a violation, added to the cost of the plan. Must be positive
+     * @throws IllegalArgumentException if the constraint can not be relaxed or if the penalty is negative
+     */
+    public Soft(PlacementConstraint c, int penalty) {
+        if (!(c instanceof Relaxable)) {
+            throw new IllegalArgumentException("'" + c + "' can not be relaxed");
+        }
+        if (penalty < 0) {
+            throw new IllegalArgumentException("The penalty must be positive. Got " + penalty);
+        }
+        this.cstr = (Relaxable) c;
+        this.penalty = penalty;
+    }
+
+    /**
+     * Get the decorated constraint.
+     *
+     * @return the constraint
+     */
+    public PlacementConstraint getConstraint() {
+        return cstr;
+    }
+
+    /**
+     * Get the cost of a violation.
+     *
+     * @return a positive integer
+     */
+    public int getPenalty() {
+        return penalty;
+    }
+
+    /**
+     * Inject the relaxed constraint.
+     * The satisfaction variable and the violation cost, equals to 0 or to the penalty,
+     * are declared to the problem so the heuristics branch on the satisfaction first.
+     *
+     * @param core the problem to customize
+     */
+    @Override
+    public void inject(ReconfigurationProblem core) {
+        IntDomainVar sat = core.createBooleanVar("sat(" + cstr + ")");
+        cstr.injectRelaxed(core, sat);
+        IntDomainVar cost = core.createBoundIntVar("violation(" + cstr + ")", 0, penalty);
+        //cost = penalty * (1 - sat)
+        core.post(core.eq(core.plus(cost, core.mult(sat, penalty)), penalty));
+        core.declareSoftConstraint(sat, cost);
+    }
+
+    @Override
+    public boolean isSatisfied(Configuration cfg) {
+        return cstr.isSatisfied(cfg);
+    }
+
+    @Override
+    public ManagedElementSet<VirtualMachine> getAllVirtualMachines() {
+        return cstr.getAllVirtualMachines();
+    }
+
+    @Override
+    public ManagedElementSet<Node> getNodes() {
+        return cstr.getNodes();
+    }
+
+    @Override
+    public ManagedElementSet<VirtualMachine> getMisPlaced(Configuration cfg) {
+        return cstr.getMisPlaced(cfg);
+    }
+
+    @Override
+    public String toXML() {
+        return cstr.toXML();
+    }
+
+    @Override
+    public PBVJob.vjob.Constraint toProtobuf() {
+        return cstr.toProtobuf();
+    }
+
+    @Override
+    public Type getType() {
+        return cstr.getType();
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder("soft(").append(cstr).append(", ").append(penalty).append(")").toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Soft that = (Soft) o;
+        return penalty == that.penalty && cstr.equals(that.cstr);
+    }
+
+    @Override
+    public int hashCode() {
+        return cstr.hashCode() + 31 * penalty + "soft".hashCode();
+    }
+}
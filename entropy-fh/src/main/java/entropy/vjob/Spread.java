@@ -30,7 +30,7 @@ import java.util.Map;
  *
  * @author Fabien Hermenier
  */
-public abstract class Spread implements PlacementConstraint {
+public abstract class Spread implements Relaxable {
 
     /**
      * The VMs involved in the constraint.
@@ -44,7 +44,7 @@ public abstract class VJobFileSerializer implements VJobSerializer {
     public final void write(VJob vjob, String path) throws IOException {
         File f = new File(path);
         File parent = f.getParentFile();
-        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+        if (parent != null && !parent.mkdirs() && !parent.isDirectory()) {
             throw new IOException("Unable to create folder '" + parent.getAbsolutePath() + "'");
         }
         FileOutputStream out = null;
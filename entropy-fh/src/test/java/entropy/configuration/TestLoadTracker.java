@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.configuration;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+/**
+ * Unit tests for LoadTracker.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestLoadTracker {
+
+    private static void checkConsistency(LoadTracker t) {
+        Configuration c = t.getConfiguration();
+        Assert.assertEquals(t.isCurrentlyViable(), Configurations.isCurrentlyViable(c));
+        Assert.assertEquals(t.isFutureViable(), Configurations.isFutureViable(c));
+        Assert.assertEquals(t.getCurrentlyOverloadedNodes().size(), Configurations.currentlyOverloadedNodes(c).size());
+        Assert.assertTrue(t.getCurrentlyOverloadedNodes().containsAll(Configurations.currentlyOverloadedNodes(c)));
+        Assert.assertEquals(t.getFutureOverloadedNodes().size(), Configurations.futureOverloadedNodes(c).size());
+        Assert.assertTrue(t.getFutureOverloadedNodes().containsAll(Configurations.futureOverloadedNodes(c)));
+        for (Node n : c.getOnlines()) {
+            Assert.assertEquals(t.getCPUConsumption(n), ManagedElementSets.sum(c.getRunnings(n), ResourcePicker.VMRc.cpuConsumption)[0]);
+            Assert.assertEquals(t.getMemoryDemand(n), ManagedElementSets.sum(c.getRunnings(n), ResourcePicker.VMRc.memoryDemand)[0]);
+            Assert.assertEquals(t.isUsed(n), !c.getRunnings(n).isEmpty() || !c.getSleepings(n).isEmpty());
+        }
+    }
+
+    public void testInitialState() {
+        Configuration c = new SimpleConfiguration();
+        Node n1 = new SimpleNode("N1", 1, 5, 5);
+        Node n2 = new SimpleNode("N2", 1, 5, 5);
+        c.addOnline(n1);
+        c.addOnline(n2);
+        c.setRunOn(new SimpleVirtualMachine("VM1", 1, 3, 1, 3, 6), n1);
+        c.setRunOn(new SimpleVirtualMachine("VM2", 1, 3, 1, 1, 1), n1);
+        c.setSleepOn(new SimpleVirtualMachine("VM3", 1, 8, 8, 8, 8), n2);
+        LoadTracker t = new LoadTracker(c);
+        Assert.assertEquals(t.getCPUConsumption(n1), 6);
+        Assert.assertEquals(t.getMemoryConsumption(n1), 2);
+        Assert.assertEquals(t.getCPUDemand(n1), 4);
+        Assert.assertEquals(t.getMemoryDemand(n1), 7);
+        Assert.assertEquals(t.getCPUConsumption(n2), 0);
+        Assert.assertTrue(t.isCurrentlyOverloaded(n1));
+        Assert.assertTrue(t.isFutureOverloaded(n1));
+        Assert.assertFalse(t.isFutureOverloaded(n2));
+        Assert.assertTrue(t.isUsed(n2));
+        checkConsistency(t);
+    }
+
+    public void testIncrementalUpdates() {
+        Configuration c = new SimpleConfiguration();
+        Node n1 = new SimpleNode("N1", 1, 5, 5);
+        Node n2 = new SimpleNode("N2", 1, 5, 5);
+        c.addOnline(n1);
+        c.addOnline(n2);
+        VirtualMachine vm1 = new SimpleVirtualMachine("VM1", 1, 3, 3, 3, 3);
+        VirtualMachine vm2 = new SimpleVirtualMachine("VM2", 1, 3, 3, 3, 3);
+        LoadTracker t = new LoadTracker(c);
+        Assert.assertTrue(t.setRunOn(vm1, n1));
+        Assert.assertTrue(t.setRunOn(vm2, n1));
+        Assert.assertFalse(t.isFutureViable());
+        Assert.assertTrue(t.setRunOn(vm2, n2));
+        Assert.assertTrue(t.isFutureViable());
+        Assert.assertEquals(t.getCPUConsumption(n1), 3);
+
+        vm2.setCPUDemand(7);
+        t.refresh(vm2);
+        Assert.assertTrue(t.isFutureOverloaded(n2));
+        Assert.assertTrue(t.isCurrentlyViable());
+
+        t.setSleepOn(vm2, n2);
+        Assert.assertTrue(t.isFutureViable());
+        Assert.assertTrue(t.isUsed(n2));
+        t.remove(vm2);
+        Assert.assertFalse(t.isUsed(n2));
+
+        n1.setCPUCapacity(2);
+        t.refresh(n1);
+        Assert.assertTrue(t.isCurrentlyOverloaded(n1));
+        t.addWaiting(vm1);
+        Assert.assertTrue(t.isCurrentlyViable());
+
+        Node n3 = new SimpleNode("N3", 1, 5, 5);
+        Assert.assertFalse(t.setRunOn(vm1, n3));
+        t.addOnline(n3);
+        Assert.assertTrue(t.setRunOn(vm1, n3));
+        Assert.assertEquals(t.getCPUConsumption(n3), 3);
+        checkConsistency(t);
+    }
+
+    /**
+     * Compare the tracker with the one-shot checks after each placement.
+     */
+    public void testMigrations() {
+        Configuration c = new SimpleConfiguration();
+        Node n1 = new SimpleNode("N1", 1, 5, 5);
+        Node n2 = new SimpleNode("N2", 1, 5, 5);
+        c.addOnline(n1);
+        c.addOnline(n2);
+        VirtualMachine vm1 = new SimpleVirtualMachine("VM1", 1, 3, 3, 3, 3);
+        VirtualMachine vm2 = new SimpleVirtualMachine("VM2", 1, 4, 1, 4, 1);
+        c.setRunOn(vm1, n1);
+        c.setRunOn(vm2, n2);
+        LoadTracker t = new LoadTracker(c);
+        checkConsistency(t);
+
+        //Migrations
+        Assert.assertTrue(t.setRunOn(vm2, n1));
+        Assert.assertTrue(t.isCurrentlyOverloaded(n1));
+        checkConsistency(t);
+        Assert.assertTrue(t.setRunOn(vm1, n2));
+        Assert.assertTrue(t.isCurrentlyViable());
+        checkConsistency(t);
+
+        //Suspend then resume on another node
+        Assert.assertTrue(t.setSleepOn(vm1, n2));
+        Assert.assertEquals(t.getCPUConsumption(n2), 0);
+        checkConsistency(t);
+        Assert.assertTrue(t.setRunOn(vm1, n1));
+        Assert.assertFalse(t.isUsed(n2));
+        Assert.assertTrue(t.isFutureOverloaded(n1));
+        checkConsistency(t);
+    }
+
+    /**
+     * Compare the tracker with the one-shot checks on random moves.
+     */
+    public void testRandomMoves() {
+        Random rnd = new Random(7);
+        Configuration c = new SimpleConfiguration();
+        for (int i = 0; i < 20; i++) {
+            c.addOnline(new SimpleNode("N" + i, 2, 10, 10));
+        }
+        VirtualMachine[] vms = new VirtualMachine[60];
+        for (int i = 0; i < vms.length; i++) {
+            vms[i] = new SimpleVirtualMachine("VM" + i, 1, rnd.nextInt(4), rnd.nextInt(4), rnd.nextInt(5), rnd.nextInt(5));
+            c.setRunOn(vms[i], c.getOnlines().get(rnd.nextInt(20)));
+        }
+        LoadTracker t = new LoadTracker(c);
+        checkConsistency(t);
+        for (int x = 0; x < 500; x++) {
+            VirtualMachine vm = vms[rnd.nextInt(vms.length)];
+            Node n = c.getOnlines().get(rnd.nextInt(20));
+            switch (rnd.nextInt(5)) {
+                case 0:
+                    t.setSleepOn(vm, n);
+                    break;
+                case 1:
+                    if (!c.isWaiting(vm)) {
+                        t.addWaiting(vm);
+                    }
+                    break;
+                default:
+                    t.setRunOn(vm, n);
+            }
+            checkConsistency(t);
+        }
+    }
+}
@@ -23,6 +23,7 @@ import entropy.PropertiesHelperException;
 import entropy.TestHelper;
 import entropy.monitoring.MockConfigurationAdapter;
 import entropy.monitoring.Monitor;
+import entropy.plan.choco.constraint.pack.SatisfyDemandingSlicesHeightsFastBP;
 import entropy.vjob.builder.DefaultVJobBuilderFactory;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -55,6 +56,7 @@ public class TestControlLoopFactory {
             CustomizableControlLoop dyn = (CustomizableControlLoop) l;
             Assert.assertEquals(dyn.getAssignTimeout(), 10);
             Assert.assertEquals(dyn.getPlanTimeout(), 15);
+            Assert.assertTrue(dyn.getPackingConstraint() instanceof SatisfyDemandingSlicesHeightsFastBP);
 
         } catch (Exception e) {
             Assert.fail(e.getMessage(), e);
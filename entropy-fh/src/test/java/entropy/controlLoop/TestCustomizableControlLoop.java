@@ -22,11 +22,16 @@ package entropy.controlLoop;
 import entropy.TestHelper;
 import entropy.configuration.Configuration;
 import entropy.configuration.Configurations;
+import entropy.configuration.Node;
+import entropy.configuration.VirtualMachine;
 import entropy.execution.TimedReconfigurationExecuter;
 import entropy.execution.driver.MockDriverFactory;
 import entropy.monitoring.MockConfigurationAdapter;
 import entropy.monitoring.Monitor;
+import entropy.plan.DefaultTimedReconfigurationPlan;
+import entropy.plan.TimedReconfigurationPlan;
 import entropy.plan.action.Action;
+import entropy.plan.action.Migration;
 import entropy.plan.durationEvaluator.DurationEvaluator;
 import entropy.plan.durationEvaluator.MockDurationEvaluator;
 import entropy.vjob.builder.DefaultVJobBuilderFactory;
@@ -104,4 +109,43 @@ public class TestCustomizableControlLoop {
         Assert.assertEquals(Configurations.currentlyOverloadedNodes(src).size(), 0);
     }
 
+    /**
+     * Test that a committed action is kept into the expected configuration
+     * until the monitoring reflects it.
+     */
+    public void testCommitSurvivesRefresh() {
+        Configuration src = TestHelper.readConfiguration(RESOURCES_DIR + "2VJobsStart.txt");
+        MockConfigurationAdapter mockConfAdapter = new MockConfigurationAdapter();
+        mockConfAdapter.useConfiguration(src);
+        DurationEvaluator eval = new MockDurationEvaluator(10, 5, 2, 2, 3, 6, 3, 1, 1);
+        DefaultVJobBuilderFactory vjobF = new DefaultVJobBuilderFactory();
+        VJobsPool queue = new FCFSPersistentQueue(vjobF, new File(RESOURCES_DIR + "2VJobs/"));
+        TimedReconfigurationExecuter exec = new TimedReconfigurationExecuter(new MockDriverFactory());
+        CustomizableControlLoop loop = new CustomizableControlLoop(new Monitor(mockConfAdapter), queue, vjobF, eval, exec);
+        loop.refresh();
+
+        VirtualMachine vm = src.getAllVirtualMachines().get("vm111");
+        Node n1 = src.getAllNodes().get("N1");
+        Node n4 = src.getAllNodes().get("N4");
+        TimedReconfigurationPlan plan = new DefaultTimedReconfigurationPlan(src);
+        Assert.assertTrue(plan.add(new Migration(vm, n1, n4, 0, 1)));
+        exec.start(plan);
+        Assert.assertEquals(loop.getExpectedConfiguration().getLocation(vm), n4);
+
+        //The monitoring still reports the VM on N1
+        loop.refresh();
+        Assert.assertEquals(loop.getExpectedConfiguration().getLocation(vm), n4);
+
+        //The monitoring catches up, the action is forgotten
+        Configuration moved = src.clone();
+        moved.setRunOn(vm, n4);
+        mockConfAdapter.useConfiguration(moved);
+        loop.refresh();
+        Assert.assertEquals(loop.getExpectedConfiguration().getLocation(vm), n4);
+
+        //So it is not replayed when the VM is moved back
+        mockConfAdapter.useConfiguration(src);
+        loop.refresh();
+        Assert.assertEquals(loop.getExpectedConfiguration().getLocation(vm), n1);
+    }
 }
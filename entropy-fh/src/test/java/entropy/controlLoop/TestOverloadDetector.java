@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.controlLoop;
+
+import entropy.configuration.*;
+import entropy.vjob.VJob;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for OverloadDetector.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestOverloadDetector {
+
+    private Configuration makeConfiguration(int cpu) {
+        Configuration cfg = new SimpleConfiguration();
+        Node n1 = new SimpleNode("N1", 1, 100, 100);
+        Node n2 = new SimpleNode("N2", 1, 100, 100);
+        cfg.addOnline(n1);
+        cfg.addOnline(n2);
+        cfg.setRunOn(new SimpleVirtualMachine("VM1", 1, cpu, 10, cpu, 10), n1);
+        cfg.setRunOn(new SimpleVirtualMachine("VM2", 1, 20, 10, 20, 10), n2);
+        return cfg;
+    }
+
+    public void testDetect() {
+        OverloadDetector d = new OverloadDetector();
+        List<VJob> vjobs = new ArrayList<VJob>();
+        Assert.assertTrue(d.detect(makeConfiguration(20), vjobs).isEmpty());
+
+        //The overload appears
+        Assert.assertEquals(d.detect(makeConfiguration(150), vjobs).size(), 1);
+        //Still there, nothing new
+        Assert.assertTrue(d.detect(makeConfiguration(150), vjobs).isEmpty());
+
+        //A waiting VM appears
+        Configuration cfg = makeConfiguration(150);
+        cfg.addWaiting(new SimpleVirtualMachine("VM3", 1, 1, 1));
+        List<String> issues = d.detect(cfg, vjobs);
+        Assert.assertEquals(issues.size(), 1);
+        Assert.assertTrue(issues.get(0).contains("VM3"));
+
+        //Persisting issues are reported again after a reset
+        d.reset();
+        Assert.assertEquals(d.detect(cfg, vjobs).size(), 2);
+
+        //The overload disappears, then appears again
+        Assert.assertTrue(d.detect(makeConfiguration(20), vjobs).isEmpty());
+        Assert.assertEquals(d.detect(makeConfiguration(150), vjobs).size(), 1);
+    }
+
+    /**
+     * Check the detector with a tracker updated incrementally.
+     */
+    public void testLoadTracker() {
+        OverloadDetector d = new OverloadDetector();
+        List<VJob> vjobs = new ArrayList<VJob>();
+        LoadTracker load = new LoadTracker(makeConfiguration(90));
+        Assert.assertTrue(d.detect(load, vjobs).isEmpty());
+
+        //The migration overloads N2
+        Configuration cfg = load.getConfiguration();
+        Assert.assertTrue(load.setRunOn(cfg.getRunnings().get("VM1"), cfg.getOnlines().get("N2")));
+        List<String> issues = d.detect(load, vjobs);
+        Assert.assertEquals(issues.size(), 1);
+        Assert.assertTrue(issues.get(0).contains("N2"));
+
+        //Suspending the VM fixes the overload
+        Assert.assertTrue(load.setSleepOn(cfg.getAllVirtualMachines().get("VM1"), cfg.getOnlines().get("N2")));
+        Assert.assertTrue(d.detect(load, vjobs).isEmpty());
+    }
+
+    /**
+     * A persistent issue is reported again after each iteration,
+     * less and less often.
+     */
+    public void testBackoff() {
+        OverloadDetector d = new OverloadDetector();
+        List<VJob> vjobs = new ArrayList<VJob>();
+        Assert.assertEquals(d.detect(makeConfiguration(150), vjobs).size(), 1);
+        //Without iteration, the issue is not reported again
+        Assert.assertTrue(d.detect(makeConfiguration(150), vjobs).isEmpty());
+        for (int k = 1; k <= 4; k++) {
+            d.done();
+            int nb = 0;
+            List<String> issues = d.detect(makeConfiguration(150), vjobs);
+            while (issues.isEmpty()) {
+                nb++;
+                issues = d.detect(makeConfiguration(150), vjobs);
+            }
+            //The number of analyses the issue was ignored
+            Assert.assertEquals(nb, (1 << (k - 1)) - 1);
+        }
+        //The backoff is bounded
+        for (int k = 0; k < 20; k++) {
+            d.done();
+            int nb = 0;
+            while (d.detect(makeConfiguration(150), vjobs).isEmpty()) {
+                nb++;
+            }
+            Assert.assertTrue(nb <= OverloadDetector.MAX_BACKOFF);
+        }
+        //Once fixed, the issue is new again when it comes back
+        Assert.assertTrue(d.detect(makeConfiguration(20), vjobs).isEmpty());
+        d.done();
+        Assert.assertEquals(d.detect(makeConfiguration(150), vjobs).size(), 1);
+        d.done();
+        Assert.assertEquals(d.detect(makeConfiguration(150), vjobs).size(), 1);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package entropy.controlLoop;
+
+import entropy.configuration.*;
+import entropy.vjob.DefaultVJob;
+import entropy.vjob.Spread;
+import entropy.vjob.LazySpread;
+import entropy.vjob.VJob;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for PlanningGate.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestPlanningGate {
+
+    private Configuration makeConfiguration(int cpu) {
+        return makeConfiguration(cpu, 10);
+    }
+
+    private Configuration makeConfiguration(int cpu, int mem) {
+        Configuration cfg = new SimpleConfiguration();
+        Node n1 = new SimpleNode("N1", 1, 100, 100);
+        Node n2 = new SimpleNode("N2", 1, 100, 100);
+        cfg.addOnline(n1);
+        cfg.addOnline(n2);
+        cfg.setRunOn(new SimpleVirtualMachine("VM1", 1, cpu, mem, cpu, mem), n1);
+        cfg.setRunOn(new SimpleVirtualMachine("VM2", 1, 20, 10, 20, 10), n2);
+        return cfg;
+    }
+
+    public void testSkip() {
+        PlanningGate g = new PlanningGate(10, 10);
+        List<VJob> vjobs = new ArrayList<VJob>();
+        Assert.assertTrue(g.mustPlan(makeConfiguration(20), vjobs));
+        g.planned(makeConfiguration(20), vjobs);
+
+        //Small changes
+        Assert.assertFalse(g.mustPlan(makeConfiguration(25), vjobs), g.getReason());
+        Assert.assertEquals(g.getNbSkips(), 1);
+        Assert.assertEquals(g.getNbChecks(), 2);
+
+        //Significant change of the demand
+        Assert.assertTrue(g.mustPlan(makeConfiguration(30), vjobs));
+
+        //Overloaded node
+        Assert.assertTrue(g.mustPlan(makeConfiguration(150), vjobs));
+
+        //Moved VM
+        Configuration cfg = makeConfiguration(20);
+        cfg.setRunOn(cfg.getRunnings().get("VM1"), cfg.getOnlines().get("N2"));
+        Assert.assertTrue(g.mustPlan(cfg, vjobs));
+
+        //New waiting VM
+        cfg = makeConfiguration(20);
+        cfg.addWaiting(new SimpleVirtualMachine("VM3", 1, 1, 1));
+        Assert.assertTrue(g.mustPlan(cfg, vjobs));
+
+        g.reset();
+        Assert.assertTrue(g.mustPlan(makeConfiguration(20), vjobs));
+    }
+
+    public void testMemoryThreshold() {
+        PlanningGate g = new PlanningGate(10, 30);
+        List<VJob> vjobs = new ArrayList<VJob>();
+        g.planned(makeConfiguration(20, 10), vjobs);
+        Assert.assertFalse(g.mustPlan(makeConfiguration(20, 30), vjobs), g.getReason());
+        Assert.assertTrue(g.mustPlan(makeConfiguration(20, 40), vjobs));
+        g.setMemoryThreshold(50);
+        Assert.assertFalse(g.mustPlan(makeConfiguration(20, 40), vjobs), g.getReason());
+        Assert.assertEquals(g.getCPUThreshold(), 10);
+        Assert.assertEquals(g.getMemoryThreshold(), 50);
+    }
+
+    public void testMaxSkips() {
+        PlanningGate g = new PlanningGate(10, 10);
+        g.setMaxSkips(2);
+        List<VJob> vjobs = new ArrayList<VJob>();
+        g.planned(makeConfiguration(20), vjobs);
+        Assert.assertFalse(g.mustPlan(makeConfiguration(20), vjobs));
+        Assert.assertFalse(g.mustPlan(makeConfiguration(20), vjobs));
+        Assert.assertTrue(g.mustPlan(makeConfiguration(20), vjobs));
+        Assert.assertTrue(g.getReason().contains("consecutive"), g.getReason());
+        //The counter restarts after a planning
+        g.planned(makeConfiguration(20), vjobs);
+        Assert.assertFalse(g.mustPlan(makeConfiguration(20), vjobs));
+        Assert.assertEquals(g.getNbSkips(), 3);
+
+        g.setMaxSkips(0);
+        Assert.assertTrue(g.mustPlan(makeConfiguration(20), vjobs));
+    }
+
+    public void testVJobs() {
+        PlanningGate g = new PlanningGate(10, 10);
+        Configuration cfg = makeConfiguration(20);
+        List<VJob> vjobs = new ArrayList<VJob>();
+        VJob v = new DefaultVJob("v1");
+        v.addVirtualMachines(cfg.getRunnings());
+        vjobs.add(v);
+        g.planned(cfg, vjobs);
+        Assert.assertFalse(g.mustPlan(cfg, vjobs));
+
+        //New constraint, satisfied
+        Spread s = new LazySpread(cfg.getRunnings());
+        v.addConstraint(s);
+        Assert.assertTrue(g.mustPlan(cfg, vjobs));
+        g.planned(cfg, vjobs);
+        Assert.assertFalse(g.mustPlan(cfg, vjobs));
+
+        //Violated constraint
+        cfg.setRunOn(cfg.getRunnings().get("VM1"), cfg.getOnlines().get("N2"));
+        Assert.assertTrue(g.mustPlan(cfg, vjobs));
+        Assert.assertTrue(g.getReason().contains("violated"), g.getReason());
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.controlLoop;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for PlanningTrigger.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestPlanningTrigger {
+
+    public void testQuiet() throws InterruptedException {
+        PlanningTrigger t = new PlanningTrigger(0, 0);
+        long st = System.currentTimeMillis();
+        Assert.assertNull(t.await(100));
+        Assert.assertTrue(System.currentTimeMillis() - st >= 100);
+        Assert.assertEquals(t.getNbReleases(), 0);
+    }
+
+    public void testDebounce() throws InterruptedException {
+        PlanningTrigger t = new PlanningTrigger(200, 0);
+        t.fire("a");
+        t.fire("b");
+        Assert.assertTrue(t.isPending());
+        //Not released before the debouncing delay
+        Assert.assertNull(t.await(50));
+        String r = t.await(1000);
+        Assert.assertEquals(r, "a; b");
+        Assert.assertFalse(t.isPending());
+        Assert.assertEquals(t.getNbEvents(), 2);
+        Assert.assertEquals(t.getNbReleases(), 1);
+    }
+
+    public void testMinGap() throws InterruptedException {
+        PlanningTrigger t = new PlanningTrigger(0, 300);
+        t.fire("a");
+        Assert.assertEquals(t.await(100), "a");
+        t.done();
+        t.fire("b");
+        long st = System.currentTimeMillis();
+        Assert.assertNull(t.await(100));
+        Assert.assertEquals(t.await(1000), "b");
+        Assert.assertTrue(System.currentTimeMillis() - st >= 290);
+    }
+
+    public void testWakeUp() throws InterruptedException {
+        final PlanningTrigger t = new PlanningTrigger(0, 0);
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Assert.fail(e.getMessage(), e);
+                }
+                t.fire("overload");
+            }
+        }.start();
+        long st = System.currentTimeMillis();
+        Assert.assertEquals(t.await(5000), "overload");
+        Assert.assertTrue(System.currentTimeMillis() - st < 4000);
+    }
+}
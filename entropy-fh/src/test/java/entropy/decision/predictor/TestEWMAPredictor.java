@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.decision.predictor;
+
+import entropy.configuration.SimpleVirtualMachine;
+import entropy.configuration.VirtualMachine;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for EWMAPredictor.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestEWMAPredictor {
+
+    public void testSmoothing() {
+        EWMAPredictor p = new EWMAPredictor(10, 0.5);
+        Assert.assertEquals(p.getAlpha(), 0.5);
+        VirtualMachine vm = new SimpleVirtualMachine("VM1", 1, 100, 1);
+        p.predictCPUDemand(vm);
+        Assert.assertEquals(vm.getCPUDemand(), 110);
+        vm = new SimpleVirtualMachine("VM1", 1, 200, 1);
+        p.predictCPUDemand(vm);
+        //average = 150
+        Assert.assertEquals(vm.getCPUDemand(), 160);
+        vm = new SimpleVirtualMachine("VM1", 1, 0, 1);
+        p.predictCPUDemand(vm);
+        //average = 75
+        Assert.assertEquals(vm.getCPUDemand(), 80);
+        Assert.assertEquals(p.getHistory().size(), 1);
+    }
+
+    @Test(expectedExceptions = {IllegalArgumentException.class})
+    public void testBadAlpha() {
+        new EWMAPredictor(10, 1.5);
+    }
+}
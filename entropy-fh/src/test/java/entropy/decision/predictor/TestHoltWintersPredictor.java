@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.decision.predictor;
+
+import entropy.configuration.SimpleVirtualMachine;
+import entropy.configuration.VirtualMachine;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for HoltWintersPredictor.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestHoltWintersPredictor {
+
+    public void testConstant() {
+        HoltWintersPredictor p = new HoltWintersPredictor(10, 0.5, 0.5, 0.5, 4);
+        Assert.assertEquals(p.getSeason(), 4);
+        for (int i = 0; i < 20; i++) {
+            VirtualMachine vm = new SimpleVirtualMachine("VM1", 1, 100, 1);
+            p.predictCPUDemand(vm);
+            Assert.assertEquals(vm.getCPUDemand(), 110);
+        }
+    }
+
+    /**
+     * With a seasonal pattern, the forecast must become better than the last sample.
+     */
+    public void testSeasonal() {
+        int[] pattern = {100, 300, 100, 300};
+        HoltWintersPredictor p = new HoltWintersPredictor(1, 0.2, 0.1, 0.8, pattern.length);
+        int prev = -1;
+        int err = 0;
+        for (int i = 0; i < 200; i++) {
+            int c = pattern[i % pattern.length];
+            if (i >= 180) {
+                err += Math.abs(prev - c);
+            }
+            VirtualMachine vm = new SimpleVirtualMachine("VM1", 1, c, 1);
+            p.predictCPUDemand(vm);
+            prev = vm.getCPUDemand();
+        }
+        //Using the last sample as a forecast would lead to an error of 200 at each step
+        Assert.assertTrue(err / 20 < 50, "mean error: " + err / 20);
+    }
+
+    @Test(expectedExceptions = {IllegalArgumentException.class})
+    public void testBadSeason() {
+        new HoltWintersPredictor(10, 0.5, 0.5, 0.5, 0);
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.decision.predictor;
+
+import entropy.configuration.SimpleVirtualMachine;
+import entropy.configuration.VirtualMachine;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for PercentilePredictor.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestPercentilePredictor {
+
+    public void testWindow() {
+        PercentilePredictor p = new PercentilePredictor(10, 4, 75);
+        Assert.assertEquals(p.getPercentile(), 75.0);
+        int[] cs = {100, 400, 200, 300, 50, 60};
+        int[] expected = {110, 410, 410, 310, 310, 210};
+        for (int i = 0; i < cs.length; i++) {
+            VirtualMachine vm = new SimpleVirtualMachine("VM1", 1, cs[i], 1);
+            p.predictCPUDemand(vm);
+            Assert.assertEquals(vm.getCPUDemand(), expected[i], "at " + i);
+        }
+        Assert.assertEquals(p.getHistory().toArray(), new int[]{200, 300, 50, 60});
+    }
+
+    @Test(expectedExceptions = {IllegalArgumentException.class})
+    public void testBadPercentile() {
+        new PercentilePredictor(10, 4, 0);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.decision.predictor;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * Unit tests for PredictorEvaluator.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestPredictorEvaluator {
+
+    private static int[][] traces = {{100, 100, 300, 100, 100},
+            {50, 50, 50, 50, 50}};
+
+    public void testEvaluate() {
+        PredictorEvaluator ev = new PredictorEvaluator(new VMDemandPredictorBuilder() {
+            @Override
+            public VMDemandPredictor build() {
+                return new PercentilePredictor(10, 3, 100);
+            }
+        });
+        PredictorEvaluator.Result r = ev.evaluate(traces);
+        Assert.assertEquals(r.getNbForecasts(), 8);
+        //Only the peak at period 2 is not anticipated
+        Assert.assertEquals(r.getNbUnderEstimations(), 1);
+        Assert.assertEquals(r.getNbReplans(), 1);
+        //errors: 10, 190, 210, 210 for VM0; 10 at each period for VM1
+        Assert.assertEquals(r.getMeanAbsoluteError(), 660 / 8.0);
+        Assert.assertEquals(r.getMeanOverReservation(), 470 / 8.0);
+    }
+
+    public void testCompare() {
+        PredictorEvaluator reactive = new PredictorEvaluator(new VMDemandPredictorBuilder() {
+            @Override
+            public VMDemandPredictor build() {
+                return new EWMAPredictor(10, 1);
+            }
+        });
+        PredictorEvaluator conservative = new PredictorEvaluator(new VMDemandPredictorBuilder() {
+            @Override
+            public VMDemandPredictor build() {
+                return new PercentilePredictor(10, 10, 100);
+            }
+        });
+        int[][] bursty = new int[1][100];
+        for (int i = 0; i < 100; i++) {
+            bursty[0][i] = i % 5 == 0 ? 500 : 100;
+        }
+        Assert.assertTrue(conservative.evaluate(bursty).getNbReplans() < reactive.evaluate(bursty).getNbReplans());
+    }
+
+    public void testReadTraces() throws IOException {
+        File f = File.createTempFile("traces", ".txt");
+        f.deleteOnExit();
+        FileWriter out = new FileWriter(f);
+        out.write("#vm0\n1 2 3\n\n4 5 6\n");
+        out.close();
+        int[][] res = PredictorEvaluator.readTraces(f.getPath());
+        Assert.assertEquals(res.length, 2);
+        Assert.assertEquals(res[0], new int[]{1, 2, 3});
+        Assert.assertEquals(res[1], new int[]{4, 5, 6});
+    }
+
+    @Test(expectedExceptions = {IOException.class})
+    public void testReadRaggedTraces() throws IOException {
+        File f = File.createTempFile("traces", ".txt");
+        f.deleteOnExit();
+        FileWriter out = new FileWriter(f);
+        out.write("1 2 3\n4 5\n");
+        out.close();
+        PredictorEvaluator.readTraces(f.getPath());
+    }
+
+    @Test(expectedExceptions = {IllegalArgumentException.class})
+    public void testEvaluateRaggedTraces() {
+        PredictorEvaluator ev = new PredictorEvaluator(PredictorEvaluator.makeBuilder("ewma:0.5", 10));
+        ev.evaluate(new int[][]{{1, 2, 3}, {4, 5}});
+    }
+
+    public void testMakeBuilder() {
+        Assert.assertTrue(PredictorEvaluator.makeBuilder("tendency", 10).build() instanceof VMTendencyPredictor);
+        Assert.assertTrue(PredictorEvaluator.makeBuilder("ewma:0.5", 10).build() instanceof EWMAPredictor);
+        Assert.assertTrue(PredictorEvaluator.makeBuilder("percentile:10:95", 10).build() instanceof PercentilePredictor);
+        Assert.assertTrue(PredictorEvaluator.makeBuilder("holtWinters:0.5:0.1:0.3:24", 10).build() instanceof HoltWintersPredictor);
+        for (String bad : new String[]{"foo", "ewma", "ewma:a", "percentile:10"}) {
+            try {
+                PredictorEvaluator.makeBuilder(bad, 10);
+                Assert.fail("'" + bad + "' should be rejected");
+            } catch (IllegalArgumentException e) {
+                Assert.assertTrue(e.getMessage().contains(bad), e.getMessage());
+            }
+        }
+    }
+}
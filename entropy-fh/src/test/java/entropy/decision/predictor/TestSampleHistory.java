@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.decision.predictor;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for SampleHistory.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestSampleHistory {
+
+    public void testFillAndEvict() {
+        SampleHistory h = new SampleHistory(3);
+        Assert.assertEquals(h.capacity(), 3);
+        Assert.assertEquals(h.size(), 0);
+        h.add(1);
+        h.add(2);
+        Assert.assertEquals(h.size(), 2);
+        Assert.assertEquals(h.get(0), 1);
+        Assert.assertEquals(h.last(), 2);
+        h.add(3);
+        h.add(4);
+        h.add(5);
+        Assert.assertEquals(h.size(), 3);
+        Assert.assertEquals(h.toArray(), new int[]{3, 4, 5});
+        Assert.assertEquals(h.last(), 5);
+        Assert.assertEquals(h.toString(), "[3, 4, 5]");
+        h.clear();
+        Assert.assertEquals(h.size(), 0);
+        h.add(6);
+        Assert.assertEquals(h.toArray(), new int[]{6});
+    }
+
+    @Test(expectedExceptions = {IndexOutOfBoundsException.class})
+    public void testBadIndex() {
+        SampleHistory h = new SampleHistory(3);
+        h.add(1);
+        h.get(1);
+    }
+
+    @Test(expectedExceptions = {IllegalArgumentException.class})
+    public void testBadCapacity() {
+        new SampleHistory(0);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.decision.predictor;
+
+import entropy.configuration.*;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for TendencyBasedDecisionModule.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestTendencyBasedDecisionModule {
+
+    public void testEviction() throws Exception {
+        Configuration cfg = new SimpleConfiguration();
+        Node n1 = new SimpleNode("N1", 1, 1000, 1000);
+        VirtualMachine vm1 = new SimpleVirtualMachine("VM1", 1, 100, 1);
+        VirtualMachine vm2 = new SimpleVirtualMachine("VM2", 1, 200, 1);
+        cfg.addOnline(n1);
+        cfg.setRunOn(vm1, n1);
+        cfg.setRunOn(vm2, n1);
+        TendencyBasedDecisionModule d = new TendencyBasedDecisionModule(new VMDemandPredictorBuilder() {
+            @Override
+            public VMDemandPredictor build() {
+                return new EWMAPredictor(10, 0.5);
+            }
+        });
+        d.compute(cfg);
+        Assert.assertEquals(d.getNbPredictors(), 2);
+        Assert.assertEquals(vm1.getCPUDemand(), 110);
+        cfg.remove(vm2);
+        d.compute(cfg);
+        Assert.assertEquals(d.getNbPredictors(), 1);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.execution;
+
+import entropy.configuration.Node;
+import entropy.configuration.SimpleNode;
+import entropy.configuration.SimpleVirtualMachine;
+import entropy.configuration.VirtualMachine;
+import entropy.plan.action.Migration;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for MigrationThrottle.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestMigrationThrottle {
+
+    private static final Node N1 = new SimpleNode("N1", 1, 1, 1);
+
+    private static final Node N2 = new SimpleNode("N2", 1, 1, 1);
+
+    private static final Node N3 = new SimpleNode("N3", 1, 1, 1);
+
+    private static Migration migrate(String vm, Node src, Node dst) {
+        VirtualMachine v = new SimpleVirtualMachine(vm, 1, 1, 1);
+        return new Migration(v, src, dst, 0, 10);
+    }
+
+    /**
+     * Test a migration needs a slot on both its nodes.
+     */
+    public void testAcquireAndRelease() {
+        MigrationThrottle t = new MigrationThrottle(1, 4, 1.5);
+        Migration m1 = migrate("VM1", N1, N2);
+        Migration m2 = migrate("VM2", N1, N3);
+        Migration m3 = migrate("VM3", N3, N2);
+        Assert.assertTrue(t.tryAcquire(m1));
+        Assert.assertEquals(t.getNbRunnings(N1), 1);
+        Assert.assertEquals(t.getNbRunnings(N2), 1);
+        //N1 is saturated
+        Assert.assertFalse(t.tryAcquire(m2));
+        //N2 is saturated
+        Assert.assertFalse(t.tryAcquire(m3));
+        Assert.assertEquals(t.getNbRunnings(N3), 0);
+        t.release(m1, Double.NaN);
+        Assert.assertEquals(t.getNbRunnings(N1), 0);
+        Assert.assertEquals(t.getLimit(N1), 1);
+        Assert.assertTrue(t.tryAcquire(m2));
+    }
+
+    /**
+     * Test the additive increase and the multiplicative decrease of the limits.
+     */
+    public void testAIMD() {
+        MigrationThrottle t = new MigrationThrottle(2, 5, 1.5);
+        Migration m = migrate("VM1", N1, N2);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(t.tryAcquire(m));
+            t.release(m, 1.0);
+        }
+        Assert.assertEquals(t.getLimit(N1), 5);
+        Assert.assertEquals(t.getLimit(N2), 5);
+        Assert.assertEquals(t.getLimit(N3), 2);
+
+        Assert.assertTrue(t.tryAcquire(m));
+        t.release(m, 3.0);
+        Assert.assertEquals(t.getLimit(N1), 2);
+        //Already reduced since the last increase
+        Assert.assertTrue(t.tryAcquire(m));
+        t.release(m, 1.6);
+        Assert.assertEquals(t.getLimit(N1), 2);
+        Assert.assertTrue(t.tryAcquire(m));
+        t.release(m, 1.5);
+        Assert.assertEquals(t.getLimit(N1), 3);
+        Assert.assertTrue(t.tryAcquire(m));
+        t.release(m, 2.0);
+        Assert.assertEquals(t.getLimit(N1), 1);
+        Assert.assertTrue(t.tryAcquire(m));
+        t.release(m, 2.0);
+        Assert.assertEquals(t.getLimit(N1), 1);
+    }
+
+    /**
+     * Test the concurrent migrations slowed down by a same congestion halve the limit once.
+     */
+    public void testCongestion() {
+        MigrationThrottle t = new MigrationThrottle(4, 8, 1.5);
+        Migration[] ms = new Migration[4];
+        for (int i = 0; i < ms.length; i++) {
+            ms[i] = migrate("VM" + i, N1, N2);
+            Assert.assertTrue(t.tryAcquire(ms[i]));
+        }
+        for (Migration m : ms) {
+            t.release(m, 2.0);
+        }
+        Assert.assertEquals(t.getLimit(N1), 2);
+        Assert.assertEquals(t.getLimit(N2), 2);
+        Assert.assertEquals(t.getNbRunnings(N1), 0);
+    }
+
+    /**
+     * Test the limits are checked.
+     */
+    @Test(expectedExceptions = {IllegalArgumentException.class})
+    public void testBadLimits() {
+        new MigrationThrottle(3, 2, 1.5);
+    }
+}
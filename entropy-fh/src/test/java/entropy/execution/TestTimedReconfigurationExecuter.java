@@ -19,6 +19,9 @@
 package entropy.execution;
 
 import entropy.configuration.*;
+import entropy.execution.driver.Driver;
+import entropy.execution.driver.DriverException;
+import entropy.execution.driver.DriverInstantiationException;
 import entropy.execution.driver.MockDriver;
 import entropy.execution.driver.MockDriverFactory;
 import entropy.plan.DefaultTimedReconfigurationPlan;
@@ -26,9 +29,16 @@ import entropy.plan.TimedReconfigurationPlan;
 import entropy.plan.action.Action;
 import entropy.plan.action.Migration;
 import entropy.plan.action.Run;
+import entropy.plan.durationEvaluator.DurationStatistics;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Unit tests for BetterExecution.
  *
@@ -142,4 +152,254 @@ public class TestTimedReconfigurationExecuter {
         be.start(plan);
         Assert.assertEquals(be.getUncommitedActions().size(), 0);
     }
+
+    /**
+     * Test the cancellation of a plan executed in background.
+     * The actions that are not started are dropped.
+     */
+    public void testLaunchAndCancel() throws Exception {
+        Configuration cfg = new SimpleConfiguration();
+        VirtualMachine vm1 = new SimpleVirtualMachine("VM1", 1, 1, 1);
+        VirtualMachine vm2 = new SimpleVirtualMachine("VM2", 1, 1, 1);
+        Node n1 = new SimpleNode("N1", 1, 1, 1);
+        Node n2 = new SimpleNode("N2", 1, 1, 1);
+        Node n3 = new SimpleNode("N3", 1, 1, 1);
+        cfg.addOnline(n1);
+        cfg.addOnline(n2);
+        cfg.addOnline(n3);
+        cfg.setRunOn(vm1, n1);
+        cfg.setRunOn(vm2, n2);
+        Action t1 = new Migration(vm1, n1, n3, 0, 3);
+        Action t2 = new Migration(vm2, n2, n1, 3, 6);
+        TimedReconfigurationPlan plan = new DefaultTimedReconfigurationPlan(cfg);
+        Assert.assertTrue(plan.add(t1));
+        Assert.assertTrue(plan.add(t2));
+
+        //Actions last until the latch is released
+        final CountDownLatch latch = new CountDownLatch(1);
+        MockDriverFactory factory = new MockDriverFactory() {
+            @Override
+            public Driver transform(Action action) throws DriverInstantiationException {
+                return new Driver(action) {
+                    @Override
+                    public void execute() throws DriverException {
+                        try {
+                            latch.await();
+                        } catch (InterruptedException e) {
+                            throw new DriverException(this, e.getMessage());
+                        }
+                    }
+
+                    @Override
+                    public String toString() {
+                        return getAction().toString();
+                    }
+                };
+            }
+        };
+        TimedReconfigurationExecuter be = new TimedReconfigurationExecuter(factory);
+        be.launch(plan);
+        Assert.assertTrue(be.isExecuting());
+        Assert.assertEquals(be.getRunningActions().size(), 1);
+        Assert.assertTrue(be.getRunningActions().contains(t1));
+        Assert.assertEquals(be.getPendingActions().size(), 1);
+        Assert.assertTrue(be.getPendingActions().contains(t2));
+
+        Assert.assertEquals(be.cancel().size(), 1);
+        Assert.assertTrue(be.getPendingActions().isEmpty());
+        Assert.assertTrue(be.isExecuting());
+        latch.countDown();
+        be.waitForCompletion();
+        Assert.assertFalse(be.isExecuting());
+        Assert.assertEquals(be.getNbFailures(), 0);
+    }
+
+    /**
+     * Make a driver factory where the actions on a given VM last until a latch is released.
+     */
+    private static MockDriverFactory makeBlockingFactory(final VirtualMachine blocked, final CountDownLatch latch) {
+        return new MockDriverFactory() {
+            @Override
+            public Driver transform(final Action action) throws DriverInstantiationException {
+                return new Driver(action) {
+                    @Override
+                    public void execute() throws DriverException {
+                        if (action instanceof Migration && ((Migration) action).getVirtualMachine().equals(blocked)) {
+                            try {
+                                latch.await();
+                            } catch (InterruptedException e) {
+                                throw new DriverException(this, e.getMessage());
+                            }
+                        }
+                    }
+
+                    @Override
+                    public String toString() {
+                        return getAction().toString();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Test the notification of the terminated actions and the handle.
+     */
+    public void testListenerAndHandle() throws Exception {
+        Configuration cfg = new SimpleConfiguration();
+        VirtualMachine vm1 = new SimpleVirtualMachine("VM1", 1, 1, 1);
+        VirtualMachine vm2 = new SimpleVirtualMachine("VM2", 1, 1, 1);
+        Node n1 = new SimpleNode("N1", 1, 1, 1);
+        Node n2 = new SimpleNode("N2", 1, 1, 1);
+        Node n3 = new SimpleNode("N3", 1, 1, 1);
+        cfg.addOnline(n1);
+        cfg.addOnline(n2);
+        cfg.addOnline(n3);
+        cfg.setRunOn(vm1, n1);
+        cfg.setRunOn(vm2, n2);
+        Action t1 = new Migration(vm1, n1, n3, 0, 3);
+        Action t2 = new Migration(vm2, n2, n1, 3, 6);
+        TimedReconfigurationPlan plan = new DefaultTimedReconfigurationPlan(cfg);
+        Assert.assertTrue(plan.add(t1));
+        Assert.assertTrue(plan.add(t2));
+
+        final List<Action> notified = Collections.synchronizedList(new ArrayList<Action>());
+        TimedReconfigurationExecuter be = new TimedReconfigurationExecuter(new MockDriverFactory());
+        be.addListener(new ExecutionListener() {
+            @Override
+            public void actionCommitted(Action a, boolean succeeded) {
+                Assert.assertTrue(succeeded);
+                notified.add(a);
+            }
+        });
+        ExecutionHandle h = be.launch(plan);
+        Assert.assertSame(be.getCurrentExecution(), h);
+        Assert.assertTrue(h.waitForCompletion(30000));
+        Assert.assertTrue(h.isTerminated());
+        Assert.assertEquals(h.getCommittedActions().size(), 2);
+        //t2 depends on t1
+        Assert.assertEquals(h.getCommittedActions().get(0), t1);
+        Assert.assertTrue(h.getFailedActions().isEmpty());
+        Assert.assertEquals(notified.size(), 2);
+    }
+
+    /**
+     * Test the launch of a new plan while an action of a cancelled plan is still running.
+     */
+    public void testLaunchAfterCancel() throws Exception {
+        Configuration cfg = new SimpleConfiguration();
+        VirtualMachine vm1 = new SimpleVirtualMachine("VM1", 1, 1, 1);
+        VirtualMachine vm2 = new SimpleVirtualMachine("VM2", 1, 1, 1);
+        VirtualMachine vm3 = new SimpleVirtualMachine("VM3", 1, 1, 1);
+        Node n1 = new SimpleNode("N1", 1, 1, 1);
+        Node n2 = new SimpleNode("N2", 1, 1, 1);
+        Node n3 = new SimpleNode("N3", 1, 1, 1);
+        Node n4 = new SimpleNode("N4", 1, 1, 1);
+        cfg.addOnline(n1);
+        cfg.addOnline(n2);
+        cfg.addOnline(n3);
+        cfg.addOnline(n4);
+        cfg.setRunOn(vm1, n1);
+        cfg.setRunOn(vm2, n2);
+        cfg.setRunOn(vm3, n3);
+        //The migration of VM1 hangs, the one of VM2 is blocked
+        Action t1 = new Migration(vm1, n1, n4, 0, 3);
+        Action t2 = new Migration(vm2, n2, n1, 3, 6);
+        TimedReconfigurationPlan plan = new DefaultTimedReconfigurationPlan(cfg);
+        Assert.assertTrue(plan.add(t1));
+        Assert.assertTrue(plan.add(t2));
+
+        CountDownLatch latch = new CountDownLatch(1);
+        TimedReconfigurationExecuter be = new TimedReconfigurationExecuter(makeBlockingFactory(vm1, latch));
+        ExecutionHandle h1 = be.launch(plan);
+        Assert.assertFalse(h1.waitForCompletion(100));
+        Assert.assertEquals(h1.cancel().size(), 1);
+        Assert.assertEquals(h1.getDroppedActions().size(), 1);
+
+        //A new plan while VM1 is still migrating
+        Configuration cfg2 = cfg.clone();
+        Action t3 = new Migration(vm3, n3, n2, 0, 3);
+        TimedReconfigurationPlan plan2 = new DefaultTimedReconfigurationPlan(cfg2);
+        Assert.assertTrue(plan2.add(t3));
+        ExecutionHandle h2 = be.launch(plan2);
+        Assert.assertTrue(h2.waitForCompletion(30000));
+        Assert.assertEquals(h2.getCommittedActions().size(), 1);
+        Assert.assertEquals(h1.cancel().size(), 0);
+        Assert.assertFalse(be.isExecuting());
+        Assert.assertEquals(be.getRunningActions().size(), 1);
+        Assert.assertTrue(be.getRunningActions().contains(t1));
+
+        latch.countDown();
+        Assert.assertTrue(h1.waitForCompletion(30000));
+        Assert.assertEquals(h1.getCommittedActions().size(), 1);
+        Assert.assertTrue(be.getRunningActions().isEmpty());
+        Assert.assertEquals(be.getNbFailures(), 0);
+    }
+
+    /**
+     * Test the migrations are delayed when their nodes exceed the limit of the throttle.
+     */
+    public void testThrottledMigrations() throws Exception {
+        Configuration cfg = new SimpleConfiguration();
+        Node src = new SimpleNode("N0", 1, 1, 1);
+        cfg.addOnline(src);
+        List<Action> migrations = new ArrayList<Action>();
+        for (int i = 1; i <= 3; i++) {
+            VirtualMachine vm = new SimpleVirtualMachine("VM" + i, 1, 1, 1);
+            Node n = new SimpleNode("N" + i, 1, 1, 1);
+            cfg.addOnline(n);
+            cfg.setRunOn(vm, src);
+            migrations.add(new Migration(vm, src, n, 0, 3));
+        }
+        TimedReconfigurationPlan plan = new DefaultTimedReconfigurationPlan(cfg);
+        for (Action a : migrations) {
+            Assert.assertTrue(plan.add(a));
+        }
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicInteger nbRunnings = new AtomicInteger();
+        final AtomicInteger maxRunnings = new AtomicInteger();
+        MockDriverFactory factory = new MockDriverFactory() {
+            @Override
+            public Driver transform(Action action) throws DriverInstantiationException {
+                return new Driver(action) {
+                    @Override
+                    public void execute() throws DriverException {
+                        int nb = nbRunnings.incrementAndGet();
+                        if (nb > maxRunnings.get()) {
+                            maxRunnings.set(nb);
+                        }
+                        try {
+                            latch.await();
+                        } catch (InterruptedException e) {
+                            throw new DriverException(this, e.getMessage());
+                        }
+                        nbRunnings.decrementAndGet();
+                    }
+
+                    @Override
+                    public String toString() {
+                        return getAction().toString();
+                    }
+                };
+            }
+        };
+        MigrationThrottle throttle = new MigrationThrottle(1, 1, MigrationThrottle.DEFAULT_THRESHOLD);
+        DurationStatistics stats = new DurationStatistics();
+        TimedReconfigurationExecuter be = new TimedReconfigurationExecuter(factory);
+        be.setMigrationThrottle(throttle);
+        be.setDurationStatistics(stats);
+        ExecutionHandle h = be.launch(plan);
+        Assert.assertEquals(be.getRunningActions().size(), 1);
+        Assert.assertEquals(be.getPendingActions().size(), 2);
+        Assert.assertEquals(throttle.getNbRunnings(src), 1);
+
+        latch.countDown();
+        Assert.assertTrue(h.waitForCompletion(30000));
+        Assert.assertEquals(h.getCommittedActions().size(), 3);
+        Assert.assertEquals(maxRunnings.get(), 1);
+        Assert.assertEquals(throttle.getNbRunnings(src), 0);
+        Assert.assertEquals(stats.getNbSamples(), 3);
+        Assert.assertEquals(stats.getNbSamples(src), 3);
+    }
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.monitoring;
+
+import entropy.configuration.*;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for CompositeConfigurationAdapter.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestCompositeConfigurationAdapter {
+
+    /**
+     * An adapter that can be slowed down or broken.
+     */
+    private static class ShardAdapter extends ConfigurationAdapter {
+
+        private Configuration cfg;
+
+        private volatile long delay = 0;
+
+        private volatile boolean broken = false;
+
+        ShardAdapter(String id) {
+            cfg = new SimpleConfiguration();
+            Node n = new SimpleNode("N" + id, 1, 10, 10);
+            cfg.addOnline(n);
+            cfg.setRunOn(new SimpleVirtualMachine("VM" + id, 1, 1, 1), n);
+        }
+
+        @Override
+        public Configuration extractConfiguration() throws MonitoringException {
+            if (broken) {
+                throw new MonitoringException("broken");
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                throw new MonitoringException(e.getMessage(), e);
+            }
+            return cfg;
+        }
+    }
+
+    public void testAggregation() throws MonitoringException {
+        ShardAdapter s1 = new ShardAdapter("1");
+        ShardAdapter s2 = new ShardAdapter("2");
+        List<ConfigurationAdapter> l = new ArrayList<ConfigurationAdapter>();
+        l.add(s1);
+        l.add(s2);
+        CompositeConfigurationAdapter c = new CompositeConfigurationAdapter(l);
+        c.setTimeout(1000);
+        try {
+            Assert.assertEquals(c.getSources().size(), 2);
+            //Both sources are queried concurrently
+            s1.delay = 300;
+            s2.delay = 300;
+            long st = System.currentTimeMillis();
+            Configuration res = c.extractConfiguration();
+            Assert.assertTrue(System.currentTimeMillis() - st < 550);
+            Assert.assertEquals(res.getOnlines().size(), 2);
+            Assert.assertEquals(res.getRunnings().size(), 2);
+            Assert.assertFalse(c.isStale(0));
+            Assert.assertFalse(c.isStale(1));
+
+            //A slow source falls back to its cached configuration
+            s1.delay = 0;
+            s2.delay = 2000;
+            res = c.extractConfiguration();
+            Assert.assertEquals(res.getRunnings().size(), 2);
+            Assert.assertFalse(c.isStale(0));
+            Assert.assertTrue(c.isStale(1));
+            Assert.assertTrue(c.getAge(1) > 0);
+
+            //A broken source too, unless its configuration is too old.
+            //The pending query of the slow source is not resubmitted.
+            s1.broken = true;
+            c.setTimeout(3000);
+            c.setMaxAge(500);
+            res = c.extractConfiguration();
+            Assert.assertTrue(c.isStale(0));
+            Assert.assertFalse(c.isStale(1));
+            Assert.assertEquals(res.getRunnings().size(), 1);
+            Assert.assertNotNull(res.getRunnings().get("VM2"));
+        } finally {
+            c.shutdown();
+        }
+    }
+
+    @Test(expectedExceptions = {MonitoringException.class})
+    public void testNoSources() throws MonitoringException {
+        ShardAdapter s1 = new ShardAdapter("1");
+        s1.broken = true;
+        List<ConfigurationAdapter> l = new ArrayList<ConfigurationAdapter>();
+        l.add(s1);
+        CompositeConfigurationAdapter c = new CompositeConfigurationAdapter(l);
+        try {
+            c.extractConfiguration();
+        } finally {
+            c.shutdown();
+        }
+    }
+}
@@ -24,9 +24,12 @@ import entropy.configuration.Configuration;
 import entropy.monitoring.sampler.CPUBurningVMsSampler;
 import entropy.monitoring.sampler.CPUSampler;
 import entropy.monitoring.sampler.MemorySampler;
+import entropy.monitoring.store.MetricsStore;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.io.File;
+
 /**
  * Some unit tests about Monitor.
  *
@@ -80,6 +83,31 @@ public class TestMonitor {
         }
     }
 
+    /**
+     * A failure of the history store must not prevent the monitoring.
+     */
+    public void testGetConfigurationWithFailingStore() {
+        MockConfigurationAdapter mock = new MockConfigurationAdapter();
+        try {
+            Configuration toUse = TestHelper.readConfiguration(RESOURCES_DIR + "sample.txt");
+            mock.useConfiguration(toUse);
+            Monitor m = new Monitor(mock);
+            File d = File.createTempFile("metrics", "");
+            Assert.assertTrue(d.delete());
+            MetricsStore store = new MetricsStore(d);
+            //A closed store can not record new series
+            store.close();
+            m.setMetricsStore(store);
+            Assert.assertEquals(m.getConfiguration(), toUse);
+            for (File f : d.listFiles()) {
+                f.delete();
+            }
+            d.delete();
+        } catch (Exception e) {
+            Assert.fail(e.getMessage(), e);
+        }
+    }
+
     /**
      * Test getConfiguration with several sampler to alter the original
      * configuration.
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.monitoring.ganglia;
+
+import entropy.configuration.Configuration;
+import entropy.monitoring.MockConfigurationAdapter;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.SAXParserFactory;
+import java.io.StringReader;
+
+/**
+ * Compare the throughput of the SAX and the StAX parsers of GMetad outputs
+ * on a synthetic dump. Arguments: [nbNodes] [nbVMsPerNode] [nbRuns]
+ *
+ * @author Fabien Hermenier
+ */
+public class BenchGangliaParsers {
+
+    /**
+     * Unused metrics reported by a gmond daemon, to mimic a real output.
+     */
+    private static final String[] NOISE = {"machine_type", "disk_free", "bytes_out", "bytes_in", "load_one",
+            "load_five", "load_fifteen", "proc_run", "proc_total", "mem_free", "mem_shared", "mem_buffers",
+            "mem_cached", "swap_free", "swap_total", "pkts_in", "pkts_out", "disk_total", "cpu_idle",
+            "cpu_aidle", "cpu_wio", "boottime", "os_name", "os_release"};
+
+    private static void metric(StringBuilder b, String name, Object val) {
+        b.append("<METRIC NAME=\"").append(name).append("\" VAL=\"").append(val)
+                .append("\" TYPE=\"string\" UNITS=\"\" TN=\"13\" TMAX=\"60\" DMAX=\"0\" SLOPE=\"both\" SOURCE=\"gmond\">\n")
+                .append("<EXTRA_DATA>\n<EXTRA_ELEMENT NAME=\"GROUP\" VAL=\"system\"/>\n")
+                .append("<EXTRA_ELEMENT NAME=\"DESC\" VAL=\"").append(name).append("\"/>\n</EXTRA_DATA>\n</METRIC>\n");
+    }
+
+    private static void host(StringBuilder b, String name) {
+        b.append("<HOST NAME=\"").append(name)
+                .append("\" IP=\"192.168.0.1\" REPORTED=\"1231941812\" TN=\"14\" TMAX=\"20\" DMAX=\"0\" LOCATION=\"unspecified\" GMOND_STARTED=\"1231941296\">\n");
+        for (String n : NOISE) {
+            metric(b, n, 42);
+        }
+    }
+
+    /**
+     * Generate a GMetad output.
+     *
+     * @param nbNodes      the number of containers
+     * @param nbVMsPerNode the number of virtual machines running on each container
+     * @return the XML output
+     */
+    public static String makeDump(int nbNodes, int nbVMsPerNode) {
+        StringBuilder b = new StringBuilder();
+        b.append("<?xml version=\"1.0\" encoding=\"ISO-8859-1\" standalone=\"yes\"?>\n");
+        b.append("<GANGLIA_XML VERSION=\"3.1.1\" SOURCE=\"gmetad\">\n<GRID NAME=\"unspecified\" AUTHORITY=\"\" LOCALTIME=\"1231941826\">\n");
+        b.append("<CLUSTER NAME=\"Nodes\" LOCALTIME=\"1231941813\" OWNER=\"\" LATLONG=\"\" URL=\"\">\n");
+        for (int i = 0; i < nbNodes; i++) {
+            host(b, "N" + i);
+            StringBuilder vms = new StringBuilder();
+            for (int j = 0; j < nbVMsPerNode; j++) {
+                vms.append(" VM").append(i * nbVMsPerNode + j);
+            }
+            metric(b, GangliaMetaXMLParser.METRIC_CPU_FREQUENCY, 2000);
+            metric(b, GangliaMetaXMLParser.METRIC_CONTAINER_TYPE, "xen-3.3");
+            metric(b, GangliaMetaXMLParser.METRIC_CONTAINER_LIST_VMS, vms);
+            metric(b, GangliaMetaXMLParser.METRIC_CONTAINER_MEMORY_TOTAL, 8000000);
+            metric(b, GangliaMetaXMLParser.METRIC_CONTAINER_NB_CPU, 4);
+            metric(b, GangliaMetaXMLParser.METRIC_CONTAINER_MIGRATION_DRIVER, "xen");
+            b.append("</HOST>\n");
+        }
+        b.append("</CLUSTER>\n<CLUSTER NAME=\"Virtual Machines\" LOCALTIME=\"1231941813\" OWNER=\"\" LATLONG=\"\" URL=\"\">\n");
+        for (int i = 0; i < nbNodes * nbVMsPerNode; i++) {
+            host(b, "VM" + i);
+            metric(b, GangliaMetaXMLParser.METRIC_VM_MEMORY_CONSUMPTION, 512000);
+            metric(b, GangliaMetaXMLParser.METRIC_NB_CPU, 1);
+            metric(b, GangliaMetaXMLParser.METRIC_CPU_PCT_USER, 12.5);
+            metric(b, GangliaMetaXMLParser.METRIC_CPU_PCT_NICE, 0.0);
+            metric(b, GangliaMetaXMLParser.METRIC_CPU_PCT_SYSTEM, 3.2);
+            b.append("</HOST>\n");
+        }
+        b.append("</CLUSTER>\n</GRID>\n</GANGLIA_XML>\n");
+        return b.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int nbNodes = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int nbVMs = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int nbRuns = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        String dump = makeDump(nbNodes, nbVMs);
+        double mb = dump.length() / 1024.0 / 1024.0;
+        System.out.println(String.format("Dump: %d nodes, %d VMs, %.1f MB", nbNodes, nbNodes * nbVMs, mb));
+        MockConfigurationAdapter adapter = new MockConfigurationAdapter();
+        javax.xml.parsers.SAXParser sax = SAXParserFactory.newInstance().newSAXParser();
+
+        long saxTime = 0;
+        long staxTime = 0;
+        //The first run warm up the JIT
+        for (int x = 0; x <= nbRuns; x++) {
+            long st = System.currentTimeMillis();
+            GangliaMetaXMLParser h = new GangliaMetaXMLParser(adapter);
+            sax.parse(new InputSource(new StringReader(dump)), h);
+            Configuration ref = h.getConfiguration();
+            long ed = System.currentTimeMillis();
+            if (x > 0) {
+                saxTime += ed - st;
+            }
+            st = System.currentTimeMillis();
+            Configuration c = new GangliaStAXParser(adapter).parse(new StringReader(dump));
+            ed = System.currentTimeMillis();
+            if (x > 0) {
+                staxTime += ed - st;
+            }
+            if (!c.equals(ref)) {
+                throw new IllegalStateException("The parsers disagree");
+            }
+        }
+        System.out.println(String.format("SAX:  %d ms/run, %.1f MB/s", saxTime / nbRuns, mb * nbRuns * 1000 / Math.max(1, saxTime)));
+        System.out.println(String.format("StAX: %d ms/run, %.1f MB/s", staxTime / nbRuns, mb * nbRuns * 1000 / Math.max(1, staxTime)));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.monitoring.ganglia;
+
+import entropy.configuration.Configuration;
+import entropy.configuration.Node;
+import entropy.configuration.VirtualMachine;
+import entropy.monitoring.MockConfigurationAdapter;
+import entropy.monitoring.MonitoringException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.SAXParserFactory;
+import java.io.FileReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+/**
+ * Unit tests for GangliaStAXParser.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestGangliaStAXParser {
+
+    private static final String[] SAMPLES = {
+            "checkAssignmentsParsing",
+            "checkCPUConsumptionComputation",
+            "checkNodeMetricsParsing",
+            "checkVirtualMachinesMetricsParsing",
+            "offlineNodesDetection",
+            "offlineSleepingVMsDetection",
+            "onlineSleepingVMsDetection",
+            "sample",
+            "testWithNoNodes",
+            "testWithNoVMs"
+    };
+
+    private static Configuration parseWithSAX(String path) throws Exception {
+        javax.xml.parsers.SAXParser parser = SAXParserFactory.newInstance().newSAXParser();
+        GangliaMetaXMLParser p = new GangliaMetaXMLParser(new MockConfigurationAdapter());
+        parser.parse(new InputSource(new FileReader(path)), p);
+        return p.getConfiguration();
+    }
+
+    private static Configuration parseWithStAX(GangliaStAXParser p, String path) throws Exception {
+        FileReader in = new FileReader(path);
+        try {
+            return p.parse(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Check the two parsers produce the same configurations.
+     */
+    public void testSameResultsThanSAXParser() throws Exception {
+        for (String sample : SAMPLES) {
+            String path = TestGangliaMetaXMLParser.RESOURCES_DIR + sample + ".xml";
+            Configuration ref = parseWithSAX(path);
+            Configuration c = parseWithStAX(new GangliaStAXParser(new MockConfigurationAdapter()), path);
+            Assert.assertEquals(c, ref, sample);
+            for (Node n : ref.getAllNodes()) {
+                Node n2 = c.getAllNodes().get(n.getName());
+                Assert.assertEquals(n2.getCPUCapacity(), n.getCPUCapacity(), sample);
+                Assert.assertEquals(n2.getMemoryCapacity(), n.getMemoryCapacity(), sample);
+                Assert.assertEquals(n2.getNbOfCPUs(), n.getNbOfCPUs(), sample);
+                Assert.assertEquals(n2.getIPAddress(), n.getIPAddress(), sample);
+                Assert.assertEquals(n2.getMigrationDriverID(), n.getMigrationDriverID(), sample);
+            }
+            for (VirtualMachine vm : ref.getAllVirtualMachines()) {
+                VirtualMachine vm2 = c.getAllVirtualMachines().get(vm.getName());
+                Assert.assertEquals(vm2.getCPUConsumption(), vm.getCPUConsumption(), sample);
+                Assert.assertEquals(vm2.getMemoryConsumption(), vm.getMemoryConsumption(), sample);
+                Assert.assertEquals(vm2.getNbOfCPUs(), vm.getNbOfCPUs(), sample);
+            }
+        }
+    }
+
+    /**
+     * Test the parsing of an unknown assigned virtual machine.
+     */
+    @Test(expectedExceptions = {MonitoringException.class})
+    public void testWithInvalidAssignment() throws Exception {
+        parseWithStAX(new GangliaStAXParser(new MockConfigurationAdapter()),
+                TestGangliaMetaXMLParser.RESOURCES_DIR + "checkAssignmentsParsingWithInvalidAssignment.xml");
+    }
+
+    /**
+     * Test the nodes of the black list are skipped.
+     */
+    public void testWithBlackList() throws Exception {
+        MockConfigurationAdapter a = new MockConfigurationAdapter();
+        a.setNodesBlackList(Arrays.asList("pastel-11.b217.home"));
+        Configuration c = parseWithStAX(new GangliaStAXParser(a), TestGangliaMetaXMLParser.RESOURCES_DIR + "checkAssignmentsParsing.xml");
+        Assert.assertNull(c.getAllNodes().get("pastel-11.b217.home"));
+        Assert.assertNotNull(c.getOnlines().get("pastel-10.b217.home"));
+        Assert.assertNull(c.getRunnings().get("lenny4"));
+        Assert.assertNotNull(c.getRunnings().get("lenny3"));
+    }
+
+    /**
+     * Test the restriction of the parsing to some clusters.
+     */
+    public void testWithClusters() throws Exception {
+        String path = TestGangliaMetaXMLParser.RESOURCES_DIR + "sample.xml";
+        GangliaStAXParser p = new GangliaStAXParser(new MockConfigurationAdapter());
+        p.setClusters(new HashSet<String>(Collections.singleton("Virtual Machines")));
+        Configuration c = parseWithStAX(p, path);
+        Assert.assertTrue(c.getAllNodes().isEmpty());
+        Assert.assertTrue(c.getAllVirtualMachines().isEmpty());
+
+        p.setClusters(null);
+        Assert.assertEquals(parseWithStAX(p, path), parseWithSAX(path));
+    }
+}
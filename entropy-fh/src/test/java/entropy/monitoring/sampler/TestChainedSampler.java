@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.monitoring.sampler;
+
+import entropy.TestHelper;
+import entropy.configuration.Configuration;
+import entropy.configuration.Node;
+import entropy.configuration.VirtualMachine;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for ChainedSampler.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestChainedSampler {
+
+    public static final String RESOURCES_DIR = "src/test/resources/entropy/monitoring/sampler/TestCPUSampler.";
+
+    public void testEmpty() {
+        Configuration src = TestHelper.readConfiguration(RESOURCES_DIR + "sample.txt");
+        ChainedSampler c = new ChainedSampler();
+        Assert.assertTrue(c.getSamplers().isEmpty());
+        Assert.assertSame(c.sample(src), src);
+    }
+
+    /**
+     * The chain must provide the same result than the sequential application of the samplers.
+     */
+    public void testSameAsSequential() {
+        Configuration src = TestHelper.readConfiguration(RESOURCES_DIR + "sample.txt");
+        ElementSampler[] samplers = {new CPUSampler(1000), new MemorySampler(1024), new CPUBurningVMsSampler(1)};
+        ChainedSampler c = new ChainedSampler();
+        Configuration seq = src;
+        for (ElementSampler s : samplers) {
+            c.add(s);
+            seq = s.sample(seq);
+        }
+        Configuration res = c.sample(src);
+        Assert.assertEquals(res, seq);
+        for (Node n : seq.getAllNodes()) {
+            Node r = res.getAllNodes().get(n.getName());
+            Assert.assertEquals(r.getCPUCapacity(), n.getCPUCapacity());
+            Assert.assertEquals(r.getMemoryCapacity(), n.getMemoryCapacity());
+        }
+        for (VirtualMachine vm : seq.getAllVirtualMachines()) {
+            VirtualMachine r = res.getAllVirtualMachines().get(vm.getName());
+            Assert.assertEquals(r.getCPUConsumption(), vm.getCPUConsumption());
+            Assert.assertEquals(r.getMemoryConsumption(), vm.getMemoryConsumption());
+        }
+        //The source is not modified
+        Assert.assertEquals(src.getOnlines().get("N2").getCPUCapacity(), 2100);
+        Assert.assertEquals(src.getRunnings().get("VM2").getMemoryConsumption(), 1100);
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.monitoring.store;
+
+import entropy.configuration.*;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Unit tests for MetricsStore.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestMetricsStore {
+
+    private static File makeDirectory() throws IOException {
+        File d = File.createTempFile("metrics", "");
+        Assert.assertTrue(d.delete());
+        Assert.assertTrue(d.mkdir());
+        d.deleteOnExit();
+        return d;
+    }
+
+    private static void delete(File d) {
+        for (File f : d.listFiles()) {
+            f.delete();
+        }
+        d.delete();
+    }
+
+    public void testRecordAndGet() throws IOException {
+        File d = makeDirectory();
+        MetricsStore s = new MetricsStore(d, 4);
+        try {
+            for (int t = 0; t < 10; t++) {
+                s.record(t * 10, "VM1", Metric.cpuConsumption, 100 + t * (t % 2 == 0 ? 1 : -1));
+                if (t >= 5) {
+                    s.record(t * 10, "VM2", Metric.cpuConsumption, Integer.MAX_VALUE - t);
+                }
+            }
+            Assert.assertEquals(s.getNbSegments(), 2);
+            Assert.assertEquals(s.getNbSeries(), 2);
+            TimeSeries r = s.get("VM1", Metric.cpuConsumption, 0, 1000);
+            Assert.assertEquals(r.size(), 10);
+            for (int t = 0; t < 10; t++) {
+                Assert.assertEquals(r.getTimestamp(t), t * 10);
+                Assert.assertEquals(r.getValue(t), 100 + t * (t % 2 == 0 ? 1 : -1));
+            }
+            r = s.get("VM2", Metric.cpuConsumption, 0, 1000);
+            Assert.assertEquals(r.size(), 5);
+            Assert.assertEquals(r.getValue(0), Integer.MAX_VALUE - 5);
+
+            r = s.get("VM1", Metric.cpuConsumption, 25, 55);
+            Assert.assertEquals(r.size(), 3);
+            Assert.assertEquals(r.getTimestamp(0), 30);
+
+            Assert.assertEquals(s.get("VM1", Metric.memoryConsumption, 0, 1000).size(), 0);
+            Assert.assertEquals(s.get("VM3", Metric.cpuConsumption, 0, 1000).size(), 0);
+
+            r = s.get("VM1", Metric.cpuConsumption, 0, 99, 50, TimeSeries.Aggregation.max);
+            Assert.assertEquals(r.toString(), "[0=104, 50=108]");
+        } finally {
+            s.close();
+            delete(d);
+        }
+    }
+
+    /**
+     * The staging area holds 64 values, so 16 series are flushed every
+     * 4 samples, then every 2 samples once there is 32 series.
+     */
+    public void testBoundedStaging() throws IOException {
+        File d = makeDirectory();
+        MetricsStore s = new MetricsStore(d, 100, 64);
+        try {
+            for (int t = 0; t < 10; t++) {
+                int nb = t < 3 ? 2 : 20;
+                for (int i = 0; i < nb; i++) {
+                    s.record(t, "VM" + i, Metric.cpuConsumption, t * 100 + i);
+                }
+            }
+            //Samples 0-3, 4-5, 6-7 then 8-9 still staged
+            Assert.assertEquals(s.getNbSegments(), 3);
+            Assert.assertEquals(s.getStagingSize(), 64);
+            for (int i = 0; i < 20; i++) {
+                TimeSeries r = s.get("VM" + i, Metric.cpuConsumption, 0, 100);
+                Assert.assertEquals(r.size(), i < 2 ? 10 : 7);
+                for (int x = 0; x < r.size(); x++) {
+                    Assert.assertEquals(r.getValue(x), r.getTimestamp(x) * 100 + i);
+                }
+            }
+        } finally {
+            s.close();
+            delete(d);
+        }
+    }
+
+    public void testReopen() throws IOException {
+        File d = makeDirectory();
+        Configuration cfg = new SimpleConfiguration();
+        Node n1 = new SimpleNode("N1", 1, 100, 200);
+        cfg.addOnline(n1);
+        cfg.setRunOn(new SimpleVirtualMachine("VM1", 1, 10, 20, 15, 25), n1);
+        MetricsStore s = new MetricsStore(d, 3);
+        for (int t = 1; t <= 5; t++) {
+            s.record(t, cfg);
+        }
+        s.close();
+        s = new MetricsStore(d, 3);
+        try {
+            Assert.assertEquals(s.getNbSegments(), 2);
+            Assert.assertEquals(s.getNbSeries(), 6);
+            Assert.assertEquals(s.get("VM1", Metric.memoryDemand, 0, 10).getValues(), new int[]{25, 25, 25, 25, 25});
+            Assert.assertEquals(s.get("N1", Metric.cpuCapacity, 0, 10).getValues(), new int[]{100, 100, 100, 100, 100});
+            s.record(6, "VM1", Metric.memoryDemand, 30);
+            Assert.assertEquals(s.get("VM1", Metric.memoryDemand, 5, 10).getValues(), new int[]{25, 30});
+        } finally {
+            s.close();
+            delete(d);
+        }
+    }
+
+    /**
+     * An entry of the index of the series partially written is dropped
+     * and the following entries remain readable.
+     */
+    public void testTruncatedIndex() throws IOException {
+        File d = makeDirectory();
+        MetricsStore s = new MetricsStore(d, 2);
+        s.record(1, "VM1", Metric.cpuConsumption, 10);
+        s.record(2, "VM1", Metric.cpuConsumption, 20);
+        s.close();
+        //A crash while writing the identifier of a new series
+        FileOutputStream out = new FileOutputStream(new File(d, "series.idx"), true);
+        out.write(new byte[]{0, 20, 'V', 'M'});
+        out.close();
+        s = new MetricsStore(d, 2);
+        Assert.assertEquals(s.getNbSeries(), 1);
+        s.record(3, "VM1", Metric.cpuConsumption, 30);
+        s.record(3, "VM2", Metric.memoryConsumption, 40);
+        s.close();
+        s = new MetricsStore(d, 2);
+        try {
+            Assert.assertEquals(s.getNbSeries(), 2);
+            Assert.assertEquals(s.get("VM1", Metric.cpuConsumption, 0, 10).getValues(), new int[]{10, 20, 30});
+            Assert.assertEquals(s.get("VM2", Metric.memoryConsumption, 0, 10).getValues(), new int[]{40});
+        } finally {
+            s.close();
+            delete(d);
+        }
+    }
+
+    @Test(expectedExceptions = {IllegalArgumentException.class})
+    public void testOlderTimestamp() throws IOException {
+        File d = makeDirectory();
+        MetricsStore s = new MetricsStore(d, 3);
+        try {
+            s.record(10, "VM1", Metric.cpuConsumption, 1);
+            s.record(5, "VM1", Metric.cpuConsumption, 1);
+        } finally {
+            s.close();
+            delete(d);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.monitoring.store;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for TimeSeries.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestTimeSeries {
+
+    private TimeSeries make() {
+        TimeSeries s = new TimeSeries();
+        s.add(0, 5);
+        s.add(10, 7);
+        s.add(20, 3);
+        s.add(40, 8);
+        s.add(50, 2);
+        return s;
+    }
+
+    public void testBasics() {
+        TimeSeries s = make();
+        Assert.assertEquals(s.size(), 5);
+        Assert.assertEquals(s.getTimestamp(3), 40);
+        Assert.assertEquals(s.getValue(3), 8);
+        Assert.assertEquals(s.getValues(), new int[]{5, 7, 3, 8, 2});
+        Assert.assertEquals(s.toString(), "[0=5, 10=7, 20=3, 40=8, 50=2]");
+    }
+
+    public void testDownsample() {
+        TimeSeries s = make();
+        TimeSeries r = s.downsample(0, 30, TimeSeries.Aggregation.max);
+        Assert.assertEquals(r.toString(), "[0=7, 30=8]");
+        r = s.downsample(0, 30, TimeSeries.Aggregation.min);
+        Assert.assertEquals(r.toString(), "[0=3, 30=2]");
+        r = s.downsample(0, 30, TimeSeries.Aggregation.avg);
+        Assert.assertEquals(r.toString(), "[0=5, 30=5]");
+        r = s.downsample(0, 30, TimeSeries.Aggregation.last);
+        Assert.assertEquals(r.toString(), "[0=3, 30=2]");
+        //Empty buckets are skipped
+        r = s.downsample(5, 10, TimeSeries.Aggregation.last);
+        Assert.assertEquals(r.toString(), "[5=7, 15=3, 35=8, 45=2]");
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.plan;
+
+import entropy.configuration.*;
+import entropy.execution.driver.DriverFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for ConsolidationPolicy.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestConsolidationPolicy {
+
+    private static Node makeNode(String name) {
+        Node n = new DefaultNode(name, 2, 100, 100);
+        n.setStartupDriverID(DriverFactory.WOL_STARTUP);
+        n.setShutdownDriverID(DriverFactory.SSH_SHUTDOWN);
+        return n;
+    }
+
+    /**
+     * Test the weight of the nodes wrt. their platform.
+     */
+    public void testWeights() {
+        ConsolidationPolicy p = new ConsolidationPolicy(10, 30, 0, 0);
+        p.setWeights("xen:15, *:20");
+        Node n1 = makeNode("N1");
+        n1.addPlatform("xen");
+        n1.setCurrentPlatform("xen");
+        Node n2 = makeNode("N2");
+        Assert.assertEquals(p.getWeight(n1), 15);
+        Assert.assertEquals(p.getWeight(n2), 20);
+    }
+
+    @Test(expectedExceptions = {IllegalArgumentException.class})
+    public void testMalformedWeights() {
+        new ConsolidationPolicy(10, 30, 0, 0).setWeights("xen=15");
+    }
+
+    /**
+     * Only underused nodes with a shutdown driver may be switched off.
+     */
+    public void testCanBeShutdown() {
+        ConsolidationPolicy p = new ConsolidationPolicy(10, 30, 0, 0);
+        Configuration cfg = new SimpleConfiguration();
+        Node n1 = makeNode("N1");
+        Node n2 = makeNode("N2");
+        Node n3 = new SimpleNode("N3", 2, 100, 100);
+        cfg.addOnline(n1);
+        cfg.addOnline(n2);
+        cfg.addOnline(n3);
+        cfg.setRunOn(new SimpleVirtualMachine("VM1", 1, 20, 20, 20, 20), n1);
+        cfg.setRunOn(new SimpleVirtualMachine("VM2", 1, 50, 20, 50, 20), n2);
+        long now = System.currentTimeMillis();
+        p.observe(cfg, now);
+        Assert.assertTrue(p.canBeShutdown(cfg, n1, now));
+        Assert.assertFalse(p.canBeShutdown(cfg, n2, now));
+        Assert.assertFalse(p.canBeShutdown(cfg, n3, now));
+        p.requireDrivers(false);
+        Assert.assertTrue(p.canBeShutdown(cfg, n3, now));
+    }
+
+    /**
+     * Test the hysteresis after a state change.
+     */
+    public void testHysteresis() {
+        ConsolidationPolicy p = new ConsolidationPolicy(10, 30, 60, 120);
+        Configuration cfg = new SimpleConfiguration();
+        Node n1 = makeNode("N1");
+        n1.setMACAddress("00:11:22:33:44:55");
+        cfg.addOnline(n1);
+        p.observe(cfg, 0);
+        Assert.assertTrue(p.canBeShutdown(cfg, n1, 0));
+
+        //Switched off at 1000
+        cfg.addOffline(n1);
+        p.observe(cfg, 1000);
+        Assert.assertFalse(p.canBeShutdown(cfg, n1, 1000));
+        Assert.assertFalse(p.canBeBooted(cfg, n1, 1000 + 119 * 1000));
+        Assert.assertTrue(p.canBeBooted(cfg, n1, 1000 + 120 * 1000));
+
+        //Booted at 200000
+        cfg.addOnline(n1);
+        p.observe(cfg, 200000);
+        Assert.assertFalse(p.canBeShutdown(cfg, n1, 200000 + 59 * 1000));
+        Assert.assertTrue(p.canBeShutdown(cfg, n1, 200000 + 60 * 1000));
+    }
+}
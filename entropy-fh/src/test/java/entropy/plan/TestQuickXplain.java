@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.plan;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for QuickXplain.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestQuickXplain {
+
+    /**
+     * A checker that states a subset is inconsistent iff it contains one of the conflicts.
+     */
+    private static class MockChecker implements QuickXplain.Checker<Integer> {
+
+        private List<List<Integer>> conflicts;
+
+        public MockChecker(List<List<Integer>> conflicts) {
+            this.conflicts = conflicts;
+        }
+
+        @Override
+        public Boolean isConsistent(List<Integer> cstrs) {
+            for (List<Integer> c : conflicts) {
+                if (cstrs.containsAll(c)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A checker that takes some time and records the number of simultaneous probes.
+     */
+    private static class SlowChecker extends MockChecker {
+
+        private long duration;
+
+        private AtomicInteger running = new AtomicInteger();
+
+        private AtomicInteger maxRunning = new AtomicInteger();
+
+        public SlowChecker(List<List<Integer>> conflicts, long duration) {
+            super(conflicts);
+            this.duration = duration;
+        }
+
+        @Override
+        public Boolean isConsistent(List<Integer> cstrs) {
+            int nb = running.incrementAndGet();
+            synchronized (maxRunning) {
+                if (nb > maxRunning.get()) {
+                    maxRunning.set(nb);
+                }
+            }
+            try {
+                Thread.sleep(duration);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            return super.isConsistent(cstrs);
+        }
+    }
+
+    private static List<Integer> range(int n) {
+        List<Integer> l = new ArrayList<Integer>();
+        for (int i = 0; i < n; i++) {
+            l.add(i);
+        }
+        return l;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testSingleConflict() {
+        MockChecker ch = new MockChecker(Arrays.asList(Arrays.asList(3, 8)));
+        for (int p = 1; p <= 4; p++) {
+            QuickXplain<Integer> qx = new QuickXplain<Integer>(ch, p);
+            List<Integer> res = qx.explain(range(10));
+            Collections.sort(res);
+            Assert.assertEquals(res, Arrays.asList(3, 8));
+            Assert.assertTrue(qx.getNbProbes() > 0);
+        }
+    }
+
+    public void testConsistent() {
+        MockChecker ch = new MockChecker(new ArrayList<List<Integer>>());
+        QuickXplain<Integer> qx = new QuickXplain<Integer>(ch, 2);
+        Assert.assertNull(qx.explain(range(5)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testInconsistentBackground() {
+        MockChecker ch = new MockChecker(Arrays.asList(new ArrayList<Integer>()));
+        QuickXplain<Integer> qx = new QuickXplain<Integer>(ch, 1);
+        Assert.assertTrue(qx.explain(range(5)).isEmpty());
+    }
+
+    /**
+     * The explanation must be unsatisfiable and become satisfiable when any constraint is removed.
+     */
+    public void testMinimality() {
+        Random rnd = new Random(3);
+        for (int x = 0; x < 100; x++) {
+            int n = 1 + rnd.nextInt(20);
+            List<List<Integer>> conflicts = new ArrayList<List<Integer>>();
+            for (int i = 0; i < 1 + rnd.nextInt(3); i++) {
+                List<Integer> c = new ArrayList<Integer>();
+                for (int j = 0; j < 1 + rnd.nextInt(3); j++) {
+                    c.add(rnd.nextInt(n));
+                }
+                conflicts.add(c);
+            }
+            MockChecker ch = new MockChecker(conflicts);
+            List<Integer> res = new QuickXplain<Integer>(ch, 1 + x % 3).explain(range(n));
+            Assert.assertNotNull(res);
+            Assert.assertFalse(ch.isConsistent(res));
+            for (Integer r : res) {
+                List<Integer> l = new ArrayList<Integer>(res);
+                l.remove(r);
+                Assert.assertTrue(ch.isConsistent(l), res + " is not minimal for " + conflicts);
+            }
+        }
+    }
+
+    /**
+     * The speculative probes use every thread, and none is still running once the explanation is computed.
+     */
+    @SuppressWarnings("unchecked")
+    public void testSpeculation() {
+        SlowChecker ch = new SlowChecker(Arrays.asList(Arrays.asList(30, 31)), 20);
+        QuickXplain<Integer> qx = new QuickXplain<Integer>(ch, 4);
+        List<Integer> res = qx.explain(range(32));
+        Collections.sort(res);
+        Assert.assertEquals(res, Arrays.asList(30, 31));
+        Assert.assertTrue(qx.isMinimal());
+        Assert.assertTrue(ch.maxRunning.get() > 2, "At most " + ch.maxRunning.get() + " simultaneous probes");
+        Assert.assertTrue(ch.maxRunning.get() <= 4);
+        Assert.assertEquals(ch.running.get(), 0);
+    }
+
+    /**
+     * Once the time limit is reached, the explanation is still unsatisfiable but not minimal.
+     */
+    @SuppressWarnings("unchecked")
+    public void testTimeLimit() {
+        for (int p = 1; p <= 3; p++) {
+            SlowChecker ch = new SlowChecker(Arrays.asList(Arrays.asList(3, 8)), 50);
+            QuickXplain<Integer> qx = new QuickXplain<Integer>(ch, p);
+            qx.setTimeLimit(120);
+            long st = System.currentTimeMillis();
+            List<Integer> res = qx.explain(range(16));
+            long ed = System.currentTimeMillis();
+            Assert.assertNotNull(res);
+            Assert.assertFalse(ch.isConsistent(res));
+            Assert.assertFalse(qx.isMinimal());
+            Assert.assertTrue(res.size() > 2);
+            Assert.assertTrue(ed - st < 1000, "Explained in " + (ed - st) + " ms");
+            Assert.assertEquals(ch.running.get(), 0);
+        }
+    }
+}
@@ -27,12 +27,16 @@ import entropy.plan.*;
 import entropy.plan.action.Action;
 import entropy.plan.action.Migration;
 import entropy.plan.action.Shutdown;
+import entropy.plan.choco.search.RestartPolicy;
 import entropy.plan.durationEvaluator.MockDurationEvaluator;
 import entropy.template.MockVirtualMachineTemplateFactory;
 import entropy.template.VirtualMachineTemplateFactory;
+import entropy.vjob.ContinuousSpread;
 import entropy.vjob.DefaultVJob;
 import entropy.vjob.Fence;
+import entropy.vjob.Gather;
 import entropy.vjob.LazySpread;
+import entropy.vjob.PlacementConstraint;
 import entropy.vjob.VJob;
 import entropy.vjob.builder.DefaultVJobElementBuilder;
 import entropy.vjob.builder.plasma.*;
@@ -200,6 +204,89 @@ public class TestChocoCustomRP {
         }
     }
 
+    /**
+     * Solve a non-viable configuration with restarts.
+     */
+    public void testNonViableWithRestarts() {
+        ChocoCustomRP planner = makeModule();
+        RestartPolicy p = RestartPolicy.luby(10);
+        p.setSeed(7);
+        planner.setRestartPolicy(p);
+        Configuration src = TestHelper.readConfiguration(RESOURCES_DIR + "nonViable.txt");
+        List<VJob> vjobs = new ArrayList<VJob>();
+        VJob v = new DefaultVJob("v1");
+        v.addVirtualMachines(src.getRunnings());
+        vjobs.add(v);
+        try {
+            TimedReconfigurationPlan plan = planner.compute(src,
+                    src.getRunnings(),
+                    src.getWaitings(),
+                    src.getSleepings(),
+                    new SimpleManagedElementSet<VirtualMachine>(),
+                    src.getOnlines(),
+                    src.getOfflines(),
+                    vjobs);
+            Assert.assertEquals(plan.getDuration(), 5);
+            Assert.assertTrue(Configurations.futureOverloadedNodes(plan.getDestination()).isEmpty());
+        } catch (Exception e) {
+            Assert.fail(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Explain a failure caused by two conflicting constraints,
+     * in rebuild then in repair mode.
+     */
+    public void testExplainConflicts() {
+        Configuration src = new SimpleConfiguration();
+        Node n1 = new SimpleNode("N1", 1, 3, 3);
+        Node n2 = new SimpleNode("N2", 1, 3, 3);
+        Node n3 = new SimpleNode("N3", 1, 3, 3);
+        src.addOnline(n1);
+        src.addOnline(n2);
+        src.addOnline(n3);
+        VirtualMachine vm1 = new SimpleVirtualMachine("VM1", 1, 1, 1);
+        VirtualMachine vm2 = new SimpleVirtualMachine("VM2", 1, 1, 1);
+        VirtualMachine vm3 = new SimpleVirtualMachine("VM3", 1, 1, 1);
+        src.setRunOn(vm1, n1);
+        src.setRunOn(vm2, n2);
+        src.setRunOn(vm3, n3);
+        ManagedElementSet<VirtualMachine> vms = new SimpleManagedElementSet<VirtualMachine>();
+        vms.add(vm1);
+        vms.add(vm2);
+        VJob v = new DefaultVJob("v1");
+        PlacementConstraint gather = new Gather(vms);
+        PlacementConstraint spread = new ContinuousSpread(vms);
+        v.addConstraint(new Fence(new SimpleManagedElementSet<VirtualMachine>(vm3), new SimpleManagedElementSet<Node>(n3)));
+        v.addConstraint(gather);
+        v.addConstraint(spread);
+        List<VJob> l = new ArrayList<VJob>();
+        l.add(v);
+        for (int x = 0; x < 2; x++) {
+            ChocoCustomRP planner = makeModule();
+            planner.setRepairMode(x == 1);
+            planner.setExplainConflicts(true);
+            planner.setExplanationParallelism(2);
+            try {
+                planner.compute(src,
+                        src.getRunnings(),
+                        src.getWaitings(),
+                        src.getSleepings(),
+                        new SimpleManagedElementSet<VirtualMachine>(),
+                        src.getOnlines(),
+                        src.getOfflines(),
+                        l);
+                Assert.fail("No solution expected");
+            } catch (PlanException e) {
+                List<PlacementConstraint> conflict = planner.getConflict();
+                Assert.assertNotNull(conflict);
+                Assert.assertEquals(conflict.size(), 2);
+                Assert.assertTrue(conflict.contains(gather));
+                Assert.assertTrue(conflict.contains(spread));
+            }
+        }
+    }
+
     /**
      * Test solving with basic constraints.
      */
@@ -584,6 +671,65 @@ public class TestChocoCustomRP {
         }
     }
 
+    /**
+     * Test the energetic reasoning with a VM that stays on a node while
+     * another VM leaves it and a third one arrives. The arrival must wait for
+     * the departure as the staying VM still uses a part of the node.
+     */
+    public void testEnergeticReasoningWithStayingVM() {
+        Configuration src = new SimpleConfiguration();
+        Node n1 = new SimpleNode("N1", 1, 3, 3);
+        Node n2 = new SimpleNode("N2", 1, 4, 4);
+        src.addOnline(n1);
+        src.addOnline(n2);
+        VirtualMachine vm0 = new SimpleVirtualMachine("VM0", 1, 1, 1);
+        VirtualMachine vm1 = new SimpleVirtualMachine("VM1", 1, 2, 2);
+        VirtualMachine vm2 = new SimpleVirtualMachine("VM2", 1, 2, 2);
+        src.setRunOn(vm0, n1);
+        src.setRunOn(vm1, n1);
+        src.setRunOn(vm2, n2);
+        VJob v = new DefaultVJob("v1");
+        v.addConstraint(new Fence(new SimpleManagedElementSet<VirtualMachine>(vm1), new SimpleManagedElementSet<Node>(n2)));
+        v.addConstraint(new Fence(new SimpleManagedElementSet<VirtualMachine>(vm2), new SimpleManagedElementSet<Node>(n1)));
+        List<VJob> l = new ArrayList<VJob>();
+        l.add(v);
+        int[] durations = new int[2];
+        for (int x = 0; x < 2; x++) {
+            ChocoCustomRP planner = makeModule();
+            planner.setRepairMode(false);
+            planner.setEnergeticReasoning(x == 1);
+            try {
+                TimedReconfigurationPlan p = planner.compute(src,
+                        src.getRunnings(),
+                        src.getWaitings(),
+                        src.getSleepings(),
+                        new SimpleManagedElementSet<VirtualMachine>(),
+                        src.getOnlines(),
+                        src.getOfflines(),
+                        l);
+                Assert.assertEquals(p.size(), 2);
+                Assert.assertTrue(p.getDestination().getRunnings(n1).contains(vm0));
+                Assert.assertTrue(p.getDestination().getRunnings(n1).contains(vm2));
+                Assert.assertTrue(p.getDestination().getRunnings(n2).contains(vm1));
+                int leave = -1;
+                int arrive = -1;
+                for (Action a : p) {
+                    Migration m = (Migration) a;
+                    if (m.getVirtualMachine().equals(vm1)) {
+                        leave = m.getFinishMoment();
+                    } else {
+                        arrive = m.getStartMoment();
+                    }
+                }
+                Assert.assertTrue(arrive >= leave, "VM2 arrives at " + arrive + " while VM1 leaves at " + leave);
+                durations[x] = p.getDuration();
+            } catch (Exception e) {
+                Assert.fail(e.getMessage(), e);
+            }
+        }
+        Assert.assertEquals(durations[1], durations[0]);
+    }
+
     public void testSchedule() {
 
         Configuration src = new SimpleConfiguration();
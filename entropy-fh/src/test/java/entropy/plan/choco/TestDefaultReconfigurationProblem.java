@@ -20,14 +20,19 @@ package entropy.plan.choco;
 
 import choco.kernel.solver.search.ISolutionPool;
 import choco.kernel.solver.search.SolutionPoolFactory;
+import choco.kernel.solver.variables.integer.IntDomainVar;
 import entropy.TestHelper;
 import entropy.configuration.*;
 import entropy.plan.*;
 import entropy.plan.choco.actionModel.*;
+import entropy.plan.choco.actionModel.slice.ConsumingSlice;
+import entropy.plan.choco.actionModel.slice.DemandingSlice;
+import entropy.plan.choco.actionModel.slice.SliceStore;
 import entropy.plan.durationEvaluator.MockDurationEvaluator;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -553,4 +558,199 @@ public class TestDefaultReconfigurationProblem {
         }
     }
 
+    /**
+     * Test the detection of equivalent nodes and virtual machines.
+     */
+    public void testEquivalenceClasses() {
+        Configuration src = new SimpleConfiguration();
+        for (int i = 1; i <= 5; i++) {
+            src.addOnline(new SimpleNode("N" + i, 2, 10, i == 5 ? 20 : 10));
+        }
+        Node n1 = src.getOnlines().get("N1");
+        VirtualMachine vm1 = new SimpleVirtualMachine("VM1", 1, 2, 2);
+        VirtualMachine vm2 = new SimpleVirtualMachine("VM2", 1, 2, 2);
+        VirtualMachine vm3 = new SimpleVirtualMachine("VM3", 1, 2, 3);
+        src.setRunOn(vm1, n1);
+        src.setRunOn(vm2, n1);
+        src.setRunOn(vm3, n1);
+        try {
+            ReconfigurationProblem m = new DefaultReconfigurationProblem(
+                    src,
+                    src.getRunnings(),
+                    src.getWaitings(),
+                    src.getSleepings(),
+                    new SimpleManagedElementSet<VirtualMachine>(),
+                    src.getOnlines(),
+                    src.getOfflines(),
+                    new MockDurationEvaluator(7, 1, 2, 3, 4, 5, 6, 7, 8));
+            int[] nClasses = m.getNodeEquivalenceClasses();
+            int c = nClasses[m.getNode(src.getOnlines().get("N2"))];
+            Assert.assertEquals(nClasses[m.getNode(n1)], m.getNode(n1));
+            Assert.assertEquals(nClasses[m.getNode(src.getOnlines().get("N3"))], c);
+            Assert.assertEquals(nClasses[m.getNode(src.getOnlines().get("N4"))], c);
+            Assert.assertEquals(nClasses[m.getNode(src.getOnlines().get("N5"))], m.getNode(src.getOnlines().get("N5")));
+
+            int[] vClasses = m.getVirtualMachineEquivalenceClasses();
+            Assert.assertEquals(vClasses[m.getVirtualMachine(vm2)], vClasses[m.getVirtualMachine(vm1)]);
+            Assert.assertEquals(vClasses[m.getVirtualMachine(vm3)], m.getVirtualMachine(vm3));
+
+            //Elements involved in a constraint are no longer equivalent to the others
+            ManagedElementSet<Node> ns = new SimpleManagedElementSet<Node>();
+            ns.add(src.getOnlines().get("N4"));
+            ManagedElementSet<VirtualMachine> vms = new SimpleManagedElementSet<VirtualMachine>();
+            vms.add(vm2);
+            m.declareConstrainedElements(vms, ns);
+            nClasses = m.getNodeEquivalenceClasses();
+            Assert.assertEquals(nClasses[m.getNode(src.getOnlines().get("N4"))], m.getNode(src.getOnlines().get("N4")));
+            Assert.assertEquals(nClasses[m.getNode(src.getOnlines().get("N3"))], nClasses[m.getNode(src.getOnlines().get("N2"))]);
+            vClasses = m.getVirtualMachineEquivalenceClasses();
+            Assert.assertFalse(vClasses[m.getVirtualMachine(vm1)] == vClasses[m.getVirtualMachine(vm2)]);
+        } catch (PlanException e) {
+            Assert.fail(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Test the groups of nodes and the group of each node among candidates.
+     */
+    public void testNodesGroupId() {
+        Configuration src = new SimpleConfiguration();
+        for (int i = 1; i <= 4; i++) {
+            src.addOnline(new SimpleNode("N" + i, 2, 10, 10));
+        }
+        try {
+            ReconfigurationProblem m = new DefaultReconfigurationProblem(
+                    src,
+                    src.getRunnings(),
+                    src.getWaitings(),
+                    src.getSleepings(),
+                    new SimpleManagedElementSet<VirtualMachine>(),
+                    src.getOnlines(),
+                    src.getOfflines(),
+                    new MockDurationEvaluator(7, 1, 2, 3, 4, 5, 6, 7, 8));
+            Node n1 = src.getOnlines().get("N1");
+            Node n2 = src.getOnlines().get("N2");
+            Node n3 = src.getOnlines().get("N3");
+            ManagedElementSet<Node> g1 = new SimpleManagedElementSet<Node>();
+            g1.add(n1);
+            g1.add(n2);
+            ManagedElementSet<Node> g2 = new SimpleManagedElementSet<Node>();
+            g2.add(n3);
+            ManagedElementSet<Node> g3 = new SimpleManagedElementSet<Node>();
+            g3.add(n1);
+            g3.add(n3);
+            int v1 = m.getGroup(g1);
+            int v2 = m.getGroup(g2);
+            int v3 = m.getGroup(g3);
+            Assert.assertEquals(m.getGroup(g1), v1);
+            Assert.assertEquals(m.getNodesGroups().size(), 3);
+            Assert.assertEquals(m.getAssociatedGroups(n1).size(), 2);
+
+            //The last group of each node
+            Assert.assertEquals(m.getNodesGroupId()[m.getNode(n1)], v3);
+
+            //Restricted to the candidate groups
+            int[] ids = m.getNodesGroupId(new int[]{v1, v2});
+            Assert.assertEquals(ids[m.getNode(n1)], v1);
+            Assert.assertEquals(ids[m.getNode(n2)], v1);
+            Assert.assertEquals(ids[m.getNode(n3)], v2);
+            Assert.assertEquals(ids[m.getNode(src.getOnlines().get("N4"))], -1);
+
+            //Overlapping candidates are rejected, but available as couples
+            try {
+                m.getNodesGroupId(new int[]{v1, v3});
+                Assert.fail("N1 belongs to two candidate groups");
+            } catch (IllegalArgumentException e) {
+                //Expected
+            }
+            int[][] couples = m.getNodesGroupCouples(new int[]{v1, v3});
+            Assert.assertEquals(couples[0].length, 4);
+            Assert.assertEquals(couples[0][0], m.getNode(n1));
+            Assert.assertEquals(couples[0][1], m.getNode(n1));
+            Assert.assertEquals(couples[1][0], v1);
+            Assert.assertEquals(couples[1][1], v3);
+
+            //The group of VMs ranges over the declared groups only
+            IntDomainVar g = m.getVMGroup(new SimpleManagedElementSet<VirtualMachine>());
+            Assert.assertEquals(g.getInf(), 0);
+            Assert.assertEquals(g.getSup(), 2);
+        } catch (PlanException e) {
+            Assert.fail(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Check the slice store is consistent with the lists of slices.
+     */
+    public void testSliceStore() {
+        Configuration src = new SimpleConfiguration();
+        Node n1 = new SimpleNode("N1", 2, 10, 10);
+        Node n2 = new SimpleNode("N2", 2, 10, 10);
+        src.addOnline(n1);
+        src.addOnline(n2);
+        VirtualMachine vm1 = new SimpleVirtualMachine("VM1", 1, 2, 3);
+        VirtualMachine vm2 = new SimpleVirtualMachine("VM2", 1, 4, 5);
+        VirtualMachine vm3 = new SimpleVirtualMachine("VM3", 1, 6, 7);
+        src.setRunOn(vm1, n1);
+        src.setRunOn(vm3, n2);
+        src.addWaiting(vm2);
+        ManagedElementSet<VirtualMachine> runnings = new SimpleManagedElementSet<VirtualMachine>();
+        runnings.add(vm1);
+        runnings.add(vm2);
+        ManagedElementSet<VirtualMachine> terms = new SimpleManagedElementSet<VirtualMachine>();
+        terms.add(vm3);
+        try {
+            ReconfigurationProblem m = new DefaultReconfigurationProblem(
+                    src,
+                    runnings,
+                    new SimpleManagedElementSet<VirtualMachine>(),
+                    new SimpleManagedElementSet<VirtualMachine>(),
+                    terms,
+                    src.getOnlines(),
+                    src.getOfflines(),
+                    new MockDurationEvaluator(7, 1, 2, 3, 4, 5, 6, 7, 8));
+            SliceStore store = m.getSliceStore();
+            Assert.assertEquals(store.getNbDemandingSlices(), m.getDemandingSlices().size());
+            Assert.assertEquals(store.getNbConsumingSlices(), m.getConsumingSlice().size());
+            for (int i = 0; i < store.getNbDemandingSlices(); i++) {
+                DemandingSlice d = m.getDemandingSlices().get(i);
+                Assert.assertSame(store.getDemandingHosters()[i], d.hoster());
+                Assert.assertSame(store.getDemandingStarts()[i], d.start());
+                Assert.assertEquals(store.getDemandingCPUHeights()[i], d.getCPUheight());
+                Assert.assertEquals(store.getDemandingMemoryHeights()[i], d.getMemoryheight());
+            }
+            for (int i = 0; i < store.getNbConsumingSlices(); i++) {
+                ConsumingSlice c = m.getConsumingSlice().get(i);
+                Assert.assertSame(store.getConsumingHosters()[i], c.hoster());
+                Assert.assertSame(store.getConsumingEnds()[i], c.end());
+                Assert.assertEquals(store.getConsumingCPUHeights()[i], c.getCPUheight());
+                Assert.assertEquals(store.getConsumingMemoryHeights()[i], c.getMemoryheight());
+            }
+            //Only the migratable VM has both slices
+            ActionModel a = m.getAssociatedAction(vm1);
+            int dIdx = m.getDemandingSlices().indexOf(a.getDemandingSlice());
+            int cIdx = m.getConsumingSlice().indexOf(a.getConsumingSlice());
+            Assert.assertEquals(store.getAssociations()[dIdx], cIdx);
+            dIdx = m.getDemandingSlices().indexOf(m.getAssociatedAction(vm2).getDemandingSlice());
+            Assert.assertEquals(store.getAssociations()[dIdx], SliceStore.NO_ASSOCIATION);
+
+            //The terminated VM has no demanding slice
+            List<VirtualMachine> vms = new ArrayList<VirtualMachine>();
+            vms.add(vm2);
+            vms.add(vm3);
+            vms.add(vm1);
+            IntDomainVar[] hs = m.getDemandingHosters(vms);
+            Assert.assertEquals(hs.length, 2);
+            Assert.assertSame(hs[0], m.getAssociatedAction(vm2).getDemandingSlice().hoster());
+            Assert.assertSame(hs[1], a.getDemandingSlice().hoster());
+
+            //Decreasing memory heights: VM2 (5) then VM1 (3)
+            int[] sorted = store.sortByDecreasingHeights(store.getDemandingMemoryHeights(), false);
+            Assert.assertEquals(sorted.length, 2);
+            Assert.assertEquals(store.getDemandingMemoryHeights()[sorted[0]], 5);
+            Assert.assertEquals(store.getDemandingMemoryHeights()[sorted[1]], 3);
+        } catch (PlanException e) {
+            Assert.fail(e.getMessage(), e);
+        }
+    }
 }
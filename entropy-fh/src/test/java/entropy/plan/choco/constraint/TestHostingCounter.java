@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.plan.choco.constraint;
+
+import choco.cp.solver.CPSolver;
+import choco.cp.solver.search.BranchingFactory;
+import choco.kernel.solver.Configuration;
+import choco.kernel.solver.ContradictionException;
+import choco.kernel.solver.Solver;
+import choco.kernel.solver.variables.integer.IntDomainVar;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for HostingCounter.
+ *
+ * @author Fabien Hermenier
+ */
+public class TestHostingCounter {
+
+    Solver s;
+    IntDomainVar[] hosters;
+    IntDomainVar[] cards;
+
+    public void model(int nbNodes, int nbVMs, int maxPerNode) {
+        s = new CPSolver();
+        hosters = new IntDomainVar[nbVMs];
+        for (int i = 0; i < nbVMs; i++) {
+            hosters[i] = s.createEnumIntVar("h" + i, 0, nbNodes - 1);
+        }
+        cards = new IntDomainVar[nbNodes];
+        for (int n = 0; n < nbNodes; n++) {
+            cards[n] = s.createBoundIntVar("c" + n, 0, maxPerNode);
+        }
+        s.post(new HostingCounter(s.getEnvironment(), hosters, cards));
+    }
+
+    @Test(groups = {"unit"}, sequential = true)
+    public void testNbSolutions() {
+        //3 VMs on 3 nodes, at most 1 VM per node: the permutations
+        model(3, 3, 1);
+        s.getConfiguration().putFalse(Configuration.STOP_AT_FIRST_SOLUTION);
+        s.addGoal(BranchingFactory.minDomMinVal(s, hosters));
+        s.launch();
+        Assert.assertEquals(s.getNbSolutions(), 6);
+    }
+
+    @Test(groups = {"unit"}, sequential = true)
+    public void testFiltering() throws ContradictionException {
+        model(3, 4, 2);
+        s.propagate();
+        //4 VMs, at most 2 per node
+        Assert.assertEquals(cards[0].getSup(), 2);
+        hosters[0].setVal(0);
+        hosters[1].setVal(0);
+        s.propagate();
+        //Node 0 is full
+        for (int i = 2; i < hosters.length; i++) {
+            Assert.assertFalse(hosters[i].canBeInstantiatedTo(0));
+        }
+        Assert.assertEquals(cards[0].getVal(), 2);
+        cards[1].setSup(0);
+        s.propagate();
+        //Everything goes to node 2
+        Assert.assertEquals(hosters[2].getVal(), 2);
+        Assert.assertEquals(hosters[3].getVal(), 2);
+    }
+
+    @Test(groups = {"unit"}, sequential = true)
+    public void testFailure() {
+        model(2, 5, 2);
+        try {
+            s.propagate();
+            Assert.fail("5 VMs can not fit on 2 nodes hosting at most 2 VMs");
+        } catch (ContradictionException e) {
+            Assert.assertTrue(true);
+        }
+    }
+}
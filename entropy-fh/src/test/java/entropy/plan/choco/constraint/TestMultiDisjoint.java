@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.plan.choco.constraint;
+
+import choco.cp.solver.CPSolver;
+import choco.cp.solver.search.BranchingFactory;
+import choco.kernel.solver.Configuration;
+import choco.kernel.solver.ContradictionException;
+import choco.kernel.solver.Solver;
+import choco.kernel.solver.variables.integer.IntDomainVar;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for MultiDisjoint.
+ *
+ * @author Fabien Hermenier
+ */
+public class TestMultiDisjoint {
+
+    Solver s;
+    IntDomainVar[] vs;
+    MultiDisjoint c;
+
+    public void model(int nbVars, int nbValues) {
+        s = new CPSolver();
+        vs = new IntDomainVar[nbVars];
+        for (int i = 0; i < nbVars; i++) {
+            vs[i] = s.createEnumIntVar("v" + i, 0, nbValues - 1);
+        }
+        c = new MultiDisjoint(s.getEnvironment(), vs, nbValues);
+        s.post(c);
+    }
+
+    @Test(groups = {"unit"})
+    public void testColors() {
+        model(5, 2);
+        c.isolate(new int[]{0, 1, 2});
+        c.isolate(new int[]{2, 3});
+        Assert.assertEquals(c.getColor(0), c.getColor(1));
+        Assert.assertFalse(c.getColor(2) == c.getColor(0));
+        Assert.assertFalse(c.getColor(3) == c.getColor(2));
+        Assert.assertFalse(c.getColor(3) == c.getColor(4));
+        Assert.assertEquals(c.getNbColors(), 5);
+    }
+
+    @Test(groups = {"unit"}, sequential = true)
+    public void testNbSolutions() {
+        //Two groups + the others, on 3 values: each color takes its own values
+        model(3, 3);
+        c.isolate(new int[]{0});
+        c.isolate(new int[]{1});
+        s.getConfiguration().putFalse(Configuration.STOP_AT_FIRST_SOLUTION);
+        s.addGoal(BranchingFactory.minDomMinVal(s, vs));
+        s.launch();
+        Assert.assertEquals(s.getNbSolutions(), 6);
+    }
+
+    @Test(groups = {"unit"}, sequential = true)
+    public void testFiltering() throws ContradictionException {
+        model(4, 3);
+        c.isolate(new int[]{0, 1});
+        s.propagate();
+        vs[0].setVal(1);
+        s.propagate();
+        Assert.assertFalse(vs[2].canBeInstantiatedTo(1));
+        Assert.assertFalse(vs[3].canBeInstantiatedTo(1));
+        Assert.assertTrue(vs[1].canBeInstantiatedTo(1));
+        vs[2].setVal(0);
+        vs[3].setVal(2);
+        s.propagate();
+        //The group only has the value 1 left
+        Assert.assertEquals(vs[1].getVal(), 1);
+    }
+
+    @Test(groups = {"unit"}, sequential = true, expectedExceptions = {ContradictionException.class})
+    public void testFailure() throws ContradictionException {
+        model(2, 3);
+        c.isolate(new int[]{0});
+        vs[0].setVal(2);
+        vs[1].setVal(2);
+        s.propagate();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.plan.choco.constraint.pack;
+
+import choco.cp.solver.CPSolver;
+import choco.cp.solver.search.BranchingFactory;
+import choco.kernel.common.logging.ChocoLogging;
+import choco.kernel.common.logging.Verbosity;
+import choco.kernel.solver.Solver;
+import choco.kernel.solver.variables.integer.IntDomainVar;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compare the fast and the knapsack load reasoning of FastBinPacking
+ * on random tight instances. Arguments: [nbBins] [nbInstances] [seed]
+ *
+ * @author Fabien Hermenier
+ */
+public class BenchFastBinPacking {
+
+    public static void main(String[] args) {
+        int nbBins = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int nbInstances = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        ChocoLogging.setVerbosity(Verbosity.SILENT);
+        Random rnd = new Random(seed);
+        for (FastBinPacking.LoadReasoningPolicy p : FastBinPacking.LoadReasoningPolicy.values()) {
+            rnd.setSeed(seed);
+            long time = 0;
+            long nodes = 0;
+            int solved = 0;
+            for (int x = 0; x < nbInstances; x++) {
+                int capa = 100;
+                int[] sizes = new int[nbBins * 3];
+                for (int i = 0; i < sizes.length; i++) {
+                    sizes[i] = 20 + rnd.nextInt(25);
+                }
+                Arrays.sort(sizes);
+                for (int i = 0; i < sizes.length / 2; i++) {
+                    int t = sizes[i];
+                    sizes[i] = sizes[sizes.length - 1 - i];
+                    sizes[sizes.length - 1 - i] = t;
+                }
+                Solver s = new CPSolver();
+                IntDomainVar[] loads = new IntDomainVar[nbBins];
+                IntDomainVar[] sz = new IntDomainVar[sizes.length];
+                IntDomainVar[] bins = new IntDomainVar[sizes.length];
+                for (int i = 0; i < nbBins; i++) {
+                    loads[i] = s.createBoundIntVar("l" + i, 0, capa);
+                }
+                for (int i = 0; i < sizes.length; i++) {
+                    sz[i] = s.createIntegerConstant("s" + i, sizes[i]);
+                    bins[i] = s.createEnumIntVar("b" + i, 0, nbBins - 1);
+                }
+                s.post(new FastBinPacking(s.getEnvironment(), loads, sz, bins, p));
+                s.addGoal(BranchingFactory.minDomMinVal(s, bins));
+                s.setTimeLimit(10000);
+                long st = System.currentTimeMillis();
+                s.solve();
+                time += System.currentTimeMillis() - st;
+                nodes += s.getNodeCount();
+                if (s.isFeasible() != null) {
+                    solved++;
+                }
+            }
+            System.out.println(p + ": " + solved + "/" + nbInstances + " solved; " + nodes + " nodes; " + time + " ms");
+        }
+    }
+}
@@ -8,6 +8,7 @@ import choco.kernel.common.logging.ChocoLogging;
 import choco.kernel.common.logging.Verbosity;
 import choco.kernel.common.util.tools.ArrayUtils;
 import choco.kernel.solver.Configuration;
+import choco.kernel.solver.ContradictionException;
 import choco.kernel.solver.Solver;
 import choco.kernel.solver.constraints.SConstraint;
 import choco.kernel.solver.variables.integer.IntDomainVar;
@@ -28,7 +29,7 @@ public class TestFastBinPacking {
     IntDomainVar[] loads;
     IntDomainVar[] sizes;
     IntDomainVar[] bins;
-
+    FastBinPacking.LoadReasoningPolicy loadReasoning = FastBinPacking.LoadReasoningPolicy.FAST;
 
     public void modelPack(int nBins, int capa, int nItems, int height) {
         int[] heights = new int[nItems];
@@ -56,7 +57,7 @@ public class TestFastBinPacking {
             sizes[i] = s.createIntegerConstant("s" + i, height[i]);
             bins[i] = s.createEnumIntVar("b" + i, 0, nBins);
         }
-        SConstraint cPack = new FastBinPacking(s.getEnvironment(), loads, sizes, bins);
+        SConstraint cPack = new FastBinPacking(s.getEnvironment(), loads, sizes, bins, loadReasoning);
         s.post(cPack);
     }
 
@@ -88,6 +89,46 @@ public class TestFastBinPacking {
         testPack(2);
     }
 
+    @Test(groups = {"unit"}, sequential = true)
+    public void testLoadSupWithKnapsackReasoning() {
+        loadReasoning = FastBinPacking.LoadReasoningPolicy.KNAPSACK;
+        modelPack(5, 5, 5, 2);
+        s.addGoal(BranchingFactory.minDomMinVal(s, bins));
+        testPack(2220);
+        loadReasoning = FastBinPacking.LoadReasoningPolicy.FAST;
+    }
+
+    /**
+     * 4 items of size 6 in 3 bins of capacity 10.
+     * The sum of the sizes fits but the L2 bound detects the failure without branching.
+     */
+    @Test(groups = {"unit"}, sequential = true)
+    public void testL2Bound() {
+        loadReasoning = FastBinPacking.LoadReasoningPolicy.KNAPSACK;
+        modelPack(3, 10, 4, 6);
+        try {
+            s.propagate();
+            Assert.fail("The L2 bound should have detected the failure");
+        } catch (ContradictionException e) {
+            Assert.assertTrue(true);
+        }
+        loadReasoning = FastBinPacking.LoadReasoningPolicy.FAST;
+    }
+
+    /**
+     * Items of size 4 can not make a load of 9 or 10.
+     */
+    @Test(groups = {"unit"}, sequential = true)
+    public void testReachableLoads() throws ContradictionException {
+        loadReasoning = FastBinPacking.LoadReasoningPolicy.KNAPSACK;
+        modelPack(2, 10, 4, 4);
+        s.propagate();
+        Assert.assertEquals(loads[0].getSup(), 8);
+        Assert.assertEquals(loads[1].getSup(), 8);
+        Assert.assertEquals(loads[0].getInf(), 8);
+        loadReasoning = FastBinPacking.LoadReasoningPolicy.FAST;
+    }
+
     /**
      * var = array[index]
      */
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.plan.choco.constraint.pack;
+
+import choco.cp.solver.CPSolver;
+import choco.cp.solver.search.BranchingFactory;
+import choco.kernel.solver.Configuration;
+import choco.kernel.solver.ContradictionException;
+import choco.kernel.solver.Solver;
+import choco.kernel.solver.variables.integer.IntDomainVar;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for FastMultiBinPacking.
+ *
+ * @author Fabien Hermenier
+ */
+public class TestFastMultiBinPacking {
+
+    Solver s;
+    IntDomainVar[][] loads;
+    IntDomainVar[] bins;
+
+    /**
+     * @param nBins the number of bins
+     * @param capa  the capacity of each bin on each dimension
+     * @param sizes the sizes of the items on each dimension, decreasing on the first one
+     */
+    public void modelPack(int nBins, int[] capa, int[][] sizes) {
+        s = new CPSolver();
+        loads = new IntDomainVar[capa.length][nBins];
+        for (int d = 0; d < capa.length; d++) {
+            for (int b = 0; b < nBins; b++) {
+                loads[d][b] = s.createBoundIntVar("l" + d + "-" + b, 0, capa[d]);
+            }
+        }
+        bins = new IntDomainVar[sizes[0].length];
+        for (int i = 0; i < bins.length; i++) {
+            bins[i] = s.createEnumIntVar("b" + i, 0, nBins - 1);
+        }
+        s.post(new FastMultiBinPacking(s.getEnvironment(), loads, sizes, bins));
+    }
+
+    @Test(groups = {"unit"}, sequential = true)
+    public void testNbSolutions() {
+        modelPack(2, new int[]{5, 5}, new int[][]{{3, 2, 2}, {2, 3, 2}});
+        s.getConfiguration().putFalse(Configuration.STOP_AT_FIRST_SOLUTION);
+        s.addGoal(BranchingFactory.minDomMinVal(s, bins));
+        s.launch();
+        //Only the assignments of all the items into a single bin are not viable
+        Assert.assertEquals(s.getNbSolutions(), 6);
+    }
+
+    /**
+     * Each dimension alone fits in 2 bins, but the items pairwise overflow a bin.
+     */
+    @Test(groups = {"unit"}, sequential = true)
+    public void testVectorBound() {
+        modelPack(2, new int[]{10, 10}, new int[][]{{6, 5, 5}, {5, 6, 5}});
+        try {
+            s.propagate();
+            Assert.fail("The items can not be packed into 2 bins");
+        } catch (ContradictionException e) {
+            Assert.assertTrue(true);
+        }
+    }
+}
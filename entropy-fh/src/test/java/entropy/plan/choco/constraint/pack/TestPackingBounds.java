@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.plan.choco.constraint.pack;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for PackingBounds.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestPackingBounds {
+
+    public void testL2() {
+        Assert.assertEquals(PackingBounds.lowerBoundL2(new int[]{6, 6, 6, 6}, 4, 10), 4);
+        //The L1 bound is reached
+        Assert.assertEquals(PackingBounds.lowerBoundL2(new int[]{5, 5, 5, 5}, 4, 10), 2);
+        Assert.assertEquals(PackingBounds.lowerBoundL2(new int[]{3, 3, 3, 3}, 4, 10), 2);
+        //Big items with small items that can not fill them
+        Assert.assertEquals(PackingBounds.lowerBoundL2(new int[]{7, 7, 4, 4, 4}, 5, 10), 4);
+        Assert.assertEquals(PackingBounds.lowerBoundL2(new int[]{6, 6, 6}, 2, 10), 2);
+        Assert.assertEquals(PackingBounds.lowerBoundL2(new int[]{11, 2}, 2, 10), Integer.MAX_VALUE);
+        Assert.assertEquals(PackingBounds.lowerBoundL2(new int[]{}, 0, 10), 0);
+    }
+
+    public void testCountGreater() {
+        int[] s = {9, 7, 7, 3, 1};
+        Assert.assertEquals(PackingBounds.countGreater(s, 5, 10), 0);
+        Assert.assertEquals(PackingBounds.countGreater(s, 5, 7), 1);
+        Assert.assertEquals(PackingBounds.countGreater(s, 5, 6), 3);
+        Assert.assertEquals(PackingBounds.countGreater(s, 5, 0), 5);
+        Assert.assertEquals(PackingBounds.countGreater(s, 3, 0), 3);
+    }
+
+    public void testReachableSums() {
+        long[] bits = PackingBounds.newReachableSums(200);
+        PackingBounds.addItem(bits, 70, 200);
+        PackingBounds.addItem(bits, 70, 200);
+        PackingBounds.addItem(bits, 65, 200);
+        PackingBounds.addItem(bits, 300, 200);
+        //0, 65, 70, 135, 140
+        Assert.assertEquals(PackingBounds.nextReachable(bits, 0), 0);
+        Assert.assertEquals(PackingBounds.nextReachable(bits, 1), 65);
+        Assert.assertEquals(PackingBounds.nextReachable(bits, 66), 70);
+        Assert.assertEquals(PackingBounds.nextReachable(bits, 71), 135);
+        Assert.assertEquals(PackingBounds.nextReachable(bits, 141), -1);
+        Assert.assertEquals(PackingBounds.nextReachable(bits, 1000), -1);
+        Assert.assertEquals(PackingBounds.previousReachable(bits, 200), 140);
+        Assert.assertEquals(PackingBounds.previousReachable(bits, 139), 135);
+        Assert.assertEquals(PackingBounds.previousReachable(bits, 64), 0);
+        Assert.assertEquals(PackingBounds.previousReachable(bits, 1000), 140);
+
+        //Sums beyond the maximum are discarded
+        bits = PackingBounds.newReachableSums(100);
+        PackingBounds.addItem(bits, 60, 100);
+        PackingBounds.addItem(bits, 60, 100);
+        Assert.assertEquals(PackingBounds.previousReachable(bits, 200), 60);
+    }
+
+    public void testSortDecreasing() {
+        int[] v = {3, 8, 1, 8, 5, 42};
+        PackingBounds.sortDecreasing(v, 5);
+        Assert.assertEquals(v, new int[]{8, 8, 5, 3, 1, 42});
+    }
+
+    public void testConflictCliqueBound() {
+        int[] capa = {10, 10};
+        //Every pair overflows a bin on one dimension while each dimension requires 2 bins only
+        int[][] sizes = {{6, 5, 5}, {5, 6, 5}};
+        int[] items = {0, 1, 2};
+        Assert.assertEquals(PackingBounds.conflictCliqueBound(sizes, items, 3, capa, 10), 3);
+        Assert.assertEquals(PackingBounds.conflictCliqueBound(sizes, items, 2, capa, 10), 2);
+        //Stop once the limit is exceeded
+        Assert.assertEquals(PackingBounds.conflictCliqueBound(sizes, items, 3, capa, 1), 2);
+
+        //Items that can share a bin
+        sizes = new int[][]{{6, 1, 2}, {1, 6, 2}};
+        Assert.assertEquals(PackingBounds.conflictCliqueBound(sizes, items, 3, capa, 10), 1);
+
+        //A small item in conflict with the big one
+        sizes = new int[][]{{8, 3, 1}, {1, 2, 1}};
+        Assert.assertEquals(PackingBounds.conflictCliqueBound(sizes, items, 3, capa, 10), 2);
+        Assert.assertEquals(PackingBounds.conflictCliqueBound(sizes, items, 0, capa, 10), 0);
+    }
+
+    public void testGcd() {
+        Assert.assertEquals(PackingBounds.gcd(12, 0), 12);
+        Assert.assertEquals(PackingBounds.gcd(12, 18), 6);
+        Assert.assertEquals(PackingBounds.gcd(7, 5), 1);
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.plan.choco.constraint.sliceScheduling;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+/**
+ * Unit tests for EnergeticReasoning.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestEnergeticReasoning {
+
+    /**
+     * A c-slice and a d-slice that must overlap on a too small node.
+     */
+    public void testOverload() {
+        Assert.assertFalse(EnergeticReasoning.filter(4,
+                1, new int[]{3}, new int[]{5}, new int[]{10},
+                1, new int[]{3}, new int[]{0}, new int[]{2}));
+    }
+
+    /**
+     * The d-slice has to start late as the c-slice leaves late.
+     */
+    public void testDelayDSlice() {
+        int[] dStartInf = {0};
+        Assert.assertTrue(EnergeticReasoning.filter(4,
+                1, new int[]{3}, new int[]{5}, new int[]{10},
+                1, new int[]{3}, dStartInf, new int[]{10}));
+        Assert.assertTrue(dStartInf[0] > 0 && dStartInf[0] <= 5, "Got " + dStartInf[0]);
+    }
+
+    /**
+     * The c-slice has to leave early as the d-slice arrives early.
+     */
+    public void testAdvanceCSlice() {
+        int[] cEndSup = {10};
+        Assert.assertTrue(EnergeticReasoning.filter(4,
+                1, new int[]{3}, new int[]{1}, cEndSup,
+                1, new int[]{3}, new int[]{2}, new int[]{2}));
+        Assert.assertTrue(cEndSup[0] >= 2 && cEndSup[0] < 10, "Got " + cEndSup[0]);
+    }
+
+    /**
+     * Nothing to filter with a large node.
+     */
+    public void testNoFiltering() {
+        int[] cEndSup = {10};
+        int[] dStartInf = {0};
+        Assert.assertTrue(EnergeticReasoning.filter(6,
+                1, new int[]{3}, new int[]{5}, cEndSup,
+                1, new int[]{3}, dStartInf, new int[]{10}));
+        Assert.assertEquals(cEndSup[0], 10);
+        Assert.assertEquals(dStartInf[0], 0);
+    }
+
+    /**
+     * Compare the filtering with an enumeration of all the schedules on small instances.
+     * A failure must only be reported when there is no schedule and no bound of a
+     * feasible schedule may be removed.
+     */
+    public void testSoundness() {
+        Random rnd = new Random(42);
+        int horizon = 6;
+        for (int x = 0; x < 500; x++) {
+            int capa = 2 + rnd.nextInt(5);
+            int nbC = rnd.nextInt(3);
+            int nbD = rnd.nextInt(3);
+            int[] cH = new int[nbC];
+            int[] cInf = new int[nbC];
+            int[] cSup = new int[nbC];
+            for (int i = 0; i < nbC; i++) {
+                cH[i] = rnd.nextInt(capa) + 1;
+                cInf[i] = rnd.nextInt(horizon);
+                cSup[i] = cInf[i] + rnd.nextInt(horizon - cInf[i] + 1);
+            }
+            int[] dH = new int[nbD];
+            int[] dInf = new int[nbD];
+            int[] dSup = new int[nbD];
+            for (int i = 0; i < nbD; i++) {
+                dH[i] = rnd.nextInt(capa) + 1;
+                dInf[i] = rnd.nextInt(horizon);
+                dSup[i] = dInf[i] + rnd.nextInt(horizon - dInf[i] + 1);
+            }
+            int[] maxCEnd = new int[nbC];
+            int[] minDStart = new int[nbD];
+            boolean feasible = enumerate(capa, horizon, cH, cInf.clone(), cSup.clone(), dH, dInf.clone(), dSup.clone(), maxCEnd, minDStart);
+
+            int[] fCSup = cSup.clone();
+            int[] fDInf = dInf.clone();
+            boolean ok = EnergeticReasoning.filter(capa, nbC, cH, cInf, fCSup, nbD, dH, fDInf, dSup);
+            if (feasible) {
+                Assert.assertTrue(ok);
+                for (int i = 0; i < nbC; i++) {
+                    Assert.assertTrue(fCSup[i] >= maxCEnd[i]);
+                }
+                for (int i = 0; i < nbD; i++) {
+                    Assert.assertTrue(fDInf[i] <= minDStart[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Enumerate all the schedules and save the extreme moments of the feasible ones.
+     */
+    private static boolean enumerate(int capa, int horizon, int[] cH, int[] cInf, int[] cSup,
+                                     int[] dH, int[] dInf, int[] dSup,
+                                     int[] maxCEnd, int[] minDStart) {
+        int nbC = cH.length;
+        int nbD = dH.length;
+        int[] cur = new int[nbC + nbD];
+        for (int i = 0; i < nbC; i++) {
+            cur[i] = cInf[i];
+            maxCEnd[i] = -1;
+        }
+        for (int i = 0; i < nbD; i++) {
+            cur[nbC + i] = dInf[i];
+            minDStart[i] = Integer.MAX_VALUE;
+        }
+        boolean feasible = false;
+        while (true) {
+            boolean valid = true;
+            for (int t = 0; t <= horizon && valid; t++) {
+                int used = 0;
+                for (int i = 0; i < nbC; i++) {
+                    if (cur[i] > t) {
+                        used += cH[i];
+                    }
+                }
+                for (int i = 0; i < nbD; i++) {
+                    if (cur[nbC + i] <= t) {
+                        used += dH[i];
+                    }
+                }
+                valid = used <= capa;
+            }
+            if (valid) {
+                feasible = true;
+                for (int i = 0; i < nbC; i++) {
+                    maxCEnd[i] = Math.max(maxCEnd[i], cur[i]);
+                }
+                for (int i = 0; i < nbD; i++) {
+                    minDStart[i] = Math.min(minDStart[i], cur[nbC + i]);
+                }
+            }
+            //Next combination
+            int k = 0;
+            while (k < cur.length) {
+                int sup = k < nbC ? cSup[k] : dSup[k - nbC];
+                int inf = k < nbC ? cInf[k] : dInf[k - nbC];
+                if (cur[k] < sup) {
+                    cur[k]++;
+                    break;
+                }
+                cur[k] = inf;
+                k++;
+            }
+            if (k == cur.length) {
+                return feasible;
+            }
+        }
+    }
+}
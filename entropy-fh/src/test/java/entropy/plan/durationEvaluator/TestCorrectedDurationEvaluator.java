@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.plan.durationEvaluator;
+
+import entropy.configuration.Configuration;
+import entropy.configuration.Node;
+import entropy.configuration.SimpleConfiguration;
+import entropy.configuration.SimpleNode;
+import entropy.configuration.SimpleVirtualMachine;
+import entropy.configuration.VirtualMachine;
+import entropy.plan.action.Migration;
+import entropy.plan.action.Run;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for CorrectedDurationEvaluator and DurationStatistics.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestCorrectedDurationEvaluator {
+
+    /**
+     * Test the computation of the slowdowns.
+     */
+    public void testStatistics() {
+        Node n1 = new SimpleNode("N1", 1, 1, 1);
+        Node n2 = new SimpleNode("N2", 1, 1, 1);
+        Node n3 = new SimpleNode("N3", 1, 1, 1);
+        VirtualMachine vm = new SimpleVirtualMachine("VM1", 1, 1, 1);
+        DurationStatistics stats = new DurationStatistics(0.5);
+        Assert.assertTrue(Double.isNaN(stats.getSlowdown(Migration.class)));
+        Assert.assertTrue(Double.isNaN(stats.getSlowdown(n1)));
+
+        Assert.assertEquals(stats.record(new Migration(vm, n1, n2, 0, 10), 20000), 2.0, 0.001);
+        Assert.assertEquals(stats.record(new Migration(vm, n1, n3, 5, 10), 5000), 1.0, 0.001);
+        Assert.assertEquals(stats.getSlowdown(Migration.class), 1.5, 0.001);
+        Assert.assertEquals(stats.getSlowdown(n1), 1.5, 0.001);
+        Assert.assertEquals(stats.getSlowdown(n2), 2.0, 0.001);
+        Assert.assertEquals(stats.getSlowdown(n1, n2), 2.0, 0.001);
+        Assert.assertEquals(stats.getSlowdown(n1, n3), 1.0, 0.001);
+        Assert.assertTrue(Double.isNaN(stats.getSlowdown(n2, n1)));
+        Assert.assertEquals(stats.getNbSamples(n1), 2);
+        Assert.assertEquals(stats.getNbSamples(), 2);
+
+        //Instantaneous actions are ignored
+        Assert.assertTrue(Double.isNaN(stats.record(new Run(vm, n1, 3, 3), 1000)));
+        Assert.assertEquals(stats.getNbSamples(), 2);
+        stats.reset();
+        Assert.assertEquals(stats.getNbSamples(), 0);
+        Assert.assertTrue(Double.isNaN(stats.getSlowdown(n1)));
+    }
+
+    /**
+     * Test the correction of the durations.
+     */
+    public void testCorrection() throws DurationEvaluationException {
+        Node n1 = new SimpleNode("N1", 1, 1, 1);
+        Node n2 = new SimpleNode("N2", 1, 1, 1);
+        Node n3 = new SimpleNode("N3", 1, 1, 1);
+        VirtualMachine vm1 = new SimpleVirtualMachine("VM1", 1, 1, 1);
+        VirtualMachine vm2 = new SimpleVirtualMachine("VM2", 1, 1, 1);
+        Configuration cfg = new SimpleConfiguration();
+        cfg.addOnline(n1);
+        cfg.addOnline(n2);
+        cfg.addOnline(n3);
+        cfg.setRunOn(vm1, n1);
+        cfg.setRunOn(vm2, n3);
+
+        DurationStatistics stats = new DurationStatistics(1);
+        MockDurationEvaluator base = new MockDurationEvaluator(1, 10, 2, 3, 4, 5, 6, 7, 8);
+        CorrectedDurationEvaluator eval = new CorrectedDurationEvaluator(base, stats);
+        //No observations, no correction
+        Assert.assertEquals(eval.evaluateMigration(vm1), 10);
+        Assert.assertEquals(eval.evaluateRun(vm1), 3);
+
+        stats.record(new Migration(vm1, n1, n2, 0, 10), 30000);
+        stats.record(new Migration(vm2, n3, n2, 0, 10), 12000);
+        //Without configuration, the slowdown of the migrations is used
+        Assert.assertEquals(eval.evaluateMigration(vm1), 12);
+        eval.useConfiguration(cfg);
+        Assert.assertEquals(eval.evaluateMigration(vm1), 30);
+        Assert.assertEquals(eval.evaluateMigration(vm2), 12);
+        Assert.assertEquals(eval.evaluateRun(vm1), 3);
+
+        //Bounded factors
+        stats.record(new Migration(vm1, n1, n2, 0, 1), 100000);
+        Assert.assertEquals(eval.evaluateMigration(vm1), (int) (10 * CorrectedDurationEvaluator.MAX_FACTOR));
+        stats.record(new Run(vm1, n1, 0, 10), 1000);
+        Assert.assertEquals(eval.evaluateRun(vm1), 2);
+    }
+
+    /**
+     * Test that the corrections converge to the actual slowdown
+     * when the corrected durations are executed.
+     */
+    public void testConvergence() throws DurationEvaluationException {
+        Node n1 = new SimpleNode("N1", 1, 1, 1);
+        Node n2 = new SimpleNode("N2", 1, 1, 1);
+        VirtualMachine vm1 = new SimpleVirtualMachine("VM1", 1, 1, 1);
+        Configuration cfg = new SimpleConfiguration();
+        cfg.addOnline(n1);
+        cfg.addOnline(n2);
+        cfg.setRunOn(vm1, n1);
+
+        DurationStatistics stats = new DurationStatistics(0.5);
+        MockDurationEvaluator base = new MockDurationEvaluator(1, 10, 2, 3, 4, 5, 6, 7, 8);
+        CorrectedDurationEvaluator eval = new CorrectedDurationEvaluator(base, stats);
+        eval.useConfiguration(cfg);
+        //A migration lasts 3 times its base estimation
+        for (int i = 0; i < 10; i++) {
+            int d = eval.evaluateMigration(vm1);
+            double s = stats.record(new Migration(vm1, n1, n2, 0, d), 30000);
+            //The slowdown against the plan goes to 1
+            Assert.assertEquals(s, 30.0 / d, 0.001);
+        }
+        Assert.assertEquals(stats.getSlowdown(Migration.class), 3.0, 0.001);
+        Assert.assertEquals(stats.getSlowdown(n1), 3.0, 0.001);
+        Assert.assertEquals(eval.evaluateMigration(vm1), 30);
+
+        //Then only 2 times
+        for (int i = 0; i < 10; i++) {
+            int d = eval.evaluateMigration(vm1);
+            stats.record(new Migration(vm1, n1, n2, 0, d), 20000);
+        }
+        Assert.assertEquals(stats.getSlowdown(Migration.class), 2.0, 0.01);
+        Assert.assertEquals(stats.getSlowdown(n1), 2.0, 0.01);
+    }
+}
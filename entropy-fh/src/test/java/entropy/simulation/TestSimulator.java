@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.simulation;
+
+import entropy.configuration.Configuration;
+import entropy.configuration.Node;
+import entropy.configuration.SimpleConfiguration;
+import entropy.configuration.SimpleNode;
+import entropy.configuration.SimpleVirtualMachine;
+import entropy.plan.durationEvaluator.MockDurationEvaluator;
+import entropy.vjob.builder.DefaultVJobBuilderFactory;
+import entropy.vjob.queue.FCFSPersistentQueue;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.Collections;
+
+/**
+ * Unit tests for Simulator.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestSimulator {
+
+    private static SimulationStatistics simulate() throws Exception {
+        Configuration cfg = new SimpleConfiguration();
+        Node n1 = new SimpleNode("N1", 1, 100, 100);
+        Node n2 = new SimpleNode("N2", 1, 100, 100);
+        cfg.addOnline(n1);
+        cfg.addOnline(n2);
+        cfg.setRunOn(new SimpleVirtualMachine("VM1", 1, 30, 10), n1);
+        cfg.setRunOn(new SimpleVirtualMachine("VM2", 1, 30, 10), n2);
+
+        File q = File.createTempFile("queue", "");
+        Assert.assertTrue(q.delete());
+        Assert.assertTrue(q.mkdir());
+        q.deleteOnExit();
+
+        VirtualDatacenter dc = new VirtualDatacenter(cfg, new RecordedLoadTrace(Collections.singletonList(cfg), 1000), new VirtualClock());
+        DefaultVJobBuilderFactory b = new DefaultVJobBuilderFactory();
+        Simulator sim = new Simulator(dc, new MockDurationEvaluator(1, 5, 1, 1, 1, 1, 1, 1, 1), new FCFSPersistentQueue(b, q), b);
+        sim.setRefreshDelay(1);
+        sim.setPlanTimeout(5);
+        sim.setAssignTimeout(5);
+        return sim.run(60, 10);
+    }
+
+    /**
+     * Run a few iterations on the virtual clock.
+     * The loop sleeps 10 virtual seconds between two iterations, so
+     * 60 virtual seconds lead to 6 iterations, whatever the real time.
+     */
+    public void testVirtualTime() throws Exception {
+        long st = System.currentTimeMillis();
+        SimulationStatistics stats = simulate();
+        long duration = System.currentTimeMillis() - st;
+        Assert.assertEquals(stats.getNbIterations(), 6);
+        //Far below the 60 real seconds
+        Assert.assertTrue(duration < 30000, "Simulation lasted " + duration + " ms");
+        Assert.assertTrue(stats.getNbSamples() > 0);
+        Assert.assertEquals(stats.getNbFailures(), 0);
+    }
+
+    /**
+     * Two replays of the same trace observe the datacenter the same number of times.
+     */
+    public void testDeterministicReplay() throws Exception {
+        SimulationStatistics s1 = simulate();
+        SimulationStatistics s2 = simulate();
+        Assert.assertEquals(s1.getNbIterations(), s2.getNbIterations());
+        Assert.assertEquals(s1.getNbSamples(), s2.getNbSamples());
+        Assert.assertEquals(s1.getNbViolatingSamples(), s2.getNbViolatingSamples());
+        Assert.assertEquals(s1.getNbMigrations(), s2.getNbMigrations());
+    }
+}
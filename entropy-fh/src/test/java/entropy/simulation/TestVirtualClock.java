@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.simulation;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for VirtualClock.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestVirtualClock {
+
+    private static Thread sleeper(final VirtualClock c, final long d, final long[] wokenAt, final int idx) {
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    c.sleep(d);
+                    wokenAt[idx] = c.now();
+                } catch (InterruptedException e) {
+                    Assert.fail(e.getMessage(), e);
+                }
+            }
+        };
+        t.start();
+        return t;
+    }
+
+    private static void awaitSleepers(VirtualClock c, int nb) throws InterruptedException {
+        while (c.getNbSleepers() != nb) {
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * The time does not depend on the real time.
+     */
+    public void testNoRealTime() throws InterruptedException {
+        VirtualClock c = new VirtualClock();
+        Thread.sleep(20);
+        Assert.assertEquals(c.now(), 0);
+        Assert.assertEquals(c.getNextWakeup(), -1);
+        c.advanceTo(500);
+        Assert.assertEquals(c.now(), 500);
+        //Never goes back
+        c.advanceTo(100);
+        Assert.assertEquals(c.now(), 500);
+        c.sleep(0);
+    }
+
+    /**
+     * The sleeping threads are woken up in order, when the clock reaches their moment.
+     */
+    public void testWakeups() throws InterruptedException {
+        VirtualClock c = new VirtualClock();
+        long[] wokenAt = new long[3];
+        Thread t1 = sleeper(c, 3000, wokenAt, 0);
+        Thread t2 = sleeper(c, 1000, wokenAt, 1);
+        Thread t3 = sleeper(c, 1000, wokenAt, 2);
+        awaitSleepers(c, 3);
+        Assert.assertEquals(c.getNextWakeup(), 1000);
+
+        c.advanceTo(c.getNextWakeup());
+        t2.join();
+        t3.join();
+        Assert.assertEquals(wokenAt[1], 1000);
+        Assert.assertEquals(wokenAt[2], 1000);
+        Assert.assertEquals(c.getNbSleepers(), 1);
+        Assert.assertEquals(c.getNextWakeup(), 3000);
+
+        c.advanceTo(5000);
+        t1.join();
+        Assert.assertEquals(wokenAt[0], 5000);
+        Assert.assertEquals(c.getNbSleepers(), 0);
+        Assert.assertEquals(c.getNextWakeup(), -1);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.simulation;
+
+import entropy.configuration.Configuration;
+import entropy.configuration.Node;
+import entropy.configuration.SimpleConfiguration;
+import entropy.configuration.SimpleNode;
+import entropy.configuration.SimpleVirtualMachine;
+import entropy.configuration.VirtualMachine;
+import entropy.execution.driver.DriverException;
+import entropy.plan.action.Migration;
+import entropy.plan.durationEvaluator.MockDurationEvaluator;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+
+/**
+ * Unit tests for the simulation environment.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestVirtualDatacenter {
+
+    /**
+     * Execute a driver while advancing the clock up to its termination.
+     */
+    private static void execute(final SimulatedDriver drv, VirtualClock clock) throws Exception {
+        final DriverException[] err = new DriverException[1];
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    drv.execute();
+                } catch (DriverException e) {
+                    err[0] = e;
+                }
+            }
+        };
+        t.start();
+        while (t.isAlive()) {
+            long w = clock.getNextWakeup();
+            if (w >= 0) {
+                clock.advanceTo(w);
+            }
+            t.join(1);
+        }
+        if (err[0] != null) {
+            throw err[0];
+        }
+    }
+
+    private static Configuration makeConfiguration() {
+        Configuration cfg = new SimpleConfiguration();
+        Node n1 = new SimpleNode("N1", 1, 100, 100);
+        Node n2 = new SimpleNode("N2", 1, 100, 100);
+        cfg.addOnline(n1);
+        cfg.addOnline(n2);
+        cfg.setRunOn(new SimpleVirtualMachine("VM1", 1, 60, 10), n1);
+        cfg.setRunOn(new SimpleVirtualMachine("VM2", 1, 60, 10), n1);
+        return cfg;
+    }
+
+    /**
+     * Check observations are copies that reflect the trace.
+     */
+    public void testObserve() {
+        Configuration src = makeConfiguration();
+        Configuration sample = makeConfiguration();
+        sample.getAllVirtualMachines().get("VM1").setCPUConsumption(5);
+        RecordedLoadTrace trace = new RecordedLoadTrace(Collections.singletonList(sample), 1000);
+        VirtualDatacenter dc = new VirtualDatacenter(src, trace, new VirtualClock());
+        Configuration obs = dc.observe();
+        Assert.assertEquals(obs.getAllVirtualMachines().get("VM1").getCPUConsumption(), 5);
+        Assert.assertEquals(obs.getAllVirtualMachines().get("VM2").getCPUConsumption(), 60);
+        //The initial configuration is not modified
+        Assert.assertEquals(src.getAllVirtualMachines().get("VM1").getCPUConsumption(), 60);
+        obs.getAllVirtualMachines().get("VM2").setCPUConsumption(1);
+        Assert.assertEquals(dc.observe().getAllVirtualMachines().get("VM2").getCPUConsumption(), 60);
+        Assert.assertEquals(dc.getStatistics().getNbSamples(), 2);
+        Assert.assertEquals(dc.getStatistics().getNbViolatingSamples(), 0);
+    }
+
+    /**
+     * Check the simulated driver moves the VM in the datacenter.
+     *
+     * @throws DriverException should not occur
+     */
+    public void testMigration() throws Exception {
+        Configuration src = makeConfiguration();
+        VirtualClock clock = new VirtualClock();
+        VirtualDatacenter dc = new VirtualDatacenter(src, new SyntheticLoadTrace(1, 1000, 0, 0, 1000), clock);
+        Configuration obs = dc.observe();
+        Assert.assertEquals(dc.getStatistics().getNbViolatingSamples(), 1);
+        VirtualMachine vm1 = obs.getAllVirtualMachines().get("VM1");
+        Migration m = new Migration(vm1, obs.getOnlines().get("N1"), obs.getOnlines().get("N2"), 0, 5);
+        SimulatedDriver drv = new SimulatedDriver(m, dc, new MockDurationEvaluator(1, 2, 3, 4, 5, 6, 7, 8, 9));
+        Assert.assertEquals(drv.getDuration(), 2);
+        execute(drv, clock);
+        Assert.assertEquals(clock.now(), 2000);
+        obs = dc.observe();
+        Assert.assertEquals(obs.getLocation(vm1).getName(), "N2");
+        Assert.assertEquals(dc.getStatistics().getNbMigrations(), 1);
+        Assert.assertEquals(dc.getStatistics().getNbViolatingSamples(), 1);
+        try {
+            //Already performed
+            execute(drv, clock);
+            Assert.fail();
+        } catch (DriverException e) {
+            Assert.assertEquals(dc.getStatistics().getNbFailures(), 1);
+        }
+    }
+
+    /**
+     * Check the synthetic trace is deterministic.
+     */
+    public void testSyntheticTrace() {
+        SyntheticLoadTrace t1 = new SyntheticLoadTrace(42, 10000, 0.5, 0.1, 100);
+        SyntheticLoadTrace t2 = new SyntheticLoadTrace(42, 10000, 0.5, 0.1, 100);
+        for (long t = 0; t < 20000; t += 700) {
+            int c = t1.getCPUConsumption("VM1", 100, t);
+            Assert.assertEquals(c, t2.getCPUConsumption("VM1", 100, t));
+            Assert.assertTrue(c >= 40 && c <= 160, "Unexpected consumption " + c);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2010 Ecole des Mines de Nantes.
+ *
+ *      This file is part of Entropy.
+ *
+ *      Entropy is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU Lesser General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      (at your option) any later version.
+ *
+ *      Entropy is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU Lesser General Public License for more details.
+ *
+ *      You should have received a copy of the GNU Lesser General Public License
+ *      along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.tools;
+
+import entropy.configuration.Configuration;
+import entropy.configuration.Node;
+import entropy.configuration.SimpleConfiguration;
+import entropy.configuration.SimpleNode;
+import entropy.configuration.SimpleVirtualMachine;
+import entropy.configuration.VirtualMachine;
+import entropy.configuration.parser.FileConfigurationSerializerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Unit tests for BatchDataConverter.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestBatchDataConverter {
+
+    private static File makeDirectory() throws IOException {
+        File d = File.createTempFile("dataConv", "");
+        Assert.assertTrue(d.delete());
+        Assert.assertTrue(d.mkdir());
+        return d;
+    }
+
+    private static void delete(File d) {
+        File[] files = d.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        d.delete();
+    }
+
+    private static Configuration makeConfiguration(int nb) {
+        Configuration cfg = new SimpleConfiguration();
+        Node n = new SimpleNode("N1", 10, 10, 10);
+        cfg.addOnline(n);
+        for (int i = 0; i < nb; i++) {
+            VirtualMachine vm = new SimpleVirtualMachine("VM" + i, 1, 1, 1);
+            cfg.setRunOn(vm, n);
+        }
+        return cfg;
+    }
+
+    private static void write(File f, String content) throws IOException {
+        FileWriter out = new FileWriter(f);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Make an input folder with two valid configurations and a broken one.
+     */
+    private static File makeInputs(File root) throws IOException {
+        File in = new File(root, "in");
+        Assert.assertTrue(new File(in, "sub").mkdirs());
+        FileConfigurationSerializerFactory.getInstance().write(makeConfiguration(1), new File(in, "cfg1.txt").getPath());
+        FileConfigurationSerializerFactory.getInstance().write(makeConfiguration(2), new File(in, "sub/cfg2.txt").getPath());
+        write(new File(in, "bad.txt"), "this is not a configuration");
+        return in;
+    }
+
+    /**
+     * Convert a folder with a broken file.
+     */
+    public void testConvertFolder() throws Exception {
+        File root = makeDirectory();
+        try {
+            File in = makeInputs(root);
+            File out = new File(root, "out");
+            BatchDataConverter conv = new BatchDataConverter(DataConverter.CFG_MODE, "pbd", out.getPath(), 2, false);
+            Assert.assertFalse(conv.convert(Arrays.asList(in.getPath())));
+            Assert.assertEquals(conv.getNbConverted(), 2);
+            Assert.assertEquals(conv.getNbFailures(), 1);
+            Configuration c = FileConfigurationSerializerFactory.getInstance().read(new File(out, "sub/cfg2.pbd").getPath());
+            Assert.assertEquals(c, makeConfiguration(2));
+            c = FileConfigurationSerializerFactory.getInstance().read(new File(out, "cfg1.pbd").getPath());
+            Assert.assertEquals(c, makeConfiguration(1));
+
+            //Only the succeeded conversions are journaled
+            conv = new BatchDataConverter(DataConverter.CFG_MODE, "pbd", out.getPath(), 2, true);
+            Assert.assertFalse(conv.convert(Arrays.asList(in.getPath())));
+            Assert.assertEquals(conv.getNbConverted(), 0);
+            Assert.assertEquals(conv.getNbFailures(), 1);
+        } finally {
+            delete(root);
+        }
+    }
+
+    /**
+     * Resume a conversion that crashed after the conversion of a first file.
+     * The journal may end with a partially written line.
+     */
+    public void testResumeAfterCrash() throws Exception {
+        File root = makeDirectory();
+        try {
+            File in = makeInputs(root);
+            Assert.assertTrue(new File(in, "bad.txt").delete());
+            File out = new File(root, "out");
+            Assert.assertTrue(out.mkdir());
+            String cfg1 = new File(in, "cfg1.txt").getAbsolutePath();
+            String cfg2 = new File(in, "sub/cfg2.txt").getAbsolutePath();
+            write(new File(out, BatchDataConverter.JOURNAL), cfg1 + "\n" + cfg2.substring(0, cfg2.length() - 3));
+
+            BatchDataConverter conv = new BatchDataConverter(DataConverter.CFG_MODE, "pbd", out.getPath(), 2, true);
+            Assert.assertTrue(conv.convert(Arrays.asList(in.getPath())));
+            Assert.assertEquals(conv.getNbConverted(), 1);
+            Assert.assertTrue(new File(out, "sub/cfg2.pbd").exists());
+            Assert.assertFalse(new File(out, "cfg1.pbd").exists());
+
+            //Everything is converted now
+            conv = new BatchDataConverter(DataConverter.CFG_MODE, "pbd", out.getPath(), 1, true);
+            Assert.assertTrue(conv.convert(Arrays.asList(in.getPath())));
+            Assert.assertEquals(conv.getNbConverted(), 0);
+
+            //Without resuming, the journal is restarted
+            conv = new BatchDataConverter(DataConverter.CFG_MODE, "txt", out.getPath(), 1, false);
+            Assert.assertTrue(conv.convert(Arrays.asList(new File(in, "cfg?.txt").getPath())));
+            Assert.assertEquals(conv.getNbConverted(), 1);
+            Assert.assertTrue(new File(out, "cfg1.txt").exists());
+        } finally {
+            delete(root);
+        }
+    }
+
+    /**
+     * Convert inputs without extension, given explicitly or through a glob.
+     */
+    public void testWithoutExtension() throws Exception {
+        File root = makeDirectory();
+        try {
+            File in = makeInputs(root);
+            write(new File(in, "cfg3"), "this is not a configuration");
+            File out = new File(root, "out");
+            BatchDataConverter conv = new BatchDataConverter(DataConverter.CFG_MODE, "pbd", out.getPath(), 1, false);
+            Assert.assertFalse(conv.convert(Arrays.asList(new File(in, "cfg3").getPath())));
+            Assert.assertEquals(conv.getNbFailures(), 1);
+
+            conv = new BatchDataConverter(DataConverter.CFG_MODE, "pbd", out.getPath(), 2, false);
+            Assert.assertFalse(conv.convert(Arrays.asList(new File(in, "cfg*").getPath())));
+            Assert.assertEquals(conv.getNbConverted(), 1);
+            Assert.assertEquals(conv.getNbFailures(), 1);
+            Assert.assertTrue(new File(out, "cfg1.pbd").exists());
+        } finally {
+            delete(root);
+        }
+    }
+
+    /**
+     * Test the detection of the inputs that require the batch mode.
+     */
+    public void testNeedBatch() throws Exception {
+        File root = makeDirectory();
+        try {
+            Assert.assertTrue(DataConverter.needBatch(Arrays.asList("foo.txt", root.getPath())));
+            Assert.assertTrue(DataConverter.needBatch(Arrays.asList("cfg-*.pbd")));
+            Assert.assertFalse(DataConverter.needBatch(Arrays.asList("foo.txt", "bar.pbd")));
+        } finally {
+            delete(root);
+        }
+    }
+}
@@ -19,6 +19,7 @@
 
 package entropy.vjob.constraint;
 
+import choco.kernel.solver.variables.integer.IntDomainVar;
 import entropy.configuration.ManagedElementSet;
 import entropy.configuration.VirtualMachine;
 import entropy.plan.choco.ReconfigurationProblem;
@@ -47,6 +48,11 @@ public class MockSpread extends Spread {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void injectRelaxed(ReconfigurationProblem plan, IntDomainVar sat) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public String toXML() {
         return null;  //To change body of implemented methods use File | Settings | File Templates.
@@ -215,6 +215,122 @@ public class TestAmong {
         }
     }
 
+    /**
+     * Test with overlapping groups. N2 belongs to both groups
+     * but the VMs can only stay in the second group.
+     */
+    public void testWithOverlappingGroups() {
+        Configuration src = new SimpleConfiguration();
+        Node n1 = new SimpleNode("N1", 1, 10, 10);
+        Node n2 = new SimpleNode("N2", 1, 10, 10);
+        Node n3 = new SimpleNode("N3", 1, 10, 10);
+        src.addOnline(n1);
+        src.addOnline(n2);
+        src.addOnline(n3);
+        VirtualMachine vm0 = new SimpleVirtualMachine("VM0", 1, 10, 10);
+        VirtualMachine vm1 = new SimpleVirtualMachine("VM1", 1, 5, 10);
+        VirtualMachine vm2 = new SimpleVirtualMachine("VM2", 1, 5, 10);
+        src.setRunOn(vm0, n1);
+        src.setRunOn(vm1, n2);
+        src.setRunOn(vm2, n3);
+        ManagedElementSet<VirtualMachine> t1 = new SimpleManagedElementSet<VirtualMachine>();
+        t1.add(vm1);
+        t1.add(vm2);
+        ManagedElementSet<Node> g1 = new SimpleManagedElementSet<Node>();
+        g1.add(n1);
+        g1.add(n2);
+        ManagedElementSet<Node> g2 = new SimpleManagedElementSet<Node>();
+        g2.add(n2);
+        g2.add(n3);
+        Set<ManagedElementSet<Node>> ns = new HashSet<ManagedElementSet<Node>>();
+        ns.add(g1);
+        ns.add(g2);
+        Among a = new Among(t1, ns);
+        Assert.assertTrue(a.isSatisfied(src));
+        try {
+            ChocoCustomRP plan = new ChocoCustomRP(new MockDurationEvaluator(9, 1, 2, 3, 4, 5, 6, 7, 8));
+            plan.setRepairMode(false);
+            List<VJob> vjobs = new ArrayList<VJob>();
+            VJob v = new DefaultVJob("v1");
+            v.addVirtualMachines(t1);
+            v.addConstraint(a);
+            vjobs.add(v);
+            TimedReconfigurationPlan p = plan.compute(src,
+                    src.getRunnings(),
+                    src.getWaitings(),
+                    src.getSleepings(),
+                    new DefaultManagedElementSet<VirtualMachine>(),
+                    src.getOnlines(),
+                    src.getOfflines(),
+                    vjobs);
+            Assert.assertEquals(p.size(), 0);
+            Assert.assertTrue(a.isSatisfied(p.getDestination()));
+        } catch (Exception e) {
+            Assert.fail(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Test with groups that share their first node. N1 is full
+     * so the VMs can only stay on the other node of their current group.
+     */
+    public void testWithGroupsSharingTheirFirstNode() {
+        Node n1 = new SimpleNode("N1", 1, 10, 10);
+        Node n2 = new SimpleNode("N2", 1, 10, 10);
+        Node n3 = new SimpleNode("N3", 1, 10, 10);
+        ManagedElementSet<Node> g1 = new SimpleManagedElementSet<Node>();
+        g1.add(n1);
+        g1.add(n2);
+        ManagedElementSet<Node> g2 = new SimpleManagedElementSet<Node>();
+        g2.add(n1);
+        g2.add(n3);
+        Set<ManagedElementSet<Node>> ns = new HashSet<ManagedElementSet<Node>>();
+        ns.add(g1);
+        ns.add(g2);
+        //The VMs are on N2 then on N3, the other node is full
+        Node[][] placements = {{n2, n3}, {n3, n2}};
+        for (Node[] placement : placements) {
+            Configuration src = new SimpleConfiguration();
+            src.addOnline(n1);
+            src.addOnline(n2);
+            src.addOnline(n3);
+            VirtualMachine vm0 = new SimpleVirtualMachine("VM0", 1, 10, 10);
+            VirtualMachine vm1 = new SimpleVirtualMachine("VM1", 1, 5, 5);
+            VirtualMachine vm2 = new SimpleVirtualMachine("VM2", 1, 5, 5);
+            VirtualMachine vm3 = new SimpleVirtualMachine("VM3", 1, 10, 10);
+            src.setRunOn(vm0, n1);
+            src.setRunOn(vm1, placement[0]);
+            src.setRunOn(vm2, placement[0]);
+            src.setRunOn(vm3, placement[1]);
+            ManagedElementSet<VirtualMachine> t1 = new SimpleManagedElementSet<VirtualMachine>();
+            t1.add(vm1);
+            t1.add(vm2);
+            Among a = new Among(t1, ns);
+            Assert.assertTrue(a.isSatisfied(src));
+            try {
+                ChocoCustomRP plan = new ChocoCustomRP(new MockDurationEvaluator(9, 1, 2, 3, 4, 5, 6, 7, 8));
+                plan.setRepairMode(false);
+                List<VJob> vjobs = new ArrayList<VJob>();
+                VJob v = new DefaultVJob("v1");
+                v.addVirtualMachines(t1);
+                v.addConstraint(a);
+                vjobs.add(v);
+                TimedReconfigurationPlan p = plan.compute(src,
+                        src.getRunnings(),
+                        src.getWaitings(),
+                        src.getSleepings(),
+                        new DefaultManagedElementSet<VirtualMachine>(),
+                        src.getOnlines(),
+                        src.getOfflines(),
+                        vjobs);
+                Assert.assertEquals(p.size(), 0);
+                Assert.assertTrue(a.isSatisfied(p.getDestination()));
+            } catch (Exception e) {
+                Assert.fail(e.getMessage(), e);
+            }
+        }
+    }
+
     /**
      * Test isSatisfied() in various situations.
      */
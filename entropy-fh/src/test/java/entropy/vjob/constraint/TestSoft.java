@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) Fabien Hermenier
+ *
+ * This file is part of Entropy.
+ *
+ * Entropy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Entropy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Entropy.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package entropy.vjob.constraint;
+
+import entropy.configuration.*;
+import entropy.plan.TimedReconfigurationPlan;
+import entropy.plan.choco.ChocoCustomRP;
+import entropy.plan.durationEvaluator.MockDurationEvaluator;
+import entropy.vjob.*;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for Soft.
+ *
+ * @author Fabien Hermenier
+ */
+@Test(groups = {"unit"})
+public class TestSoft {
+
+    public void testBasics() {
+        ManagedElementSet<VirtualMachine> vms = new SimpleManagedElementSet<VirtualMachine>();
+        vms.add(new SimpleVirtualMachine("VM1", 1, 2, 3));
+        vms.add(new SimpleVirtualMachine("VM2", 1, 2, 3));
+        Gather g = new Gather(vms);
+        Soft s = new Soft(g, 10);
+        Assert.assertEquals(s.getConstraint(), g);
+        Assert.assertEquals(s.getPenalty(), 10);
+        Assert.assertEquals(s.getAllVirtualMachines(), vms);
+        Assert.assertEquals(s.getType(), g.getType());
+        Assert.assertEquals(s.toString(), "soft(" + g + ", 10)");
+        Assert.assertEquals(s, new Soft(new Gather(vms), 10));
+        Assert.assertEquals(s.hashCode(), new Soft(new Gather(vms), 10).hashCode());
+        Assert.assertNotEquals(s, new Soft(g, 5));
+        Assert.assertNotEquals(s, g);
+    }
+
+    @Test(expectedExceptions = {IllegalArgumentException.class})
+    public void testNotRelaxable() {
+        ManagedElementSet<VirtualMachine> vms = new SimpleManagedElementSet<VirtualMachine>();
+        vms.add(new SimpleVirtualMachine("VM1", 1, 2, 3));
+        new Soft(new Root(vms), 10);
+    }
+
+    /**
+     * Both implementations of spread are relaxable.
+     */
+    public void testSoftSpreads() {
+        ManagedElementSet<VirtualMachine> vms = new SimpleManagedElementSet<VirtualMachine>();
+        vms.add(new SimpleVirtualMachine("VM1", 1, 2, 3));
+        ContinuousSpread c = new ContinuousSpread(vms);
+        Assert.assertEquals(new Soft(c, 10).getConstraint(), c);
+        LazySpread l = new LazySpread(vms);
+        Assert.assertEquals(new Soft(l, 10).getConstraint(), l);
+    }
+
+    @Test(expectedExceptions = {IllegalArgumentException.class})
+    public void testNegativePenalty() {
+        ManagedElementSet<VirtualMachine> vms = new SimpleManagedElementSet<VirtualMachine>();
+        vms.add(new SimpleVirtualMachine("VM1", 1, 2, 3));
+        new Soft(new Gather(vms), -1);
+    }
+
+    /**
+     * A soft continuous spread on two VMs hosted on a same node. The constraint
+     * can be satisfied so it must not be relaxed.
+     */
+    public void testSatisfiedSolving() {
+        Configuration cfg = new SimpleConfiguration();
+        Node n1 = new SimpleNode("N1", 1, 5, 5);
+        Node n2 = new SimpleNode("N2", 1, 5, 5);
+        VirtualMachine vm1 = new SimpleVirtualMachine("VM1", 1, 1, 1);
+        VirtualMachine vm2 = new SimpleVirtualMachine("VM2", 1, 1, 1);
+        cfg.addOnline(n1);
+        cfg.addOnline(n2);
+        cfg.setRunOn(vm1, n1);
+        cfg.setRunOn(vm2, n1);
+        ManagedElementSet<VirtualMachine> vms = new SimpleManagedElementSet<VirtualMachine>();
+        vms.add(vm1);
+        vms.add(vm2);
+        VJob v = new DefaultVJob("v1");
+        Soft s = new Soft(new ContinuousSpread(vms), 100);
+        v.addConstraint(s);
+
+        ChocoCustomRP plan = new ChocoCustomRP(new MockDurationEvaluator(9, 3, 2, 3, 4, 5, 6, 7, 8));
+        plan.setRepairMode(false);
+        List<VJob> vjobs = new ArrayList<VJob>();
+        vjobs.add(v);
+        try {
+            TimedReconfigurationPlan p = plan.compute(cfg,
+                    cfg.getRunnings(),
+                    cfg.getWaitings(),
+                    cfg.getSleepings(),
+                    new SimpleManagedElementSet<VirtualMachine>(),
+                    cfg.getOnlines(),
+                    cfg.getOfflines(),
+                    vjobs);
+            Configuration res = p.getDestination();
+            Assert.assertTrue(s.isSatisfied(res));
+            Assert.assertTrue(plan.getRelaxedConstraints().isEmpty());
+            Assert.assertEquals(p.getActions().size(), 1);
+        } catch (Exception e) {
+            Assert.fail(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A gather and a soft lazySpread on the same VMs. The spread must be relaxed.
+     */
+    public void testRelaxedSolving() {
+        Configuration cfg = new SimpleConfiguration();
+        Node n1 = new SimpleNode("N1", 1, 5, 5);
+        Node n2 = new SimpleNode("N2", 1, 5, 5);
+        VirtualMachine vm1 = new SimpleVirtualMachine("VM1", 1, 1, 1);
+        VirtualMachine vm2 = new SimpleVirtualMachine("VM2", 1, 1, 1);
+        cfg.addOnline(n1);
+        cfg.addOnline(n2);
+        cfg.setRunOn(vm1, n1);
+        cfg.setRunOn(vm2, n2);
+        ManagedElementSet<VirtualMachine> vms = new SimpleManagedElementSet<VirtualMachine>();
+        vms.add(vm1);
+        vms.add(vm2);
+        VJob v = new DefaultVJob("v1");
+        Gather g = new Gather(vms);
+        Soft s = new Soft(new LazySpread(vms), 100);
+        v.addConstraint(g);
+        v.addConstraint(s);
+
+        ChocoCustomRP plan = new ChocoCustomRP(new MockDurationEvaluator(9, 3, 2, 3, 4, 5, 6, 7, 8));
+        plan.setRepairMode(false);
+        List<VJob> vjobs = new ArrayList<VJob>();
+        vjobs.add(v);
+        try {
+            TimedReconfigurationPlan p = plan.compute(cfg,
+                    cfg.getRunnings(),
+                    cfg.getWaitings(),
+                    cfg.getSleepings(),
+                    new SimpleManagedElementSet<VirtualMachine>(),
+                    cfg.getOnlines(),
+                    cfg.getOfflines(),
+                    vjobs);
+            Configuration res = p.getDestination();
+            Assert.assertTrue(g.isSatisfied(res));
+            Assert.assertEquals(plan.getRelaxedConstraints().size(), 1);
+            Assert.assertEquals(plan.getRelaxedConstraints().get(0), s);
+        } catch (Exception e) {
+            Assert.fail(e.getMessage(), e);
+        }
+    }
+}